@@ -34,8 +34,7 @@ public class Hx {
         jq = logicHolder;
         this.projectFileBean = projectFileBean;
 
-        ProjectSettings projectSettings = new ProjectSettings(logicHolder.sc_id);
-        isViewBindingEnabled = projectSettings.getValue(ProjectSettings.SETTING_ENABLE_VIEWBINDING, "false").equals("true");
+        isViewBindingEnabled = logicHolder.configuration.getProjectSetting(ProjectSettings.SETTING_ENABLE_VIEWBINDING, "false").equals("true");
 
         ArrayList<ViewBean> views = new ArrayList<>(eC.d(projectFileBean.getXmlName()));
         if (projectFileBean.hasActivityOption(ProjectFileBean.OPTION_ACTIVITY_FAB)) {
@@ -24,6 +24,7 @@ import mod.hey.studios.project.ProjectSettings;
 import mod.hey.studios.util.Helper;
 import mod.hilal.saif.android_manifest.AndroidManifestInjector;
 import mod.jbk.build.BuiltInLibraries;
+import pro.sketchware.util.build.BuildConfiguration;
 import pro.sketchware.util.library.BuiltInLibraryManager;
 import pro.sketchware.utility.FilePathUtil;
 import pro.sketchware.utility.FileResConfig;
@@ -38,7 +39,7 @@ public class Ix {
     public jq c;
     public FilePathUtil fpu = new FilePathUtil();
     public FileResConfig frc;
-    public ProjectSettings settings;
+    public BuildConfiguration configuration;
     private boolean targetsSdkVersion31OrHigher = false;
     private String packageName;
     private final Set<String> addedPermissions = new HashSet<>();
@@ -383,8 +384,8 @@ public class Ix {
     }
 
     public void setYq(yq yqVar) {
-        settings = new ProjectSettings(yqVar.sc_id);
-        targetsSdkVersion31OrHigher = Integer.parseInt(settings.getValue(ProjectSettings.SETTING_TARGET_SDK_VERSION, String.valueOf(VAR_DEFAULT_TARGET_SDK_VERSION))) >= 31;
+        configuration = yqVar.getConfiguration();
+        targetsSdkVersion31OrHigher = Integer.parseInt(configuration.getProjectSetting(ProjectSettings.SETTING_TARGET_SDK_VERSION, String.valueOf(VAR_DEFAULT_TARGET_SDK_VERSION))) >= 31;
         packageName = yqVar.packageName;
     }
 
@@ -396,7 +397,7 @@ public class Ix {
     public String a() {
         int targetSdkVersion;
         try {
-            targetSdkVersion = Integer.parseInt(settings.getValue(ProjectSettings.SETTING_TARGET_SDK_VERSION, String.valueOf(VAR_DEFAULT_TARGET_SDK_VERSION)));
+            targetSdkVersion = Integer.parseInt(configuration.getProjectSetting(ProjectSettings.SETTING_TARGET_SDK_VERSION, String.valueOf(VAR_DEFAULT_TARGET_SDK_VERSION)));
         } catch (NumberFormatException ignored) {
             targetSdkVersion = VAR_DEFAULT_TARGET_SDK_VERSION;
         }
@@ -505,7 +506,7 @@ public class Ix {
         applicationTag.addAttribute("android", "icon", "@mipmap/ic_launcher");
         applicationTag.addAttribute("android", "label", "@string/app_name");
 
-        String applicationClassName = settings.getValue(ProjectSettings.SETTING_APPLICATION_CLASS, ".SketchApplication");
+        String applicationClassName = configuration.getProjectSetting(ProjectSettings.SETTING_APPLICATION_CLASS, ".SketchApplication");
         applicationTag.addAttribute("android", "name", applicationClassName);
         if (addRequestLegacyExternalStorage) {
             applicationTag.addAttribute("android", "requestLegacyExternalStorage", "true");
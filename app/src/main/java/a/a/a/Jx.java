@@ -28,12 +28,13 @@ import mod.hilal.saif.blocks.CommandBlock;
 import mod.hilal.saif.events.LogicHandler;
 import mod.pranav.viewbinding.ViewBindingBuilder;
 import pro.sketchware.control.logic.PermissionManager;
+import pro.sketchware.util.build.BuildConfiguration;
 
 public class Jx {
 
     public static final String EOL = "\r\n";
     public static final Pattern WIDGET_NAME_PATTERN = Pattern.compile("\\w*\\..*\\.");
-    private final ProjectSettings settings;
+    private final BuildConfiguration configuration;
     private final PermissionManager permissionManager;
     private final String packageName;
     private final ProjectFileBean projectFileBean;
@@ -92,11 +93,11 @@ public class Jx {
         projectDataManager = eCVar;
         buildConfig = jqVar;
         mll = new ManageLocalLibrary(eCVar.a);
-        settings = new ProjectSettings(eCVar.a);
+        configuration = jqVar.configuration;
         permissionManager = new PermissionManager(eCVar.a, projectFileBean.getJavaName());
         ox = new Ox(buildConfig, projectFileBean);
         extraBlocks = getExtraBlockData();
-        isViewBindingEnabled = settings.getValue(ProjectSettings.SETTING_ENABLE_VIEWBINDING, BuildSettings.SETTING_GENERIC_VALUE_FALSE)
+        isViewBindingEnabled = configuration.getProjectSetting(ProjectSettings.SETTING_ENABLE_VIEWBINDING, BuildSettings.SETTING_GENERIC_VALUE_FALSE)
                 .equals(BuildSettings.SETTING_GENERIC_VALUE_TRUE);
         materialLibraryManager = new Material3LibraryManager(projectDataManager.a);
     }
@@ -575,7 +576,7 @@ public class Jx {
                 sb.append(EOL);
             }
         }
-        if (!isFragment && !settings.getValue(ProjectSettings.SETTING_DISABLE_OLD_METHODS, BuildSettings.SETTING_GENERIC_VALUE_TRUE)
+        if (!isFragment && !configuration.getProjectSetting(ProjectSettings.SETTING_DISABLE_OLD_METHODS, BuildSettings.SETTING_GENERIC_VALUE_TRUE)
                 .equals(BuildSettings.SETTING_GENERIC_VALUE_TRUE)) {
             sb.append(getDeprecatedMethodsCode());
         }
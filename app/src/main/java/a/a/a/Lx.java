@@ -18,7 +18,6 @@ import mod.hey.studios.moreblock.ReturnMoreblockManager;
 import mod.hey.studios.util.Helper;
 import mod.hilal.saif.components.ComponentsHandler;
 import mod.jbk.build.BuiltInLibraries;
-import mod.jbk.editor.manage.library.ExcludeBuiltInLibrariesActivity;
 import mod.pranav.viewbinding.ViewBindingBuilder;
 import pro.sketchware.utility.FileUtil;
 
@@ -86,7 +85,7 @@ public class Lx {
                 .append("dependencies {\r\n")
                 .append("implementation fileTree(dir: 'libs', include: ['*.jar'])\r\n");
 
-        List<BuiltInLibraries.BuiltInLibrary> excludedLibraries = ExcludeBuiltInLibrariesActivity.getExcludedLibraries(metadata.sc_id);
+        List<BuiltInLibraries.BuiltInLibrary> excludedLibraries = metadata.configuration.getExcludedLibraries();
         if (isLibraryNotExcluded(BuiltInLibraries.ANDROIDX_APPCOMPAT, excludedLibraries) && metadata.g) {
             content.append("""
                     implementation 'androidx.appcompat:appcompat:1.7.1'\r
@@ -16,12 +16,6 @@ import com.besome.sketch.beans.TextBean;
 import com.besome.sketch.beans.ViewBean;
 import com.besome.sketch.editor.manage.library.material3.Material3LibraryManager;
 
-import org.xmlpull.v1.XmlPullParser;
-import org.xmlpull.v1.XmlPullParserException;
-import org.xmlpull.v1.XmlPullParserFactory;
-
-import java.io.IOException;
-import java.io.StringReader;
 import java.nio.CharBuffer;
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -32,9 +26,9 @@ import java.util.regex.Pattern;
 
 import dev.aldi.sayuti.editor.injection.AppCompatInjection;
 import mod.agus.jcoderz.beans.ViewBeans;
-import mod.jbk.util.LogUtil;
 import pro.sketchware.managers.inject.InjectRootLayoutManager;
 import pro.sketchware.utility.InjectAttributeHandler;
+import pro.sketchware.utility.InjectAttributes;
 import pro.sketchware.xml.XmlBuilder;
 
 @SuppressLint("RtlHardcoded")
@@ -993,30 +987,11 @@ public class Ox {
     public Set<String> readAttributesToReplace(ViewBean viewBean) {
         Set<String> toReplace = new HashSet<>();
 
-        try {
-            XmlPullParserFactory factory = XmlPullParserFactory.newInstance();
-            factory.setNamespaceAware(true);
-            XmlPullParser parser = factory.newPullParser();
-            parser.setInput(new StringReader("<tag xmlns:android=\"http://schemas.android.com/apk/res/android\" " +
-                    "xmlns:app=\"http://schemas.android.com/apk/res-auto\" " +
-                    "xmlns:tools=\"http://schemas.android.com/tools\"" +
-                    viewBean.inject + "></tag>"));
-
-            int eventType = parser.getEventType();
-            while (eventType != XmlPullParser.END_DOCUMENT) {
-                if (eventType == XmlPullParser.START_TAG) {
-                    for (int i = 0; i < parser.getAttributeCount(); i++) {
-                        if ("http://schemas.android.com/tools".equals(parser.getAttributeNamespace(i)) &&
-                                "replace".equals(parser.getAttributeName(i))) {
-                            toReplace.addAll(Arrays.asList(parser.getAttributeValue(i).split("\\s*,\\s*")));
-                        }
-                    }
-                }
-
-                eventType = parser.next();
+        for (InjectAttributes.Attribute attribute : viewBean.getInjectAttributes().getAll()) {
+            if (InjectAttributes.NAMESPACE_TOOLS.equals(attribute.namespace()) &&
+                    "replace".equals(attribute.name())) {
+                toReplace.addAll(Arrays.asList(attribute.value().split("\\s*,\\s*")));
             }
-        } catch (XmlPullParserException | IOException | RuntimeException e) {
-            LogUtil.e("a.a.a.Ox", "Failed to parse inject property of View " + viewBean.id, e);
         }
 
         return toReplace;
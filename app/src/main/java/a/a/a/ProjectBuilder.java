@@ -21,8 +21,6 @@ import com.android.sdklib.build.ApkBuilder;
 import com.android.sdklib.build.ApkCreationException;
 import com.android.sdklib.build.DuplicateFileException;
 import com.android.sdklib.build.SealedApkException;
-import com.github.megatronking.stringfog.plugin.StringFogClassInjector;
-import com.github.megatronking.stringfog.plugin.StringFogMappingPrinter;
 import com.iyxan23.zipalignjava.InvalidZipException;
 import com.iyxan23.zipalignjava.ZipAlign;
 
@@ -33,8 +31,6 @@ import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.FileOutputStream;
 import java.io.IOException;
-import java.io.OutputStream;
-import java.io.PrintWriter;
 import java.io.RandomAccessFile;
 import java.lang.reflect.Method;
 import java.security.GeneralSecurityException;
@@ -55,15 +51,18 @@ import mod.agus.jcoderz.dx.command.dexer.DxContext;
 import mod.agus.jcoderz.dx.command.dexer.Main;
 import mod.agus.jcoderz.dx.merge.CollisionPolicy;
 import mod.agus.jcoderz.dx.merge.DexMerger;
+import mod.agus.jcoderz.dx.ssa.OptimizationPolicy;
 import mod.agus.jcoderz.editor.library.ExtLibSelected;
 import mod.agus.jcoderz.editor.manage.library.locallibrary.ManageLocalLibrary;
 import mod.hey.studios.build.BuildSettings;
 import mod.hey.studios.compiler.kotlin.KotlinCompilerBridge;
 import mod.hey.studios.project.ProjectSettings;
 import mod.hey.studios.project.proguard.ProguardHandler;
+import mod.hey.studios.project.stringfog.IncrementalStringFog;
 import mod.hey.studios.util.SystemLogPrinter;
 import mod.jbk.build.BuildProgressReceiver;
 import mod.jbk.build.BuiltInLibraries;
+import mod.jbk.build.compiler.java.IncrementalJavaCompiler;
 import mod.jbk.build.compiler.dex.DexCompiler;
 import mod.jbk.build.compiler.resource.ResourceCompiler;
 import mod.jbk.util.LogUtil;
@@ -71,7 +70,11 @@ import mod.jbk.util.TestkeySignBridge;
 import mod.pranav.build.JarBuilder;
 import mod.pranav.build.R8Compiler;
 import mod.pranav.viewbinding.ViewBindingBuilder;
+import pro.sketchware.BuildConfig;
 import pro.sketchware.SketchApplication;
+import pro.sketchware.util.build.BuildCache;
+import pro.sketchware.util.build.BuildConfiguration;
+import pro.sketchware.util.build.StageOutputCache;
 import pro.sketchware.util.library.BuiltInLibraryManager;
 import pro.sketchware.utility.FilePathUtil;
 import pro.sketchware.utility.FileUtil;
@@ -92,11 +95,17 @@ public class ProjectBuilder {
     public ManageLocalLibrary mll;
     public BuiltInLibraryManager builtInLibraryManager;
     public String androidJarPath;
-    public ProguardHandler proguard;
-    public ProjectSettings settings;
+    /**
+     * The project's build configuration, as it was when the build started
+     */
+    public final BuildConfiguration configuration;
     private BuildProgressReceiver progressReceiver;
     private boolean buildAppBundle = false;
     private ArrayList<File> dexesToAddButNotMerge = new ArrayList<>();
+    /**
+     * DEX files of libraries, as collected by {@link #collectLibraryDexes()}
+     */
+    private List<File> libraryDexes;
 
     /**
      * Timestamp keeping track of when compiling the project's resources started, needed for stats of how long compiling took.
@@ -132,11 +141,10 @@ public class ProjectBuilder {
         yq = yqVar;
         fpu = new FilePathUtil();
         mll = new ManageLocalLibrary(yqVar.sc_id);
-        builtInLibraryManager = new BuiltInLibraryManager(yqVar.sc_id);
+        configuration = yqVar.getConfiguration();
+        builtInLibraryManager = new BuiltInLibraryManager(configuration);
         File defaultAndroidJar = new File(BuiltInLibraries.EXTRACTED_COMPILE_ASSETS_PATH, "android.jar");
         androidJarPath = build_settings.getValue(BuildSettings.SETTING_ANDROID_JAR_PATH, defaultAndroidJar.getAbsolutePath());
-        proguard = new ProguardHandler(yqVar.sc_id);
-        settings = new ProjectSettings(yqVar.sc_id);
     }
 
     public ProjectBuilder(BuildProgressReceiver buildAsyncTask, Context context, yq yqVar) {
@@ -177,6 +185,9 @@ public class ProjectBuilder {
 
     /**
      * Compile resources and log time needed.
+     * <p>
+     * Resources aren't compiled incrementally: {@link ResourceCompiler} runs every AAPT2 compile
+     * and link step itself, so that's where a cache of compiled resources would have to go.
      *
      * @throws Exception Thrown when anything goes wrong while compiling resources
      */
@@ -192,7 +203,7 @@ public class ProjectBuilder {
     }
 
     public void generateViewBinding() throws IOException, SAXException {
-        if (settings.getValue(ProjectSettings.SETTING_ENABLE_VIEWBINDING, ProjectSettings.SETTING_GENERIC_VALUE_FALSE)
+        if (configuration.getProjectSetting(ProjectSettings.SETTING_ENABLE_VIEWBINDING, ProjectSettings.SETTING_GENERIC_VALUE_FALSE)
                 .equals(ProjectSettings.SETTING_GENERIC_VALUE_FALSE)) {
             return;
         }
@@ -226,7 +237,7 @@ public class ProjectBuilder {
      */
     public void createDexFilesFromClasses() throws Exception {
         FileUtil.makeDir(yq.binDirectoryPath + File.separator + "dex");
-        if (proguard.isShrinkingEnabled() && proguard.isR8Enabled()) return;
+        if (configuration.isShrinkingEnabled() && configuration.isR8Enabled()) return;
 
         if (isD8Enabled()) {
             long savedTimeMillis = System.currentTimeMillis();
@@ -239,18 +250,23 @@ public class ProjectBuilder {
             }
         } else {
             long savedTimeMillis = System.currentTimeMillis();
-            List<String> args = Arrays.asList(
+            List<String> args = new ArrayList<>(Arrays.asList(
                     "--debug",
                     "--verbose",
                     "--multi-dex",
-                    "--output=" + yq.binDirectoryPath + File.separator + "dex",
-                    proguard.isShrinkingEnabled() ? yq.proguardClassesPath : yq.compiledClassesPath
-            );
+                    "--output=" + yq.binDirectoryPath + File.separator + "dex"
+            ));
+            if (yq.N.isDebugBuild) {
+                // Faster builds at the cost of larger DEX files, for APKs that get run right away
+                args.add("--optimization-profile=debug-fast");
+                // Builds SSA form faster for large methods, with the same DEX output
+                args.add("--fast-ssa-construction");
+            }
+            args.add(configuration.isShrinkingEnabled() ? yq.proguardClassesPath : yq.compiledClassesPath);
 
             try {
                 LogUtil.d(TAG, "Running Dx with these arguments: " + args);
 
-                Main.clearInternTables();
                 Main.Arguments arguments = new Main.Arguments();
                 Method parseMethod = Main.Arguments.class.getDeclaredMethod("parse", String[].class);
                 parseMethod.setAccessible(true);
@@ -258,6 +274,11 @@ public class ProjectBuilder {
 
                 Main.run(arguments);
                 LogUtil.d(TAG, "Dx took " + (System.currentTimeMillis() - savedTimeMillis) + " ms");
+                OptimizationPolicy policy = arguments.cfOptions.optimizationPolicy;
+                LogUtil.d(TAG, "Dx optimized " + policy.getMethodsWithAllSteps() + " methods with all steps of profile "
+                        + policy.getProfile() + ", " + policy.getMethodsDowngraded() + " with cheap steps only, skipped "
+                        + policy.getMethodsSkipped() + " large methods");
+                LogUtil.d(TAG, "Dx intern tables after the run: " + Main.getInternTableSizes());
             } catch (Exception e) {
                 LogUtil.e(TAG, "Dx failed to process .class files", e);
                 throw e;
@@ -284,7 +305,7 @@ public class ProjectBuilder {
         }
 
         /* Include MultiDex library if needed */
-        if (settings.getMinSdkVersion() < 21) {
+        if (configuration.getMinSdkVersion() < 21) {
             classpath.append(":").append(BuiltInLibraries.getLibraryClassesJarPathString(BuiltInLibraries.ANDROIDX_MULTIDEX));
         }
 
@@ -331,7 +352,7 @@ public class ProjectBuilder {
 
             if (nameObject instanceof String name && jarPathObject instanceof String jarPath) {
 
-                if (localLibrary.containsKey("jarPath") && proguard.libIsProguardFMEnabled(name)) {
+                if (localLibrary.containsKey("jarPath") && configuration.isProguardFullModeEnabled(name)) {
                     localLibraryJarsWithFullModeOn.add(jarPath);
                 }
             }
@@ -508,89 +529,60 @@ public class ProjectBuilder {
     public void compileJavaCode() throws zy, IOException {
         long savedTimeMillis = System.currentTimeMillis();
 
-        class EclipseOutOutputStream extends OutputStream {
-
-            private final StringBuffer mBuffer = new StringBuffer();
-
-            @Override
-            public void write(int b) {
-                mBuffer.append((char) b);
-            }
-
-            public String getOut() {
-                return mBuffer.toString();
-            }
+        ArrayList<String> options = new ArrayList<>();
+        options.add("-" + build_settings.getValue(BuildSettings.SETTING_JAVA_VERSION,
+                BuildSettings.SETTING_JAVA_VERSION_1_7));
+        options.add("-nowarn");
+        if (!build_settings.getValue(BuildSettings.SETTING_NO_WARNINGS,
+                BuildSettings.SETTING_GENERIC_VALUE_TRUE).equals(BuildSettings.SETTING_GENERIC_VALUE_TRUE)) {
+            options.add("-deprecation");
         }
-
-        class EclipseErrOutputStream extends OutputStream {
-
-            private final StringBuffer mBuffer = new StringBuffer();
-
-            @Override
-            public void write(int b) {
-                mBuffer.append((char) b);
-            }
-
-            public String getOut() {
-                return mBuffer.toString();
-            }
+        options.add("-proc:none");
+
+        ArrayList<File> sourceRoots = new ArrayList<>();
+        sourceRoots.add(new File(yq.javaFilesPath));
+        sourceRoots.add(new File(yq.rJavaDirectoryPath));
+        String pathJava = fpu.getPathJava(yq.sc_id);
+        if (FileUtil.isExistFile(pathJava)) {
+            sourceRoots.add(new File(pathJava));
+        }
+        String pathBroadcast = fpu.getPathBroadcast(yq.sc_id);
+        if (FileUtil.isExistFile(pathBroadcast)) {
+            sourceRoots.add(new File(pathBroadcast));
+        }
+        String pathService = fpu.getPathService(yq.sc_id);
+        if (FileUtil.isExistFile(pathService)) {
+            sourceRoots.add(new File(pathService));
         }
 
-        try (EclipseOutOutputStream outOutputStream = new EclipseOutOutputStream();
-             PrintWriter outWriter = new PrintWriter(outOutputStream);
-             EclipseErrOutputStream errOutputStream = new EclipseErrOutputStream();
-             PrintWriter errWriter = new PrintWriter(errOutputStream)) {
-
-            ArrayList<String> args = new ArrayList<>();
-            args.add("-" + build_settings.getValue(BuildSettings.SETTING_JAVA_VERSION,
-                    BuildSettings.SETTING_JAVA_VERSION_1_7));
-            args.add("-nowarn");
-            if (!build_settings.getValue(BuildSettings.SETTING_NO_WARNINGS,
-                    BuildSettings.SETTING_GENERIC_VALUE_TRUE).equals(BuildSettings.SETTING_GENERIC_VALUE_TRUE)) {
-                args.add("-deprecation");
-            }
-            args.add("-d");
-            args.add(yq.compiledClassesPath);
-            args.add("-cp");
-            args.add(getClasspath());
-            args.add("-proc:none");
-            args.add(yq.javaFilesPath);
-            args.add(yq.rJavaDirectoryPath);
-            String pathJava = fpu.getPathJava(yq.sc_id);
-            if (FileUtil.isExistFile(pathJava)) {
-                args.add(pathJava);
-            }
-            String pathBroadcast = fpu.getPathBroadcast(yq.sc_id);
-            if (FileUtil.isExistFile(pathBroadcast)) {
-                args.add(pathBroadcast);
-            }
-            String pathService = fpu.getPathService(yq.sc_id);
-            if (FileUtil.isExistFile(pathService)) {
-                args.add(pathService);
-            }
-
-            /* Avoid "package ;" line in that file causing issues while compiling */
-            File rJavaFileWithoutPackage = new File(yq.rJavaDirectoryPath, "R.java");
-            if (rJavaFileWithoutPackage.exists() && !rJavaFileWithoutPackage.delete()) {
-                LogUtil.w(TAG, "Failed to delete file " + rJavaFileWithoutPackage.getAbsolutePath());
-            }
+        /* Avoid "package ;" line in that file causing issues while compiling */
+        File rJavaFileWithoutPackage = new File(yq.rJavaDirectoryPath, "R.java");
+        if (rJavaFileWithoutPackage.exists() && !rJavaFileWithoutPackage.delete()) {
+            LogUtil.w(TAG, "Failed to delete file " + rJavaFileWithoutPackage.getAbsolutePath());
+        }
 
-            /* Start compiling */
-            org.eclipse.jdt.internal.compiler.batch.Main main = new org.eclipse.jdt.internal.compiler.batch.Main(outWriter, errWriter, false, null, null);
-            LogUtil.d(TAG, "Running Eclipse compiler with these arguments: " + args);
-            main.compile(args.toArray(new String[0]));
+        /* Start compiling */
+        IncrementalJavaCompiler compiler = new IncrementalJavaCompiler(getBuildCacheDirectory("ecj"));
+        IncrementalJavaCompiler.Result result = compiler.compile(options, getClasspath(), sourceRoots, new File(yq.compiledClassesPath));
 
-            LogUtil.d(TAG, "System.out of Eclipse compiler: " + outOutputStream.getOut());
-            if (main.globalErrorsCount <= 0) {
-                LogUtil.d(TAG, "System.err of Eclipse compiler: " + errOutputStream.getOut());
-                LogUtil.d(TAG, "Compiling Java files took " + (System.currentTimeMillis() - savedTimeMillis) + " ms");
-            } else {
-                LogUtil.e(TAG, "Failed to compile Java files");
-                throw new zy(errOutputStream.getOut());
-            }
+        LogUtil.d(TAG, "System.out of Eclipse compiler: " + result.out());
+        if (result.success()) {
+            LogUtil.d(TAG, "System.err of Eclipse compiler: " + result.err());
+            LogUtil.d(TAG, "Compiling " + result.compiledFiles() + " Java files" + (result.incremental() ? " incrementally" : "")
+                    + " took " + (System.currentTimeMillis() - savedTimeMillis) + " ms");
+        } else {
+            LogUtil.e(TAG, "Failed to compile Java files");
+            throw new zy(result.err());
         }
     }
 
+    /**
+     * @return The cache directory of a build stage, see {@link BuildCache#getDirectory}
+     */
+    public File getBuildCacheDirectory(String name) {
+        return BuildCache.getDirectory(context, yq.sc_id, name);
+    }
+
     public void buildApk() throws By {
         String firstDexPath = dexesToAddButNotMerge.isEmpty() ? yq.classesDexPath : dexesToAddButNotMerge.remove(0).getAbsolutePath();
         try {
@@ -649,20 +641,19 @@ public class ProjectBuilder {
     }
 
     /**
-     * Either merges DEX files to as few as possible, or adds list of DEX files to add to the APK to
-     * {@link #dexesToAddButNotMerge}.
+     * Collects the DEX files of all used built-in and local libraries. Doesn't depend on the
+     * project's compiled classes, so it can run while those are getting compiled. The files only
+     * get read once {@link #getDexFilesReady()} merges them, one at a time, so that they don't
+     * all take up memory at once.
      * <p>
-     * Will merge DEX files if either the project's minSdkVersion is lower than 21, or if {@link jq#isDebugBuild}
-     * of {@link yq#N} in {@link #yq} is false.
-     *
-     * @throws Exception Thrown if merging failed
+     * {@link #getDexFilesReady()} does this itself if it hasn't been done before.
      */
-    public void getDexFilesReady() throws Exception {
+    public void collectLibraryDexes() {
         long savedTimeMillis = System.currentTimeMillis();
         ArrayList<File> dexes = new ArrayList<>();
 
         /* Add AndroidX MultiDex library if needed */
-        if (settings.getMinSdkVersion() < 21) {
+        if (configuration.getMinSdkVersion() < 21) {
             dexes.add(BuiltInLibraries.getLibraryDexFile(BuiltInLibraries.ANDROIDX_MULTIDEX));
         }
 
@@ -687,7 +678,7 @@ public class ProjectBuilder {
                 Object localLibraryDexPath = localLibrary.get("dexPath");
 
                 if (localLibraryDexPath instanceof String) {
-                    if (!proguard.libIsProguardFMEnabled((String) localLibraryName)) {
+                    if (!configuration.isProguardFullModeEnabled((String) localLibraryName)) {
                         dexes.add(new File((String) localLibraryDexPath));
                         /* Add library's extra DEX files */
                         File localLibraryDirectory = new File((String) localLibraryDexPath).getParentFile();
@@ -715,13 +706,33 @@ public class ProjectBuilder {
             }
         }
 
+        libraryDexes = dexes;
+        LogUtil.d(TAG, "Collecting " + dexes.size() + " library DEX files took " + (System.currentTimeMillis() - savedTimeMillis) + " ms");
+    }
+
+    /**
+     * Either merges DEX files to as few as possible, or adds list of DEX files to add to the APK to
+     * {@link #dexesToAddButNotMerge}.
+     * <p>
+     * Will merge DEX files if either the project's minSdkVersion is lower than 21, or if {@link jq#isDebugBuild}
+     * of {@link yq#N} in {@link #yq} is false.
+     *
+     * @throws Exception Thrown if merging failed
+     */
+    public void getDexFilesReady() throws Exception {
+        long savedTimeMillis = System.currentTimeMillis();
+        if (libraryDexes == null) {
+            collectLibraryDexes();
+        }
+        ArrayList<File> dexes = new ArrayList<>(libraryDexes);
+
         for (String file : FileUtil.listFiles(yq.binDirectoryPath + File.separator + "dex", "dex")) {
             dexes.add(new File(file));
         }
 
         LogUtil.d(TAG, "Will merge these " + dexes.size() + " DEX files to classes.dex: " + dexes);
 
-        if (settings.getMinSdkVersion() < 21 || !yq.N.isDebugBuild) {
+        if (isMergingDexes()) {
             dexLibraries(new File(yq.binDirectoryPath), dexes);
             LogUtil.d(TAG, "Merging DEX files took " + (System.currentTimeMillis() - savedTimeMillis) + " ms");
         } else {
@@ -730,6 +741,10 @@ public class ProjectBuilder {
         }
     }
 
+    private boolean isMergingDexes() {
+        return configuration.getMinSdkVersion() < 21 || !yq.N.isDebugBuild;
+    }
+
     /**
      * Extracts AAPT2 binaries (if they need to be extracted).
      *
@@ -811,6 +826,7 @@ public class ProjectBuilder {
 
     private void mergeDexes(File target, List<Dex> dexes) throws IOException {
         DexMerger merger = new DexMerger(dexes.toArray(new Dex[0]), CollisionPolicy.KEEP_FIRST, new DxContext());
+        merger.setThreadCount(Runtime.getRuntime().availableProcessors());
         merger.merge().writeTo(target);
     }
 
@@ -852,7 +868,7 @@ public class ProjectBuilder {
         }
         for (HashMap<String, Object> hashMap : mll.list) {
             String obj = hashMap.get("name").toString();
-            if (hashMap.containsKey("packageName") && !proguard.libIsProguardFMEnabled(obj)) {
+            if (hashMap.containsKey("packageName") && !configuration.isProguardFullModeEnabled(obj)) {
                 sb.append("\n");
                 sb.append("-keep class ");
                 sb.append(hashMap.get("packageName").toString());
@@ -870,7 +886,7 @@ public class ProjectBuilder {
         ArrayList<String> config = new ArrayList<>();
         config.add(ProguardHandler.ANDROID_PROGUARD_RULES_PATH);
         config.add(yq.proguardAaptRules);
-        config.add(proguard.getCustomProguardRules());
+        config.add(configuration.getCustomProguardRulesPath());
         var rules = new ArrayList<>(Arrays.asList(getRJavaRules().split("\n")));
         for (Jp library : builtInLibraryManager.getLibraries()) {
             File f = BuiltInLibraries.getLibraryProguardConfiguration(library.getName());
@@ -884,16 +900,45 @@ public class ProjectBuilder {
 
         for (HashMap<String, Object> hashMap : mll.list) {
             String obj = hashMap.get("name").toString();
-            if (hashMap.containsKey("jarPath") && proguard.libIsProguardFMEnabled(obj)) {
+            if (hashMap.containsKey("jarPath") && configuration.isProguardFullModeEnabled(obj)) {
                 jars.add(hashMap.get("jarPath").toString());
             }
         }
+        String classpath = getProguardClasspath();
+
+        BuildCache.Fingerprint fingerprint = newShrinkerFingerprint("r8");
+        for (String rule : rules) {
+            fingerprint.put(rule);
+        }
+        for (String file : config) {
+            fingerprint.put(file).putFile(new File(file));
+        }
+        // The first jar only gets created from the compiled classes once R8 actually runs, so
+        // fingerprint the classes themselves instead of whatever jar an earlier build left behind
+        fingerprint.putFile(new File(yq.compiledClassesPath));
+        for (int i = 1; i < jars.size(); i++) {
+            fingerprint.put(jars.get(i)).putFile(new File(jars.get(i)));
+        }
+        fingerprint.putClasspath(classpath);
+        String inputs = fingerprint.get();
+
+        StageOutputCache cache = newShrinkerOutputCache("r8")
+                .addOutput("dex", new File(yq.binDirectoryPath, "dex"));
+        if (cache.restore(inputs)) {
+            LogUtil.d(TAG, "R8 inputs unchanged, restored previous outputs in " + (System.currentTimeMillis() - savedTimeMillis) + " ms");
+            reportProgress("R8 inputs unchanged, reused previous output", 15);
+            return;
+        }
+        LogUtil.d(TAG, "R8 inputs changed, running R8");
+        reportProgress("R8 inputs changed, running R8 on classes...", 15);
+
         try {
             JarBuilder.INSTANCE.generateJar(new File(yq.compiledClassesPath));
-            new R8Compiler(rules, config.toArray(new String[0]), getProguardClasspath().split(":"), jars.toArray(new String[0]), settings.getMinSdkVersion(), yq).compile();
+            new R8Compiler(rules, config.toArray(new String[0]), classpath.split(":"), jars.toArray(new String[0]), configuration.getMinSdkVersion(), yq).compile();
         } catch (Exception e) {
             throw new IOException(e);
         }
+        cache.store(inputs);
         LogUtil.d(TAG, "R8 took " + (System.currentTimeMillis() - savedTimeMillis) + " ms");
     }
 
@@ -912,7 +957,7 @@ public class ProjectBuilder {
 
         /* Include custom ProGuard rules */
         args.add("-include");
-        args.add(proguard.getCustomProguardRules());
+        args.add(configuration.getCustomProguardRulesPath());
 
         proguardAddLibConfigs(args);
         proguardAddRjavaRules(args);
@@ -929,7 +974,7 @@ public class ProjectBuilder {
 
         for (HashMap<String, Object> hashMap : mll.list) {
             String obj = hashMap.get("name").toString();
-            if (hashMap.containsKey("jarPath") && proguard.libIsProguardFMEnabled(obj)) {
+            if (hashMap.containsKey("jarPath") && configuration.isProguardFullModeEnabled(obj)) {
                 args.add("-injars");
                 args.add(hashMap.get("jarPath").toString());
             }
@@ -938,7 +983,7 @@ public class ProjectBuilder {
         args.add(getProguardClasspath());
         args.add("-outjars");
         args.add(yq.proguardClassesPath);
-        if (proguard.isDebugFilesEnabled()) {
+        if (configuration.isDebugFilesEnabled()) {
             args.add("-printseeds");
             args.add(yq.proguardSeedsPath);
             args.add("-printusage");
@@ -948,6 +993,28 @@ public class ProjectBuilder {
         }
         LogUtil.d(TAG, "About to run ProGuard with these arguments: " + args);
 
+        BuildCache.Fingerprint fingerprint = newShrinkerFingerprint("proguard");
+        for (int i = 0; i < args.size(); i++) {
+            String arg = args.get(i);
+            fingerprint.put(arg);
+            if (i > 0 && (args.get(i - 1).equals("-include") || args.get(i - 1).equals("-injars"))) {
+                fingerprint.putFile(new File(arg));
+            } else if (i > 0 && args.get(i - 1).equals("-libraryjars")) {
+                fingerprint.putClasspath(arg);
+            }
+        }
+        String inputs = fingerprint.get();
+
+        StageOutputCache cache = newShrinkerOutputCache("proguard")
+                .addOutput("classes", new File(yq.proguardClassesPath));
+        if (cache.restore(inputs)) {
+            LogUtil.d(TAG, "ProGuard inputs unchanged, restored previous outputs in " + (System.currentTimeMillis() - savedTimeMillis) + " ms");
+            reportProgress("ProGuard inputs unchanged, reused previous output", 16);
+            return;
+        }
+        LogUtil.d(TAG, "ProGuard inputs changed, running ProGuard");
+        reportProgress("ProGuard inputs changed, ProGuarding classes...", 16);
+
         Configuration configuration = new Configuration();
 
         try {
@@ -967,22 +1034,50 @@ public class ProjectBuilder {
             throw new IOException(e);
         }
 
+        cache.store(inputs);
         LogUtil.d(TAG, "ProGuard took " + (System.currentTimeMillis() - savedTimeMillis) + " ms");
     }
 
+    private void reportProgress(String progress, int step) {
+        if (progressReceiver != null) {
+            progressReceiver.onProgress(progress, step);
+        }
+    }
+
+    /**
+     * @return A fingerprint with what all shrinker runs depend on besides their arguments: the
+     * shrinker (bundled with Sketchware Pro, so its version changes with the app's) and options
+     * that shrinkers read from the project's configuration directly
+     */
+    private BuildCache.Fingerprint newShrinkerFingerprint(String shrinker) {
+        return new BuildCache.Fingerprint()
+                .put(shrinker)
+                .put(BuildConfig.GIT_HASH)
+                .put(configuration.getMinSdkVersion())
+                .put(configuration.isDebugFilesEnabled());
+    }
+
+    /**
+     * @return The output cache of a shrinker, with the debug files it may print already added
+     */
+    private StageOutputCache newShrinkerOutputCache(String shrinker) {
+        return new StageOutputCache(getBuildCacheDirectory(shrinker))
+                .addOutput("mapping.txt", new File(yq.proguardMappingPath))
+                .addOutput("seeds.txt", new File(yq.proguardSeedsPath))
+                .addOutput("usage.txt", new File(yq.proguardUsagePath));
+    }
+
     public void runStringfog() {
+        long savedTimeMillis = System.currentTimeMillis();
         try {
-            StringFogMappingPrinter stringFogMappingPrinter = new StringFogMappingPrinter(new File(yq.binDirectoryPath,
-                    "stringFogMapping.txt"));
-            StringFogClassInjector stringFogClassInjector = new StringFogClassInjector(new String[0],
+            IncrementalStringFog stringFog = new IncrementalStringFog(getBuildCacheDirectory("stringfog"),
                     "UTF-8",
-                    "com.github.megatronking.stringfog.xor.StringFogImpl",
-                    "com.github.megatronking.stringfog.xor.StringFogImpl",
-                    stringFogMappingPrinter);
-            stringFogMappingPrinter.startMappingOutput();
-            stringFogMappingPrinter.ouputInfo("UTF-8", "com.github.megatronking.stringfog.xor.StringFogImpl");
-            stringFogClassInjector.doFog2ClassInDir(new File(yq.compiledClassesPath));
+                    "com.github.megatronking.stringfog.xor.StringFogImpl");
+            int encryptedClasses = stringFog.run(new File(yq.compiledClassesPath), new File(yq.binDirectoryPath,
+                    "stringFogMapping.txt"));
             KB.a(context, "stringfog/stringfog.zip", yq.compiledClassesPath);
+            LogUtil.d(TAG, "StringFog took " + (System.currentTimeMillis() - savedTimeMillis) + " ms, encrypting "
+                    + encryptedClasses + " changed classes");
         } catch (Exception e) {
             LogUtil.e("StringFog", "Failed to run StringFog", e);
         }
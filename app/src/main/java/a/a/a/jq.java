@@ -9,6 +9,7 @@ import java.util.ArrayList;
 import java.util.HashMap;
 
 import mod.agus.jcoderz.handle.component.ConstVarComponent;
+import pro.sketchware.util.build.BuildConfiguration;
 
 public class jq {
 
@@ -205,6 +206,11 @@ public class jq {
 
     public String sc_id = "";
 
+    /**
+     * The project's build configuration, set by {@link yq#loadConfiguration()}.
+     */
+    public BuildConfiguration configuration;
+
     /**
      * Device IDs registered as Test Devices for the current project.
      */
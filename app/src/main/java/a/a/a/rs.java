@@ -39,6 +39,7 @@ import com.google.android.material.navigationrail.NavigationRailView;
 
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
@@ -289,8 +290,8 @@ public class rs extends qA implements View.OnClickListener, MoreblockImporterDia
     }
 
     @Override
-    public void onSelected(MoreBlockCollectionBean bean) {
-        new MoreblockImporter(requireActivity(), sc_id, currentActivity).importMoreblock(bean, this::refreshEvents);
+    public void onSelected(List<MoreBlockCollectionBean> beans) {
+        new MoreblockImporter(requireActivity(), sc_id, currentActivity).importMoreblocks(beans, this::refreshEvents);
     }
 
     private void showImportMoreBlockFromCollectionsDialog() {
@@ -29,6 +29,7 @@ import mod.hey.studios.util.ProjectFile;
 import mod.hilal.saif.blocks.CommandBlock;
 import mod.pranav.viewbinding.ViewBindingBuilder;
 import pro.sketchware.SketchApplication;
+import pro.sketchware.util.build.BuildConfiguration;
 import pro.sketchware.util.library.BuiltInLibraryManager;
 import pro.sketchware.utility.FileUtil;
 import pro.sketchware.xml.XmlBuilder;
@@ -137,9 +138,9 @@ public class yq {
      */
     public final String proguardUsagePath;
     /**
-     * Current project's ProjectSettings object
+     * Current project's build configuration, see {@link #loadConfiguration()}
      */
-    public final ProjectSettings projectSettings;
+    private BuildConfiguration configuration;
     /**
      * Example content: /storage/emulated/0/.sketchware/mysc/605/app/src/main/AndroidManifest.xml
      */
@@ -214,7 +215,7 @@ public class yq {
         colorControlHighlight = yB.a(metadata, ProjectFile.COLOR_CONTROL_HIGHLIGHT, getDefaultColor(ProjectFile.COLOR_CONTROL_HIGHLIGHT));
         colorControlNormal = yB.a(metadata, ProjectFile.COLOR_CONTROL_NORMAL, getDefaultColor(ProjectFile.COLOR_CONTROL_NORMAL));
 
-        projectSettings = new ProjectSettings(sc_id);
+        loadConfiguration();
         fileUtil = new oB(true);
         packageNameAsFolders = packageName.replaceAll("\\.", File.separator);
         binDirectoryPath = projectMyscPath + "bin";
@@ -243,6 +244,19 @@ public class yq {
         releaseApkPath = wq.o() + File.separator + projectName + "_release.apk";
     }
 
+    /**
+     * Takes a new snapshot of the project's build configuration. Builds should call this once
+     * when they start, so that every build step sees the same configuration.
+     */
+    public void loadConfiguration() {
+        configuration = BuildConfiguration.load(sc_id);
+        N.configuration = configuration;
+    }
+
+    public BuildConfiguration getConfiguration() {
+        return configuration;
+    }
+
     /**
      * Deletes the directory {@link yq#resDirectoryPath}/values-v21/.
      */
@@ -293,7 +307,7 @@ public class yq {
      */
     public void generateGradleFiles() {
         fileUtil.b(projectMyscPath + File.separator + "app" + File.separator + "build.gradle",
-                Lx.getBuildGradleString(VAR_DEFAULT_TARGET_SDK_VERSION, VAR_DEFAULT_MIN_SDK_VERSION, projectSettings.getValue(ProjectSettings.SETTING_TARGET_SDK_VERSION, String.valueOf(VAR_DEFAULT_TARGET_SDK_VERSION)), N, projectSettings.getValue(ProjectSettings.SETTING_ENABLE_VIEWBINDING, ProjectSettings.SETTING_GENERIC_VALUE_FALSE).equals(ProjectSettings.SETTING_GENERIC_VALUE_TRUE)));
+                Lx.getBuildGradleString(VAR_DEFAULT_TARGET_SDK_VERSION, VAR_DEFAULT_MIN_SDK_VERSION, configuration.getProjectSetting(ProjectSettings.SETTING_TARGET_SDK_VERSION, String.valueOf(VAR_DEFAULT_TARGET_SDK_VERSION)), N, configuration.getProjectSetting(ProjectSettings.SETTING_ENABLE_VIEWBINDING, ProjectSettings.SETTING_GENERIC_VALUE_FALSE).equals(ProjectSettings.SETTING_GENERIC_VALUE_TRUE)));
         fileUtil.b(projectMyscPath + File.separator + "settings.gradle", Lx.a());
         fileUtil.b(projectMyscPath + File.separator + "build.gradle", Lx.c("8.12.0", "4.4.3"));
 
@@ -370,7 +384,7 @@ public class yq {
             fileUtil.b(javaFilesPath + File.separator + packageNameAsFolders + File.separator + "DebugActivity.java", debugActivityContent);
         }
 
-        String customApplicationClassName = new ProjectSettings(sc_id).getValue(
+        String customApplicationClassName = configuration.getProjectSetting(
                 ProjectSettings.SETTING_APPLICATION_CLASS, ".SketchApplication");
         boolean notUsingCustomApplicationClass = customApplicationClassName.equals(".SketchApplication");
 
@@ -389,7 +403,7 @@ public class yq {
                 customApplicationClassName.substring(1).replace('.', '/') + ".java");
 
         if (!targetApplicationFile.exists()) {
-            boolean applyMultiDex = projectSettings.getMinSdkVersion() < 21;
+            boolean applyMultiDex = configuration.getMinSdkVersion() < 21;
             String sketchApplicationFileContent = fileUtil.b(
                     context,
                     "debug" + File.separator + "SketchApplication.java"
@@ -492,6 +506,7 @@ public class yq {
         N.versionCode = versionCode;
         N.versionName = versionName;
         N.sc_id = sc_id;
+        N.configuration = configuration;
         N.isDebugBuild = exportingType == ExportType.DEBUG_APP;
         isAndroidStudioExport = exportingType == ExportType.ANDROID_STUDIO;
         generateDataBindingClasses = !(exportingType == ExportType.DEBUG_APP || exportingType == ExportType.ANDROID_STUDIO);
@@ -765,7 +780,7 @@ public class yq {
         }
 
         var path = wq.b(sc_id) + "/command";
-        var newXMLCommand = Boolean.parseBoolean(projectSettings.getValue(ProjectSettings.SETTING_NEW_XML_COMMAND, ProjectSettings.SETTING_GENERIC_VALUE_FALSE));
+        var newXMLCommand = Boolean.parseBoolean(configuration.getProjectSetting(ProjectSettings.SETTING_NEW_XML_COMMAND, ProjectSettings.SETTING_GENERIC_VALUE_FALSE));
         if (newXMLCommand && FileUtil.isExistFile(path)) {
             FileUtil.copyFile(path, FileUtil.getExternalStorageDir().concat("/.sketchware/temp/commands"));
         }
@@ -866,7 +881,7 @@ public class yq {
     }
 
     private boolean isViewBindingEnable() {
-        return generateDataBindingClasses && projectSettings.getValue(ProjectSettings.SETTING_ENABLE_VIEWBINDING, ProjectSettings.SETTING_GENERIC_VALUE_FALSE).equals(ProjectSettings.SETTING_GENERIC_VALUE_TRUE);
+        return generateDataBindingClasses && configuration.getProjectSetting(ProjectSettings.SETTING_ENABLE_VIEWBINDING, ProjectSettings.SETTING_GENERIC_VALUE_FALSE).equals(ProjectSettings.SETTING_GENERIC_VALUE_TRUE);
     }
 
     /**
@@ -884,7 +899,7 @@ public class yq {
         files.addAll(new ArrayList<>(projectFileManager.c()));
         if (isXmlFile) {
             var path = wq.b(sc_id) + "/command";
-            var newXMLCommand = Boolean.parseBoolean(projectSettings.getValue(ProjectSettings.SETTING_NEW_XML_COMMAND, ProjectSettings.SETTING_GENERIC_VALUE_FALSE));
+            var newXMLCommand = Boolean.parseBoolean(configuration.getProjectSetting(ProjectSettings.SETTING_NEW_XML_COMMAND, ProjectSettings.SETTING_GENERIC_VALUE_FALSE));
             if (newXMLCommand && FileUtil.isExistFile(path)) {
                 FileUtil.copyFile(path, FileUtil.getExternalStorageDir().concat("/.sketchware/temp/commands"));
             } else {
@@ -977,7 +992,7 @@ public class yq {
             stylesFileBuilder.addItemToStyle("AppTheme.DebugActivity", "windowNoTitle", "false");
             return CommandBlock.applyCommands("styles.xml", stylesFileBuilder.toCode());
         } else if (N.g) {
-            boolean useNewMaterialComponentsTheme = projectSettings.getValue(ProjectSettings.SETTING_ENABLE_BRIDGELESS_THEMES,
+            boolean useNewMaterialComponentsTheme = configuration.getProjectSetting(ProjectSettings.SETTING_ENABLE_BRIDGELESS_THEMES,
                     BuildSettings.SETTING_GENERIC_VALUE_FALSE).equals(BuildSettings.SETTING_GENERIC_VALUE_TRUE);
             XmlBuilderHelper stylesFileBuilder = new XmlBuilderHelper();
             stylesFileBuilder.addStyle("AppTheme", "Theme.MaterialComponents.Light.NoActionBar" + (useNewMaterialComponentsTheme ? "" : ".Bridge"));
@@ -8,11 +8,13 @@ import androidx.annotation.NonNull;
 import com.google.gson.annotations.Expose;
 
 import java.util.HashMap;
+import java.util.Objects;
 
 import a.a.a.Gx;
 import a.a.a.nA;
 import mod.agus.jcoderz.beans.ViewBeans;
 import pro.sketchware.R;
+import pro.sketchware.utility.InjectAttributes;
 
 public class ViewBean extends nA implements Parcelable {
     public static final Parcelable.Creator<ViewBean> CREATOR = new Parcelable.Creator<>() {
@@ -95,6 +97,10 @@ public class ViewBean extends nA implements Parcelable {
     public int index;
     @Expose
     public String inject;
+    /**
+     * Parsed {@link #inject}, re-parsed by {@link #getInjectAttributes()} once it changed
+     */
+    private transient InjectAttributes injectAttributes;
     @Expose
     public LayoutBean layout;
     @Expose
@@ -396,6 +402,15 @@ public class ViewBean extends nA implements Parcelable {
         return parentClassInfo;
     }
 
+    public InjectAttributes getInjectAttributes() {
+        InjectAttributes attributes = injectAttributes;
+        if (attributes == null || !Objects.equals(attributes.getSource(), inject)) {
+            attributes = InjectAttributes.parse(inject, id);
+            injectAttributes = attributes;
+        }
+        return attributes;
+    }
+
     public boolean isEqual(ViewBean viewBean) {
         if (type != viewBean.type || parentType != viewBean.parentType || index != viewBean.index ||
                 enabled != viewBean.enabled || clickable != viewBean.clickable || alpha != viewBean.alpha ||
@@ -73,6 +73,7 @@ import java.util.LinkedList;
 import java.util.List;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import a.a.a.DB;
 import a.a.a.GB;
@@ -99,6 +100,7 @@ import mod.agus.jcoderz.editor.manage.resource.ManageResourceActivity;
 import mod.hey.studios.activity.managers.assets.ManageAssetsActivity;
 import mod.hey.studios.activity.managers.java.ManageJavaActivity;
 import mod.hey.studios.compiler.kotlin.KotlinCompilerBridge;
+import mod.hey.studios.compiler.kotlin.KotlinCompilerService;
 import mod.hey.studios.project.custom_blocks.CustomBlocksDialog;
 import mod.hey.studios.project.proguard.ManageProguardActivity;
 import mod.hey.studios.project.proguard.ProguardHandler;
@@ -121,6 +123,7 @@ import pro.sketchware.activities.editor.view.CodeViewerActivity;
 import pro.sketchware.activities.editor.view.ViewCodeEditorActivity;
 import pro.sketchware.activities.resourceseditor.ResourcesEditorActivity;
 import pro.sketchware.dialogs.BuildSettingsBottomSheet;
+import pro.sketchware.util.build.BuildStageGraph;
 import pro.sketchware.utility.FileUtil;
 import pro.sketchware.utility.SketchwareUtil;
 import pro.sketchware.utility.ThemeUtils;
@@ -636,6 +639,7 @@ public class DesignActivity extends BaseAppCompatActivity implements View.OnClic
         HashMap<String, Object> projectInfo = lC.b(sc_id);
         getSupportActionBar().setTitle(yB.c(projectInfo, "my_ws_name"));
         q = new yq(getApplicationContext(), wq.d(sc_id), projectInfo);
+        KotlinCompilerService.warmUp(q);
 
         try {
             ProjectLoader projectLoader = new ProjectLoader(this, savedInstanceState);
@@ -1040,6 +1044,11 @@ public class DesignActivity extends BaseAppCompatActivity implements View.OnClic
         private final LinearProgressIndicator progressBar;
         public volatile boolean canceled;
         private volatile boolean isBuildFinished;
+        /**
+         * The highest step reported so far. Stages run concurrently and can report lower steps
+         * than ones that started before them, which mustn't move the progress bar backwards.
+         */
+        private final AtomicInteger highestStep = new AtomicInteger();
         private boolean isShowingNotification = false;
 
         public BuildTask(DesignActivity activity) {
@@ -1077,6 +1086,7 @@ public class DesignActivity extends BaseAppCompatActivity implements View.OnClic
             try {
                 var q = activity.q;
                 var sc_id = DesignActivity.sc_id;
+                q.loadConfiguration();
                 onProgress("Deleting temporary files...", 1);
                 FileUtil.deleteFile(q.projectMyscPath);
 
@@ -1117,73 +1127,48 @@ public class DesignActivity extends BaseAppCompatActivity implements View.OnClic
                 q.f();
                 q.e();
 
-                builder.maybeExtractAapt2();
-                if (canceled) {
-                    return;
-                }
-
-                onProgress("Extracting built-in libraries...", 3);
-                BuiltInLibraries.extractCompileAssets(this);
-                if (canceled) {
-                    return;
-                }
-
-                onProgress("AAPT2 is running...", 8);
-                builder.compileResources();
-                if (canceled) {
-                    return;
-                }
-
-                onProgress("Generating view binding...", 11);
-                builder.generateViewBinding();
-                if (canceled) {
-                    return;
-                }
-
-                KotlinCompilerBridge.compileKotlinCodeIfPossible(this, builder);
-                if (canceled) {
-                    return;
-                }
-
-                onProgress("Java is compiling...", 13);
-                builder.compileJavaCode();
-                if (canceled) {
-                    return;
-                }
-
-                StringfogHandler stringfogHandler = new StringfogHandler(sc_id);
-                stringfogHandler.start(this, builder);
-                if (canceled) {
-                    return;
-                }
-
-                ProguardHandler proguardHandler = new ProguardHandler(sc_id);
-                proguardHandler.start(this, builder);
-                if (canceled) {
-                    return;
-                }
-
-                onProgress(builder.getDxRunningText(), 17);
-                builder.createDexFilesFromClasses();
-                if (canceled) {
-                    return;
-                }
-
-                onProgress("Merging DEX files...", 18);
-                builder.getDexFilesReady();
-                if (canceled) {
-                    return;
-                }
-
-                onProgress("Building APK...", 19);
-                builder.buildApk();
-                if (canceled) {
-                    return;
-                }
-
-                onProgress("Signing APK...", 20);
-                builder.signDebugApk();
-                if (canceled) {
+                // Stages run as soon as the stages producing their inputs are done
+                BuildStageGraph stages = new BuildStageGraph(this, () -> canceled)
+                        .addStage("aapt2", null, 3,
+                                List.of(), List.of("aapt2_binary"),
+                                builder::maybeExtractAapt2)
+                        .addStage("built_in_libraries", "Extracting built-in libraries...", 3,
+                                List.of(), List.of("built_in_library_files"),
+                                () -> BuiltInLibraries.extractCompileAssets(this))
+                        .addStage("resources", "AAPT2 is running...", 8,
+                                List.of("aapt2_binary", "built_in_library_files"), List.of("compiled_resources", "r_java"),
+                                builder::compileResources)
+                        .addStage("view_binding", "Generating view binding...", 11,
+                                List.of(), List.of("view_binding_sources"),
+                                builder::generateViewBinding)
+                        .addStage("kotlin_classes", null, 12,
+                                List.of("built_in_library_files", "r_java", "view_binding_sources"), List.of("kotlin_classes"),
+                                () -> KotlinCompilerBridge.compileKotlinCodeIfPossible(this, builder))
+                        .addStage("java_classes", "Java is compiling...", 13,
+                                List.of("built_in_library_files", "r_java", "view_binding_sources", "kotlin_classes"), List.of("classes"),
+                                builder::compileJavaCode)
+                        .addStage("stringfog", null, 14,
+                                List.of("classes"), List.of("obfuscated_classes"),
+                                () -> StringfogHandler.start(this, builder))
+                        .addStage("shrunk_classes", null, 15,
+                                List.of("built_in_library_files", "obfuscated_classes"), List.of("shrunk_classes"),
+                                () -> ProguardHandler.start(this, builder))
+                        .addStage("dex", builder.getDxRunningText(), 17,
+                                List.of("shrunk_classes"), List.of("app_dexes"),
+                                builder::createDexFilesFromClasses)
+                        .addStage("library_dexes", null, 18,
+                                List.of("built_in_library_files"), List.of("library_dex_list"),
+                                builder::collectLibraryDexes)
+                        .addStage("merged_dex", "Merging DEX files...", 18,
+                                List.of("app_dexes", "library_dex_list"), List.of("dexes"),
+                                builder::getDexFilesReady)
+                        .addStage("apk", "Building APK...", 19,
+                                List.of("compiled_resources", "dexes"), List.of("unsigned_apk"),
+                                builder::buildApk)
+                        .addStage("signed_apk", "Signing APK...", 20,
+                                List.of("unsigned_apk"), List.of("signed_apk"),
+                                builder::signDebugApk);
+                if (!stages.run(Runtime.getRuntime().availableProcessors()) || canceled) {
                     return;
                 }
 
@@ -1230,19 +1215,20 @@ public class DesignActivity extends BaseAppCompatActivity implements View.OnClic
         @Override
         public void onProgress(String progress, int step) {
             int totalSteps = 20;
+            int shownStep = step == -1 ? -1 : highestStep.accumulateAndGet(step, Math::max);
 
             DesignActivity activity = getActivity();
             if (activity == null) return;
 
             activity.runOnUiThread(() -> {
-                progressBar.setIndeterminate(step == -1);
+                progressBar.setIndeterminate(shownStep == -1);
                 if (!canceled) {
-                    updateNotification(progress + " (" + step + " / " + totalSteps + ")");
+                    updateNotification(progress + " (" + shownStep + " / " + totalSteps + ")");
                 }
                 progressText.setText(progress);
-                var progressInt = (step * 100) / totalSteps;
+                var progressInt = (shownStep * 100) / totalSteps;
                 progressBar.setProgress(progressInt, true);
-                Log.d("DesignActivity$BuildTask", step + " / " + totalSteps);
+                Log.d("DesignActivity$BuildTask", shownStep + " / " + totalSteps);
             });
         }
 
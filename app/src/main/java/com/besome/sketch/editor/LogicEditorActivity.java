@@ -78,6 +78,7 @@ import java.lang.ref.WeakReference;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ExecutorService;
@@ -2040,8 +2041,8 @@ public class LogicEditorActivity extends BaseAppCompatActivity implements View.O
     }
 
     @Override
-    public void onSelected(MoreBlockCollectionBean moreBlockCollectionBean) {
-        new MoreblockImporter(this, scId, M).importMoreblock(moreBlockCollectionBean, () -> a(8, 0xff8a55d7));
+    public void onSelected(List<MoreBlockCollectionBean> moreBlockCollectionBeans) {
+        new MoreblockImporter(this, scId, M).importMoreblocks(moreBlockCollectionBeans, () -> a(8, 0xff8a55d7));
     }
 
     @Override
@@ -46,6 +46,8 @@ import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.Objects;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 import a.a.a.Mp;
 import a.a.a.Np;
@@ -73,6 +75,11 @@ public class ManageCollectionActivity extends BaseAppCompatActivity implements V
     private static final int REQUEST_CODE_SHOW_BLOCK_DETAILS = 274;
     private static final int REQUEST_CODE_SHOW_MORE_BLOCK_DETAILS = 279;
 
+    /**
+     * Deletes items off the UI thread, one deletion at a time
+     */
+    private final ExecutorService executor = Executors.newSingleThreadExecutor();
+
     private LinearLayout actionButtonGroup;
     private boolean hasDeletedWidget;
     private boolean selectingToBeDeletedItems;
@@ -228,14 +235,7 @@ public class ManageCollectionActivity extends BaseAppCompatActivity implements V
                 currentItemId = item;
                 collection.removeAllViews();
                 collectionAdapter.currentViewType = currentItemId;
-                collectionAdapter.setData(switch (currentItemId) {
-                    case 0 -> images;
-                    case 1 -> sounds;
-                    case 2 -> fonts;
-                    case 3 -> widgets;
-                    case 4 -> blocks;
-                    default -> moreBlocks;
-                });
+                collectionAdapter.setData(getItems(currentItemId));
 
                 if (collectionAdapter.currentViewType == 0) {
                     collection.setLayoutManager(new GridLayoutManager(getApplicationContext(), getGridLayoutColumnCount()));
@@ -255,70 +255,121 @@ public class ManageCollectionActivity extends BaseAppCompatActivity implements V
     }
 
     private void deleteSelectedToBeDeletedItems() {
-        int collectionItemsSize = 6;
-        for (int i = 0; i < collectionItemsSize; i++) {
-            switch (i) {
-                case 0 -> {
-                    for (ProjectResourceBean bean : images) {
-                        if (bean.isSelected) {
-                            Op.g().a(bean.resName, false);
-                        }
-                    }
-                    Op.g().e();
-                    loadImages();
+        int category = currentItemId;
+        ArrayList<String> selectedNames = getSelectedItemNames(category);
+        if (selectedNames.isEmpty()) {
+            onSelectedItemsDeleted();
+            return;
+        }
+        if (category == 3) {
+            hasDeletedWidget = true;
+        }
+
+        // Deleting thousands of items and their files takes a while, so don't block the UI with it
+        k();
+        executor.execute(() -> {
+            deleteItems(category, selectedNames);
+            runOnUiThread(() -> {
+                if (isFinishing() || isDestroyed()) return;
+                h();
+                switch (category) {
+                    case 0 -> loadImages();
+                    case 1 -> loadSounds();
+                    case 2 -> loadFonts();
+                    case 3 -> loadWidgets();
+                    case 4 -> loadBlocks();
+                    default -> loadMoreBlocks();
                 }
-                case 1 -> {
-                    for (ProjectResourceBean bean : sounds) {
-                        if (bean.isSelected) {
-                            Qp.g().a(bean.resName, false);
-                        }
+                onSelectedItemsDeleted();
+            });
+        });
+    }
+
+    /**
+     * Only items of the current category can be selected, so that's the only one to look at.
+     */
+    private ArrayList<String> getSelectedItemNames(int category) {
+        ArrayList<String> names = new ArrayList<>();
+        switch (category) {
+            case 0, 1, 2 -> {
+                @SuppressWarnings("unchecked")
+                ArrayList<ProjectResourceBean> resources = (ArrayList<ProjectResourceBean>) getItems(category);
+                for (ProjectResourceBean bean : resources) {
+                    if (bean.isSelected) {
+                        names.add(bean.resName);
                     }
-                    Qp.g().e();
-                    loadSounds();
                 }
-                case 2 -> {
-                    for (ProjectResourceBean bean : fonts) {
-                        if (bean.isSelected) {
-                            Np.g().a(bean.resName, false);
-                        }
+            }
+            case 3 -> {
+                for (WidgetCollectionBean bean : widgets) {
+                    if (bean.isSelected) {
+                        names.add(bean.name);
                     }
-                    Np.g().e();
-                    loadFonts();
                 }
-                case 3 -> {
-                    for (WidgetCollectionBean bean : widgets) {
-                        if (bean.isSelected) {
-                            if (!hasDeletedWidget) {
-                                hasDeletedWidget = true;
-                            }
-
-                            Rp.h().a(bean.name, false);
-                        }
+            }
+            case 4 -> {
+                for (BlockCollectionBean bean : blocks) {
+                    if (bean.isSelected) {
+                        names.add(bean.name);
                     }
-                    Rp.h().e();
-                    loadWidgets();
                 }
-                case 4 -> {
-                    for (BlockCollectionBean bean : blocks) {
-                        if (bean.isSelected) {
-                            Mp.h().a(bean.name, false);
-                        }
+            }
+            default -> {
+                for (MoreBlockCollectionBean bean : moreBlocks) {
+                    if (bean.isSelected) {
+                        names.add(bean.name);
                     }
-                    Mp.h().e();
-                    loadBlocks();
                 }
-                default -> {
-                    for (MoreBlockCollectionBean bean : moreBlocks) {
-                        if (bean.isSelected) {
-                            Pp.h().a(bean.name, false);
-                        }
-                    }
-                    Pp.h().e();
-                    loadMoreBlocks();
+            }
+        }
+        return names;
+    }
+
+    /**
+     * Removes items from a collection, saving it only once for all of them.
+     */
+    private static void deleteItems(int category, ArrayList<String> names) {
+        switch (category) {
+            case 0 -> {
+                for (String name : names) {
+                    Op.g().a(name, false);
+                }
+                Op.g().e();
+            }
+            case 1 -> {
+                for (String name : names) {
+                    Qp.g().a(name, false);
+                }
+                Qp.g().e();
+            }
+            case 2 -> {
+                for (String name : names) {
+                    Np.g().a(name, false);
+                }
+                Np.g().e();
+            }
+            case 3 -> {
+                for (String name : names) {
+                    Rp.h().a(name, false);
+                }
+                Rp.h().e();
+            }
+            case 4 -> {
+                for (String name : names) {
+                    Mp.h().a(name, false);
+                }
+                Mp.h().e();
+            }
+            default -> {
+                for (String name : names) {
+                    Pp.h().a(name, false);
                 }
+                Pp.h().e();
             }
         }
+    }
 
+    private void onSelectedItemsDeleted() {
         unselectToBeDeletedItems();
         changeDeletingItemsState(false);
         int id = getCurrentCategoryItemId();
@@ -469,7 +520,6 @@ public class ManageCollectionActivity extends BaseAppCompatActivity implements V
             sc_id = savedInstanceState.getString("sc_id");
         }
 
-        loadAllCollectionItems();
         categories.setSelectedItemId(R.id.image);
     }
 
@@ -491,23 +541,43 @@ public class ManageCollectionActivity extends BaseAppCompatActivity implements V
         super.onSaveInstanceState(outState);
     }
 
-    private void loadAllCollectionItems() {
-        images = Op.g().f();
-        sounds = Qp.g().f();
-        fonts = Np.g().f();
-        widgets = Rp.h().f();
-        blocks = Mp.h().f();
-        moreBlocks = Pp.h().f();
-
-        if (currentItemId == -1) {
-            collectionAdapter.currentViewType = 0;
-            collectionAdapter.setData(images);
-            collection.setLayoutManager(new GridLayoutManager(getApplicationContext(), getGridLayoutColumnCount()));
-            currentItemId = 0;
-        }
+    @Override
+    public void onDestroy() {
+        super.onDestroy();
+        // Lets a running deletion finish, so that collections don't get saved half-way
+        executor.shutdown();
+    }
 
-        if (collectionAdapter != null) {
-            collectionAdapter.notifyDataSetChanged();
+    /**
+     * Returns a category's items, reading its collection the first time the category is needed.
+     * Collections like blocks can be large, so opening this screen doesn't read all of them.
+     */
+    private ArrayList<? extends SelectableBean> getItems(int category) {
+        switch (category) {
+            case 0 -> {
+                if (images == null) images = Op.g().f();
+                return images;
+            }
+            case 1 -> {
+                if (sounds == null) sounds = Qp.g().f();
+                return sounds;
+            }
+            case 2 -> {
+                if (fonts == null) fonts = Np.g().f();
+                return fonts;
+            }
+            case 3 -> {
+                if (widgets == null) widgets = Rp.h().f();
+                return widgets;
+            }
+            case 4 -> {
+                if (blocks == null) blocks = Mp.h().f();
+                return blocks;
+            }
+            default -> {
+                if (moreBlocks == null) moreBlocks = Pp.h().f();
+                return moreBlocks;
+            }
         }
     }
 
@@ -572,38 +642,8 @@ public class ManageCollectionActivity extends BaseAppCompatActivity implements V
     }
 
     private void unselectToBeDeletedItems() {
-        int id = getCurrentCategoryItemId();
-
-        switch (id) {
-            case 0:
-                for (ProjectResourceBean bean : images) {
-                    bean.isSelected = false;
-                }
-                break;
-
-            case 1:
-                for (ProjectResourceBean bean : sounds) {
-                    bean.isSelected = false;
-                }
-                break;
-
-            case 2:
-                for (ProjectResourceBean bean : fonts) {
-                    bean.isSelected = false;
-                }
-                break;
-
-            case 3:
-                for (WidgetCollectionBean bean : widgets) {
-                    bean.isSelected = false;
-                }
-                break;
-
-            default:
-                for (BlockCollectionBean bean : blocks) {
-                    bean.isSelected = false;
-                }
-                break;
+        for (SelectableBean bean : getItems(getCurrentCategoryItemId())) {
+            bean.isSelected = false;
         }
     }
 
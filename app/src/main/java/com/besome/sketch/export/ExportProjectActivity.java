@@ -25,10 +25,8 @@ import org.spongycastle.jce.provider.BouncyCastleProvider;
 import java.io.File;
 import java.lang.ref.WeakReference;
 import java.security.Security;
-import java.util.ArrayList;
 import java.util.HashMap;
 
-import a.a.a.KB;
 import a.a.a.MA;
 import a.a.a.ProjectBuilder;
 import a.a.a.eC;
@@ -52,6 +50,7 @@ import mod.jbk.build.BuildProgressReceiver;
 import mod.jbk.build.BuiltInLibraries;
 import mod.jbk.build.compiler.bundle.AppBundleCompiler;
 import mod.jbk.export.GetKeyStoreCredentialsDialog;
+import mod.jbk.export.SourceExportWriter;
 import mod.jbk.util.TestkeySignBridge;
 import pro.sketchware.R;
 import pro.sketchware.utility.FilePathUtil;
@@ -165,6 +164,7 @@ public class ExportProjectActivity extends BaseAppCompatActivity {
     private void exportSrc() {
         try {
             FileUtil.deleteFile(project_metadata.projectMyscPath);
+            project_metadata.loadConfiguration();
 
             hC hCVar = new hC(sc_id);
             kC kCVar = new kC(sc_id);
@@ -209,39 +209,39 @@ public class ExportProjectActivity extends BaseAppCompatActivity {
             File pathAssets = new File(util.getPathAssets(sc_id));
             File pathNativeLibraries = new File(util.getPathNativelibs(sc_id));
 
-            if (pathJava.exists()) {
-                FileUtil.copyDirectory(pathJava, new File(project_metadata.javaFilesPath + File.separator + project_metadata.packageNameAsFolders));
-            }
-            if (pathResources.exists()) {
-                FileUtil.copyDirectory(pathResources, new File(project_metadata.resDirectoryPath));
-            }
-            String pathProguard = util.getPathProguard(sc_id);
-            if (FileUtil.isExistFile(pathProguard)) {
-                FileUtil.copyFile(pathProguard, project_metadata.proguardFilePath);
-            }
-            if (pathAssets.exists()) {
-                FileUtil.copyDirectory(pathAssets, new File(project_metadata.assetsPath));
-            }
-            if (pathNativeLibraries.exists()) {
-                FileUtil.copyDirectory(pathNativeLibraries, new File(project_metadata.generatedFilesPath, "jniLibs"));
-            }
-
-            ArrayList<String> toCompress = new ArrayList<>();
-            toCompress.add(project_metadata.projectMyscPath);
             String exportedFilename = yB.c(sc_metadata, "my_ws_name") + ".zip";
-
             String exportedSourcesZipPath = wq.s() + File.separator + "export_src" + File.separator + exportedFilename;
-            if (file_utility.e(exportedSourcesZipPath)) {
-                file_utility.c(exportedSourcesZipPath);
-            }
 
-            ArrayList<String> toExclude = new ArrayList<>();
-            if (!new File(new FilePathUtil().getPathJava(sc_id) + File.separator + "SketchApplication.java").exists()) {
-                toExclude.add("SketchApplication.java");
-            }
-            toExclude.add("DebugActivity.java");
+            // Custom files get streamed into the archive from where they are, instead of getting
+            // copied over the generated project first. They're added first to take precedence.
+            File projectRoot = new File(project_metadata.projectMyscPath);
+            try (SourceExportWriter writer = new SourceExportWriter(new File(exportedSourcesZipPath), projectRoot.getName())) {
+                if (!new File(pathJava, "SketchApplication.java").exists()) {
+                    writer.excludeFileName("SketchApplication.java");
+                }
+                writer.excludeFileName("DebugActivity.java");
+                writer.readManifest(new File(util.getPathExportManifest(sc_id)));
 
-            new KB().a(exportedSourcesZipPath, toCompress, toExclude);
+                if (pathJava.exists()) {
+                    writer.addDirectory(pathJava, getExportPath(projectRoot, project_metadata.javaFilesPath + File.separator + project_metadata.packageNameAsFolders));
+                }
+                if (pathResources.exists()) {
+                    writer.addDirectory(pathResources, getExportPath(projectRoot, project_metadata.resDirectoryPath));
+                }
+                String pathProguard = util.getPathProguard(sc_id);
+                if (FileUtil.isExistFile(pathProguard)) {
+                    writer.addFile(new File(pathProguard), getExportPath(projectRoot, project_metadata.proguardFilePath));
+                }
+                if (pathAssets.exists()) {
+                    writer.addDirectory(pathAssets, getExportPath(projectRoot, project_metadata.assetsPath));
+                }
+                if (pathNativeLibraries.exists()) {
+                    writer.addDirectory(pathNativeLibraries, getExportPath(projectRoot, project_metadata.generatedFilesPath + File.separator + "jniLibs"));
+                }
+
+                writer.addDirectory(projectRoot, "");
+                writer.finish();
+            }
             project_metadata.e();
             runOnUiThread(() -> initializeAfterExportedSourceViews(exportedFilename));
         } catch (Exception e) {
@@ -256,6 +256,14 @@ public class ExportProjectActivity extends BaseAppCompatActivity {
         }
     }
 
+    /**
+     * @return A path in the generated project, relative to its root and with <code>/</code> as
+     * separator, like in an exported archive
+     */
+    private static String getExportPath(File projectRoot, String path) {
+        return projectRoot.toPath().relativize(new File(path).toPath()).toString().replace(File.separatorChar, '/');
+    }
+
     private void initializeAppBundleExportViews() {
         export_aab_button.setOnClickListener(view -> {
             MaterialAlertDialogBuilder confirmationDialog = new MaterialAlertDialogBuilder(this);
@@ -487,6 +495,7 @@ public class ExportProjectActivity extends BaseAppCompatActivity {
                         throw new IllegalStateException("Couldn't delete file " + outputFile.getAbsolutePath());
                     }
                 }
+                project_metadata.loadConfiguration();
                 project_metadata.c(a);
                 if (canceled) {
                     cancel(true);
@@ -566,16 +575,14 @@ public class ExportProjectActivity extends BaseAppCompatActivity {
                 }
 
                 /* Encrypt Strings in classes if enabled */
-                StringfogHandler stringfogHandler = new StringfogHandler(project_metadata.sc_id);
-                stringfogHandler.start(this, builder);
+                StringfogHandler.start(this, builder);
                 if (canceled) {
                     cancel(true);
                     return;
                 }
 
                 /* Obfuscate classes if enabled */
-                ProguardHandler proguardHandler = new ProguardHandler(project_metadata.sc_id);
-                proguardHandler.start(this, builder);
+                ProguardHandler.start(this, builder);
                 if (canceled) {
                     cancel(true);
                     return;
@@ -1,6 +1,5 @@
 package dev.aldi.sayuti.editor.manage;
 
-import static pro.sketchware.utility.FileUtil.deleteFile;
 import static pro.sketchware.utility.FileUtil.getExternalStorageDir;
 import static pro.sketchware.utility.FileUtil.isExistFile;
 import static pro.sketchware.utility.FileUtil.listDirAsFile;
@@ -49,7 +48,7 @@ public class LocalLibrariesUtil {
     public static void deleteSelectedLocalLibraries(String scId, List<LocalLibrary> localLibraries, ArrayList<HashMap<String, Object>> projectUsedLibs) {
         localLibraries.removeIf(library -> {
             if (library.isSelected()) {
-                deleteFile(localLibsPath.concat(library.getName()));
+                LocalLibraryStore.delete(library.getName());
                 if (projectUsedLibs != null) {
                     int indexToRemove = -1;
                     for (int i = 0; i < projectUsedLibs.size(); i++) {
@@ -88,30 +87,31 @@ public class LocalLibrariesUtil {
         String pgRulesPath = localLibsPath + name + "/proguard.txt";
         String assetsPath = localLibsPath + name + "/assets";
 
+        // Paths stay in the library's directory, files might be in the blob it references
         HashMap<String, Object> localLibrary = new HashMap<>();
         localLibrary.put("name", name);
         if (dependency != null) {
             localLibrary.put("dependency", dependency);
         }
-        if (isExistFile(configPath)) {
-            localLibrary.put("packageName", readFile(configPath));
+        if (isExistFile(LocalLibraryStore.resolvePath(configPath))) {
+            localLibrary.put("packageName", readFile(LocalLibraryStore.resolvePath(configPath)));
         }
-        if (isExistFile(resPath)) {
+        if (isExistFile(LocalLibraryStore.resolvePath(resPath))) {
             localLibrary.put("resPath", resPath);
         }
-        if (isExistFile(jarPath)) {
+        if (isExistFile(LocalLibraryStore.resolvePath(jarPath))) {
             localLibrary.put("jarPath", jarPath);
         }
-        if (isExistFile(dexPath)) {
+        if (isExistFile(LocalLibraryStore.resolvePath(dexPath))) {
             localLibrary.put("dexPath", dexPath);
         }
-        if (isExistFile(manifestPath)) {
+        if (isExistFile(LocalLibraryStore.resolvePath(manifestPath))) {
             localLibrary.put("manifestPath", manifestPath);
         }
-        if (isExistFile(pgRulesPath)) {
+        if (isExistFile(LocalLibraryStore.resolvePath(pgRulesPath))) {
             localLibrary.put("pgRulesPath", pgRulesPath);
         }
-        if (isExistFile(assetsPath)) {
+        if (isExistFile(LocalLibraryStore.resolvePath(assetsPath))) {
             localLibrary.put("assetsPath", assetsPath);
         }
         return localLibrary;
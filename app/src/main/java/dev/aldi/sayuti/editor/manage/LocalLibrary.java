@@ -16,7 +16,7 @@ public class LocalLibrary {
     }
 
     public static LocalLibrary fromFile(File file) {
-        return new LocalLibrary(file.getName(), formatFileSize(getFileSize(file)));
+        return new LocalLibrary(file.getName(), formatFileSize(getFileSize(LocalLibraryStore.getContentDirectory(file.getName()))));
     }
 
     public String getName() {
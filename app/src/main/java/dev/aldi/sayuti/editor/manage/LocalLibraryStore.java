@@ -0,0 +1,313 @@
+package dev.aldi.sayuti.editor.manage;
+
+import static pro.sketchware.utility.FileUtil.getExternalStorageDir;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+import com.google.gson.reflect.TypeToken;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.reflect.Type;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+import mod.hey.studios.util.Helper;
+import mod.jbk.util.LogUtil;
+import pro.sketchware.utility.FileUtil;
+
+/**
+ * Store of local libraries that got downloaded by the dependency resolver. Their extracted and
+ * dexed files are kept once per artifact, in a blob directory named after the SHA-256 hash of the
+ * downloaded artifact, in /Internal storage/.sketchware/libs/local_libs_blobs/. A library's own
+ * directory in local_libs/ (e.g. <code>okhttp-v4.12.0</code>) only holds a reference to its blob,
+ * so that neither re-importing a library nor importing an identical artifact under different
+ * coordinates has to download, extract and dex it again, or takes up space twice.
+ * <p>
+ * The index records every library's coordinates and blob, and how many libraries reference each
+ * blob. Blobs get deleted once no library references them anymore. Projects keep referring to
+ * files in library directories, {@link #resolvePath(String)} maps those to the files in blobs.
+ * Libraries that weren't downloaded through the dependency resolver (e.g. imported manually)
+ * keep their files in their own directories.
+ * <p>
+ * Which projects use a library is counted from every project's <code>local_library</code> file
+ * whenever it's needed, instead of being stored here, so that it can't get out of sync with
+ * projects that got deleted or restored.
+ */
+public class LocalLibraryStore {
+
+    private static final String TAG = "LocalLibraryStore";
+    private static final String localLibsPath = getExternalStorageDir().concat("/.sketchware/libs/local_libs/");
+    private static final String blobsPath = getExternalStorageDir().concat("/.sketchware/libs/local_libs_blobs/");
+    private static final String indexPath = blobsPath.concat("index.json");
+    /**
+     * Index of earlier versions, which kept every library's files in its own directory
+     */
+    private static final String legacyIndexPath = localLibsPath.concat(".store.json");
+    private static final String projectsDataPath = getExternalStorageDir().concat("/.sketchware/data/");
+    /**
+     * Name of the file in a library's directory holding the hash of the blob it references
+     */
+    private static final String BLOB_REFERENCE_FILE_NAME = ".blob";
+    private static final Type LEGACY_INDEX_TYPE = new TypeToken<HashMap<String, Entry>>() {
+    }.getType();
+
+    private static Index index;
+
+    /**
+     * @return Whether the library is in the store with the same coordinates and its blob
+     * contains dexed classes
+     */
+    public static synchronized boolean isStored(String name, String coordinates) {
+        Entry entry = getIndex().libraries.get(name);
+        return entry != null && Objects.equals(entry.coordinates, coordinates) && isReferencingBlob(name)
+                && isComplete(getBlobDirectory(entry.sha256));
+    }
+
+    /**
+     * @return Whether there's a blob for an artifact with the given hash, so that a library with
+     * that artifact can be {@link #put} without extracting and dexing it
+     */
+    public static synchronized boolean hasBlob(String sha256) {
+        return getIndex().blobReferenceCounts.containsKey(sha256) && isComplete(getBlobDirectory(sha256));
+    }
+
+    /**
+     * Records a library after it got extracted and dexed successfully into its directory, and
+     * turns that directory into a reference to the blob for its artifact. The directory's files
+     * become the blob if there's none for the artifact yet, otherwise they get discarded.
+     */
+    public static synchronized void put(String name, String coordinates, String sha256) throws IOException {
+        Index index = getIndex();
+        File directory = getDirectory(name);
+        File blob = getBlobDirectory(sha256);
+
+        File reference = new File(directory, BLOB_REFERENCE_FILE_NAME);
+        //noinspection ResultOfMethodCallIgnored
+        reference.delete();
+        if (!index.blobReferenceCounts.containsKey(sha256)) {
+            // Left over from an interrupted put, can't be trusted
+            FileUtil.deleteFile(blob.getAbsolutePath());
+        }
+        if (!blob.isDirectory()) {
+            FileUtil.makeDir(blobsPath);
+            Files.move(directory.toPath(), blob.toPath());
+        }
+        FileUtil.deleteFile(directory.getAbsolutePath());
+        FileUtil.writeFile(reference.getAbsolutePath(), sha256);
+
+        Entry entry = new Entry();
+        entry.coordinates = coordinates;
+        entry.sha256 = sha256;
+        index.blobReferenceCounts.merge(sha256, 1, Integer::sum);
+        Entry previous = index.libraries.put(name, entry);
+        if (previous != null) {
+            release(previous.sha256);
+        }
+        saveIndex();
+    }
+
+    /**
+     * Deletes a library's directory. If it references a blob no other library references, the
+     * blob gets deleted too.
+     */
+    public static synchronized void delete(String name) {
+        FileUtil.deleteFile(getDirectory(name).getAbsolutePath());
+        Entry entry = getIndex().libraries.remove(name);
+        if (entry != null) {
+            release(entry.sha256);
+            saveIndex();
+        }
+    }
+
+    /**
+     * @return The directory actually holding a library's files, which is its blob if it
+     * references one, otherwise its own directory
+     */
+    public static synchronized File getContentDirectory(String name) {
+        Entry entry = getIndex().libraries.get(name);
+        if (entry != null && isReferencingBlob(name)) {
+            return getBlobDirectory(entry.sha256);
+        }
+        return getDirectory(name);
+    }
+
+    /**
+     * Maps a path to a file in a library's directory, like a project's <code>local_library</code>
+     * file stores them, to the path of the file in the library's blob. Other paths are returned
+     * as they are.
+     */
+    public static String resolvePath(String path) {
+        if (!path.startsWith(localLibsPath)) return path;
+
+        String relativePath = path.substring(localLibsPath.length());
+        int slash = relativePath.indexOf('/');
+        String name = slash == -1 ? relativePath : relativePath.substring(0, slash);
+        File contentDirectory = getContentDirectory(name);
+        if (contentDirectory.equals(getDirectory(name))) return path;
+
+        return slash == -1 ? contentDirectory.getAbsolutePath() : new File(contentDirectory, relativePath.substring(slash + 1)).getAbsolutePath();
+    }
+
+    /**
+     * @return How many projects use each library, by library name. Libraries that no project uses
+     * aren't included.
+     */
+    public static Map<String, Integer> getReferenceCounts() {
+        Map<String, Integer> referenceCounts = new HashMap<>();
+        File[] projects = new File(projectsDataPath).listFiles(File::isDirectory);
+        if (projects == null) return referenceCounts;
+
+        Gson gson = new Gson();
+        for (File project : projects) {
+            File localLibFile = new File(project, "local_library");
+            if (!localLibFile.isFile()) continue;
+
+            try {
+                List<HashMap<String, Object>> libraries = gson.fromJson(FileUtil.readFile(localLibFile.getAbsolutePath()), Helper.TYPE_MAP_LIST);
+                if (libraries == null) continue;
+
+                for (HashMap<String, Object> library : libraries) {
+                    Object name = library.get("name");
+                    if (name != null) {
+                        referenceCounts.merge(name.toString(), 1, Integer::sum);
+                    }
+                }
+            } catch (JsonParseException e) {
+                LogUtil.w(TAG, "Ignoring invalid " + localLibFile, e);
+            }
+        }
+        return referenceCounts;
+    }
+
+    /**
+     * Deletes all stored libraries that no project uses, along with blobs no library references
+     * anymore. Libraries that weren't downloaded through the dependency resolver (e.g. imported
+     * manually) are never deleted.
+     *
+     * @return Names of the deleted libraries
+     */
+    public static synchronized List<String> collectGarbage() {
+        Map<String, Integer> referenceCounts = getReferenceCounts();
+        List<String> deleted = new ArrayList<>();
+        for (String name : new ArrayList<>(getIndex().libraries.keySet())) {
+            if (!referenceCounts.containsKey(name)) {
+                delete(name);
+                deleted.add(name);
+            }
+        }
+        return deleted;
+    }
+
+    /**
+     * Drops a library's reference to a blob, and deletes the blob if it was the last one.
+     */
+    private static void release(String sha256) {
+        Integer referenceCount = index.blobReferenceCounts.get(sha256);
+        if (referenceCount == null || referenceCount <= 1) {
+            index.blobReferenceCounts.remove(sha256);
+            FileUtil.deleteFile(getBlobDirectory(sha256).getAbsolutePath());
+        } else {
+            index.blobReferenceCounts.put(sha256, referenceCount - 1);
+        }
+    }
+
+    private static File getDirectory(String name) {
+        return new File(localLibsPath, name);
+    }
+
+    private static File getBlobDirectory(String sha256) {
+        return new File(blobsPath, sha256);
+    }
+
+    private static boolean isReferencingBlob(String name) {
+        return new File(getDirectory(name), BLOB_REFERENCE_FILE_NAME).isFile();
+    }
+
+    private static boolean isComplete(File directory) {
+        return new File(directory, "classes.jar").isFile() && new File(directory, "classes.dex").isFile();
+    }
+
+    private static Index getIndex() {
+        if (index == null) {
+            index = new Index();
+            if (FileUtil.isExistFile(indexPath)) {
+                try {
+                    Index saved = new Gson().fromJson(FileUtil.readFile(indexPath), Index.class);
+                    if (saved != null && saved.libraries != null && saved.blobReferenceCounts != null) {
+                        index = saved;
+                    }
+                } catch (JsonParseException e) {
+                    LogUtil.w(TAG, "Ignoring invalid local library store index", e);
+                }
+            }
+
+            // Libraries can get deleted manually, drop their references
+            boolean changed = false;
+            for (String name : new ArrayList<>(index.libraries.keySet())) {
+                if (!isReferencingBlob(name)) {
+                    release(index.libraries.remove(name).sha256);
+                    changed = true;
+                }
+            }
+            changed |= migrateLegacyLibraries();
+            if (changed) {
+                saveIndex();
+            }
+        }
+        return index;
+    }
+
+    /**
+     * Moves the files of libraries recorded by earlier versions into blobs.
+     *
+     * @return Whether any library got migrated
+     */
+    private static boolean migrateLegacyLibraries() {
+        if (!FileUtil.isExistFile(legacyIndexPath)) return false;
+
+        boolean migrated = false;
+        try {
+            Map<String, Entry> legacyIndex = new Gson().fromJson(FileUtil.readFile(legacyIndexPath), LEGACY_INDEX_TYPE);
+            if (legacyIndex != null) {
+                for (Map.Entry<String, Entry> library : legacyIndex.entrySet()) {
+                    String name = library.getKey();
+                    Entry entry = library.getValue();
+                    if (entry == null || entry.sha256 == null || !isComplete(getDirectory(name))) continue;
+
+                    try {
+                        put(name, entry.coordinates, entry.sha256);
+                        migrated = true;
+                    } catch (IOException e) {
+                        LogUtil.w(TAG, "Failed to move " + name + " into the local library store", e);
+                    }
+                }
+            }
+        } catch (JsonParseException e) {
+            LogUtil.w(TAG, "Ignoring invalid legacy local library store index", e);
+        }
+        FileUtil.deleteFile(legacyIndexPath);
+        return migrated;
+    }
+
+    private static void saveIndex() {
+        FileUtil.writeFile(indexPath, new Gson().toJson(index));
+    }
+
+    private static class Index {
+        private Map<String, Entry> libraries = new HashMap<>();
+        /**
+         * How many libraries reference each blob, by the blob's hash
+         */
+        private Map<String, Integer> blobReferenceCounts = new HashMap<>();
+    }
+
+    private static class Entry {
+        private String coordinates;
+        private String sha256;
+    }
+}
@@ -160,6 +160,23 @@ public class ManageLocalLibraryActivity extends BaseAppCompatActivity {
             }
         });
 
+        binding.searchBar.inflateMenu(R.menu.menu_local_libraries);
+        binding.searchBar.setOnMenuItemClickListener(item -> {
+            if (item.getItemId() == R.id.action_delete_unused_local_libraries) {
+                k();
+                Executors.newSingleThreadExecutor().execute(() -> {
+                    List<String> deleted = LocalLibraryStore.collectGarbage();
+                    runOnUiThread(() -> {
+                        h();
+                        SketchwareUtil.toast(deleted.isEmpty() ? "No unused libraries found" : "Deleted " + deleted.size() + " unused libraries");
+                        runLoadLocalLibrariesTask();
+                    });
+                });
+                return true;
+            }
+            return false;
+        });
+
         binding.contextualToolbar.setNavigationOnClickListener(v -> hideContextualToolbarAndClearSelection());
         binding.contextualToolbar.setOnMenuItemClickListener(item -> {
             int id = item.getItemId();
@@ -27,6 +27,8 @@ public class Main {
         "usage:\n" +
         "  dx --dex [--debug] [--verbose] [--positions=<style>] [--no-locals]\n" +
         "  [--no-optimize] [--statistics] [--[no-]optimize-list=<file>] [--no-strict]\n" +
+        "  [--fast-ssa-construction] [--optimization-profile=<profile>]\n" +
+        "  [--optimize-all-steps-max-insns=<n>] [--optimize-max-insns=<n>]\n" +
         "  [--keep-classes] [--output=<file>] [--dump-to=<file>] [--dump-width=<n>]\n" +
         "  [--dump-method=<name>[*]] [--verbose-dump] [--no-files] [--core-library]\n" +
         "  [--num-threads=<n>] [--incremental] [--force-jumbo] [--no-warning]\n" +
@@ -50,6 +52,14 @@ public class Main {
         "    directory.\n" +
         "    --min-sdk-version=<n>: Enable dex file features that require at least sdk\n" +
         "    version <n>.\n" +
+        "    --fast-ssa-construction: convert methods to SSA form with iterative\n" +
+        "    dominators and pruned phi placement, which is faster for large methods.\n" +
+        "    --optimization-profile=<profile>: how much to optimize, release (default)\n" +
+        "    or debug-fast, which only runs cheap steps and is meant for debug builds.\n" +
+        "    --optimize-all-steps-max-insns=<n>: only run cheap optimization steps on\n" +
+        "    methods of more than <n> instructions.\n" +
+        "    --optimize-max-insns=<n>: don't optimize methods of more than <n>\n" +
+        "    instructions. Defaults to 2000 with the debug-fast profile.\n" +
         "  dx --annotool --annotation=<class> [--element=<element types>]\n" +
         "  [--print=<print types>]\n" +
         "  dx --dump [--debug] [--strict] [--bytes] [--optimize]\n" +
@@ -46,6 +46,7 @@ import mod.agus.jcoderz.dx.dex.file.DexFile;
 import mod.agus.jcoderz.dx.dex.file.EncodedMethod;
 import mod.agus.jcoderz.dx.merge.CollisionPolicy;
 import mod.agus.jcoderz.dx.merge.DexMerger;
+import mod.agus.jcoderz.dx.ssa.OptimizationPolicy;
 
 import java.io.BufferedReader;
 import java.io.ByteArrayInputStream;
@@ -164,6 +165,12 @@ public class Main {
     /* <primitive types box class>.TYPE */
     private static final int MAX_FIELD_ADDED_DURING_DEX_CREATION = 9;
 
+    /**
+     * count of {@link #run} calls in progress in this process, guarded by
+     * {@code Main.class}
+     */
+    private static int runsInProgress = 0;
+
     /** number of errors during processing */
     private AtomicInteger errors = new AtomicInteger(0);
 
@@ -249,6 +256,12 @@ public class Main {
         }
     }
 
+    /**
+     * Empties the intern tables of {@link Type}, {@link Prototype},
+     * {@link CstType} and {@link RegisterSpec}. {@link #run} does so once
+     * no run is in progress anymore, so this is only needed after calling
+     * {@link #runDx} directly.
+     */
     public static void clearInternTables() {
         Prototype.clearInternTable();
         RegisterSpec.clearInternTable();
@@ -256,13 +269,40 @@ public class Main {
         Type.clearInternTable();
     }
 
+    /**
+     * @return {@code non-null;} the current sizes of the intern tables
+     */
+    public static InternTableSizes getInternTableSizes() {
+        return new InternTableSizes(Type.getInternTableSize(),
+                Prototype.getInternTableSize(), CstType.getInternTableSize(),
+                RegisterSpec.getInternTableSize());
+    }
+
     /**
      * Run and return a result code.
+     * <p>
+     * Instances interned while converting are only needed until the
+     * conversion is done, so the intern tables are emptied once the last
+     * run in progress in this process finishes. Without that, processes
+     * running dx build after build would keep them all.
+     *
      * @param arguments the data + parameters for the conversion
      * @return 0 if success &gt; 0 otherwise.
      */
     public static int run(Arguments arguments) throws IOException {
-        return new Main(new DxContext()).runDx(arguments);
+        synchronized (Main.class) {
+            runsInProgress++;
+        }
+
+        try {
+            return new Main(new DxContext()).runDx(arguments);
+        } finally {
+            synchronized (Main.class) {
+                if (--runsInProgress == 0) {
+                    clearInternTables();
+                }
+            }
+        }
     }
 
     public int runDx(Arguments arguments) throws IOException {
@@ -638,6 +678,7 @@ public class Main {
 
         if (args.optimize && args.statistics) {
             context.codeStatistics.dumpStatistics(context.out);
+            args.cfOptions.optimizationPolicy.dumpStatistics(context.out);
         }
 
         return true;
@@ -1247,6 +1288,38 @@ public class Main {
         // This space intentionally left blank.
     }
 
+    /**
+     * Sizes of the intern tables dx keeps across runs in the same process.
+     */
+    public static class InternTableSizes {
+        /** count of interned {@link Type} instances */
+        public final int types;
+
+        /** count of interned {@link Prototype} instances */
+        public final int prototypes;
+
+        /** count of interned {@link CstType} instances */
+        public final int cstTypes;
+
+        /** count of interned {@link RegisterSpec} instances */
+        public final int registerSpecs;
+
+        private InternTableSizes(int types, int prototypes, int cstTypes,
+                int registerSpecs) {
+            this.types = types;
+            this.prototypes = prototypes;
+            this.cstTypes = cstTypes;
+            this.registerSpecs = registerSpecs;
+        }
+
+        @Override
+        public String toString() {
+            return "types: " + types + ", prototypes: " + prototypes
+                    + ", class constants: " + cstTypes
+                    + ", register specs: " + registerSpecs;
+        }
+    }
+
     /**
      * Command-line argument parser and access.
      */
@@ -1339,6 +1412,28 @@ public class Main {
         /** whether to do SSA/register optimization */
         public boolean optimize = true;
 
+        /**
+         * whether to convert methods to SSA form with the steps that are
+         * faster for large methods
+         */
+        public boolean fastSsaConstruction = false;
+
+        /** {@code non-null;} profile of how much of the optimizer to run */
+        public OptimizationPolicy.Profile optimizationProfile =
+                OptimizationPolicy.Profile.RELEASE;
+
+        /**
+         * maximum instruction count of methods given all optimizer steps, or
+         * {@code -1} for the profile's default
+         */
+        public int optimizeAllStepsMaxInsns = -1;
+
+        /**
+         * maximum instruction count of methods optimized at all, or
+         * {@code -1} for the profile's default
+         */
+        public int optimizeMaxInsns = -1;
+
         /** Filename containg list of methods to optimize */
         public String optimizeListFile = null;
 
@@ -1500,6 +1595,20 @@ public class Main {
                     emptyOk = true;
                 } else if (parser.isArg("--no-optimize")) {
                     optimize = false;
+                } else if (parser.isArg("--fast-ssa-construction")) {
+                    fastSsaConstruction = true;
+                } else if (parser.isArg("--optimization-profile=")) {
+                    String name = parser.getLastValue();
+                    optimizationProfile = OptimizationPolicy.Profile.forName(name);
+                    if (optimizationProfile == null) {
+                        context.err.println("unknown optimization profile: "
+                                + name);
+                        throw new UsageException();
+                    }
+                } else if (parser.isArg("--optimize-all-steps-max-insns=")) {
+                    optimizeAllStepsMaxInsns = parseInsnCount(parser);
+                } else if (parser.isArg("--optimize-max-insns=")) {
+                    optimizeMaxInsns = parseInsnCount(parser);
                 } else if (parser.isArg("--no-strict")) {
                     strictNameCheck = false;
                 } else if (parser.isArg("--core-library")) {
@@ -1610,6 +1719,28 @@ public class Main {
         }
 
 
+        /**
+         * Parses the value of an instruction count threshold argument.
+         *
+         * @param parser {@code non-null;} parser positioned at the argument
+         * @return {@code >= 0;} the value
+         */
+        private int parseInsnCount(ArgumentsParser parser) {
+            String arg = parser.getLastValue();
+            int value;
+            try {
+                value = Integer.parseInt(arg);
+            } catch (NumberFormatException ex) {
+                value = -1;
+            }
+            if (value < 0) {
+                context.err.println("improper instruction count: "
+                        + parser.getCurrent());
+                throw new UsageException();
+            }
+            return value;
+        }
+
         /**
          * Parses all command-line arguments and updates the state of the {@code Arguments} object
          * accordingly.
@@ -1691,6 +1822,10 @@ public class Main {
             cfOptions.localInfo = localInfo;
             cfOptions.strictNameCheck = strictNameCheck;
             cfOptions.optimize = optimize;
+            cfOptions.fastSsaConstruction = fastSsaConstruction;
+            cfOptions.optimizationPolicy = new OptimizationPolicy(
+                    optimizationProfile, optimizeAllStepsMaxInsns,
+                    optimizeMaxInsns);
             cfOptions.optimizeListFile = optimizeListFile;
             cfOptions.dontOptimizeListFile = dontOptimizeListFile;
             cfOptions.statistics = statistics;
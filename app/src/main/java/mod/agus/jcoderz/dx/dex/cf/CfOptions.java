@@ -17,6 +17,7 @@
 package mod.agus.jcoderz.dx.dex.cf;
 
 import mod.agus.jcoderz.dx.dex.code.PositionList;
+import mod.agus.jcoderz.dx.ssa.OptimizationPolicy;
 import java.io.PrintStream;
 
 /**
@@ -35,6 +36,19 @@ public class CfOptions {
     /** whether to do SSA/register optimization */
     public boolean optimize = false;
 
+    /**
+     * whether to convert methods to SSA form with the steps that are faster
+     * for large methods
+     */
+    public boolean fastSsaConstruction = false;
+
+    /**
+     * {@code non-null;} how much of the optimizer to run per method, if
+     * {@link #optimize} is set
+     */
+    public OptimizationPolicy optimizationPolicy =
+        new OptimizationPolicy(OptimizationPolicy.Profile.RELEASE);
+
     /** filename containing list of methods to optimize */
     public String optimizeListFile = null;
 
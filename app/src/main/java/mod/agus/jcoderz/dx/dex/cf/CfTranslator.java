@@ -70,6 +70,8 @@ import mod.agus.jcoderz.dx.dex.file.EncodedMethod;
 import mod.agus.jcoderz.dx.dex.file.FieldIdsSection;
 import mod.agus.jcoderz.dx.dex.file.MethodHandlesSection;
 
+import java.util.EnumSet;
+
 /**
  * Static method that turns {@code byte[]}s containing Java
  * classfiles into {@link mod.agus.jcoderz.dx.dex.file.ClassDefItem} instances.
@@ -307,15 +309,23 @@ public class CfTranslator {
                             = thisClass.getClassType().getDescriptor()
                                 + "." + one.getName().getString();
 
+                    EnumSet<Optimizer.OptionalStep> steps = null;
+
                     if (cfOptions.optimize &&
                             context.optimizerOptions.shouldOptimize(canonicalName)) {
+                        steps = cfOptions.optimizationPolicy.stepsFor(rmeth);
+                    }
+
+                    if (steps != null) {
                         if (DEBUG) {
                             System.err.println("Optimizing " + canonicalName);
                         }
 
                         nonOptRmeth = rmeth;
                         rmeth = Optimizer.optimize(rmeth,
-                                paramSize, isStatic, cfOptions.localInfo, advice);
+                                paramSize, isStatic, cfOptions.localInfo, advice,
+                                steps, cfOptions.fastSsaConstruction,
+                                cfOptions.optimizationPolicy);
 
                         if (DEBUG) {
                             context.optimizerOptions.compareOptimizerStep(nonOptRmeth,
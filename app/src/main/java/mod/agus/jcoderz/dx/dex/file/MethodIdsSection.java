@@ -20,8 +20,10 @@ import mod.agus.jcoderz.dx.rop.cst.Constant;
 import mod.agus.jcoderz.dx.rop.cst.CstBaseMethodRef;
 import mod.agus.jcoderz.dx.util.AnnotatedOutput;
 import mod.agus.jcoderz.dx.util.Hex;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
-import java.util.TreeMap;
+import java.util.HashMap;
 
 /**
  * Method refs list section of a {@code .dex} file.
@@ -31,7 +33,13 @@ public final class MethodIdsSection extends MemberIdsSection {
      * {@code non-null;} map from method constants to {@link
      * MethodIdItem} instances
      */
-    private final TreeMap<CstBaseMethodRef, MethodIdItem> methodIds;
+    private final HashMap<CstBaseMethodRef, MethodIdItem> methodIds;
+
+    /**
+     * {@code null-ok;} the items sorted by method constant, once this
+     * instance is prepared
+     */
+    private ArrayList<MethodIdItem> sortedItems;
 
     /**
      * Constructs an instance. The file offset is initially unknown.
@@ -41,12 +49,16 @@ public final class MethodIdsSection extends MemberIdsSection {
     public MethodIdsSection(DexFile file) {
         super("method_ids", file);
 
-        methodIds = new TreeMap<CstBaseMethodRef, MethodIdItem>();
+        methodIds = new HashMap<CstBaseMethodRef, MethodIdItem>();
     }
 
     /** {@inheritDoc} */
     @Override
     public Collection<? extends Item> items() {
+        if (sortedItems != null) {
+            return sortedItems;
+        }
+
         return methodIds.values();
     }
 
@@ -133,4 +145,19 @@ public final class MethodIdsSection extends MemberIdsSection {
 
         return item.getIndex();
     }
+
+    /** {@inheritDoc} */
+    @Override
+    protected void orderItems() {
+        CstBaseMethodRef[] sortedMethods = methodIds.keySet().toArray(
+                new CstBaseMethodRef[methodIds.size()]);
+        Arrays.sort(sortedMethods);
+        sortedItems = new ArrayList<MethodIdItem>(sortedMethods.length);
+
+        for (CstBaseMethodRef method : sortedMethods) {
+            sortedItems.add(methodIds.get(method));
+        }
+
+        super.orderItems();
+    }
 }
@@ -16,8 +16,10 @@
 
 package mod.agus.jcoderz.dx.dex.file;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
-import java.util.TreeMap;
+import java.util.HashMap;
 
 import mod.agus.jcoderz.dx.rop.cst.Constant;
 import mod.agus.jcoderz.dx.rop.cst.CstNat;
@@ -34,7 +36,14 @@ public final class StringIdsSection
      * {@code non-null;} map from string constants to {@link
      * StringIdItem} instances
      */
-    private final TreeMap<mod.agus.jcoderz.dx.rop.cst.CstString, StringIdItem> strings;
+    private final HashMap<mod.agus.jcoderz.dx.rop.cst.CstString, StringIdItem> strings;
+
+    /**
+     * {@code null-ok;} the items sorted by string, once this instance is
+     * prepared. Sorting once is cheaper than keeping the map sorted while
+     * interning.
+     */
+    private ArrayList<StringIdItem> sortedItems;
 
     /**
      * Constructs an instance. The file offset is initially unknown.
@@ -44,12 +53,16 @@ public final class StringIdsSection
     public StringIdsSection(DexFile file) {
         super("string_ids", file, 4);
 
-        strings = new TreeMap<mod.agus.jcoderz.dx.rop.cst.CstString, StringIdItem>();
+        strings = new HashMap<mod.agus.jcoderz.dx.rop.cst.CstString, StringIdItem>();
     }
 
     /** {@inheritDoc} */
     @Override
     public Collection<? extends Item> items() {
+        if (sortedItems != null) {
+            return sortedItems;
+        }
+
         return strings.values();
     }
 
@@ -172,10 +185,17 @@ public final class StringIdsSection
     /** {@inheritDoc} */
     @Override
     protected void orderItems() {
+        CstString[] sortedStrings = strings.keySet().toArray(
+                new CstString[strings.size()]);
+        Arrays.sort(sortedStrings);
+        sortedItems = new ArrayList<StringIdItem>(sortedStrings.length);
+
         int idx = 0;
 
-        for (StringIdItem s : strings.values()) {
+        for (CstString string : sortedStrings) {
+            StringIdItem s = strings.get(string);
             s.setIndex(idx);
+            sortedItems.add(s);
             idx++;
         }
     }
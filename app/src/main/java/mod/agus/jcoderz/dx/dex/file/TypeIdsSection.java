@@ -24,8 +24,10 @@ import mod.agus.jcoderz.dx.rop.type.Type;
 import mod.agus.jcoderz.dx.util.AnnotatedOutput;
 import mod.agus.jcoderz.dx.util.Hex;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
-import java.util.TreeMap;
+import java.util.HashMap;
 
 /**
  * Type identifiers list section of a {@code .dex} file.
@@ -34,7 +36,13 @@ public final class TypeIdsSection extends UniformItemSection {
     /**
      * {@code non-null;} map from types to {@link mod.agus.jcoderz.dx.dex.file.TypeIdItem} instances
      */
-    private final TreeMap<mod.agus.jcoderz.dx.rop.type.Type, mod.agus.jcoderz.dx.dex.file.TypeIdItem> typeIds;
+    private final HashMap<mod.agus.jcoderz.dx.rop.type.Type, mod.agus.jcoderz.dx.dex.file.TypeIdItem> typeIds;
+
+    /**
+     * {@code null-ok;} the items sorted by type, once this instance is
+     * prepared
+     */
+    private ArrayList<TypeIdItem> sortedItems;
 
     /**
      * Constructs an instance. The file offset is initially unknown.
@@ -44,12 +52,16 @@ public final class TypeIdsSection extends UniformItemSection {
     public TypeIdsSection(DexFile file) {
         super("type_ids", file, 4);
 
-        typeIds = new TreeMap<mod.agus.jcoderz.dx.rop.type.Type, mod.agus.jcoderz.dx.dex.file.TypeIdItem>();
+        typeIds = new HashMap<mod.agus.jcoderz.dx.rop.type.Type, mod.agus.jcoderz.dx.dex.file.TypeIdItem>();
     }
 
     /** {@inheritDoc} */
     @Override
     public Collection<? extends Item> items() {
+        if (sortedItems != null) {
+            return sortedItems;
+        }
+
         return typeIds.values();
     }
 
@@ -188,10 +200,16 @@ public final class TypeIdsSection extends UniformItemSection {
     /** {@inheritDoc} */
     @Override
     protected void orderItems() {
+        Type[] sortedTypes = typeIds.keySet().toArray(new Type[typeIds.size()]);
+        Arrays.sort(sortedTypes);
+        sortedItems = new ArrayList<TypeIdItem>(sortedTypes.length);
+
         int idx = 0;
 
-        for (Object i : items()) {
-            ((TypeIdItem) i).setIndex(idx);
+        for (Type type : sortedTypes) {
+            TypeIdItem item = typeIds.get(type);
+            item.setIndex(idx);
+            sortedItems.add(item);
             idx++;
         }
     }
@@ -36,6 +36,11 @@ import mod.agus.jcoderz.dx.command.dexer.DxContext;
 import java.io.File;
 import java.io.IOException;
 import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Combine two dex files into one.
@@ -88,6 +93,9 @@ public final class DexMerger {
     /** minimum number of wasted bytes before it's worthwhile to compact the result */
     private int compactWasteThreshold = 1024 * 1024; // 1MiB
 
+    /** number of threads used to transform class data; 1 keeps the merge single-threaded */
+    private int threadCount = 1;
+
     public DexMerger(Dex[] dexes, CollisionPolicy collisionPolicy, mod.agus.jcoderz.dx.command.dexer.DxContext context)
             throws IOException {
         this(dexes, collisionPolicy, context, new WriterSizes(dexes));
@@ -157,6 +165,18 @@ public final class DexMerger {
         this.compactWasteThreshold = compactWasteThreshold;
     }
 
+    /**
+     * Sets the number of worker threads used to read and transform class
+     * data once all ID sections are merged. The merged dex is byte-for-byte
+     * identical regardless of the thread count.
+     */
+    public void setThreadCount(int threadCount) {
+        if (threadCount < 1) {
+            throw new IllegalArgumentException("threadCount < 1: " + threadCount);
+        }
+        this.threadCount = threadCount;
+    }
+
     private Dex mergeDexes() throws IOException {
         mergeStringIds();
         mergeTypeIds();
@@ -207,6 +227,7 @@ public final class DexMerger {
         if (wastedByteCount >  + compactWasteThreshold) {
             DexMerger compacter = new DexMerger(
                     new Dex[] {dexOut, new Dex(0)}, CollisionPolicy.FAIL, context, compactedSizes);
+            compacter.threadCount = threadCount;
             result = compacter.mergeDexes();
             context.out.printf("Result compacted from %.1fKiB to %.1fKiB to save %.1fKiB%n",
                     dexOut.getLength() / 1024f,
@@ -599,9 +620,105 @@ public final class DexMerger {
         contentsOut.classDefs.off = idsDefsOut.getPosition();
         contentsOut.classDefs.size = types.length;
 
-        for (SortableType type : types) {
+        TransformedClass[] transformed = threadCount > 1 && types.length > 1
+                ? transformClassesInParallel(types)
+                : null;
+
+        for (int i = 0; i < types.length; i++) {
+            SortableType type = types[i];
             Dex in = type.getDex();
-            transformClassDef(in, type.getClassDef(), type.getIndexMap());
+            transformClassDef(in, type.getClassDef(), type.getIndexMap(),
+                    transformed != null ? transformed[i] : null);
+        }
+    }
+
+    /**
+     * Reads the class data and code of every type and rewrites its
+     * instructions against the type's index map on a pool of worker threads.
+     * Once the ID sections are merged the index maps are only read, so each
+     * class can be transformed independently. Offsets in class data and code
+     * items are absolute and ULEB128-encoded, so the results are still
+     * written out serially, in sorted order, by {@link #transformClassDef}.
+     */
+    private TransformedClass[] transformClassesInParallel(final SortableType[] types) {
+        final TransformedClass[] result = new TransformedClass[types.length];
+        final AtomicInteger next = new AtomicInteger();
+        int workers = Math.min(threadCount, types.length);
+        ExecutorService pool = Executors.newFixedThreadPool(workers);
+        try {
+            List<Future<Void>> futures = new ArrayList<Future<Void>>(workers);
+            for (int w = 0; w < workers; w++) {
+                futures.add(pool.submit(() -> {
+                    // InstructionTransformer isn't thread safe, so each worker gets its own
+                    InstructionTransformer transformer = new InstructionTransformer();
+                    int i;
+                    while ((i = next.getAndIncrement()) < types.length) {
+                        result[i] = transformClass(types[i], transformer);
+                    }
+                    return null;
+                }));
+            }
+            for (Future<Void> future : futures) {
+                future.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new DexException(e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            } else if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new DexException(cause);
+        } finally {
+            pool.shutdownNow();
+        }
+        return result;
+    }
+
+    private static TransformedClass transformClass(SortableType type,
+            InstructionTransformer transformer) {
+        ClassDef classDef = type.getClassDef();
+        if (classDef.getClassDataOffset() == 0) {
+            return null;
+        }
+
+        Dex in = type.getDex();
+        ClassData classData = in.readClassData(classDef);
+        ClassData.Method[] directMethods = classData.getDirectMethods();
+        ClassData.Method[] virtualMethods = classData.getVirtualMethods();
+        Code[] codes = new Code[directMethods.length + virtualMethods.length];
+        short[][] instructions = new short[codes.length][];
+
+        int m = 0;
+        for (ClassData.Method[] methods : new ClassData.Method[][] {directMethods, virtualMethods}) {
+            for (ClassData.Method method : methods) {
+                if (method.getCodeOffset() != 0) {
+                    codes[m] = in.readCode(method);
+                    instructions[m] = transformer.transform(
+                            type.getIndexMap(), codes[m].getInstructions());
+                }
+                m++;
+            }
+        }
+        return new TransformedClass(classData, codes, instructions);
+    }
+
+    /**
+     * Class data of a single type whose instructions have already been
+     * rewritten, in direct-then-virtual method order.
+     */
+    private static final class TransformedClass {
+        private final ClassData classData;
+        private final Code[] codes;
+        private final short[][] instructions;
+
+        TransformedClass(ClassData classData, Code[] codes, short[][] instructions) {
+            this.classData = classData;
+            this.codes = codes;
+            this.instructions = instructions;
         }
     }
 
@@ -728,7 +845,8 @@ public final class DexMerger {
      * Reads a class_def_item beginning at {@code in} and writes the index and
      * data.
      */
-    private void transformClassDef(Dex in, ClassDef classDef, mod.agus.jcoderz.dx.merge.IndexMap indexMap) {
+    private void transformClassDef(Dex in, ClassDef classDef, mod.agus.jcoderz.dx.merge.IndexMap indexMap,
+            TransformedClass transformed) {
         idsDefsOut.assertFourByteAligned();
         idsDefsOut.writeInt(classDef.getTypeIndex());
         idsDefsOut.writeInt(classDef.getAccessFlags());
@@ -746,8 +864,11 @@ public final class DexMerger {
             idsDefsOut.writeInt(0);
         } else {
             idsDefsOut.writeInt(classDataOut.getPosition());
-            ClassData classData = in.readClassData(classDef);
-            transformClassData(in, classData, indexMap);
+            if (transformed != null) {
+                transformClassData(in, transformed.classData, indexMap, transformed);
+            } else {
+                transformClassData(in, in.readClassData(classDef), indexMap, null);
+            }
         }
 
         int staticValuesOff = classDef.getStaticValuesOffset();
@@ -835,7 +956,8 @@ public final class DexMerger {
         }
     }
 
-    private void transformClassData(Dex in, ClassData classData, mod.agus.jcoderz.dx.merge.IndexMap indexMap) {
+    private void transformClassData(Dex in, ClassData classData, mod.agus.jcoderz.dx.merge.IndexMap indexMap,
+            TransformedClass transformed) {
         contentsOut.classDatas.size++;
 
         ClassData.Field[] staticFields = classData.getStaticFields();
@@ -850,8 +972,8 @@ public final class DexMerger {
 
         transformFields(indexMap, staticFields);
         transformFields(indexMap, instanceFields);
-        transformMethods(in, indexMap, directMethods);
-        transformMethods(in, indexMap, virtualMethods);
+        transformMethods(in, indexMap, directMethods, transformed, 0);
+        transformMethods(in, indexMap, virtualMethods, transformed, directMethods.length);
     }
 
     private void transformFields(mod.agus.jcoderz.dx.merge.IndexMap indexMap, ClassData.Field[] fields) {
@@ -864,9 +986,11 @@ public final class DexMerger {
         }
     }
 
-    private void transformMethods(Dex in, mod.agus.jcoderz.dx.merge.IndexMap indexMap, ClassData.Method[] methods) {
+    private void transformMethods(Dex in, mod.agus.jcoderz.dx.merge.IndexMap indexMap, ClassData.Method[] methods,
+            TransformedClass transformed, int firstMethod) {
         int lastOutMethodIndex = 0;
-        for (ClassData.Method method : methods) {
+        for (int i = 0; i < methods.length; i++) {
+            ClassData.Method method = methods[i];
             int outMethodIndex = indexMap.adjustMethod(method.getMethodIndex());
             classDataOut.writeUleb128(outMethodIndex - lastOutMethodIndex);
             lastOutMethodIndex = outMethodIndex;
@@ -878,12 +1002,20 @@ public final class DexMerger {
             } else {
                 codeOut.alignToFourBytesWithZeroFill();
                 classDataOut.writeUleb128(codeOut.getPosition());
-                transformCode(in, in.readCode(method), indexMap);
+                if (transformed != null) {
+                    transformCode(in, transformed.codes[firstMethod + i], indexMap,
+                            transformed.instructions[firstMethod + i]);
+                } else {
+                    Code code = in.readCode(method);
+                    transformCode(in, code, indexMap,
+                            instructionTransformer.transform(indexMap, code.getInstructions()));
+                }
             }
         }
     }
 
-    private void transformCode(Dex in, Code code, mod.agus.jcoderz.dx.merge.IndexMap indexMap) {
+    private void transformCode(Dex in, Code code, mod.agus.jcoderz.dx.merge.IndexMap indexMap,
+            short[] newInstructions) {
         contentsOut.codes.size++;
         codeOut.assertFourByteAligned();
 
@@ -903,8 +1035,6 @@ public final class DexMerger {
             codeOut.writeInt(0);
         }
 
-        short[] instructions = code.getInstructions();
-        short[] newInstructions = instructionTransformer.transform(indexMap, instructions);
         codeOut.writeInt(newInstructions.length);
         codeOut.write(newInstructions);
 
@@ -1180,23 +1310,33 @@ public final class DexMerger {
     }
 
     public static void main(String[] args) throws IOException {
-        if (args.length < 2) {
+        int threadCount = 1;
+        int first = 0;
+        if (args.length > 0 && args[0].startsWith("--threads=")) {
+            threadCount = Integer.parseInt(args[0].substring("--threads=".length()));
+            first = 1;
+        }
+        if (args.length - first < 2) {
             printUsage();
             return;
         }
 
-        Dex[] dexes = new Dex[args.length - 1];
-        for (int i = 1; i < args.length; i++) {
-            dexes[i - 1] = new Dex(new File(args[i]));
+        Dex[] dexes = new Dex[args.length - first - 1];
+        for (int i = first + 1; i < args.length; i++) {
+            dexes[i - first - 1] = new Dex(new File(args[i]));
         }
-        Dex merged = new DexMerger(dexes, CollisionPolicy.KEEP_FIRST, new DxContext()).merge();
-        merged.writeTo(new File(args[0]));
+        DexMerger merger = new DexMerger(dexes, CollisionPolicy.KEEP_FIRST, new DxContext());
+        merger.setThreadCount(threadCount);
+        Dex merged = merger.merge();
+        merged.writeTo(new File(args[first]));
     }
 
     private static void printUsage() {
-        System.out.println("Usage: DexMerger <out.dex> <a.dex> <b.dex> ...");
+        System.out.println("Usage: DexMerger [--threads=<n>] <out.dex> <a.dex> <b.dex> ...");
         System.out.println();
         System.out.println(
             "If a class is defined in several dex, the class found in the first dex will be used.");
+        System.out.println(
+            "--threads transforms class data on <n> worker threads; the output is unchanged.");
     }
 }
@@ -33,8 +33,12 @@ public final class RegisterSpec
     /** {@code non-null;} string to prefix register numbers with */
     public static final String PREFIX = "v";
 
-    /** {@code non-null;} intern table for instances */
-    private static final ConcurrentHashMap<Object, RegisterSpec> theInterns =
+    /**
+     * {@code non-null;} intern table for instances; replaced rather than
+     * cleared by {@link #clearInternTable}, so that its capacity gets
+     * released too
+     */
+    private static volatile ConcurrentHashMap<Object, RegisterSpec> theInterns =
         new ConcurrentHashMap<Object, RegisterSpec>(10_000, 0.75f);
 
     /** {@code non-null;} common comparison instance used while interning */
@@ -620,7 +624,14 @@ public final class RegisterSpec
     }
 
     public static void clearInternTable() {
-        theInterns.clear();
+        theInterns = new ConcurrentHashMap<Object, RegisterSpec>(10_000, 0.75f);
+    }
+
+    /**
+     * @return {@code >= 0;} count of instances in the intern table
+     */
+    public static int getInternTableSize() {
+        return theInterns.size();
     }
 
     /**
@@ -26,11 +26,12 @@ import java.util.concurrent.ConcurrentMap;
 public final class CstType extends TypedConstant {
 
     /**
-     * Intern table for instances.
+     * Intern table for instances. Replaced rather than cleared by
+     * {@link #clearInternTable}, so that its capacity gets released too.
      *
      * <p>The initial capacity is based on a medium-size project.
      */
-    private static final ConcurrentMap<Type, CstType> interns =
+    private static volatile ConcurrentMap<Type, CstType> interns =
             new ConcurrentHashMap<>(1_000, 0.75f);
 
     /** {@code non-null;} instance corresponding to the class {@code Object} */
@@ -292,8 +293,15 @@ public final class CstType extends TypedConstant {
     }
 
     public static void clearInternTable() {
-        interns.clear();
+        interns = new ConcurrentHashMap<>(1_000, 0.75f);
         initInterns();
     }
 
+    /**
+     * @return {@code >= 0;} count of instances in the intern table
+     */
+    public static int getInternTableSize() {
+        return interns.size();
+    }
+
 }
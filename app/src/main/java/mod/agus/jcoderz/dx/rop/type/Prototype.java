@@ -26,11 +26,12 @@ import java.util.concurrent.ConcurrentMap;
  */
 public final class Prototype implements Comparable<Prototype> {
     /**
-     * Intern table for instances.
+     * Intern table for instances. Replaced rather than cleared by
+     * {@link #clearInternTable}, so that its capacity gets released too.
      *
      * <p>The initial capacity is based on a medium-size project.
      */
-    private static final ConcurrentMap<String, Prototype> internTable =
+    private static volatile ConcurrentMap<String, Prototype> internTable =
             new ConcurrentHashMap<>(10_000, 0.75f);
 
     /** {@code non-null;} method descriptor */
@@ -132,7 +133,14 @@ public final class Prototype implements Comparable<Prototype> {
     }
 
     public static void clearInternTable() {
-        internTable.clear();
+        internTable = new ConcurrentHashMap<>(10_000, 0.75f);
+    }
+
+    /**
+     * @return {@code >= 0;} count of instances in the intern table
+     */
+    public static int getInternTableSize() {
+        return internTable.size();
     }
 
     /**
@@ -28,11 +28,12 @@ import java.util.concurrent.ConcurrentMap;
  */
 public final class Type implements TypeBearer, Comparable<Type> {
     /**
-     * Intern table for instances.
+     * Intern table for instances. Replaced rather than cleared by
+     * {@link #clearInternTable}, so that its capacity gets released too.
      *
      * <p>The initial capacity is based on a medium-size project.
      */
-    private static final ConcurrentMap<String, Type> internTable =
+    private static volatile ConcurrentMap<String, Type> internTable =
             new ConcurrentHashMap<>(10_000, 0.75f);
 
 
@@ -871,7 +872,14 @@ public final class Type implements TypeBearer, Comparable<Type> {
     }
 
     public static void clearInternTable() {
-        internTable.clear();
+        internTable = new ConcurrentHashMap<>(10_000, 0.75f);
         initInterns();
     }
+
+    /**
+     * @return {@code >= 0;} count of instances in the intern table
+     */
+    public static int getInternTableSize() {
+        return internTable.size();
+    }
 }
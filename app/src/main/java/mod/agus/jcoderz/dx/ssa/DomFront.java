@@ -36,6 +36,12 @@ public class DomFront {
 
     private final DomInfo[] domInfos;
 
+    /**
+     * whether to use {@link IterativeDominators} rather than
+     * {@link Dominators}
+     */
+    private final boolean iterativeDominators;
+
     /**
      * Dominance-frontier information for a single basic block.
      */
@@ -56,7 +62,20 @@ public class DomFront {
      * @param meth {@code non-null;} method to process
      */
     public DomFront(SsaMethod meth) {
+        this(meth, false);
+    }
+
+    /**
+     * Constructs instance. Call {@link DomFront#run} to process.
+     *
+     * @param meth {@code non-null;} method to process
+     * @param iterativeDominators whether to calculate dominators with
+     * {@link IterativeDominators}, which is faster for large methods, rather
+     * than with the Lengauer-Tarjan method
+     */
+    public DomFront(SsaMethod meth, boolean iterativeDominators) {
         this.meth = meth;
+        this.iterativeDominators = iterativeDominators;
         nodes = meth.getBlocks();
 
         int szNodes = nodes.size();
@@ -83,7 +102,11 @@ public class DomFront {
             }
         }
 
-        Dominators methDom = Dominators.make(meth, domInfos, false);
+        if (iterativeDominators) {
+            IterativeDominators.run(meth, domInfos);
+        } else {
+            Dominators.make(meth, domInfos, false);
+        }
 
         if (DEBUG) {
             for (int i = 0; i < szNodes; i++) {
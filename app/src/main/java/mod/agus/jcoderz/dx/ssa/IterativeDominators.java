@@ -0,0 +1,173 @@
+package mod.agus.jcoderz.dx.ssa;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * Computes the same immediate dominators as {@link Dominators}, using the
+ * iterative algorithm from "A Simple, Fast Dominance Algorithm" by Cooper,
+ * Harvey, and Kennedy.
+ * <p>
+ * Blocks are numbered in reverse postorder once, after which the algorithm
+ * only works on int arrays. For the mostly reducible control flow graphs
+ * produced from Java bytecode, it converges after two passes, and doesn't
+ * need the per-block bookkeeping objects {@link Dominators} allocates.
+ */
+/*package*/ final class IterativeDominators {
+    /** {@code non-null;} method being processed */
+    private final SsaMethod meth;
+
+    /** {@code non-null;} the method's basic blocks */
+    private final ArrayList<SsaBasicBlock> blocks;
+
+    /**
+     * indexed by block index; position of the block in reverse postorder,
+     * or {@code -1} if it isn't reachable from the entry block
+     */
+    private final int[] rpoNumbers;
+
+    /** indexed by block index; the immediate dominator, or {@code -1} */
+    private final int[] idoms;
+
+    private IterativeDominators(SsaMethod meth) {
+        int szBlocks = meth.getBlocks().size();
+
+        this.meth = meth;
+        blocks = meth.getBlocks();
+        rpoNumbers = new int[szBlocks];
+        idoms = new int[szBlocks];
+    }
+
+    /**
+     * Calculates the immediate dominators of a method's blocks, setting
+     * {@link DomFront.DomInfo#idom}. Blocks not reachable from the entry
+     * block keep an {@code idom} of {@code -1}.
+     *
+     * @param meth {@code non-null;} method to process
+     * @param domInfos {@code non-null;} the raw dominator info
+     */
+    /*package*/ static void run(SsaMethod meth, DomFront.DomInfo[] domInfos) {
+        IterativeDominators dominators = new IterativeDominators(meth);
+        int[] idoms = dominators.calcIdoms();
+
+        for (int i = 0; i < idoms.length; i++) {
+            domInfos[i].idom = idoms[i];
+        }
+    }
+
+    /**
+     * @return {@code non-null;} indexed by block index, the immediate
+     * dominators
+     */
+    private int[] calcIdoms() {
+        int[] rpo = reversePostorder();
+        int entry = meth.getEntryBlockIndex();
+
+        Arrays.fill(idoms, -1);
+        idoms[entry] = entry;
+
+        boolean changed = true;
+        while (changed) {
+            changed = false;
+
+            // rpo[0] is the entry block
+            for (int i = 1; i < rpo.length; i++) {
+                int b = rpo[i];
+                BitSet preds = blocks.get(b).getPredecessors();
+                int newIdom = -1;
+
+                for (int p = preds.nextSetBit(0); p >= 0;
+                        p = preds.nextSetBit(p + 1)) {
+                    if (idoms[p] == -1) {
+                        // Not processed yet, or not reachable
+                        continue;
+                    }
+
+                    newIdom = newIdom == -1 ? p : intersect(p, newIdom);
+                }
+
+                if (idoms[b] != newIdom) {
+                    idoms[b] = newIdom;
+                    changed = true;
+                }
+            }
+        }
+
+        return idoms;
+    }
+
+    /**
+     * Walks up the dominator tree from two blocks until both meet.
+     *
+     * @param b1 index of a block with a known dominator
+     * @param b2 index of another block with a known dominator
+     * @return index of the nearest common dominator
+     */
+    private int intersect(int b1, int b2) {
+        while (b1 != b2) {
+            while (rpoNumbers[b1] > rpoNumbers[b2]) {
+                b1 = idoms[b1];
+            }
+            while (rpoNumbers[b2] > rpoNumbers[b1]) {
+                b2 = idoms[b2];
+            }
+        }
+
+        return b1;
+    }
+
+    /**
+     * Numbers the blocks reachable from the entry block in reverse
+     * postorder, filling in {@link #rpoNumbers}.
+     *
+     * @return {@code non-null;} indexes of the reachable blocks, in reverse
+     * postorder
+     */
+    private int[] reversePostorder() {
+        int szBlocks = blocks.size();
+        int[] stack = new int[szBlocks];
+        // per stack entry, the successor to continue with
+        int[] nextSuccs = new int[szBlocks];
+        int[] postorder = new int[szBlocks];
+        BitSet visited = new BitSet(szBlocks);
+        int szStack = 0;
+        int szPostorder = 0;
+        int entry = meth.getEntryBlockIndex();
+
+        stack[szStack] = entry;
+        nextSuccs[szStack++] = 0;
+        visited.set(entry);
+
+        while (szStack > 0) {
+            int top = szStack - 1;
+            BitSet succs = blocks.get(stack[top]).getSuccessors();
+            int succ = succs.nextSetBit(nextSuccs[top]);
+
+            while (succ >= 0 && visited.get(succ)) {
+                succ = succs.nextSetBit(succ + 1);
+            }
+
+            if (succ >= 0) {
+                nextSuccs[top] = succ + 1;
+                visited.set(succ);
+                stack[szStack] = succ;
+                nextSuccs[szStack++] = 0;
+            } else {
+                postorder[szPostorder++] = stack[top];
+                szStack--;
+            }
+        }
+
+        Arrays.fill(rpoNumbers, -1);
+        int[] rpo = new int[szPostorder];
+        for (int i = 0; i < szPostorder; i++) {
+            int b = postorder[szPostorder - 1 - i];
+
+            rpo[i] = b;
+            rpoNumbers[b] = i;
+        }
+
+        return rpo;
+    }
+}
@@ -0,0 +1,274 @@
+package mod.agus.jcoderz.dx.ssa;
+
+import java.io.PrintStream;
+import java.util.EnumSet;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+import mod.agus.jcoderz.dx.rop.code.RopMethod;
+import mod.agus.jcoderz.dx.ssa.Optimizer.OptionalStep;
+
+/**
+ * Decides how much of {@link Optimizer} runs for each method, based on the
+ * method's instruction count, and counts what got decided. An instance is
+ * meant for a single dx run.
+ * <p>
+ * Methods up to {@link #getMaxInsnsForAllSteps()} instructions get all of
+ * the profile's steps. Larger ones only get {@code MOVE_PARAM_COMBINER} and
+ * {@code LITERAL_UPGRADE}, since the others take time superlinear in the
+ * method's size, for little gain. Methods larger than
+ * {@link #getMaxInsnsToOptimize()} aren't optimized at all.
+ */
+public final class OptimizationPolicy {
+    /**
+     * Steps that take time about linear in the method's size, and are run
+     * on methods too large for all steps
+     */
+    private static final EnumSet<OptionalStep> CHEAP_STEPS = EnumSet.of(
+            OptionalStep.MOVE_PARAM_COMBINER, OptionalStep.LITERAL_UPGRADE);
+
+    /** statistics index: methods given all the profile's steps */
+    private static final int METHODS_ALL_STEPS = 0;
+
+    /** statistics index: methods given only the cheap steps */
+    private static final int METHODS_DOWNGRADED = 1;
+
+    /** statistics index: methods not optimized at all */
+    private static final int METHODS_SKIPPED = 2;
+
+    /** statistics index: methods optimized again to use fewer registers */
+    private static final int METHODS_MINIMIZED = 3;
+
+    /** statistics index of the first step, indexed by ordinal from there */
+    private static final int FIRST_STEP = 4;
+
+    /** predefined sets of steps and thresholds */
+    public enum Profile {
+        /** All steps on every method, which is what dx always did. */
+        RELEASE("release"),
+
+        /**
+         * For debug builds, where build time matters more than the size of
+         * the code: runs only the cheap steps, and leaves methods of more
+         * than {@link #DEBUG_FAST_MAX_INSNS_TO_OPTIMIZE} instructions
+         * unoptimized.
+         */
+        DEBUG_FAST("debug-fast");
+
+        /** name of the profile on the command line */
+        private final String name;
+
+        Profile(String name) {
+            this.name = name;
+        }
+
+        /**
+         * @param name {@code non-null;} name of a profile on the command line
+         * @return {@code null-ok;} the profile, or {@code null} if there
+         * isn't one of that name
+         */
+        public static Profile forName(String name) {
+            for (Profile profile : values()) {
+                if (profile.name.equals(name)) {
+                    return profile;
+                }
+            }
+
+            return null;
+        }
+
+        @Override
+        public String toString() {
+            return name;
+        }
+    }
+
+    /**
+     * maximum instruction count of methods the {@link Profile#DEBUG_FAST}
+     * profile optimizes
+     */
+    public static final int DEBUG_FAST_MAX_INSNS_TO_OPTIMIZE = 2000;
+
+    /** {@code non-null;} profile the thresholds default to */
+    private final Profile profile;
+
+    /** {@code non-null;} steps run on methods small enough for all steps */
+    private final EnumSet<OptionalStep> steps;
+
+    /** {@code non-null;} steps run on methods too large for all steps */
+    private final EnumSet<OptionalStep> cheapSteps;
+
+    /** maximum instruction count of methods given all steps */
+    private final int maxInsnsForAllSteps;
+
+    /** maximum instruction count of methods optimized at all */
+    private final int maxInsnsToOptimize;
+
+    /** {@code non-null;} counts of the decisions taken, by index */
+    private final AtomicIntegerArray statistics;
+
+    /**
+     * Constructs an instance with the profile's thresholds.
+     *
+     * @param profile {@code non-null;} profile to use
+     */
+    public OptimizationPolicy(Profile profile) {
+        this(profile, -1, -1);
+    }
+
+    /**
+     * Constructs an instance.
+     *
+     * @param profile {@code non-null;} profile to use
+     * @param maxInsnsForAllSteps maximum instruction count of methods given
+     * all steps, or {@code -1} for the profile's default
+     * @param maxInsnsToOptimize maximum instruction count of methods
+     * optimized at all, or {@code -1} for the profile's default
+     */
+    public OptimizationPolicy(Profile profile, int maxInsnsForAllSteps,
+            int maxInsnsToOptimize) {
+        if (profile == null) {
+            throw new NullPointerException("profile == null");
+        }
+
+        this.profile = profile;
+
+        if (profile == Profile.DEBUG_FAST) {
+            steps = CHEAP_STEPS.clone();
+            this.maxInsnsToOptimize = maxInsnsToOptimize >= 0
+                    ? maxInsnsToOptimize : DEBUG_FAST_MAX_INSNS_TO_OPTIMIZE;
+        } else {
+            steps = EnumSet.allOf(OptionalStep.class);
+            this.maxInsnsToOptimize = maxInsnsToOptimize >= 0
+                    ? maxInsnsToOptimize : Integer.MAX_VALUE;
+        }
+
+        this.maxInsnsForAllSteps = maxInsnsForAllSteps >= 0
+                ? maxInsnsForAllSteps : Integer.MAX_VALUE;
+        cheapSteps = steps.clone();
+        cheapSteps.retainAll(CHEAP_STEPS);
+        statistics = new AtomicIntegerArray(
+                FIRST_STEP + OptionalStep.values().length);
+    }
+
+    /**
+     * @return {@code non-null;} the profile the thresholds default to
+     */
+    public Profile getProfile() {
+        return profile;
+    }
+
+    /**
+     * @return maximum instruction count of methods given all steps
+     */
+    public int getMaxInsnsForAllSteps() {
+        return maxInsnsForAllSteps;
+    }
+
+    /**
+     * @return maximum instruction count of methods optimized at all
+     */
+    public int getMaxInsnsToOptimize() {
+        return maxInsnsToOptimize;
+    }
+
+    /**
+     * Decides which steps to run for a method, and counts the decision.
+     *
+     * @param rmeth {@code non-null;} method about to be optimized
+     * @return {@code null-ok;} new set of steps to run, or {@code null} if
+     * the method shouldn't be optimized at all
+     */
+    public EnumSet<OptionalStep> stepsFor(RopMethod rmeth) {
+        int insns = rmeth.getBlocks().getEffectiveInstructionCount();
+
+        if (insns > maxInsnsToOptimize) {
+            statistics.incrementAndGet(METHODS_SKIPPED);
+            return null;
+        }
+
+        EnumSet<OptionalStep> result;
+        if (insns > maxInsnsForAllSteps) {
+            statistics.incrementAndGet(METHODS_DOWNGRADED);
+            result = cheapSteps.clone();
+        } else {
+            statistics.incrementAndGet(METHODS_ALL_STEPS);
+            result = steps.clone();
+        }
+
+        return result;
+    }
+
+    /**
+     * Counts a step that ran on a method.
+     *
+     * @param step {@code non-null;} the step
+     */
+    /*package*/ void stepRan(OptionalStep step) {
+        statistics.incrementAndGet(FIRST_STEP + step.ordinal());
+    }
+
+    /**
+     * Counts a method optimized again to use fewer registers.
+     */
+    /*package*/ void registersMinimized() {
+        statistics.incrementAndGet(METHODS_MINIMIZED);
+    }
+
+    /**
+     * @return count of methods given all the profile's steps
+     */
+    public int getMethodsWithAllSteps() {
+        return statistics.get(METHODS_ALL_STEPS);
+    }
+
+    /**
+     * @return count of methods given only the cheap steps, as they have
+     * more instructions than {@link #getMaxInsnsForAllSteps()}
+     */
+    public int getMethodsDowngraded() {
+        return statistics.get(METHODS_DOWNGRADED);
+    }
+
+    /**
+     * @return count of methods not optimized, as they have more
+     * instructions than {@link #getMaxInsnsToOptimize()}
+     */
+    public int getMethodsSkipped() {
+        return statistics.get(METHODS_SKIPPED);
+    }
+
+    /**
+     * @return count of methods optimized again to use fewer registers
+     */
+    public int getMethodsMinimized() {
+        return statistics.get(METHODS_MINIMIZED);
+    }
+
+    /**
+     * @param step {@code non-null;} a step
+     * @return count of methods the step ran on, not counting runs to use
+     * fewer registers
+     */
+    public int getStepRuns(OptionalStep step) {
+        return statistics.get(FIRST_STEP + step.ordinal());
+    }
+
+    /**
+     * Prints out the collected statistics.
+     *
+     * @param out {@code non-null;} where to output to
+     */
+    public void dumpStatistics(PrintStream out) {
+        out.printf("Optimization profile: %s, methods with all steps: %d,"
+                + " downgraded: %d, skipped: %d, minimized registers: %d\n",
+                profile, getMethodsWithAllSteps(), getMethodsDowngraded(),
+                getMethodsSkipped(), getMethodsMinimized());
+
+        StringBuilder sb = new StringBuilder("Optimizer step runs:");
+        for (OptionalStep step : OptionalStep.values()) {
+            sb.append(' ').append(step).append(": ")
+                    .append(getStepRuns(step));
+        }
+        out.println(sb);
+    }
+}
@@ -91,21 +91,82 @@ public class Optimizer {
     public static mod.agus.jcoderz.dx.rop.code.RopMethod optimize(mod.agus.jcoderz.dx.rop.code.RopMethod rmeth, int paramWidth,
                                                                   boolean isStatic, boolean inPreserveLocals,
                                                                   mod.agus.jcoderz.dx.rop.code.TranslationAdvice inAdvice, EnumSet<OptionalStep> steps) {
+        return optimize(rmeth, paramWidth, isStatic, inPreserveLocals, inAdvice,
+                steps, false);
+    }
+
+    /**
+     * Runs optimization algorthims over this method, and returns a new
+     * instance of RopMethod with the changes.
+     *
+     * @param rmeth method to process
+     * @param paramWidth the total width, in register-units, of this method's
+     * parameters
+     * @param isStatic true if this method has no 'this' pointer argument.
+     * @param inPreserveLocals true if local variable info should be preserved,
+     * at the cost of some registers and insns
+     * @param inAdvice {@code non-null;} translation advice
+     * @param steps set of optional optimization steps to run
+     * @param fastSsaConstruction whether to convert the method to SSA form
+     * with the steps that are faster for large methods, see
+     * {@link SsaConverter#convertToSsaMethod(RopMethod, int, boolean, boolean)}
+     * @return optimized method
+     */
+    public static mod.agus.jcoderz.dx.rop.code.RopMethod optimize(mod.agus.jcoderz.dx.rop.code.RopMethod rmeth, int paramWidth,
+                                                                  boolean isStatic, boolean inPreserveLocals,
+                                                                  mod.agus.jcoderz.dx.rop.code.TranslationAdvice inAdvice, EnumSet<OptionalStep> steps,
+                                                                  boolean fastSsaConstruction) {
+        return optimize(rmeth, paramWidth, isStatic, inPreserveLocals, inAdvice,
+                steps, fastSsaConstruction, null);
+    }
+
+    /**
+     * Runs optimization algorthims over this method, and returns a new
+     * instance of RopMethod with the changes.
+     *
+     * @param rmeth method to process
+     * @param paramWidth the total width, in register-units, of this method's
+     * parameters
+     * @param isStatic true if this method has no 'this' pointer argument.
+     * @param inPreserveLocals true if local variable info should be preserved,
+     * at the cost of some registers and insns
+     * @param inAdvice {@code non-null;} translation advice
+     * @param steps set of optional optimization steps to run, usually from
+     * {@link OptimizationPolicy#stepsFor}
+     * @param fastSsaConstruction whether to convert the method to SSA form
+     * with the steps that are faster for large methods
+     * @param policy {@code null-ok;} policy to count the steps run in
+     * @return optimized method
+     */
+    public static mod.agus.jcoderz.dx.rop.code.RopMethod optimize(mod.agus.jcoderz.dx.rop.code.RopMethod rmeth, int paramWidth,
+                                                                  boolean isStatic, boolean inPreserveLocals,
+                                                                  mod.agus.jcoderz.dx.rop.code.TranslationAdvice inAdvice, EnumSet<OptionalStep> steps,
+                                                                  boolean fastSsaConstruction, OptimizationPolicy policy) {
         mod.agus.jcoderz.dx.ssa.SsaMethod ssaMeth = null;
 
         preserveLocals = inPreserveLocals;
         advice = inAdvice;
 
-        ssaMeth = SsaConverter.convertToSsaMethod(rmeth, paramWidth, isStatic);
-        runSsaFormSteps(ssaMeth, steps);
+        ssaMeth = SsaConverter.convertToSsaMethod(rmeth, paramWidth, isStatic,
+                fastSsaConstruction);
+        runSsaFormSteps(ssaMeth, steps, policy);
 
         mod.agus.jcoderz.dx.rop.code.RopMethod resultMeth = mod.agus.jcoderz.dx.ssa.back.SsaToRop.convertToRopMethod(ssaMeth, false);
 
+        /*
+         * Without CONST_COLLECTOR, optimizing again would only redo the
+         * same steps, with the same result.
+         */
         if (resultMeth.getBlocks().getRegCount()
-                > advice.getMaxOptimalRegisterCount()) {
+                > advice.getMaxOptimalRegisterCount()
+                && steps.contains(OptionalStep.CONST_COLLECTOR)) {
+            if (policy != null) {
+                policy.registersMinimized();
+            }
+
             // Try to see if we can squeeze it under the register count bar
             resultMeth = optimizeMinimizeRegisters(rmeth, paramWidth, isStatic,
-                    steps);
+                    steps, fastSsaConstruction);
         }
         return resultMeth;
     }
@@ -123,16 +184,19 @@ public class Optimizer {
      * parameters
      * @param isStatic true if this method has no 'this' pointer argument.
      * @param steps set of optional optimization steps to run
+     * @param fastSsaConstruction whether to convert the method to SSA form
+     * with the steps that are faster for large methods
      * @return optimized method
      */
     private static mod.agus.jcoderz.dx.rop.code.RopMethod optimizeMinimizeRegisters(mod.agus.jcoderz.dx.rop.code.RopMethod rmeth,
                                                                                     int paramWidth, boolean isStatic,
-                                                                                    EnumSet<OptionalStep> steps) {
+                                                                                    EnumSet<OptionalStep> steps,
+                                                                                    boolean fastSsaConstruction) {
         mod.agus.jcoderz.dx.ssa.SsaMethod ssaMeth;
         mod.agus.jcoderz.dx.rop.code.RopMethod resultMeth;
 
         ssaMeth = SsaConverter.convertToSsaMethod(
-                rmeth, paramWidth, isStatic);
+                rmeth, paramWidth, isStatic, fastSsaConstruction);
 
         EnumSet<OptionalStep> newSteps = steps.clone();
 
@@ -142,16 +206,36 @@ public class Optimizer {
          */
         newSteps.remove(OptionalStep.CONST_COLLECTOR);
 
-        runSsaFormSteps(ssaMeth, newSteps);
+        runSsaFormSteps(ssaMeth, newSteps, null);
 
         resultMeth = SsaToRop.convertToRopMethod(ssaMeth, true);
         return resultMeth;
     }
 
+    /**
+     * Runs the optional steps and the steps always needed over a method in
+     * SSA form.
+     *
+     * @param ssaMeth {@code non-null;} method to process
+     * @param steps {@code non-null;} set of optional optimization steps to run
+     * @param policy {@code null-ok;} policy to count the steps run in
+     */
     private static void runSsaFormSteps(mod.agus.jcoderz.dx.ssa.SsaMethod ssaMeth,
-                                        EnumSet<OptionalStep> steps) {
+                                        EnumSet<OptionalStep> steps,
+                                        OptimizationPolicy policy) {
         boolean needsDeadCodeRemover = true;
 
+        /*
+         * ESCAPE_ANALYSIS impacts debuggability, so left off by default
+         */
+        steps.remove(OptionalStep.ESCAPE_ANALYSIS);
+
+        if (policy != null) {
+            for (OptionalStep step : steps) {
+                policy.stepRan(step);
+            }
+        }
+
         if (steps.contains(OptionalStep.MOVE_PARAM_COMBINER)) {
             MoveParamCombiner.process(ssaMeth);
         }
@@ -168,10 +252,6 @@ public class Optimizer {
             needsDeadCodeRemover = false;
         }
 
-        /*
-         * ESCAPE_ANALYSIS impacts debuggability, so left off by default
-         */
-        steps.remove(OptionalStep.ESCAPE_ANALYSIS);
         if (steps.contains(OptionalStep.ESCAPE_ANALYSIS)) {
             EscapeAnalysis.process(ssaMeth);
             DeadCodeRemover.process(ssaMeth);
@@ -248,7 +328,7 @@ public class Optimizer {
 
         ssaMeth = SsaConverter.convertToSsaMethod(rmeth, paramWidth, isStatic);
 
-        runSsaFormSteps(ssaMeth, steps);
+        runSsaFormSteps(ssaMeth, steps, null);
 
         LivenessAnalyzer.constructInterferenceGraph(ssaMeth);
 
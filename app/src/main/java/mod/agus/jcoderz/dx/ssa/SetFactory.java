@@ -37,11 +37,15 @@ public final class SetFactory {
 
     /**
      * BitIntSet/ListIntSet threshold for interference graph sets. These
-     * sets are kept per register until register allocation is done.
+     * sets are kept per register until register allocation is done, so
+     * with bit sets, the graph is a dense matrix of registers.
      *
-     * A value of 3072 here is somewhere around 1.125mb of total bitset size.
+     * Interference sets of methods with many registers get large, and
+     * inserting into ListIntSets is linear in their size, so bit sets are
+     * used as long as the matrix stays below 16mb, i.e. up to 11585
+     * registers.
      */
-    private static final int INTERFERENCE_SET_THRESHOLD_SIZE = 3072;
+    private static final long INTERFERENCE_MATRIX_THRESHOLD_BYTES = 16L * 1024 * 1024;
 
     /**
      * BitIntSet/ListIntSet threshold for the live in/out sets kept by
@@ -76,7 +80,7 @@ public final class SetFactory {
      * @return {@code non-null;} appropriate set
      */
     public static IntSet makeInterferenceSet(int countRegs) {
-        return countRegs <= INTERFERENCE_SET_THRESHOLD_SIZE
+        return (long) countRegs * countRegs / 8 <= INTERFERENCE_MATRIX_THRESHOLD_BYTES
                 ? new BitIntSet(countRegs)
                 : new ListIntSet();
     }
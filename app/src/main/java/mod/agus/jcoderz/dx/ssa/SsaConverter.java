@@ -17,10 +17,13 @@
 package mod.agus.jcoderz.dx.ssa;
 
 import mod.agus.jcoderz.dx.util.IntIterator;
+import mod.agus.jcoderz.dx.util.IntList;
+import mod.agus.jcoderz.dx.util.IntSet;
 import java.util.ArrayList;
 import java.util.BitSet;
 
 import mod.agus.jcoderz.dx.rop.code.RegisterSpec;
+import mod.agus.jcoderz.dx.rop.code.RegisterSpecList;
 import mod.agus.jcoderz.dx.rop.code.RopMethod;
 
 /**
@@ -29,6 +32,13 @@ import mod.agus.jcoderz.dx.rop.code.RopMethod;
 public class SsaConverter {
     public static final boolean DEBUG = false;
 
+    /**
+     * Maximum size in words of each per-block register set used for
+     * placing pruned phis. Methods needing larger ones get all phis
+     * placed, like without pruning.
+     */
+    private static final int MAX_LIVENESS_WORDS = 512 * 1024;
+
     /**
      * Returns an SSA representation, edge-split and with phi
      * functions placed.
@@ -42,6 +52,32 @@ public class SsaConverter {
      */
     public static mod.agus.jcoderz.dx.ssa.SsaMethod convertToSsaMethod(mod.agus.jcoderz.dx.rop.code.RopMethod rmeth,
                                                                        int paramWidth, boolean isStatic) {
+        return convertToSsaMethod(rmeth, paramWidth, isStatic, false);
+    }
+
+    /**
+     * Returns an SSA representation, edge-split and with phi
+     * functions placed.
+     * <p>
+     * With {@code fastConstruction}, dominators are calculated with
+     * {@link IterativeDominators}, phis are only placed where their register
+     * is live (pruned SSA form), and the renamer keeps a single register
+     * mapping for the whole method. The result only differs in not
+     * containing the dead phis {@link DeadCodeRemover} would remove later,
+     * and in SSA register numbers, whose order is the same.
+     *
+     * @param rmeth input
+     * @param paramWidth the total width, in register-units, of the method's
+     * parameters
+     * @param isStatic {@code true} if this method has no {@code this}
+     * pointer argument
+     * @param fastConstruction whether to use the construction steps that are
+     * faster for large methods
+     * @return output in SSA form
+     */
+    public static mod.agus.jcoderz.dx.ssa.SsaMethod convertToSsaMethod(mod.agus.jcoderz.dx.rop.code.RopMethod rmeth,
+                                                                       int paramWidth, boolean isStatic,
+                                                                       boolean fastConstruction) {
         mod.agus.jcoderz.dx.ssa.SsaMethod result
             = mod.agus.jcoderz.dx.ssa.SsaMethod.newFromRopMethod(rmeth, paramWidth, isStatic);
 
@@ -49,8 +85,12 @@ public class SsaConverter {
 
         LocalVariableInfo localInfo = LocalVariableExtractor.extract(result);
 
-        placePhiFunctions(result, localInfo, 0);
-        new mod.agus.jcoderz.dx.ssa.SsaRenamer(result).run();
+        if (fastConstruction) {
+            placePrunedPhiFunctions(result, localInfo);
+        } else {
+            placePhiFunctions(result, localInfo, 0);
+        }
+        new mod.agus.jcoderz.dx.ssa.SsaRenamer(result, fastConstruction).run();
 
         /*
          * The exit block, added here, is not considered for edge splitting
@@ -401,4 +441,296 @@ public class SsaConverter {
             }
         }
     }
+
+    /**
+     * Places phi functions like {@link #placePhiFunctions}, but only where
+     * their register is live-in, which is where they end up being used
+     * (pruned SSA form). The others would just be removed by
+     * {@link DeadCodeRemover} again.
+     * <p>
+     * Phis for registers associated with local variables are always placed
+     * where {@link #placePhiFunctions} places them, since they can be kept
+     * to preserve local variable information even if their value is unused.
+     * <p>
+     * Definition and use sites of all registers are collected in a single
+     * pass over the method, and liveness is only calculated for the
+     * registers that get phis.
+     *
+     * @param ssaMeth {@code non-null;} method to process.
+     * Modifications are made in-place.
+     * @param localInfo {@code non-null;} local variable info, used
+     * when placing phis
+     */
+    private static void placePrunedPhiFunctions(SsaMethod ssaMeth,
+                                                LocalVariableInfo localInfo) {
+        ArrayList<SsaBasicBlock> ssaBlocks = ssaMeth.getBlocks();
+        int blockCount = ssaBlocks.size();
+        int regCount = ssaMeth.getRegCount();
+
+        DomFront df = new DomFront(ssaMeth, true);
+        DomFront.DomInfo[] domInfos = df.run();
+
+        /*
+         * Blocks assigning each register, and blocks reading it before
+         * assigning it. Also, all registers ever associated with a local
+         * variable.
+         */
+        IntList defRegs = new IntList();
+        IntList defBlocks = new IntList();
+        IntList useRegs = new IntList();
+        IntList useBlocks = new IntList();
+        BitSet localRegs = new BitSet(regCount);
+        // Per register, the last block it was found in, plus one
+        int[] lastDefBlocks = new int[regCount];
+        int[] lastUseBlocks = new int[regCount];
+
+        for (int bi = 0; bi < blockCount; bi++) {
+            int mark = bi + 1;
+
+            for (SsaInsn insn : ssaBlocks.get(bi).getInsns()) {
+                RegisterSpecList sources = insn.getSources();
+                RegisterSpec result = insn.getResult();
+                RegisterSpec local = insn.getLocalAssignment();
+
+                for (int i = 0, sz = sources.size(); i < sz; i++) {
+                    int reg = sources.get(i).getReg();
+
+                    if (lastDefBlocks[reg] != mark && lastUseBlocks[reg] != mark) {
+                        lastUseBlocks[reg] = mark;
+                        useRegs.add(reg);
+                        useBlocks.add(bi);
+                    }
+                }
+
+                if (result != null && lastDefBlocks[result.getReg()] != mark) {
+                    lastDefBlocks[result.getReg()] = mark;
+                    defRegs.add(result.getReg());
+                    defBlocks.add(bi);
+                }
+
+                if (local != null) {
+                    localRegs.set(local.getReg());
+                }
+            }
+        }
+
+        int[] defSiteStarts = new int[regCount + 1];
+        int[] defSites = groupSitesByRegister(defRegs, defBlocks, defSiteStarts);
+        int[] useSiteStarts = new int[regCount + 1];
+        int[] useSites = groupSitesByRegister(useRegs, useBlocks, useSiteStarts);
+
+        // Dominance frontiers, as arrays of block indexes in ascending order
+        int[][] frontiers = new int[blockCount][];
+        for (int bi = 0; bi < blockCount; bi++) {
+            IntSet dfSet = domInfos[bi].dominanceFrontiers;
+            int[] frontier = new int[dfSet.elements()];
+            IntIterator dfIterator = dfSet.iterator();
+
+            for (int i = 0; dfIterator.hasNext(); i++) {
+                frontier[i] = dfIterator.next();
+            }
+            frontiers[bi] = frontier;
+        }
+
+        /*
+         * Per block, the last register it was found to be a definition site
+         * or phi placement site of, plus one. That saves clearing sets for
+         * every register.
+         */
+        int[] defSiteMarks = new int[blockCount];
+        int[] phiSiteMarks = new int[blockCount];
+        int[] worklist = new int[blockCount];
+        // Phi placement sites, in register order
+        IntList phiRegs = new IntList();
+        IntList phiBlocks = new IntList();
+        // Per register, its index among the ones liveness is needed for, plus one
+        int[] liveRegIndexes = new int[regCount];
+        int liveRegCount = 0;
+
+        for (int reg = 0; reg < regCount; reg++) {
+            boolean pruned = !localRegs.get(reg);
+
+            // Never read before being assigned, so never live-in anywhere
+            if (pruned && useSiteStarts[reg] == useSiteStarts[reg + 1]) {
+                continue;
+            }
+
+            int mark = reg + 1;
+            int worklistSize = 0;
+            int phiCount = phiRegs.size();
+
+            for (int i = defSiteStarts[reg]; i < defSiteStarts[reg + 1]; i++) {
+                defSiteMarks[defSites[i]] = mark;
+                worklist[worklistSize++] = defSites[i];
+            }
+
+            // The iterated dominance frontier of the definition sites
+            while (worklistSize > 0) {
+                int workBlockIndex = worklist[--worklistSize];
+
+                for (int dfBlockIndex : frontiers[workBlockIndex]) {
+                    if (phiSiteMarks[dfBlockIndex] != mark) {
+                        phiSiteMarks[dfBlockIndex] = mark;
+                        phiRegs.add(reg);
+                        phiBlocks.add(dfBlockIndex);
+
+                        if (defSiteMarks[dfBlockIndex] != mark) {
+                            worklist[worklistSize++] = dfBlockIndex;
+                        }
+                    }
+                }
+            }
+
+            if (pruned && phiRegs.size() > phiCount) {
+                liveRegIndexes[reg] = ++liveRegCount;
+            }
+        }
+
+        /*
+         * Per block, bit sets of the registers liveness is needed for,
+         * as consecutive words.
+         */
+        int words = (liveRegCount + 63) >> 6;
+        long[] liveIns = null;
+
+        if (liveRegCount > 0 && (long) blockCount * words <= MAX_LIVENESS_WORDS) {
+            long[] uses = new long[blockCount * words];
+            long[] defs = new long[blockCount * words];
+
+            for (int reg = 0; reg < regCount; reg++) {
+                int index = liveRegIndexes[reg] - 1;
+
+                if (index < 0) {
+                    continue;
+                }
+
+                for (int i = useSiteStarts[reg]; i < useSiteStarts[reg + 1]; i++) {
+                    uses[useSites[i] * words + (index >> 6)] |= 1L << index;
+                }
+                for (int i = defSiteStarts[reg]; i < defSiteStarts[reg + 1]; i++) {
+                    defs[defSites[i] * words + (index >> 6)] |= 1L << index;
+                }
+            }
+
+            liveIns = calcLiveIns(ssaBlocks, uses, defs, words);
+        }
+
+        for (int i = 0; i < phiRegs.size(); i++) {
+            int reg = phiRegs.get(i);
+            int phiBlockIndex = phiBlocks.get(i);
+            int index = liveRegIndexes[reg] - 1;
+
+            if (liveIns != null && index >= 0
+                    && (liveIns[phiBlockIndex * words + (index >> 6)]
+                        & (1L << index)) == 0) {
+                // Dead
+                continue;
+            }
+
+            RegisterSpec rs = localInfo.getStarts(phiBlockIndex).get(reg);
+
+            if (rs == null) {
+                ssaBlocks.get(phiBlockIndex).addPhiInsnForReg(reg);
+            } else {
+                ssaBlocks.get(phiBlockIndex).addPhiInsnForReg(rs);
+            }
+        }
+    }
+
+    /**
+     * Calculates which registers are live-in at each block, before phis are
+     * placed. Sets of registers are given and returned as {@code words}
+     * consecutive words per block.
+     *
+     * @param ssaBlocks {@code non-null;} blocks of the method
+     * @param uses {@code non-null;} per block, registers it reads before
+     * assigning them. Gets turned into the result.
+     * @param defs {@code non-null;} per block, registers it assigns
+     * @param words {@code > 0;} words per set
+     * @return {@code non-null;} per block, registers live-in at it
+     */
+    private static long[] calcLiveIns(ArrayList<SsaBasicBlock> ssaBlocks,
+                                      long[] uses, long[] defs, int words) {
+        int blockCount = ssaBlocks.size();
+        long[] liveOuts = new long[blockCount * words];
+        long[] liveIn = new long[words];
+        int[] worklist = new int[blockCount];
+        boolean[] queued = new boolean[blockCount];
+        int worklistSize = 0;
+
+        // Liveness flows backwards, so start at the end
+        for (int bi = 0; bi < blockCount; bi++) {
+            worklist[worklistSize++] = bi;
+            queued[bi] = true;
+        }
+
+        while (worklistSize > 0) {
+            int bi = worklist[--worklistSize];
+            int base = bi * words;
+            queued[bi] = false;
+
+            for (int w = 0; w < words; w++) {
+                liveIn[w] = uses[base + w] | (liveOuts[base + w] & ~defs[base + w]);
+            }
+
+            BitSet preds = ssaBlocks.get(bi).getPredecessors();
+            for (int pred = preds.nextSetBit(0); pred >= 0;
+                 pred = preds.nextSetBit(pred + 1)) {
+                int predBase = pred * words;
+                boolean changed = false;
+
+                for (int w = 0; w < words; w++) {
+                    long out = liveOuts[predBase + w];
+
+                    if ((out | liveIn[w]) != out) {
+                        liveOuts[predBase + w] = out | liveIn[w];
+                        changed = true;
+                    }
+                }
+
+                if (changed && !queued[pred]) {
+                    worklist[worklistSize++] = pred;
+                    queued[pred] = true;
+                }
+            }
+        }
+
+        for (int i = 0; i < uses.length; i++) {
+            uses[i] |= liveOuts[i] & ~defs[i];
+        }
+
+        return uses;
+    }
+
+    /**
+     * Groups blocks by the registers they were found for, keeping their
+     * order.
+     *
+     * @param regs {@code non-null;} registers
+     * @param blocks {@code non-null;} for each entry of {@code regs}, a block
+     * index
+     * @param starts {@code non-null;} of size register count plus one, set to
+     * where each register's blocks start in the result, followed by the
+     * result's size
+     * @return {@code non-null;} the blocks of all registers, in register order
+     */
+    private static int[] groupSitesByRegister(IntList regs, IntList blocks,
+                                              int[] starts) {
+        int regCount = starts.length - 1;
+        int[] sites = new int[regs.size()];
+        int[] ends = new int[regCount];
+
+        for (int i = 0; i < regs.size(); i++) {
+            starts[regs.get(i) + 1]++;
+        }
+        for (int reg = 0; reg < regCount; reg++) {
+            starts[reg + 1] += starts[reg];
+            ends[reg] = starts[reg];
+        }
+        for (int i = 0; i < regs.size(); i++) {
+            sites[ends[regs.get(i)]++] = blocks.get(i);
+        }
+
+        return sites;
+    }
 }
@@ -58,6 +58,11 @@ import mod.agus.jcoderz.dx.rop.type.Type;
  * a mapping table for the current block being processed. Once the
  * current block has been processed, this mapping table is then copied
  * and used as the initial state for child blocks.<p>
+ *
+ * Alternatively, a single mapping table can be shared by all blocks. Every
+ * change to it is logged, and undone again once the dom tree walk returns
+ * from the block it was made in. That avoids copying the table for every
+ * block, which dominates renaming methods with many registers and blocks.<p>
  */
 public class SsaRenamer implements Runnable {
     /** debug flag */
@@ -83,6 +88,24 @@ public class SsaRenamer implements Runnable {
      */
     private final mod.agus.jcoderz.dx.rop.code.RegisterSpec[][] startsForBlocks;
 
+    /** whether all blocks share {@link #sharedMapping} */
+    private final boolean shareMapping;
+
+    /**
+     * {@code null-ok;} if {@link #shareMapping}, the register version state
+     * of the block being processed, shared by all blocks
+     */
+    private mod.agus.jcoderz.dx.rop.code.RegisterSpec[] sharedMapping;
+
+    /**
+     * if {@link #shareMapping}, the rop registers of all changes made to
+     * {@link #sharedMapping} not undone yet, in order
+     */
+    private final IntList undoRegs;
+
+    /** the previous SSA registers for the changes in {@link #undoRegs} */
+    private final ArrayList<mod.agus.jcoderz.dx.rop.code.RegisterSpec> undoSpecs;
+
     /** map of SSA register number to debug (local var names) or null of n/a */
     private final ArrayList<mod.agus.jcoderz.dx.rop.code.LocalItem> ssaRegToLocalItems;
 
@@ -99,6 +122,18 @@ public class SsaRenamer implements Runnable {
      * be renamed.
      */
     public SsaRenamer(mod.agus.jcoderz.dx.ssa.SsaMethod ssaMeth) {
+        this(ssaMeth, false);
+    }
+
+    /**
+     * Constructs an instance of the renamer
+     *
+     * @param ssaMeth {@code non-null;} un-renamed SSA method that will
+     * be renamed.
+     * @param shareMapping whether all blocks should share one register
+     * mapping table, rather than each getting a copy of its dom parent's
+     */
+    public SsaRenamer(mod.agus.jcoderz.dx.ssa.SsaMethod ssaMeth, boolean shareMapping) {
         ropRegCount = ssaMeth.getRegCount();
 
         this.ssaMeth = ssaMeth;
@@ -109,7 +144,11 @@ public class SsaRenamer implements Runnable {
          */
         nextSsaReg = ropRegCount;
         threshold = 0;
-        startsForBlocks = new mod.agus.jcoderz.dx.rop.code.RegisterSpec[ssaMeth.getBlocks().size()][];
+        this.shareMapping = shareMapping;
+        startsForBlocks = shareMapping ? null
+                : new mod.agus.jcoderz.dx.rop.code.RegisterSpec[ssaMeth.getBlocks().size()][];
+        undoRegs = shareMapping ? new IntList() : null;
+        undoSpecs = shareMapping ? new ArrayList<mod.agus.jcoderz.dx.rop.code.RegisterSpec>() : null;
 
         ssaRegToLocalItems = new ArrayList<mod.agus.jcoderz.dx.rop.code.LocalItem>();
 
@@ -140,7 +179,11 @@ public class SsaRenamer implements Runnable {
         }
 
         // Initial state for entry block
-        startsForBlocks[ssaMeth.getEntryBlockIndex()] = initialRegMapping;
+        if (shareMapping) {
+            sharedMapping = initialRegMapping;
+        } else {
+            startsForBlocks[ssaMeth.getEntryBlockIndex()] = initialRegMapping;
+        }
     }
 
     /**
@@ -162,13 +205,17 @@ public class SsaRenamer implements Runnable {
     @Override
     public void run() {
         // Rename each block in dom-tree DFS order.
-        ssaMeth.forEachBlockDepthFirstDom(new mod.agus.jcoderz.dx.ssa.SsaBasicBlock.Visitor() {
-            @Override
-            public void visitBlock (mod.agus.jcoderz.dx.ssa.SsaBasicBlock block,
-                                    mod.agus.jcoderz.dx.ssa.SsaBasicBlock unused) {
-                new BlockRenamer(block).process();
-            }
-        });
+        if (shareMapping) {
+            renameDepthFirstDom();
+        } else {
+            ssaMeth.forEachBlockDepthFirstDom(new mod.agus.jcoderz.dx.ssa.SsaBasicBlock.Visitor() {
+                @Override
+                public void visitBlock (mod.agus.jcoderz.dx.ssa.SsaBasicBlock block,
+                                        mod.agus.jcoderz.dx.ssa.SsaBasicBlock unused) {
+                    new BlockRenamer(block).process();
+                }
+            });
+        }
 
         ssaMeth.setNewRegCount(nextSsaReg);
         ssaMeth.onInsnsChanged();
@@ -192,6 +239,49 @@ public class SsaRenamer implements Runnable {
         }
     }
 
+    /**
+     * Renames each block in the same order as
+     * {@link SsaMethod#forEachBlockDepthFirstDom}, restoring
+     * {@link #sharedMapping} to the state at the end of a block's dom parent
+     * before renaming it.
+     */
+    private void renameDepthFirstDom() {
+        ArrayList<mod.agus.jcoderz.dx.ssa.SsaBasicBlock> blocks = ssaMeth.getBlocks();
+        int szBlocks = blocks.size();
+        // Pending blocks, and the undo log size at the end of their dom parent
+        int[] stack = new int[szBlocks];
+        int[] undoMarks = new int[szBlocks];
+        int szStack = 0;
+
+        stack[szStack] = ssaMeth.getEntryBlockIndex();
+        undoMarks[szStack++] = 0;
+
+        while (szStack > 0) {
+            szStack--;
+            mod.agus.jcoderz.dx.ssa.SsaBasicBlock block = blocks.get(stack[szStack]);
+            int undoMark = undoMarks[szStack];
+
+            for (int i = undoRegs.size() - 1; i >= undoMark; i--) {
+                sharedMapping[undoRegs.get(i)] = undoSpecs.remove(i);
+            }
+            undoRegs.shrink(undoMark);
+
+            new BlockRenamer(block).process();
+
+            undoMark = undoRegs.size();
+            ArrayList<mod.agus.jcoderz.dx.ssa.SsaBasicBlock> children = block.getDomChildren();
+            for (int i = children.size() - 1; i >= 0; i--) {
+                mod.agus.jcoderz.dx.ssa.SsaBasicBlock child = children.get(i);
+
+                // The entry block is its own dom child
+                if (child != block) {
+                    stack[szStack] = child.getIndex();
+                    undoMarks[szStack++] = undoMark;
+                }
+            }
+        }
+    }
+
     /**
      * Duplicates a RegisterSpec array.
      *
@@ -311,13 +401,18 @@ public class SsaRenamer implements Runnable {
          */
         BlockRenamer(final mod.agus.jcoderz.dx.ssa.SsaBasicBlock block) {
             this.block = block;
-            currentMapping = startsForBlocks[block.getIndex()];
             movesToKeep = new HashSet<mod.agus.jcoderz.dx.ssa.SsaInsn>();
             insnsToReplace = new HashMap<mod.agus.jcoderz.dx.ssa.SsaInsn, mod.agus.jcoderz.dx.ssa.SsaInsn>();
             mapper =  new RenamingMapper();
 
-            // We don't need our own start state anymore
-            startsForBlocks[block.getIndex()] = null;
+            if (shareMapping) {
+                currentMapping = sharedMapping;
+            } else {
+                currentMapping = startsForBlocks[block.getIndex()];
+
+                // We don't need our own start state anymore
+                startsForBlocks[block.getIndex()] = null;
+            }
         }
 
         /**
@@ -395,6 +490,11 @@ public class SsaRenamer implements Runnable {
                 }
             }
 
+            // Dom children start with the shared state as it is now.
+            if (shareMapping) {
+                return;
+            }
+
             // Store the start states for our dom children.
             boolean first = true;
             for (mod.agus.jcoderz.dx.ssa.SsaBasicBlock child : block.getDomChildren()) {
@@ -437,16 +537,19 @@ public class SsaRenamer implements Runnable {
             int ssaRegNum = ssaReg.getReg();
             mod.agus.jcoderz.dx.rop.code.LocalItem ssaRegLocal = ssaReg.getLocalItem();
 
-            currentMapping[ropReg] = ssaReg;
+            setMapping(ropReg, ssaReg);
 
             /*
              * Ensure all SSA register specs with the same reg are identical.
+             * A register that was just allocated isn't mapped to yet, though.
              */
-            for (int i = currentMapping.length - 1; i >= 0; i--) {
-                mod.agus.jcoderz.dx.rop.code.RegisterSpec cur = currentMapping[i];
+            if (!shareMapping || ssaRegNum != nextSsaReg) {
+                for (int i = currentMapping.length - 1; i >= 0; i--) {
+                    mod.agus.jcoderz.dx.rop.code.RegisterSpec cur = currentMapping[i];
 
-                if (ssaRegNum == cur.getReg()) {
-                    currentMapping[i] = ssaReg;
+                    if (ssaRegNum == cur.getReg() && cur != ssaReg) {
+                        setMapping(i, ssaReg);
+                    }
                 }
             }
 
@@ -464,11 +567,27 @@ public class SsaRenamer implements Runnable {
 
                 if (ssaRegNum != cur.getReg()
                         && ssaRegLocal.equals(cur.getLocalItem())) {
-                    currentMapping[i] = cur.withLocalItem(null);
+                    setMapping(i, cur.withLocalItem(null));
                 }
             }
         }
 
+        /**
+         * Changes the current mapping of a rop register, logging the
+         * change if the mapping is shared.
+         *
+         * @param ropReg {@code >= 0;} rop register number
+         * @param ssaReg {@code non-null;} SSA register to map it to
+         */
+        private void setMapping(int ropReg, mod.agus.jcoderz.dx.rop.code.RegisterSpec ssaReg) {
+            if (shareMapping) {
+                undoRegs.add(ropReg);
+                undoSpecs.add(currentMapping[ropReg]);
+            }
+
+            currentMapping[ropReg] = ssaReg;
+        }
+
         /**
          * {@inheritDoc}
          *
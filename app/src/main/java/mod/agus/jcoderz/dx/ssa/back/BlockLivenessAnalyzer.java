@@ -0,0 +1,236 @@
+package mod.agus.jcoderz.dx.ssa.back;
+
+import mod.agus.jcoderz.dx.rop.code.RegisterSpec;
+import mod.agus.jcoderz.dx.rop.code.RegisterSpecList;
+import mod.agus.jcoderz.dx.ssa.PhiInsn;
+import mod.agus.jcoderz.dx.ssa.SsaBasicBlock;
+import mod.agus.jcoderz.dx.ssa.SsaInsn;
+import mod.agus.jcoderz.dx.ssa.SsaMethod;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+
+/**
+ * Computes the same live in/out sets and interference graph as
+ * {@link LivenessAnalyzer}, but for all registers at once: live-in and
+ * live-out sets are solved per basic block as bit sets with a worklist, and
+ * interference is then found with a single backward pass over each block.
+ * <p>
+ * {@link LivenessAnalyzer} walks the CFG once per register, which is cheap
+ * for small methods, but takes time quadratic in the method's size for
+ * methods with thousands of registers and blocks.
+ */
+/*package*/ final class BlockLivenessAnalyzer {
+    /**
+     * Minimum count of registers for which a method is analyzed per block
+     * rather than per register.
+     */
+    private static final int MIN_REG_COUNT = 512;
+
+    /**
+     * Maximum total size in bytes of the per-block bit sets. Larger methods
+     * are analyzed per register, which needs less memory.
+     */
+    private static final long MAX_BIT_SETS_SIZE = 32L * 1024 * 1024;
+
+    /** method to process */
+    private final SsaMethod ssaMeth;
+
+    /** {@code non-null;} blocks of {@link #ssaMeth} */
+    private final ArrayList<SsaBasicBlock> blocks;
+
+    /** per block, registers used before they get defined in it, if at all */
+    private final BitSet[] upwardExposedUses;
+
+    /** per block, registers defined in it */
+    private final BitSet[] definitions;
+
+    /** per block, registers live-in at it */
+    private final BitSet[] liveIn;
+
+    /** per block, registers live-out at it */
+    private final BitSet[] liveOut;
+
+    private BlockLivenessAnalyzer(SsaMethod ssaMeth) {
+        int szBlocks = ssaMeth.getBlocks().size();
+
+        this.ssaMeth = ssaMeth;
+        blocks = ssaMeth.getBlocks();
+        upwardExposedUses = new BitSet[szBlocks];
+        definitions = new BitSet[szBlocks];
+        liveIn = new BitSet[szBlocks];
+        liveOut = new BitSet[szBlocks];
+    }
+
+    /**
+     * @param ssaMeth {@code non-null;} method to process
+     * @return whether the method is better analyzed per block than per
+     * register
+     */
+    /*package*/ static boolean shouldAnalyze(SsaMethod ssaMeth) {
+        long szRegs = ssaMeth.getRegCount();
+        long szBlocks = ssaMeth.getBlocks().size();
+
+        return szRegs >= MIN_REG_COUNT
+                && szBlocks * szRegs * 4 / 8 <= MAX_BIT_SETS_SIZE;
+    }
+
+    /**
+     * Runs register liveness analysis for a method, updating the live in/out
+     * information in {@code SsaBasicBlock} instances and adding interference
+     * found to the graph.
+     *
+     * @param ssaMeth {@code non-null;} method to process
+     * @param interference {@code non-null;} graph to update
+     */
+    /*package*/ static void run(SsaMethod ssaMeth,
+            InterferenceGraph interference) {
+        BlockLivenessAnalyzer analyzer = new BlockLivenessAnalyzer(ssaMeth);
+
+        analyzer.summarizeBlocks();
+        analyzer.solveLiveness();
+        analyzer.findInterference(interference);
+    }
+
+    /**
+     * Finds each block's uses and definitions, and marks registers used by
+     * phis as live-out at the respective predecessor blocks.
+     */
+    private void summarizeBlocks() {
+        int szRegs = ssaMeth.getRegCount();
+
+        for (SsaBasicBlock block : blocks) {
+            int index = block.getIndex();
+
+            upwardExposedUses[index] = new BitSet(szRegs);
+            definitions[index] = new BitSet(szRegs);
+            liveIn[index] = new BitSet(szRegs);
+            liveOut[index] = new BitSet(szRegs);
+        }
+
+        for (SsaBasicBlock block : blocks) {
+            int index = block.getIndex();
+            BitSet uses = upwardExposedUses[index];
+            BitSet defs = definitions[index];
+            ArrayList<SsaInsn> insns = block.getInsns();
+
+            for (int i = insns.size() - 1; i >= 0; i--) {
+                SsaInsn insn = insns.get(i);
+                RegisterSpec result = insn.getResult();
+                RegisterSpecList sources = insn.getSources();
+
+                if (result != null) {
+                    defs.set(result.getReg());
+                    uses.clear(result.getReg());
+                }
+
+                if (insn instanceof PhiInsn) {
+                    // Phi sources are live-out at the predecessor, not live-in here
+                    PhiInsn phi = (PhiInsn) insn;
+
+                    for (int j = 0; j < sources.size(); j++) {
+                        liveOut[phi.predBlockIndexForSourcesIndex(j)]
+                                .set(sources.get(j).getReg());
+                    }
+                } else {
+                    for (int j = 0; j < sources.size(); j++) {
+                        uses.set(sources.get(j).getReg());
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Solves {@code liveIn = uses + (liveOut - defs)} and
+     * {@code liveOut = union of successors' liveIn} for all blocks.
+     */
+    private void solveLiveness() {
+        int szBlocks = blocks.size();
+        int[] worklist = new int[szBlocks];
+        BitSet queued = new BitSet(szBlocks);
+        int size = 0;
+
+        // Liveness flows backwards, so start at the end
+        for (int i = 0; i < szBlocks; i++) {
+            worklist[size++] = i;
+            queued.set(i);
+        }
+
+        while (size > 0) {
+            int index = worklist[--size];
+            queued.clear(index);
+
+            BitSet in = (BitSet) liveOut[index].clone();
+            in.andNot(definitions[index]);
+            in.or(upwardExposedUses[index]);
+
+            if (in.equals(liveIn[index])) {
+                continue;
+            }
+            liveIn[index] = in;
+
+            BitSet preds = blocks.get(index).getPredecessors();
+            for (int pred = preds.nextSetBit(0); pred >= 0;
+                    pred = preds.nextSetBit(pred + 1)) {
+                BitSet out = liveOut[pred];
+                int oldCardinality = out.cardinality();
+
+                out.or(in);
+                if (out.cardinality() != oldCardinality && !queued.get(pred)) {
+                    worklist[size++] = pred;
+                    queued.set(pred);
+                }
+            }
+        }
+    }
+
+    /**
+     * Records live in/out sets in the blocks, and adds interference between
+     * each defined register and all other registers live-out at its
+     * definition.
+     *
+     * @param interference {@code non-null;} graph to update
+     */
+    private void findInterference(InterferenceGraph interference) {
+        for (SsaBasicBlock block : blocks) {
+            int index = block.getIndex();
+            BitSet live = (BitSet) liveOut[index].clone();
+            ArrayList<SsaInsn> insns = block.getInsns();
+
+            for (int reg = live.nextSetBit(0); reg >= 0;
+                    reg = live.nextSetBit(reg + 1)) {
+                block.addLiveOut(reg);
+            }
+
+            for (int i = insns.size() - 1; i >= 0; i--) {
+                SsaInsn insn = insns.get(i);
+                RegisterSpec result = insn.getResult();
+
+                if (result != null) {
+                    int resultReg = result.getReg();
+
+                    live.clear(resultReg);
+                    for (int reg = live.nextSetBit(0); reg >= 0;
+                            reg = live.nextSetBit(reg + 1)) {
+                        interference.add(reg, resultReg);
+                    }
+                }
+
+                if (!(insn instanceof PhiInsn)) {
+                    RegisterSpecList sources = insn.getSources();
+
+                    for (int j = 0; j < sources.size(); j++) {
+                        live.set(sources.get(j).getReg());
+                    }
+                }
+            }
+
+            BitSet in = liveIn[index];
+            for (int reg = in.nextSetBit(0); reg >= 0;
+                    reg = in.nextSetBit(reg + 1)) {
+                block.addLiveIn(reg);
+            }
+        }
+    }
+}
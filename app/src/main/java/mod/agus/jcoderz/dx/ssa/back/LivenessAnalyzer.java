@@ -81,7 +81,8 @@ public class LivenessAnalyzer {
     /**
      * Runs register liveness algorithm for a method, updating the
      * live in/out information in {@code SsaBasicBlock} instances and
-     * returning an interference graph.
+     * returning an interference graph. Methods with many registers are
+     * analyzed by {@link BlockLivenessAnalyzer} instead, with the same result.
      *
      * @param ssaMeth {@code non-null;} method to process
      * @return {@code non-null;} interference graph indexed by SSA
@@ -92,8 +93,10 @@ public class LivenessAnalyzer {
         int szRegs = ssaMeth.getRegCount();
         mod.agus.jcoderz.dx.ssa.back.InterferenceGraph interference = new mod.agus.jcoderz.dx.ssa.back.InterferenceGraph(szRegs);
 
-        for (int i = 0; i < szRegs; i++) {
-            new LivenessAnalyzer(ssaMeth, i, interference).run();
+        if (BlockLivenessAnalyzer.shouldAnalyze(ssaMeth)) {
+            BlockLivenessAnalyzer.run(ssaMeth, interference);
+        } else {
+            runPerRegister(ssaMeth, interference);
         }
 
         coInterferePhis(ssaMeth, interference);
@@ -101,6 +104,23 @@ public class LivenessAnalyzer {
         return interference;
     }
 
+    /**
+     * Runs register liveness algorithm for a method one register at a time,
+     * updating the live in/out information in {@code SsaBasicBlock}
+     * instances and adding interference found to the graph.
+     *
+     * @param ssaMeth {@code non-null;} method to process
+     * @param interference {@code non-null;} graph to update
+     */
+    /*package*/ static void runPerRegister(SsaMethod ssaMeth,
+            mod.agus.jcoderz.dx.ssa.back.InterferenceGraph interference) {
+        int szRegs = ssaMeth.getRegCount();
+
+        for (int i = 0; i < szRegs; i++) {
+            new LivenessAnalyzer(ssaMeth, i, interference).run();
+        }
+    }
+
     /**
      * Makes liveness analyzer instance for specific register.
      *
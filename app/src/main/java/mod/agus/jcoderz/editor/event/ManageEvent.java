@@ -10,6 +10,8 @@ import pro.sketchware.blocks.generator.components.analyzers.BlockReturnAnalyzer;
 
 public class ManageEvent {
 
+    private static final BlockReturnAnalyzer RETURN_ANALYZER = new BlockReturnAnalyzer();
+
     /**
      * Used in {@link a.a.a.oq#getEventsForClass(Gx)} to retrieve extra Events of Components.
      */
@@ -991,7 +993,7 @@ public class ManageEvent {
         if (logicCode.isEmpty()) {
             finalCode = fallbackReturn;
         } else {
-            boolean missingReturn = new BlockReturnAnalyzer().hasAnyMissingReturn(logicCode);
+            boolean missingReturn = RETURN_ANALYZER.hasAnyMissingReturn(logicCode);
             finalCode = missingReturn ? logicCode + "\r\n" + fallbackReturn : logicCode;
         }
 
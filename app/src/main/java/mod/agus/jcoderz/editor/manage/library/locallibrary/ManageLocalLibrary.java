@@ -9,7 +9,9 @@ import com.google.gson.JsonParseException;
 import java.io.File;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.Map;
 
+import dev.aldi.sayuti.editor.manage.LocalLibraryStore;
 import mod.hey.studios.util.Helper;
 import mod.jbk.util.LogUtil;
 import pro.sketchware.utility.FilePathUtil;
@@ -36,6 +38,7 @@ public class ManageLocalLibrary {
 
                     // fall-through to shared error handler
                 } else {
+                    resolveLibraryPaths();
                     return;
                 }
             } catch (JsonParseException e) {
@@ -47,6 +50,20 @@ public class ManageLocalLibrary {
         list = new ArrayList<>();
     }
 
+    /**
+     * Points paths of enabled libraries to where their files actually are, which for libraries
+     * in the {@link LocalLibraryStore} is the blob they reference.
+     */
+    private void resolveLibraryPaths() {
+        for (HashMap<String, Object> localLibrary : list) {
+            for (Map.Entry<String, Object> entry : localLibrary.entrySet()) {
+                if (entry.getKey().endsWith("Path") && entry.getValue() instanceof String path) {
+                    entry.setValue(LocalLibraryStore.resolvePath(path));
+                }
+            }
+        }
+    }
+
     public ArrayList<String> getAssets() {
         ArrayList<String> assets = new ArrayList<>();
 
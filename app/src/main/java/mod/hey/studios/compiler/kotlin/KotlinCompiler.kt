@@ -5,15 +5,29 @@ import mod.hey.studios.build.BuildSettings
 import mod.hey.studios.compiler.kotlin.KotlinCompilerUtil.*
 import mod.jbk.util.LogUtil
 import org.jetbrains.kotlin.cli.common.arguments.K2JVMCompilerArguments
-import org.jetbrains.kotlin.cli.jvm.K2JVMCompiler
-import org.jetbrains.kotlin.config.Services
+import pro.sketchware.util.build.BuildCache
+import pro.sketchware.util.build.IncrementalCompilationState
 import java.io.File
+import java.io.IOException
 
 /**
  * Partly adapted from:
  * [https://github.com/tyron12233/CodeAssist/blob/main/build-logic/src/main/java/com/tyron/builder/compiler/incremental/kotlin/IncrementalKotlinCompiler.java]
  *
  * A huge thank you to [tyron][https://github.com/tyron12233] for porting `kotlinc` to Android.
+ *
+ * Only `.kt` files that changed since the last successful build get recompiled, along with the
+ * ones depending on them (see [IncrementalCompilationState]); classes of all other files are
+ * restored from the build cache. Dependencies come from the compiled classes, including the
+ * classes whose inline functions got inlined (see [pro.sketchware.util.build.ClassFileInfo]).
+ * Compiling itself goes through [KotlinCompilerService], which keeps `kotlinc` warm. A full
+ * build happens if:
+ * - compiler plugins or the classpath changed, or `.kt`/`.java` files got added or removed,
+ * - a changed file declared constants in its last build's classes, which end up in dependents'
+ *   bytecode. For `.java` files, that's looked up in what ecj recorded about them, and a full
+ *   build happens too if ecj has nothing recorded,
+ * - a file that won't get recompiled has top-level declarations, since those can only be
+ *   resolved through `.kotlin_module` files, which get deleted from the output.
  */
 class KotlinCompiler(
     private val builder: ProjectBuilder
@@ -37,19 +51,56 @@ class KotlinCompiler(
         val mKotlinHome = File(KotlinCompilerBridge.getKotlinHome(workspace)).apply { mkdirs() }
         // Output in the same place as ecj, makes everything easier
         val mClassOutput = File(workspace.compiledClassesPath).apply { mkdirs() }
+        val plugins = getCompilerPlugins(workspace)
+        val classpath = builder.getClasspath()
+
+        val sourceHashes = filesToCompile.associate { it.absolutePath to BuildCache.sha256(it) }
+        val sourcesByRelativePath = filesToCompile.associate { getRelativePath(it) to it.absolutePath }
+
+        val fingerprint = BuildCache.Fingerprint().put(mKotlinHome.absolutePath)
+        plugins.forEach { fingerprint.putFile(it) }
+        // The output directory is on the classpath for ecj, but empty at this point
+        fingerprint.putClasspath(classpath.split(":").filter { it != mClassOutput.absolutePath }.joinToString(":"))
+
+        val state = IncrementalCompilationState(builder.getBuildCacheDirectory("kotlinc"))
+        var changedSources: Set<String> = sourceHashes.keys
+        var sourcesToCompile = if (state.load(fingerprint.get(), sourceHashes.keys)) {
+            changedSources = state.getChangedSources(sourceHashes)
+            getKtFilesToRecompile(state, sourceHashes.keys, changedSources)
+        } else {
+            null
+        }
+
+        val incremental = sourcesToCompile != null
+        if (sourcesToCompile == null) {
+            state.reset()
+            sourcesToCompile = sourceHashes.keys.filter { it.endsWith(".kt") }.toSet()
+        }
+        // .java files don't produce output, but recording them keeps their hashes up to date
+        val compiledSources = sourcesToCompile + changedSources.filter { it.endsWith(".java") }
+
+        val ignoredClassFiles = IncrementalCompilationState.listClassFiles(mClassOutput)
+        if (incremental) {
+            LogUtil.d(TAG, "Recompiling ${sourcesToCompile.size} Kotlin files: $sourcesToCompile")
+            ignoredClassFiles.addAll(state.restoreClasses(mClassOutput, sourcesToCompile))
+            if (sourcesToCompile.isEmpty()) {
+                updateState(state, compiledSources, sourceHashes, sourcesByRelativePath, ignoredClassFiles, mClassOutput)
+                LogUtil.d(TAG, "No Kotlin files changed, restoring classes took ${System.currentTimeMillis() - timeMillis} ms")
+                return
+            }
+        }
 
         val arguments = mutableListOf<String>().apply {
-            // Classpath
+            // Classpath, which includes the restored classes of the last build when incremental
             add("-cp")
-            add(builder.getClasspath())
+            add(if (incremental) "${mClassOutput.absolutePath}:$classpath" else classpath)
 
             // Sources (.java & .kt)
-            addAll(filesToCompile.map { it.absolutePath })
+            addAll(sourcesToCompile)
+            addAll(sourceHashes.keys.filter { it.endsWith(".java") })
         }
 
-        val compiler = K2JVMCompiler()
         val collector = DiagnosticCollector()
-        val plugins = getCompilerPlugins(workspace).map(File::getAbsolutePath).toTypedArray()
 
         val args = K2JVMCompilerArguments().apply {
             compileJava = false
@@ -60,13 +111,16 @@ class KotlinCompiler(
 
             kotlinHome = mKotlinHome.absolutePath
             destination = mClassOutput.absolutePath
-            pluginClasspaths = plugins
+            pluginClasspaths = plugins.map(File::getAbsolutePath).toTypedArray()
+            if (incremental) {
+                // Allow access to internal declarations of files that weren't recompiled
+                friendPaths = arrayOf(mClassOutput.absolutePath)
+            }
         }
 
         LogUtil.d(TAG, "Running kotlinc with these arguments: $arguments")
 
-        compiler.parseArguments(arguments.toTypedArray(), args)
-        compiler.exec(collector, Services.EMPTY, args)
+        KotlinCompilerService.compile(arguments.toTypedArray(), args, collector, fingerprint.get())
 
         // Log all diagnostics
         LogUtil.d(TAG, "kotlinc MessageCollector: $collector")
@@ -76,16 +130,88 @@ class KotlinCompiler(
         File(mClassOutput, "META-INF").deleteRecursively()
 
         if (collector.hasErrors()) {
+            // Output of failed builds can't be trusted, start over next time
+            state.invalidate()
             LogUtil.e(TAG, "Failed to compile Kotlin files")
             throw Exception(collector.getDiagnostics(areWarningsEnabled()))
         } else {
+            updateState(state, compiledSources, sourceHashes, sourcesByRelativePath, ignoredClassFiles, mClassOutput)
             LogUtil.d(
                 TAG,
-                "Compiling Kotlin files took ${System.currentTimeMillis() - timeMillis} ms"
+                "Compiling ${sourcesToCompile.size} Kotlin files${if (incremental) " incrementally" else ""} took ${System.currentTimeMillis() - timeMillis} ms"
             )
         }
     }
 
+    /**
+     * @return Paths of `.kt` files that have to get recompiled, or `null` if a full build is needed
+     */
+    private fun getKtFilesToRecompile(
+        state: IncrementalCompilationState,
+        sources: Set<String>,
+        changedSources: Set<String>
+    ): Set<String>? {
+        val changedClasses = mutableListOf<String>()
+        val toCompile = mutableSetOf<String>()
+        var javaState: IncrementalCompilationState? = null
+        for (source in changedSources) {
+            if (state.isInlinedIntoDependents(source)) {
+                LogUtil.d(TAG, "$source declared constants, compiling all Kotlin files")
+                return null
+            }
+            if (source.endsWith(".kt")) {
+                toCompile.add(source)
+            } else {
+                if (javaState == null) {
+                    javaState = IncrementalCompilationState(builder.getBuildCacheDirectory("ecj"))
+                    javaState.loadForLookup()
+                }
+                if (!javaState.isKnownSource(source)) {
+                    LogUtil.d(TAG, "ecj has no classes recorded for $source, compiling all Kotlin files")
+                    return null
+                }
+                if (javaState.isInlinedIntoDependents(source)) {
+                    LogUtil.d(TAG, "$source declared constants, compiling all Kotlin files")
+                    return null
+                }
+                changedClasses.add(getRelativePath(File(source)).removeSuffix(".java").replace(File.separatorChar, '/'))
+            }
+        }
+        state.addDependents(toCompile, changedClasses)
+
+        for (source in sources) {
+            if (source !in toCompile && state.declaresKotlinFacades(source)) {
+                LogUtil.d(TAG, "$source has top-level declarations, compiling all Kotlin files")
+                return null
+            }
+        }
+        return toCompile
+    }
+
+    private fun updateState(
+        state: IncrementalCompilationState,
+        compiledSources: Set<String>,
+        sourceHashes: Map<String, String>,
+        sourcesByRelativePath: Map<String, String>,
+        ignoredClassFiles: Set<String>,
+        classOutput: File
+    ) {
+        try {
+            state.update(compiledSources, sourceHashes, sourcesByRelativePath, ignoredClassFiles, emptySet(), classOutput)
+        } catch (e: IOException) {
+            LogUtil.w(TAG, "Failed to update the Kotlin compilation cache, next build won't be incremental", e)
+            state.invalidate()
+        }
+    }
+
+    /**
+     * @return A source file's path relative to the source root it's in, going by its package
+     */
+    private fun getRelativePath(file: File): String {
+        val packageName = PACKAGE.find(file.readText())?.groupValues?.get(1) ?: return file.name
+        return packageName.replace('.', File.separatorChar) + File.separatorChar + file.name
+    }
+
     private fun areWarningsEnabled(): Boolean {
         return builder.build_settings.getValue(
             BuildSettings.SETTING_NO_WARNINGS,
@@ -95,5 +221,7 @@ class KotlinCompiler(
 
     companion object {
         const val TAG = "KotlinCompiler"
+
+        private val PACKAGE = Regex("""^\s*package\s+([\w.]+)""", RegexOption.MULTILINE)
     }
 }
@@ -0,0 +1,114 @@
+package mod.hey.studios.compiler.kotlin
+
+import a.a.a.yq
+import mod.jbk.build.BuiltInLibraries
+import mod.jbk.util.LogUtil
+import org.jetbrains.kotlin.cli.common.arguments.K2JVMCompilerArguments
+import org.jetbrains.kotlin.cli.common.messages.MessageCollector
+import org.jetbrains.kotlin.cli.jvm.K2JVMCompiler
+import org.jetbrains.kotlin.cli.jvm.compiler.KotlinCoreEnvironment
+import org.jetbrains.kotlin.config.Services
+import java.io.File
+import java.nio.file.Files
+import java.util.concurrent.atomic.AtomicBoolean
+import kotlin.concurrent.thread
+
+/**
+ * Runs `kotlinc` in the app's process and keeps it warm between builds.
+ *
+ * Most of the first compilation in a process is spent loading and JIT-compiling the compiler's
+ * own classes, so [warmUp] gets that done in the background once a project with `.kt` files is
+ * opened. kotlinc's application environment (its file system caches and such) is kept alive
+ * between compilations too, and only disposed of once the classpath changes, as it would keep
+ * serving old contents of changed jars otherwise.
+ */
+object KotlinCompilerService {
+    private const val TAG = "KotlinCompilerService"
+    private const val KEEPALIVE_PROPERTY = "kotlin.environment.keepalive"
+
+    private val lock = Any()
+    private val warmUpStarted = AtomicBoolean()
+    private var classpathFingerprint: String? = null
+
+    init {
+        System.setProperty(KEEPALIVE_PROPERTY, "true")
+    }
+
+    /**
+     * Compiles once any other compilation or the warm-up is done.
+     *
+     * @param args                 `kotlinc`'s free arguments, parsed into [arguments]
+     * @param classpathFingerprint Fingerprint of the classpath and compiler plugins. If it differs
+     *                             from the last compilation's, the application environment is
+     *                             disposed of first.
+     */
+    fun compile(
+        args: Array<String>,
+        arguments: K2JVMCompilerArguments,
+        collector: MessageCollector,
+        classpathFingerprint: String
+    ) {
+        synchronized(lock) {
+            if (classpathFingerprint != this.classpathFingerprint) {
+                if (this.classpathFingerprint != null) {
+                    LogUtil.d(TAG, "Classpath changed, disposing of kotlinc's application environment")
+                    KotlinCoreEnvironment.disposeApplicationEnvironment()
+                }
+                this.classpathFingerprint = classpathFingerprint
+            }
+            exec(args, arguments, collector)
+        }
+    }
+
+    /**
+     * Compiles a small Kotlin file in the background, if the project has any `.kt` files and no
+     * warm-up happened yet. Builds starting in the meantime wait for it to finish.
+     */
+    @JvmStatic
+    fun warmUp(workspace: yq) {
+        if (!warmUpStarted.compareAndSet(false, true)) return
+
+        thread(name = "kotlinc-warm-up", isDaemon = true, priority = Thread.MIN_PRIORITY) {
+            if (!KotlinCompilerUtil.areAnyKtFilesPresent(workspace)) {
+                warmUpStarted.set(false)
+                return@thread
+            }
+
+            val timeMillis = System.currentTimeMillis()
+            val directory = Files.createTempDirectory("kotlinc-warm-up").toFile()
+            try {
+                val source = File(directory, "WarmUp.kt").apply {
+                    writeText("class WarmUp {\n    fun run() = listOf(1, 2, 3).map { it * 2 }.sum()\n}\n")
+                }
+                val arguments = K2JVMCompilerArguments().apply {
+                    noJdk = true
+                    noReflect = true
+                    noStdlib = true
+                    kotlinHome = KotlinCompilerBridge.getKotlinHome(workspace)
+                    destination = File(directory, "classes").absolutePath
+                }
+                val args = arrayOf(
+                    "-cp",
+                    BuiltInLibraries.getLibraryClassesJarPathString(BuiltInLibraries.JETBRAINS_KOTLIN_STDLIB),
+                    source.absolutePath
+                )
+                synchronized(lock) {
+                    exec(args, arguments, DiagnosticCollector())
+                }
+                LogUtil.d(TAG, "Warming up kotlinc took ${System.currentTimeMillis() - timeMillis} ms")
+            } catch (e: Throwable) {
+                // Only ever a head start, builds don't depend on it
+                LogUtil.w(TAG, "Failed to warm up kotlinc", e)
+            } finally {
+                directory.deleteRecursively()
+            }
+        }
+    }
+
+    private fun exec(args: Array<String>, arguments: K2JVMCompilerArguments, collector: MessageCollector) {
+        // Compiler instances can't be reused, their performance manager only supports one run
+        val compiler = K2JVMCompiler()
+        compiler.parseArguments(args, arguments)
+        compiler.exec(collector, Services.EMPTY, arguments)
+    }
+}
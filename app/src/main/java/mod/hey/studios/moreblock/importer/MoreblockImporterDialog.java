@@ -15,6 +15,10 @@ import com.besome.sketch.beans.MoreBlockCollectionBean;
 import com.google.android.material.dialog.MaterialAlertDialogBuilder;
 
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
 
 import mod.hey.studios.util.Helper;
 import mod.jbk.util.BlockUtil;
@@ -36,7 +40,7 @@ public class MoreblockImporterDialog extends MaterialAlertDialogBuilder {
         moreBlockCollectionList = new ArrayList<>(beanList);
         adapter = new MoreBlockAdapter(moreBlockCollectionList);
 
-        setTitle("Select a more block");
+        setTitle("Select more blocks");
         setIcon(R.drawable.more_block_96dp);
 
         binding.searchInput.addTextChangedListener(new TextWatcher() {
@@ -59,12 +63,18 @@ public class MoreblockImporterDialog extends MaterialAlertDialogBuilder {
         binding.recyclerView.setAdapter(adapter);
 
         setPositiveButton(Helper.getResString(R.string.common_word_select), (v, which) -> {
-            MoreBlockCollectionBean selectedBean = adapter.getSelectedItem();
+            // In the collection's order, not the order they got selected in
+            List<MoreBlockCollectionBean> selectedBeans = new ArrayList<>();
+            for (MoreBlockCollectionBean bean : beanList) {
+                if (adapter.isSelected(bean)) {
+                    selectedBeans.add(bean);
+                }
+            }
 
-            if (selectedBean == null) {
+            if (selectedBeans.isEmpty()) {
                 SketchwareUtil.toastError("Select a more block");
             } else {
-                callback.onSelected(selectedBean);
+                callback.onSelected(selectedBeans);
                 v.dismiss();
             }
         });
@@ -86,29 +96,30 @@ public class MoreblockImporterDialog extends MaterialAlertDialogBuilder {
             }
         }
 
-        adapter.resetSelectedPosition();
         adapter.notifyDataSetChanged();
     }
 
     public interface CallBack {
-        void onSelected(MoreBlockCollectionBean bean);
+        /**
+         * @param beans The selected more blocks, in the order of the collection
+         */
+        void onSelected(List<MoreBlockCollectionBean> beans);
     }
 
     private static class MoreBlockAdapter extends RecyclerView.Adapter<MoreBlockAdapter.ViewHolder> {
 
         private final ArrayList<MoreBlockCollectionBean> collectionList;
-        private int selectedPosition = -1;
+        /**
+         * Kept while filtering, so that more blocks can be selected across several searches
+         */
+        private final Set<MoreBlockCollectionBean> selectedItems = Collections.newSetFromMap(new IdentityHashMap<>());
 
         public MoreBlockAdapter(ArrayList<MoreBlockCollectionBean> collectionList) {
             this.collectionList = collectionList;
         }
 
-        public MoreBlockCollectionBean getSelectedItem() {
-            return selectedPosition != -1 ? collectionList.get(selectedPosition) : null;
-        }
-
-        public void resetSelectedPosition() {
-            selectedPosition = -1;
+        public boolean isSelected(MoreBlockCollectionBean bean) {
+            return selectedItems.contains(bean);
         }
 
         @NonNull
@@ -124,15 +135,21 @@ public class MoreblockImporterDialog extends MaterialAlertDialogBuilder {
         public void onBindViewHolder(@NonNull ViewHolder holder, int position) {
             MoreBlockCollectionBean bean = collectionList.get(position);
 
-            holder.binding.imgSelected.setVisibility(position == selectedPosition ? View.VISIBLE : View.GONE);
+            holder.binding.imgSelected.setVisibility(selectedItems.contains(bean) ? View.VISIBLE : View.GONE);
             holder.binding.tvBlockName.setText(bean.name);
 
             holder.binding.blockArea.removeAllViews();
             BlockUtil.loadMoreblockPreview(holder.binding.blockArea, bean.spec);
 
             holder.binding.transparentOverlay.setOnClickListener(v -> {
-                selectedPosition = holder.getAbsoluteAdapterPosition();
-                notifyDataSetChanged();
+                int clickedPosition = holder.getAbsoluteAdapterPosition();
+                if (clickedPosition == RecyclerView.NO_POSITION) return;
+
+                MoreBlockCollectionBean clicked = collectionList.get(clickedPosition);
+                if (!selectedItems.remove(clicked)) {
+                    selectedItems.add(clicked);
+                }
+                notifyItemChanged(clickedPosition);
             });
         }
 
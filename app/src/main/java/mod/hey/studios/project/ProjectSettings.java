@@ -17,6 +17,7 @@ import java.util.HashMap;
 
 import mod.hey.studios.util.Helper;
 import mod.jbk.util.LogUtil;
+import pro.sketchware.util.build.BuildConfiguration;
 import pro.sketchware.utility.FileUtil;
 
 public class ProjectSettings {
@@ -164,5 +165,6 @@ public class ProjectSettings {
 
     private void save() {
         FileUtil.writeFile(path, new Gson().toJson(hashmap));
+        BuildConfiguration.invalidate(sc_id);
     }
 }
@@ -42,6 +42,7 @@ import javax.crypto.spec.SecretKeySpec;
 
 import a.a.a.lC;
 import a.a.a.yB;
+import dev.aldi.sayuti.editor.manage.LocalLibraryStore;
 import mod.hey.studios.editor.manage.block.ExtraBlockInfo;
 import mod.hey.studios.editor.manage.block.v2.BlockLoader;
 import mod.hey.studios.project.custom_blocks.CustomBlocksManager;
@@ -373,7 +374,8 @@ public class BackupFactory {
                         JSONObject jo = ja.getJSONObject(i);
 
                         File f = new File(jo.getString("dexPath")).getParentFile();
-                        copy(f, new File(libsF, f.getName()));
+                        // Libraries in the store have their files in a blob
+                        copy(LocalLibraryStore.getContentDirectory(f.getName()), new File(libsF, f.getName()));
 
                     }
 
@@ -9,15 +9,18 @@ import java.util.HashMap;
 import a.a.a.ProjectBuilder;
 import mod.hey.studios.util.Helper;
 import mod.jbk.build.BuildProgressReceiver;
+import pro.sketchware.util.build.BuildConfiguration;
 import pro.sketchware.utility.FileUtil;
 
 public class ProguardHandler {
     public static String ANDROID_PROGUARD_RULES_PATH = createAndroidRules();
     public static String DEFAULT_PROGUARD_RULES_PATH = "";
+    private final String sc_id;
     private final String config_path;
     private final String fm_config_path;
 
     public ProguardHandler(String sc_id) {
+        this.sc_id = sc_id;
         DEFAULT_PROGUARD_RULES_PATH = createDefaultRules(sc_id);
         config_path = FileUtil.getExternalStorageDir() + "/.sketchware/data/" + sc_id + "/proguard";
         fm_config_path = FileUtil.getExternalStorageDir() + "/.sketchware/data/" + sc_id + "/proguard_fm";
@@ -135,45 +138,11 @@ public class ProguardHandler {
     }
 
     public boolean isDebugFilesEnabled() {
-        boolean debugFiles = true;
-        if (FileUtil.isExistFile(config_path)) {
-            try {
-                HashMap<String, String> config = new Gson().fromJson(FileUtil.readFile(config_path), Helper.TYPE_STRING_MAP);
-
-                if (!config.containsKey("debug")) return false;
-
-                String debug = config.get("debug");
-                if (debug != null) {
-                    debugFiles = debug.equals("true");
-                }
-
-            } catch (Exception e) {
-                debugFiles = false;
-            }
-        }
-
-        return debugFiles;
+        return BuildConfiguration.load(sc_id).isDebugFilesEnabled();
     }
 
     public boolean isShrinkingEnabled() {
-        boolean proguardEnabled = true;
-        if (FileUtil.isExistFile(config_path)) {
-            try {
-                HashMap<String, String> config = new Gson().fromJson(FileUtil.readFile(config_path), Helper.TYPE_STRING_MAP);
-
-                String enabled = config.get("enabled");
-                if (enabled == null) {
-                    proguardEnabled = false;
-                } else {
-                    proguardEnabled = enabled.equals("true");
-                }
-
-            } catch (Exception e) {
-                proguardEnabled = false;
-            }
-        }
-
-        return proguardEnabled;
+        return BuildConfiguration.load(sc_id).isShrinkingEnabled();
     }
 
     public void setProguardEnabled(boolean proguardEnabled) {
@@ -181,27 +150,11 @@ public class ProguardHandler {
         config.put("enabled", String.valueOf(proguardEnabled));
 
         FileUtil.writeFile(config_path, new Gson().toJson(config));
+        BuildConfiguration.invalidate(sc_id);
     }
 
     public boolean isR8Enabled() {
-        boolean r8Enabled = true;
-        if (FileUtil.isExistFile(config_path)) {
-            try {
-                var config = new Gson().fromJson(FileUtil.readFile(config_path), Helper.TYPE_STRING_MAP);
-
-                String enabled = config.get("r8");
-                if (enabled == null) {
-                    r8Enabled = false;
-                } else {
-                    r8Enabled = enabled.equals("true");
-                }
-
-            } catch (Exception e) {
-                r8Enabled = false;
-            }
-        }
-
-        return r8Enabled;
+        return BuildConfiguration.load(sc_id).isR8Enabled();
     }
 
     public void setR8Enabled(boolean r8Enabled) {
@@ -209,26 +162,11 @@ public class ProguardHandler {
         config.put("r8", String.valueOf(r8Enabled));
 
         FileUtil.writeFile(config_path, new Gson().toJson(config));
+        BuildConfiguration.invalidate(sc_id);
     }
 
     public boolean libIsProguardFMEnabled(String library) {
-        boolean enabled;
-        if (isShrinkingEnabled() && FileUtil.isExistFile(fm_config_path)) {
-            String configContent = FileUtil.readFile(fm_config_path);
-
-            if (configContent.isEmpty()) {
-                return false;
-            }
-
-            try {
-                ArrayList<String> config = new Gson().fromJson(configContent, Helper.TYPE_STRING);
-                enabled = config.contains(library);
-                return enabled;
-            } catch (Exception ignored) {
-            }
-        }
-
-        return false;
+        return BuildConfiguration.load(sc_id).isProguardFullModeEnabled(library);
     }
 
     public void setDebugEnabled(boolean debugEnabled) {
@@ -236,15 +174,21 @@ public class ProguardHandler {
         config.put("debug", String.valueOf(debugEnabled));
 
         FileUtil.writeFile(config_path, new Gson().toJson(config));
+        BuildConfiguration.invalidate(sc_id);
     }
 
     public void setProguardFMLibs(ArrayList<String> fullModeLibs) {
         FileUtil.writeFile(fm_config_path, new Gson().toJson(fullModeLibs));
+        BuildConfiguration.invalidate(sc_id);
     }
 
-    public void start(BuildProgressReceiver progressReceiver, ProjectBuilder builder) throws IOException {
-        if (isShrinkingEnabled()) {
-            if (isR8Enabled()) {
+    /**
+     * Shrinks classes with R8 or ProGuard, if the build's configuration has shrinking enabled.
+     */
+    public static void start(BuildProgressReceiver progressReceiver, ProjectBuilder builder) throws IOException {
+        BuildConfiguration configuration = builder.configuration;
+        if (configuration.isShrinkingEnabled()) {
+            if (configuration.isR8Enabled()) {
                 progressReceiver.onProgress("Running R8 on classes...", 15);
                 builder.runR8();
             } else {
@@ -0,0 +1,147 @@
+package mod.hey.studios.project.stringfog;
+
+import com.github.megatronking.stringfog.plugin.StringFogClassInjector;
+import com.github.megatronking.stringfog.plugin.StringFogMappingPrinter;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import mod.jbk.util.LogUtil;
+import pro.sketchware.BuildConfig;
+import pro.sketchware.util.build.BuildCache;
+import pro.sketchware.utility.FileUtil;
+
+/**
+ * Runs StringFog on compiled classes, only encrypting classes that weren't encrypted in the
+ * previous build already.
+ * <p>
+ * Encrypted classes and their part of the mapping are cached by the hash of the unencrypted class
+ * file. Encryption is deterministic for a fixed key and implementation, so a cached class is
+ * byte-identical to what encrypting it again would give.
+ */
+public class IncrementalStringFog {
+
+    private static final String TAG = "IncrementalStringFog";
+    private static final String ENCRYPTED_CLASS_EXTENSION = ".class";
+    private static final String MAPPING_EXTENSION = ".txt";
+
+    private final File cacheDirectory;
+    private final String key;
+    private final String implementation;
+
+    /**
+     * @param cacheDirectory The directory to keep encrypted classes in between builds, usually
+     *                       from {@link BuildCache#getDirectory}
+     * @param key            The key to encrypt strings with
+     * @param implementation Name of the class that encrypts and decrypts strings
+     */
+    public IncrementalStringFog(File cacheDirectory, String key, String implementation) {
+        this.cacheDirectory = cacheDirectory;
+        this.key = key;
+        this.implementation = implementation;
+    }
+
+    /**
+     * Encrypts strings of all class files in a directory, in place, and writes a mapping of all
+     * encrypted strings.
+     *
+     * @return How many classes actually had to be encrypted
+     */
+    public int run(File classesDirectory, File mappingFile) throws IOException {
+        String settings = new BuildCache.Fingerprint()
+                .put(key)
+                .put(implementation)
+                // StringFog is bundled, so its version changes with the app's
+                .put(BuildConfig.GIT_HASH)
+                .get();
+
+        List<File> classFiles = new ArrayList<>(FileUtil.listFilesRecursively(classesDirectory, ".class"));
+        classFiles.sort(null);
+        Set<String> usedEntries = new HashSet<>();
+        List<File> mappings = new ArrayList<>(classFiles.size());
+        int encrypted = 0;
+
+        for (File classFile : classFiles) {
+            String entry = BuildCache.sha256(settings + BuildCache.sha256(classFile));
+            File cachedClass = new File(cacheDirectory, entry + ENCRYPTED_CLASS_EXTENSION);
+            File cachedMapping = new File(cacheDirectory, entry + MAPPING_EXTENSION);
+
+            if (!cachedClass.isFile() || !cachedMapping.isFile()) {
+                encrypt(classFile, cachedClass, cachedMapping);
+                encrypted++;
+            }
+            Files.copy(cachedClass.toPath(), classFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            usedEntries.add(cachedClass.getName());
+            usedEntries.add(cachedMapping.getName());
+            mappings.add(cachedMapping);
+        }
+
+        // Like StringFogClassInjector#doFog2ClassInDir
+        for (File dexFile : FileUtil.listFilesRecursively(classesDirectory, ".dex")) {
+            //noinspection ResultOfMethodCallIgnored
+            dexFile.delete();
+        }
+
+        writeMapping(mappingFile, mappings);
+        deleteUnusedEntries(usedEntries);
+        LogUtil.d(TAG, "Encrypted " + encrypted + " of " + classFiles.size() + " classes");
+        return encrypted;
+    }
+
+    private void encrypt(File classFile, File cachedClass, File cachedMapping) throws IOException {
+        File temporaryClass = new File(cachedClass.getPath() + ".tmp");
+        File temporaryMapping = new File(cachedMapping.getPath() + ".tmp");
+
+        // One mapping printer per class, so that every class's part of the mapping can be reused
+        StringFogMappingPrinter mappingPrinter = new StringFogMappingPrinter(temporaryMapping);
+        mappingPrinter.startMappingOutput();
+        try {
+            new StringFogClassInjector(new String[0], key, implementation, implementation, mappingPrinter)
+                    .doFog2Class(classFile, temporaryClass);
+        } finally {
+            mappingPrinter.endMappingOutput();
+        }
+
+        Files.move(temporaryClass.toPath(), cachedClass.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        Files.move(temporaryMapping.toPath(), cachedMapping.toPath(), StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    /**
+     * Writes the mapping's header the way {@link StringFogMappingPrinter#ouputInfo} does,
+     * followed by every class's part of the mapping.
+     */
+    private void writeMapping(File mappingFile, List<File> mappings) throws IOException {
+        //noinspection ResultOfMethodCallIgnored
+        mappingFile.getParentFile().mkdirs();
+        try (Writer writer = new FileWriter(mappingFile)) {
+            writer.write("stringfog key : " + key + System.lineSeparator());
+            writer.write("stringfog impl: " + implementation + System.lineSeparator());
+            for (File mapping : mappings) {
+                writer.write(FileUtil.readFile(mapping.getAbsolutePath()));
+            }
+        }
+    }
+
+    /**
+     * Deletes cached classes that the current build didn't use, as they belong to classes that
+     * changed or got removed.
+     */
+    private void deleteUnusedEntries(Set<String> usedEntries) {
+        File[] entries = cacheDirectory.listFiles();
+        if (entries == null) return;
+        for (File entry : entries) {
+            if (!usedEntries.contains(entry.getName())) {
+                //noinspection ResultOfMethodCallIgnored
+                entry.delete();
+            }
+        }
+    }
+}
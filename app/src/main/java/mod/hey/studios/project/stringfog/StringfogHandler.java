@@ -7,13 +7,16 @@ import java.util.HashMap;
 import a.a.a.ProjectBuilder;
 import mod.hey.studios.util.Helper;
 import mod.jbk.build.BuildProgressReceiver;
+import pro.sketchware.util.build.BuildConfiguration;
 import pro.sketchware.utility.FileUtil;
 
 public class StringfogHandler {
 
+    private final String sc_id;
     private final String config_path;
 
     public StringfogHandler(String sc_id) {
+        this.sc_id = sc_id;
         config_path = FileUtil.getExternalStorageDir().concat("/.sketchware/data/" + sc_id + "/stringfog");
 
         if (!FileUtil.isExistFile(config_path)) FileUtil.writeFile(config_path, getDefaultConfig());
@@ -27,25 +30,7 @@ public class StringfogHandler {
     }
 
     public boolean isStringfogEnabled() {
-        boolean enabled;
-
-        if (FileUtil.isExistFile(config_path)) {
-            HashMap<String, String> config = null;
-
-            try {
-                config = new Gson().fromJson(FileUtil.readFile(config_path), Helper.TYPE_STRING_MAP);
-            } finally {
-                Object enabledValue;
-
-                enabled = (config != null)
-                        && (enabledValue = config.get("enabled")) != null
-                        && enabledValue.equals("true");
-            }
-
-            return enabled;
-        }
-
-        return false;
+        return BuildConfiguration.load(sc_id).isStringfogEnabled();
     }
 
     public void setStringfogEnabled(boolean enabled) {
@@ -53,13 +38,14 @@ public class StringfogHandler {
         config.put("enabled", Boolean.valueOf(enabled).toString());
 
         FileUtil.writeFile(config_path, new Gson().toJson(config));
+        BuildConfiguration.invalidate(sc_id);
     }
 
     /**
-     * Check if StringFog is enabled for the project, and run it if it is.
+     * Check if StringFog is enabled in the build's configuration, and run it if it is.
      */
-    public void start(BuildProgressReceiver progressReceiver, ProjectBuilder builder) {
-        if (isStringfogEnabled()) {
+    public static void start(BuildProgressReceiver progressReceiver, ProjectBuilder builder) {
+        if (builder.configuration.isStringfogEnabled()) {
             progressReceiver.onProgress("Running StringFog...", 14);
             builder.runStringfog();
         }
@@ -0,0 +1,205 @@
+package mod.hilal.saif.events;
+
+import androidx.annotation.Nullable;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import mod.jbk.util.OldResourceIdMapper;
+import pro.sketchware.R;
+
+/**
+ * Custom Events and Listeners, indexed by Event name, Listener name and the type of component
+ * (<code>var</code>) Events are for. Immutable, {@link EventsHandler} replaces it as a whole once
+ * events.json or listeners.json change.
+ * <p>
+ * Lookups behave like searching the files' entries in order: if several Events have the same
+ * name, a property comes from the first of them with a valid value for it.
+ */
+final class CustomEventRegistry {
+
+    /**
+     * Events by the type of component they're for, in order of first appearance
+     */
+    private final Map<String, List<Event>> eventsByTarget = new LinkedHashMap<>();
+    /**
+     * Event names by the Listener they belong to
+     */
+    private final Map<String, List<String>> eventNamesByListener = new HashMap<>();
+    private final Map<String, Event> eventsByName = new HashMap<>();
+    private final Map<String, Listener> listenersByName = new HashMap<>();
+    /**
+     * Problems found in the files, like entries with invalid data types
+     */
+    private final List<String> problems;
+
+    private CustomEventRegistry(List<Event> events, List<Listener> listeners, List<String> problems) {
+        this.problems = Collections.unmodifiableList(problems);
+
+        for (Event event : events) {
+            if (event.var != null) {
+                eventsByTarget.computeIfAbsent(event.var, k -> new ArrayList<>()).add(event);
+            }
+            if (event.listener != null && event.name != null) {
+                eventNamesByListener.computeIfAbsent(event.listener, k -> new ArrayList<>()).add(event.name);
+            }
+            if (event.name != null) {
+                Event existing = eventsByName.get(event.name);
+                eventsByName.put(event.name, existing == null ? event : existing.merge(event));
+            }
+        }
+
+        eventsByTarget.replaceAll((var, targetEvents) -> Collections.unmodifiableList(targetEvents));
+        eventNamesByListener.replaceAll((listener, names) -> Collections.unmodifiableList(names));
+
+        for (Listener listener : listeners) {
+            if (listener.name != null) {
+                Listener existing = listenersByName.get(listener.name);
+                listenersByName.put(listener.name, existing == null ? listener : existing.merge(listener));
+            }
+        }
+    }
+
+    /**
+     * @param customEvents    Entries of events.json
+     * @param customListeners Entries of listeners.json
+     */
+    static CustomEventRegistry create(List<HashMap<String, Object>> customEvents, List<HashMap<String, Object>> customListeners) {
+        List<String> problems = new ArrayList<>();
+
+        List<Event> events = new ArrayList<>(customEvents.size());
+        for (int i = 0; i < customEvents.size(); i++) {
+            HashMap<String, Object> customEvent = customEvents.get(i);
+            if (customEvent == null) {
+                problems.add("Found invalid (null) Custom Event at position " + i);
+                continue;
+            }
+
+            Properties properties = new Properties(customEvent, "Custom Event #" + (i + 1), problems);
+            String icon = properties.getString("icon", "icon");
+            Integer iconResource = null;
+            if (icon != null) {
+                try {
+                    iconResource = OldResourceIdMapper.getDrawableFromOldResourceId(Integer.parseInt(icon));
+                } catch (NumberFormatException e) {
+                    problems.add("Found invalid icon data type in Custom Event #" + (i + 1));
+                    iconResource = R.drawable.android_icon;
+                }
+            }
+            events.add(new Event(events.size(),
+                    properties.getString("name", "name"),
+                    properties.getString("var", "var"),
+                    properties.getString("listener", "listener"),
+                    iconResource,
+                    properties.getString("description", "description"),
+                    properties.getString("code", "code"),
+                    properties.getString("parameters", "parameters"),
+                    properties.getString("headerSpec", "header spec")));
+        }
+
+        List<Listener> listeners = new ArrayList<>(customListeners.size());
+        for (int i = 0; i < customListeners.size(); i++) {
+            HashMap<String, Object> customListener = customListeners.get(i);
+            if (customListener == null) {
+                problems.add("Found invalid (null) Custom Listener at position " + i);
+                continue;
+            }
+
+            Properties properties = new Properties(customListener, "Custom Listener #" + (i + 1), problems);
+            String imports = properties.getString("imports", "import");
+            listeners.add(new Listener(
+                    properties.getString("name", "name"),
+                    properties.getString("code", "code"),
+                    imports == null || imports.isEmpty() ? List.of() : Arrays.asList(imports.split("\n"))));
+        }
+
+        return new CustomEventRegistry(events, listeners, problems);
+    }
+
+    List<String> getProblems() {
+        return problems;
+    }
+
+    /**
+     * @return Types of components Events are for, in order of first appearance
+     */
+    Iterable<String> getTargets() {
+        return eventsByTarget.keySet();
+    }
+
+    List<Event> getEventsForTarget(String var) {
+        List<Event> events = eventsByTarget.get(var);
+        return events != null ? events : List.of();
+    }
+
+    List<String> getEventNamesOfListener(String listener) {
+        List<String> names = eventNamesByListener.get(listener);
+        return names != null ? names : List.of();
+    }
+
+    @Nullable
+    Event getEvent(String name) {
+        return eventsByName.get(name);
+    }
+
+    @Nullable
+    Listener getListener(String name) {
+        return listenersByName.get(name);
+    }
+
+    /**
+     * A Custom Event. Properties are <code>null</code> if missing or invalid.
+     *
+     * @param position Position among all valid Custom Events, for restoring their order
+     */
+    record Event(int position, String name, String var, String listener, Integer icon,
+                 String description, String code, String parameters, String headerSpec) {
+
+        /**
+         * @return This Event, with properties missing from it taken from <code>other</code>
+         */
+        private Event merge(Event other) {
+            return new Event(position, name, var, listener,
+                    icon != null ? icon : other.icon,
+                    description != null ? description : other.description,
+                    code != null ? code : other.code,
+                    parameters != null ? parameters : other.parameters,
+                    headerSpec != null ? headerSpec : other.headerSpec);
+        }
+    }
+
+    /**
+     * A Custom Listener. Properties are <code>null</code> if missing or invalid.
+     *
+     * @param imports Imports of this and all later Listeners with the same name
+     */
+    record Listener(String name, String code, List<String> imports) {
+
+        private Listener merge(Listener other) {
+            List<String> allImports = new ArrayList<>(imports);
+            allImports.addAll(other.imports);
+            return new Listener(name, code != null ? code : other.code, allImports);
+        }
+    }
+
+    /**
+     * Reads properties of a file's entry, noting ones with invalid data types.
+     */
+    private record Properties(HashMap<String, Object> entry, String entryDescription, List<String> problems) {
+
+        @Nullable
+        String getString(String key, String description) {
+            Object value = entry.get(key);
+            if (value instanceof String string) {
+                return string;
+            }
+            problems.add("Found invalid " + description + " data type in " + entryDescription);
+            return null;
+        }
+    }
+}
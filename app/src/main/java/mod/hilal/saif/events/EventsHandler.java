@@ -4,14 +4,14 @@ import com.google.gson.Gson;
 import com.google.gson.JsonParseException;
 
 import java.util.ArrayList;
-import java.util.Arrays;
+import java.util.Comparator;
 import java.util.HashMap;
+import java.util.List;
 
 import a.a.a.Gx;
 import a.a.a.oq;
 import mod.hey.studios.util.Helper;
 import mod.jbk.util.LogUtil;
-import mod.jbk.util.OldResourceIdMapper;
 import pro.sketchware.R;
 import pro.sketchware.utility.FileUtil;
 import pro.sketchware.utility.SketchwareUtil;
@@ -20,8 +20,7 @@ public class EventsHandler {
 
     public static final String CUSTOM_EVENTS_FILE_PATH = FileUtil.getExternalStorageDir() + "/.sketchware/data/system/events.json";
     public static final String CUSTOM_LISTENERE_FILE_PATH = FileUtil.getExternalStorageDir() + "/.sketchware/data/system/listeners.json";
-    private static ArrayList<HashMap<String, Object>> cachedCustomEvents = readCustomEvents();
-    private static ArrayList<HashMap<String, Object>> cachedCustomListeners = readCustomListeners();
+    private static volatile CustomEventRegistry registry;
 
     /**
      * This is a utility class, don't instantiate it.
@@ -57,26 +56,11 @@ public class EventsHandler {
         array.add("onContextItemSelected");
         array.add("onTabLayoutNewTabAdded");
 
-        for (int i = cachedCustomEvents.size() - 1; i >= 0; i--) {
-            HashMap<String, Object> customEvent = cachedCustomEvents.get(i);
-            if (customEvent != null) {
-                Object var = customEvent.get("var");
-
-                if (var instanceof String) {
-                    if (var.equals("")) {
-                        Object name = customEvent.get("name");
-
-                        if (name instanceof String) {
-                            array.add((String) name);
-                        } else {
-                            SketchwareUtil.toastError("Found invalid name data type in Custom Event #" + (i + 1));
-                        }
-                    }
-                } else {
-                    SketchwareUtil.toastError("Found invalid var data type in Custom Event #" + (i + 1));
-                }
-            } else {
-                SketchwareUtil.toastError("Found invalid (null) Custom Event at position " + i);
+        List<CustomEventRegistry.Event> activityEvents = getRegistry().getEventsForTarget("");
+        for (int i = activityEvents.size() - 1; i >= 0; i--) {
+            String name = activityEvents.get(i).name();
+            if (name != null) {
+                array.add(name);
             }
         }
 
@@ -101,26 +85,9 @@ public class EventsHandler {
             list.add("onPostExecute");
         }
 
-        for (int i = 0, cachedCustomEventsSize = cachedCustomEvents.size(); i < cachedCustomEventsSize; i++) {
-            HashMap<String, Object> customEvent = cachedCustomEvents.get(i);
-            if (customEvent != null) {
-                Object var = customEvent.get("var");
-
-                if (var instanceof String) {
-                    if (gx.a((String) var)) {
-                        Object name = customEvent.get("name");
-
-                        if (name instanceof String) {
-                            list.add((String) name);
-                        } else {
-                            SketchwareUtil.toastError("Found invalid name data type in Custom Event #" + (i + 1));
-                        }
-                    }
-                } else {
-                    SketchwareUtil.toastError("Found invalid var data type in Custom Event #" + (i + 1));
-                }
-            } else {
-                SketchwareUtil.toastError("Found invalid (null) Custom Event at position " + i);
+        for (CustomEventRegistry.Event event : getEventsForComponent(gx)) {
+            if (event.name() != null) {
+                list.add(event.name());
             }
         }
     }
@@ -140,30 +107,41 @@ public class EventsHandler {
             list.add("AsyncTaskClass");
         }
 
-        for (int i = 0, cachedCustomEventsSize = cachedCustomEvents.size(); i < cachedCustomEventsSize; i++) {
-            HashMap<String, Object> customEvent = cachedCustomEvents.get(i);
-            if (customEvent != null) {
-                Object var = customEvent.get("var");
-
-                if (var instanceof String) {
-                    if (gx.a((String) var)) {
-                        Object listener = customEvent.get("listener");
-
-                        if (listener instanceof String) {
-                            if (!list.contains((String) listener)) {
-                                list.add((String) listener);
-                            }
-                        } else {
-                            SketchwareUtil.toastError("Found invalid listener data type in Custom Event #" + (i + 1));
-                        }
-                    }
+        for (CustomEventRegistry.Event event : getEventsForComponent(gx)) {
+            if (event.listener() != null && !list.contains(event.listener())) {
+                list.add(event.listener());
+            }
+        }
+    }
+
+    /**
+     * @return Custom Events for a component's type, in the order they appear in events.json
+     */
+    private static List<CustomEventRegistry.Event> getEventsForComponent(Gx gx) {
+        CustomEventRegistry registry = getRegistry();
+        List<CustomEventRegistry.Event> events = null;
+        boolean severalTargets = false;
+        for (String target : registry.getTargets()) {
+            if (gx.a(target)) {
+                List<CustomEventRegistry.Event> targetEvents = registry.getEventsForTarget(target);
+                if (events == null) {
+                    events = targetEvents;
                 } else {
-                    SketchwareUtil.toastError("Found invalid var data type in Custom Event #" + (i + 1));
+                    if (!severalTargets) {
+                        events = new ArrayList<>(events);
+                        severalTargets = true;
+                    }
+                    events.addAll(targetEvents);
                 }
-            } else {
-                SketchwareUtil.toastError("Found invalid (null) Custom Event at position " + i);
             }
         }
+        if (events == null) {
+            return List.of();
+        }
+        if (severalTargets) {
+            events.sort(Comparator.comparingInt(CustomEventRegistry.Event::position));
+        }
+        return events;
     }
 
     /**
@@ -188,28 +166,7 @@ public class EventsHandler {
                 break;
 
             default:
-                for (int i = 0, cachedCustomEventsSize = cachedCustomEvents.size(); i < cachedCustomEventsSize; i++) {
-                    HashMap<String, Object> customEvent = cachedCustomEvents.get(i);
-                    if (customEvent != null) {
-                        Object listener = customEvent.get("listener");
-
-                        if (listener instanceof String) {
-                            if (name.equals(listener)) {
-                                Object eventName = customEvent.get("name");
-
-                                if (eventName instanceof String) {
-                                    list.add((String) eventName);
-                                } else {
-                                    SketchwareUtil.toastError("Found invalid name data type in Custom Event #" + (i + 1));
-                                }
-                            }
-                        } else {
-                            SketchwareUtil.toastError("Found invalid listener data type in Custom Event #" + (i + 1));
-                        }
-                    } else {
-                        SketchwareUtil.toastError("Found invalid (null) Custom Event at position " + i);
-                    }
-                }
+                list.addAll(getRegistry().getEventNamesOfListener(name));
                 break;
         }
     }
@@ -226,35 +183,8 @@ public class EventsHandler {
             case "onProgressUpdate" -> R.drawable.ic_mtrl_progress;
             case "onPostExecute" -> R.drawable.ic_mtrl_progress_check;
             default -> {
-                for (int i = 0, cachedCustomEventsSize = cachedCustomEvents.size(); i < cachedCustomEventsSize; i++) {
-                    HashMap<String, Object> customEvent = cachedCustomEvents.get(i);
-                    if (customEvent != null) {
-                        Object eventName = customEvent.get("name");
-
-                        if (eventName instanceof String) {
-                            if (name.equals(eventName)) {
-                                Object icon = customEvent.get("icon");
-
-                                if (icon instanceof String) {
-                                    try {
-                                        yield OldResourceIdMapper.getDrawableFromOldResourceId(Integer.parseInt((String) icon));
-                                    } catch (NumberFormatException e) {
-                                        SketchwareUtil.toastError("Found invalid icon data type in Custom Event #" + (i + 1));
-                                        yield R.drawable.android_icon;
-                                    }
-                                } else {
-                                    SketchwareUtil.toastError("Found invalid icon data type in Custom Event #" + (i + 1));
-                                }
-                            }
-                        } else {
-                            SketchwareUtil.toastError("Found invalid name data type in Custom Event #" + (i + 1));
-                        }
-                    } else {
-                        SketchwareUtil.toastError("Found invalid (null) Custom Event at position " + i);
-                    }
-                }
-
-                yield R.drawable.android_icon;
+                CustomEventRegistry.Event event = getRegistry().getEvent(name);
+                yield event != null && event.icon() != null ? event.icon() : R.drawable.android_icon;
             }
         };
     }
@@ -276,30 +206,8 @@ public class EventsHandler {
             case "onPostExecute" ->
                     "This method is called after doInBackground method completes processing.";
             default -> {
-                for (int i = 0, cachedCustomEventsSize = cachedCustomEvents.size(); i < cachedCustomEventsSize; i++) {
-                    HashMap<String, Object> customEvent = cachedCustomEvents.get(i);
-                    if (customEvent != null) {
-                        Object eventName = customEvent.get("name");
-
-                        if (eventName instanceof String) {
-                            if (name.equals(eventName)) {
-                                Object description = customEvent.get("description");
-
-                                if (description instanceof String) {
-                                    yield (String) description;
-                                } else {
-                                    SketchwareUtil.toastError("Found invalid description data type in Custom Event #" + (i + 1));
-                                }
-                            }
-                        } else {
-                            SketchwareUtil.toastError("Found invalid name data type in Custom Event #" + (i + 1));
-                        }
-                    } else {
-                        SketchwareUtil.toastError("Found invalid (null) Custom Event at position " + i);
-                    }
-                }
-
-                yield "No_Description";
+                CustomEventRegistry.Event event = getRegistry().getEvent(name);
+                yield event != null && event.description() != null ? event.description() : "No_Description";
             }
         };
     }
@@ -350,30 +258,8 @@ public class EventsHandler {
                     param + "\r\n" +
                     "}";
             default -> {
-                for (int i = 0, cachedCustomEventsSize = cachedCustomEvents.size(); i < cachedCustomEventsSize; i++) {
-                    HashMap<String, Object> customEvent = cachedCustomEvents.get(i);
-                    if (customEvent != null) {
-                        Object eventName = customEvent.get("name");
-
-                        if (eventName instanceof String) {
-                            if (name.equals(eventName)) {
-                                Object code = customEvent.get("code");
-
-                                if (code instanceof String) {
-                                    yield String.format(((String) code).replace("###", targetId), param);
-                                } else {
-                                    SketchwareUtil.toastError("Found invalid code data type in Custom Event #" + (i + 1));
-                                }
-                            }
-                        } else {
-                            SketchwareUtil.toastError("Found invalid name data type in Custom Event #" + (i + 1));
-                        }
-                    } else {
-                        SketchwareUtil.toastError("Found invalid (null) Custom Event at position " + i);
-                    }
-                }
-
-                yield "//no code";
+                CustomEventRegistry.Event event = getRegistry().getEvent(name);
+                yield event != null && event.code() != null ? String.format(event.code().replace("###", targetId), param) : "//no code";
             }
         };
     }
@@ -386,30 +272,8 @@ public class EventsHandler {
             case "onTabLayoutNewTabAdded", "onProgressUpdate" -> "%d";
             case "doInBackground", "onPostExecute" -> "%s";
             default -> {
-                for (int i = 0, cachedCustomEventsSize = cachedCustomEvents.size(); i < cachedCustomEventsSize; i++) {
-                    HashMap<String, Object> customEvent = cachedCustomEvents.get(i);
-                    if (customEvent != null) {
-                        Object eventName = customEvent.get("name");
-
-                        if (eventName instanceof String) {
-                            if (name.equals(eventName)) {
-                                Object parameters = customEvent.get("parameters");
-
-                                if (parameters instanceof String) {
-                                    yield (String) parameters;
-                                } else {
-                                    SketchwareUtil.toastError("Found invalid parameters data type in Custom Event #" + (i + 1));
-                                }
-                            }
-                        } else {
-                            SketchwareUtil.toastError("Found invalid name data type in Custom Event #" + (i + 1));
-                        }
-                    } else {
-                        SketchwareUtil.toastError("Found invalid (null) Custom Event at position " + i);
-                    }
-                }
-
-                yield "";
+                CustomEventRegistry.Event event = getRegistry().getEvent(name);
+                yield event != null && event.parameters() != null ? event.parameters() : "";
             }
         };
     }
@@ -428,30 +292,8 @@ public class EventsHandler {
             case "onProgressUpdate" -> name + " onProgressUpdate progress %d.value";
             case "onPostExecute" -> name + " onPostExecute result %s.result";
             default -> {
-                for (int i = 0, cachedCustomEventsSize = cachedCustomEvents.size(); i < cachedCustomEventsSize; i++) {
-                    HashMap<String, Object> customEvent = cachedCustomEvents.get(i);
-                    if (customEvent != null) {
-                        Object eventName = customEvent.get("name");
-
-                        if (eventName instanceof String) {
-                            if (event.equals(eventName)) {
-                                Object headerSpec = customEvent.get("headerSpec");
-
-                                if (headerSpec instanceof String) {
-                                    yield ((String) headerSpec).replace("###", name);
-                                } else {
-                                    SketchwareUtil.toastError("Found invalid header spec data type in Custom Event #" + (i + 1));
-                                }
-                            }
-                        } else {
-                            SketchwareUtil.toastError("Found invalid name data type in Custom Event #" + (i + 1));
-                        }
-                    } else {
-                        SketchwareUtil.toastError("Found invalid (null) Custom Event at position " + i);
-                    }
-                }
-
-                yield "no spec";
+                CustomEventRegistry.Event customEvent = getRegistry().getEvent(event);
+                yield customEvent != null && customEvent.headerSpec() != null ? customEvent.headerSpec().replace("###", name) : "no spec";
             }
         };
     }
@@ -472,59 +314,61 @@ public class EventsHandler {
                             param + "\r\n" +
                             "}";
             default -> {
-                for (int i = 0, cachedCustomListenersSize = cachedCustomListeners.size(); i < cachedCustomListenersSize; i++) {
-                    HashMap<String, Object> customListener = cachedCustomListeners.get(i);
-                    Object eventName = customListener.get("name");
-
-                    if (eventName instanceof String) {
-                        if (name.equals(eventName)) {
-                            Object code = customListener.get("code");
-
-                            if (code instanceof String) {
-                                yield String.format(((String) code).replace("###", var), param);
-                            } else {
-                                SketchwareUtil.toastError("Found invalid code data type in Custom Event #" + (i + 1));
-                            }
-                        }
-                    } else {
-                        SketchwareUtil.toastError("Found invalid name data type in Custom Event #" + (i + 1));
-                    }
-                }
-
-                yield "//no listener code";
+                CustomEventRegistry.Listener listener = getRegistry().getListener(name);
+                yield listener != null && listener.code() != null ? String.format(listener.code().replace("###", var), param) : "//no listener code";
             }
         };
     }
 
     public static void getImports(ArrayList<String> list, String name) {
-        for (int i = 0, cachedCustomListenersSize = cachedCustomListeners.size(); i < cachedCustomListenersSize; i++) {
-            HashMap<String, Object> customEvent = cachedCustomListeners.get(i);
-            Object eventName = customEvent.get("name");
-
-            if (eventName instanceof String) {
-                if (name.equals(eventName)) {
-                    Object imports = customEvent.get("imports");
-
-                    if (imports instanceof String) {
-                        if (!imports.equals("")) {
-                            list.addAll(new ArrayList<>(Arrays.asList(((String) imports).split("\n"))));
-                        }
-                    } else {
-                        SketchwareUtil.toastError("Found invalid import data type in Custom Event #" + (i + 1));
-                    }
-                }
-            } else {
-                SketchwareUtil.toastError("Found invalid name data type in Custom Event #" + (i + 1));
-            }
+        CustomEventRegistry.Listener listener = getRegistry().getListener(name);
+        if (listener != null) {
+            list.addAll(listener.imports());
         }
     }
 
+    /**
+     * Makes the next lookup re-read events.json and listeners.json. Needs to be called after
+     * writing events.json.
+     */
     public static void refreshCachedCustomEvents() {
-        cachedCustomEvents = readCustomEvents();
+        registry = null;
     }
 
+    /**
+     * Makes the next lookup re-read events.json and listeners.json. Needs to be called after
+     * writing listeners.json.
+     */
     public static void refreshCachedCustomListeners() {
-        cachedCustomListeners = readCustomListeners();
+        registry = null;
+    }
+
+    /**
+     * @return The registry of Custom Events and Listeners, read from events.json and
+     * listeners.json on first use and after {@link #refreshCachedCustomEvents()} or
+     * {@link #refreshCachedCustomListeners()}
+     */
+    private static CustomEventRegistry getRegistry() {
+        CustomEventRegistry current = registry;
+        if (current != null) {
+            return current;
+        }
+
+        synchronized (EventsHandler.class) {
+            current = registry;
+            if (current == null) {
+                current = CustomEventRegistry.create(readCustomEvents(), readCustomListeners());
+                List<String> problems = current.getProblems();
+                for (String problem : problems) {
+                    LogUtil.w("EventsHandler", problem);
+                }
+                if (!problems.isEmpty()) {
+                    SketchwareUtil.toastError(problems.get(0) + (problems.size() > 1 ? " (and " + (problems.size() - 1) + " more problems)" : ""));
+                }
+                registry = current;
+            }
+            return current;
+        }
     }
 
     private static ArrayList<HashMap<String, Object>> readCustomEvents() {
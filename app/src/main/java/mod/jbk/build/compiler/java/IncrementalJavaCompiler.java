@@ -0,0 +1,160 @@
+package mod.jbk.build.compiler.java;
+
+import androidx.annotation.Nullable;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import mod.jbk.util.LogUtil;
+import pro.sketchware.util.build.BuildCache;
+import pro.sketchware.util.build.IncrementalCompilationState;
+import pro.sketchware.utility.FileUtil;
+
+/**
+ * Runs the Eclipse Compiler for Java (ECJ), recompiling only source files that changed since the
+ * last successful build and the source files that depend on them.
+ * <p>
+ * Dependencies are read from the constant pools of the previous build's class files, which are
+ * kept in the cache directory along with a hash of every source file. Anything that could make
+ * that information unreliable results in a full build: changed compiler options or classpath,
+ * added or removed source files, and changed source files that declare compile-time constants
+ * (which get inlined into other classes without leaving a reference behind, e.g. in R.java).
+ * <p>
+ * Compiling goes through {@link SharedEclipseCompiler}, which keeps the classpath's jars open
+ * between builds for as long as the classpath doesn't change.
+ */
+public class IncrementalJavaCompiler {
+
+    private static final String TAG = "IncrementalJavaCompiler";
+
+    private final IncrementalCompilationState state;
+
+    /**
+     * @param cacheDirectory The directory to keep state and compiled classes in between builds,
+     *                       usually from {@link BuildCache#getDirectory}
+     */
+    public IncrementalJavaCompiler(File cacheDirectory) {
+        state = new IncrementalCompilationState(cacheDirectory);
+    }
+
+    /**
+     * Compiles all Java source files in {@code sourceRoots} into {@code outputDirectory}.
+     *
+     * @param options         ECJ arguments other than output directory, classpath and sources
+     * @param classpath       Colon-separated classpath
+     * @param sourceRoots     Directories with Java source files to compile
+     * @param outputDirectory Directory to write class files to. Class files already in there
+     *                        (e.g. compiled Kotlin files) are treated as part of the classpath.
+     */
+    public Result compile(List<String> options, String classpath, List<File> sourceRoots, File outputDirectory) throws IOException {
+        Map<String, String> sourceHashes = new LinkedHashMap<>();
+        Map<String, String> sourcesByRelativePath = new HashMap<>();
+        for (File root : sourceRoots) {
+            for (File source : FileUtil.listFilesRecursively(root, ".java")) {
+                String path = source.getAbsolutePath();
+                sourceHashes.put(path, BuildCache.sha256(source));
+                sourcesByRelativePath.put(root.toPath().relativize(source.toPath()).toString(), path);
+            }
+        }
+
+        String classpathFingerprint = new BuildCache.Fingerprint().putClasspath(classpath).get();
+        BuildCache.Fingerprint fingerprint = new BuildCache.Fingerprint();
+        for (String option : options) {
+            fingerprint.put(option);
+        }
+        fingerprint.put(classpathFingerprint).putFile(outputDirectory);
+
+        Set<String> ignoredClassFiles = IncrementalCompilationState.listClassFiles(outputDirectory);
+        Set<String> sourcesToCompile = null;
+        if (state.load(fingerprint.get(), sourceHashes.keySet())) {
+            sourcesToCompile = getSourcesToRecompile(sourceHashes);
+        }
+
+        boolean incremental = sourcesToCompile != null && sourcesToCompile.size() < sourceHashes.size();
+        if (!incremental) {
+            state.reset();
+            sourcesToCompile = sourceHashes.keySet();
+        }
+        LogUtil.d(TAG, incremental
+                ? "Recompiling " + sourcesToCompile.size() + " of " + sourceHashes.size() + " Java files: " + sourcesToCompile
+                : "Compiling all " + sourceHashes.size() + " Java files");
+
+        if (incremental) {
+            ignoredClassFiles.addAll(state.restoreClasses(outputDirectory, sourcesToCompile));
+            if (sourcesToCompile.isEmpty()) {
+                return new Result(true, "", "", 0, true);
+            }
+        }
+
+        ArrayList<String> args = new ArrayList<>(options);
+        args.add("-d");
+        args.add(outputDirectory.getAbsolutePath());
+        args.add("-cp");
+        args.add(incremental ? outputDirectory.getAbsolutePath() + ":" + classpath : classpath);
+        if (incremental) {
+            args.addAll(sourcesToCompile);
+        } else {
+            for (File root : sourceRoots) {
+                args.add(root.getAbsolutePath());
+            }
+        }
+
+        StringWriter out = new StringWriter();
+        StringWriter err = new StringWriter();
+        boolean success;
+        try (PrintWriter outWriter = new PrintWriter(out);
+             PrintWriter errWriter = new PrintWriter(err)) {
+            LogUtil.d(TAG, "Running Eclipse compiler with these arguments: " + args);
+            success = SharedEclipseCompiler.getInstance().compile(classpathFingerprint, args.toArray(new String[0]), outWriter, errWriter);
+        }
+
+        if (success) {
+            try {
+                state.update(sourcesToCompile, sourceHashes, sourcesByRelativePath, ignoredClassFiles, Collections.emptySet(), outputDirectory);
+            } catch (IOException e) {
+                LogUtil.w(TAG, "Failed to update the Java compilation cache, next build won't be incremental", e);
+                state.invalidate();
+            }
+        } else {
+            // Output of failed builds can't be trusted, start over next time
+            state.invalidate();
+        }
+        return new Result(success, out.toString(), err.toString(), sourcesToCompile.size(), incremental);
+    }
+
+    /**
+     * @return Paths of source files that have to get recompiled, or <code>null</code> if a
+     * full build is needed
+     */
+    @Nullable
+    private Set<String> getSourcesToRecompile(Map<String, String> sourceHashes) {
+        Set<String> sourcesToCompile = state.getChangedSources(sourceHashes);
+        for (String source : sourcesToCompile) {
+            if (state.isInlinedIntoDependents(source)) {
+                LogUtil.d(TAG, source + " declares constants, compiling all Java files");
+                return null;
+            }
+        }
+        state.addDependents(sourcesToCompile, Collections.emptySet());
+        return sourcesToCompile;
+    }
+
+    /**
+     * @param success       Whether compiling finished without errors
+     * @param out           System.out of ECJ
+     * @param err           System.err of ECJ, which contains compile errors
+     * @param compiledFiles Number of source files that got compiled
+     * @param incremental   Whether only some of the source files were compiled
+     */
+    public record Result(boolean success, String out, String err, int compiledFiles, boolean incremental) {
+    }
+}
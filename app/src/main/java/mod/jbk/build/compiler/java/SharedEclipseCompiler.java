@@ -0,0 +1,138 @@
+package mod.jbk.build.compiler.java;
+
+import org.eclipse.jdt.internal.compiler.batch.ClasspathJar;
+import org.eclipse.jdt.internal.compiler.batch.FileSystem;
+import org.eclipse.jdt.internal.compiler.batch.Main;
+import org.eclipse.jdt.internal.compiler.env.IModule;
+import org.eclipse.jdt.internal.compiler.impl.CompilerOptions;
+
+import java.io.PrintWriter;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.Set;
+
+import mod.jbk.util.LogUtil;
+
+/**
+ * The Eclipse Compiler for Java (ECJ), with its name environment's classpath jars kept open
+ * across builds.
+ * <p>
+ * ECJ's batch compiler opens every classpath jar and indexes its packages again for every
+ * build, which for android.jar and the built-in libraries' jars is a large part of compiling a
+ * small project. This keeps those jars, along with their package indexes, for as long as the
+ * classpath stays the same. Once it changes (e.g. a library got added, or a jar's contents
+ * changed), all of them get closed, and the next build opens them anew.
+ */
+class SharedEclipseCompiler {
+
+    private static final String TAG = "SharedEclipseCompiler";
+    private static final SharedEclipseCompiler INSTANCE = new SharedEclipseCompiler();
+
+    /**
+     * Jars of the current classpath, keyed by path
+     */
+    private final Map<String, FileSystem.Classpath> jars = new HashMap<>();
+    private final Set<FileSystem.Classpath> sharedJars = Collections.newSetFromMap(new IdentityHashMap<>());
+    private String classpathFingerprint;
+
+    private SharedEclipseCompiler() {
+    }
+
+    static SharedEclipseCompiler getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Runs ECJ. Only one compilation runs at a time, as they share the open jars.
+     *
+     * @param classpathFingerprint Fingerprint of the contents of all classpath jars. If it
+     *                             differs from the last compilation's, jars get opened anew.
+     * @param args                 ECJ's command line arguments
+     * @return Whether compiling finished without errors
+     */
+    synchronized boolean compile(String classpathFingerprint, String[] args, PrintWriter out, PrintWriter err) {
+        if (!classpathFingerprint.equals(this.classpathFingerprint)) {
+            if (this.classpathFingerprint != null) {
+                LogUtil.d(TAG, "Classpath changed, closing " + jars.size() + " jars");
+            }
+            close();
+            this.classpathFingerprint = classpathFingerprint;
+        }
+
+        Compiler compiler = new Compiler(out, err);
+        compiler.compile(args);
+        return compiler.globalErrorsCount <= 0;
+    }
+
+    private void close() {
+        for (FileSystem.Classpath jar : sharedJars) {
+            jar.reset();
+        }
+        jars.clear();
+        sharedJars.clear();
+    }
+
+    /**
+     * @return The jar opened by an earlier compilation if there is one, otherwise
+     * <code>classpath</code>, which gets kept for later compilations
+     */
+    private FileSystem.Classpath share(FileSystem.Classpath classpath) {
+        String key = classpath.getPath() + ":" + classpath.getDestinationPath();
+        FileSystem.Classpath jar = jars.get(key);
+        if (jar == null) {
+            jar = classpath;
+            jars.put(key, jar);
+            sharedJars.add(jar);
+        }
+        return jar;
+    }
+
+    private class Compiler extends Main {
+
+        private Compiler(PrintWriter out, PrintWriter err) {
+            super(out, err, false, null, null);
+        }
+
+        /**
+         * Same as {@link Main#getLibraryAccess()}, except that plain jars come from
+         * {@link #share}. Doesn't support --add-exports and --add-reads, which the build never
+         * passes.
+         */
+        @Override
+        public FileSystem getLibraryAccess() {
+            FileSystem.Classpath[] classpaths = checkedClasspaths.clone();
+            for (int i = 0; i < classpaths.length; i++) {
+                // Subclasses are JDK images and multi-release jars, which aren't worth keeping
+                if (classpaths[i].getClass() == ClasspathJar.class) {
+                    classpaths[i] = share(classpaths[i]);
+                }
+            }
+            return new NameEnvironment(classpaths, filenames,
+                    annotationsFromClasspath && CompilerOptions.ENABLED.equals(options.get(CompilerOptions.OPTION_AnnotationBasedNullAnalysis)),
+                    limitedModules, module);
+        }
+    }
+
+    /**
+     * A name environment that leaves shared jars open when compiling is done.
+     */
+    private class NameEnvironment extends FileSystem {
+
+        private NameEnvironment(Classpath[] classpaths, String[] initialFileNames, boolean annotationsFromClasspath,
+                                Set<String> limitedModules, IModule module) {
+            super(classpaths, initialFileNames, annotationsFromClasspath, limitedModules);
+            this.module = module;
+        }
+
+        @Override
+        public void cleanup() {
+            for (Classpath classpath : classpaths) {
+                if (!sharedJars.contains(classpath)) {
+                    classpath.reset();
+                }
+            }
+        }
+    }
+}
@@ -1,6 +1,7 @@
 package mod.jbk.editor.manage;
 
 import android.app.Activity;
+import android.content.DialogInterface;
 import android.text.InputType;
 import android.util.Pair;
 import android.view.View;
@@ -16,8 +17,13 @@ import com.google.android.material.dialog.MaterialAlertDialogBuilder;
 
 import java.io.File;
 import java.util.ArrayList;
-import java.util.LinkedList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 import a.a.a.Gx;
 import a.a.a.Np;
@@ -37,6 +43,12 @@ import mod.hey.studios.util.Helper;
 import pro.sketchware.R;
 
 public class MoreblockImporter {
+    private static final int REFERENCE_VARIABLE = 0;
+    private static final int REFERENCE_LIST = 1;
+    private static final int REFERENCE_IMAGE = 2;
+    private static final int REFERENCE_SOUND = 3;
+    private static final int REFERENCE_FONT = 4;
+
     private final Activity activity;
     private final String sc_id;
     private final ProjectFileBean projectActivity;
@@ -49,7 +61,23 @@ public class MoreblockImporter {
     private ArrayList<ProjectResourceBean> toBeAddedImages;
     private ArrayList<ProjectResourceBean> toBeAddedSounds;
     private ArrayList<ProjectResourceBean> toBeAddedFonts;
+    /**
+     * Variables and lists the current more block references under names that the activity uses
+     * for a variable or list of another type
+     */
+    private ArrayList<Pair<Integer, String>> conflictingVariables;
+    private ArrayList<Pair<Integer, String>> conflictingLists;
+    /**
+     * Variables, lists and resources the current more block references that were looked at
+     * already, so that each one is only resolved once
+     */
+    private Set<Pair<Integer, String>> checkedVariables;
+    private Set<Pair<Integer, String>> checkedLists;
+    private Set<String> checkedImages;
+    private Set<String> checkedSounds;
+    private Set<String> checkedFonts;
 
+    private ProjectIndex project;
     private Callback callback;
 
     public MoreblockImporter(Activity activity, String sc_id, ProjectFileBean projectActivity) {
@@ -59,18 +87,41 @@ public class MoreblockImporter {
         activityJavaName = projectActivity.getJavaName();
     }
 
-    public void importMoreblock(MoreBlockCollectionBean moreblock, Callback callback) {
-        this.callback = callback;
-        String blockName = ReturnMoreblockManager.getMbName(ReturnMoreblockManager.getMbNameWithTypeFromSpec(moreblock.spec));
+    /**
+     * Imports several more blocks one after another, asking about name collisions, variables
+     * clashing with ones of other types and variables/resources to add for each of them. The project's existing symbols and resources
+     * only get read once for all of them.
+     *
+     * @param callback Called once after the last more block got imported, if any got imported.
+     *                 More blocks whose dialogs get cancelled are skipped.
+     */
+    public void importMoreblocks(List<MoreBlockCollectionBean> moreblocks, Callback callback) {
+        project = new ProjectIndex();
+        Iterator<MoreBlockCollectionBean> remaining = moreblocks.iterator();
+        boolean[] anyImported = {false};
+        this.callback = new Callback() {
+            @Override
+            public void onImportComplete() {
+                anyImported[0] = true;
+                onImportSkipped();
+            }
 
-        boolean duplicateNameFound = false;
-        for (Pair<String, String> projectMoreBlock : jC.a(sc_id).i(activityJavaName)) {
-            if (ReturnMoreblockManager.getMbName(projectMoreBlock.first).equals(blockName)) {
-                duplicateNameFound = true;
-                break;
+            @Override
+            public void onImportSkipped() {
+                if (remaining.hasNext()) {
+                    importNext(remaining.next());
+                } else if (anyImported[0]) {
+                    callback.onImportComplete();
+                }
             }
-        }
-        if (!duplicateNameFound) {
+        };
+        this.callback.onImportSkipped();
+    }
+
+    private void importNext(MoreBlockCollectionBean moreblock) {
+        String blockName = ReturnMoreblockManager.getMbName(ReturnMoreblockManager.getMbNameWithTypeFromSpec(moreblock.spec));
+
+        if (!project.moreBlockNames.contains(blockName)) {
             handleVariables(moreblock);
         } else {
             showEditMoreBlockNameDialog(moreblock);
@@ -83,68 +134,93 @@ public class MoreblockImporter {
         toBeAddedImages = new ArrayList<>();
         toBeAddedSounds = new ArrayList<>();
         toBeAddedFonts = new ArrayList<>();
+        conflictingVariables = new ArrayList<>();
+        conflictingLists = new ArrayList<>();
+        checkedVariables = new HashSet<>();
+        checkedLists = new HashSet<>();
+        checkedImages = new HashSet<>();
+        checkedSounds = new HashSet<>();
+        checkedFonts = new HashSet<>();
+        visitReferences(moreBlock, (kind, type, name) -> {
+            switch (kind) {
+                case REFERENCE_VARIABLE -> maybeAddVariable(type, name);
+                case REFERENCE_LIST -> maybeAddList(type, name);
+                case REFERENCE_IMAGE -> maybeAddImage(name);
+                case REFERENCE_SOUND -> maybeAddSound(name);
+                default -> maybeAddFont(name);
+            }
+            return name;
+        });
+        if (!conflictingVariables.isEmpty() || !conflictingLists.isEmpty()) {
+            showRenameConflictingVariablesDialog(moreBlock);
+        } else if (toBeAddedVariables.isEmpty() && toBeAddedLists.isEmpty() && toBeAddedImages.isEmpty() && toBeAddedSounds.isEmpty() && toBeAddedFonts.isEmpty()) {
+            createEvent(moreBlock);
+        } else {
+            showAutoAddDialog(moreBlock);
+        }
+    }
+
+    /**
+     * Passes every variable, list and resource a more block's blocks reference to the visitor,
+     * and replaces each reference with the name the visitor returns.
+     */
+    private static void visitReferences(MoreBlockCollectionBean moreBlock, ReferenceVisitor visitor) {
         for (BlockBean next : moreBlock.blocks) {
             if (next.opCode.equals("getVar")) {
                 switch (next.type) {
-                    case "b":
-                        maybeAddVariable(0, next.spec);
-                        break;
-                    case "d":
-                        maybeAddVariable(1, next.spec);
-                        break;
-                    case "s":
-                        maybeAddVariable(2, next.spec);
-                        break;
-                    case "a":
-                        maybeAddVariable(3, next.spec);
-                        break;
-                    case "l":
+                    case "b" -> next.spec = visitor.visit(REFERENCE_VARIABLE, 0, next.spec);
+                    case "d" -> next.spec = visitor.visit(REFERENCE_VARIABLE, 1, next.spec);
+                    case "s" -> next.spec = visitor.visit(REFERENCE_VARIABLE, 2, next.spec);
+                    case "a" -> next.spec = visitor.visit(REFERENCE_VARIABLE, 3, next.spec);
+                    case "l" -> {
                         switch (next.typeName) {
-                            case "List Number" -> maybeAddList(1, next.spec);
-                            case "List String" -> maybeAddList(2, next.spec);
-                            case "List Map" -> maybeAddList(3, next.spec);
+                            case "List Number" -> next.spec = visitor.visit(REFERENCE_LIST, 1, next.spec);
+                            case "List String" -> next.spec = visitor.visit(REFERENCE_LIST, 2, next.spec);
+                            case "List Map" -> next.spec = visitor.visit(REFERENCE_LIST, 3, next.spec);
                         }
-                        break;
+                    }
                 }
             }
             ArrayList<Gx> paramClassInfo = next.getParamClassInfo();
-            if (!paramClassInfo.isEmpty()) {
-                for (int i = 0; i < paramClassInfo.size(); i++) {
-                    Gx gx = paramClassInfo.get(i);
-                    String str = next.parameters.get(i);
-                    if (!str.isEmpty() && str.charAt(0) != '@') {
-                        if (gx.b("boolean.SelectBoolean")) {
-                            maybeAddVariable(0, str);
-                        } else if (gx.b("double.SelectDouble")) {
-                            maybeAddVariable(1, str);
-                        } else if (gx.b("String.SelectString")) {
-                            maybeAddVariable(2, str);
-                        } else if (gx.b("Map")) {
-                            maybeAddVariable(3, str);
-                        } else if (gx.b("ListInt")) {
-                            maybeAddList(1, str);
-                        } else if (gx.b("ListString")) {
-                            maybeAddList(2, str);
-                        } else if (gx.b("ListMap")) {
-                            maybeAddList(3, str);
-                        } else if (!gx.b("resource_bg") && !gx.b("resource")) {
-                            if (gx.b("sound")) {
-                                maybeAddSound(str);
-                            } else if (gx.b("font")) {
-                                maybeAddFont(str);
-                            }
-                        } else {
-                            maybeAddImage(str);
-                        }
-                    }
+            for (int i = 0; i < paramClassInfo.size(); i++) {
+                Gx gx = paramClassInfo.get(i);
+                String str = next.parameters.get(i);
+                if (str.isEmpty() || str.charAt(0) == '@') continue;
+
+                int kind;
+                int type = 0;
+                if (gx.b("boolean.SelectBoolean")) {
+                    kind = REFERENCE_VARIABLE;
+                } else if (gx.b("double.SelectDouble")) {
+                    kind = REFERENCE_VARIABLE;
+                    type = 1;
+                } else if (gx.b("String.SelectString")) {
+                    kind = REFERENCE_VARIABLE;
+                    type = 2;
+                } else if (gx.b("Map")) {
+                    kind = REFERENCE_VARIABLE;
+                    type = 3;
+                } else if (gx.b("ListInt")) {
+                    kind = REFERENCE_LIST;
+                    type = 1;
+                } else if (gx.b("ListString")) {
+                    kind = REFERENCE_LIST;
+                    type = 2;
+                } else if (gx.b("ListMap")) {
+                    kind = REFERENCE_LIST;
+                    type = 3;
+                } else if (gx.b("resource_bg") || gx.b("resource")) {
+                    kind = REFERENCE_IMAGE;
+                } else if (gx.b("sound")) {
+                    kind = REFERENCE_SOUND;
+                } else if (gx.b("font")) {
+                    kind = REFERENCE_FONT;
+                } else {
+                    continue;
                 }
+                next.parameters.set(i, visitor.visit(kind, type, str));
             }
         }
-        if (toBeAddedVariables.isEmpty() && toBeAddedLists.isEmpty() && toBeAddedImages.isEmpty() && toBeAddedSounds.isEmpty() && toBeAddedFonts.isEmpty()) {
-            createEvent(moreBlock);
-        } else {
-            showAutoAddDialog(moreBlock);
-        }
     }
 
     private void createEvent(MoreBlockCollectionBean moreBlock) {
@@ -152,6 +228,7 @@ public class MoreblockImporter {
 
         jC.a(sc_id).a(activityJavaName, moreBlockName, moreBlock.spec);
         jC.a(sc_id).a(activityJavaName, moreBlockName + "_moreBlock", moreBlock.blocks);
+        project.moreBlockNames.add(ReturnMoreblockManager.getMbName(moreBlockName));
         bB.a(activity, activity.getString(R.string.common_message_complete_save), 0).show();
         callback.onImportComplete();
     }
@@ -162,13 +239,14 @@ public class MoreblockImporter {
         aBVar.setIcon(R.drawable.break_warning_96_red);
         aBVar.setMessage(R.string.logic_more_block_desc_add_variable_resource);
         aBVar.setPositiveButton(R.string.common_word_continue, (v, which) -> {
+            eC eC = jC.a(sc_id);
             for (Pair<Integer, String> pair : toBeAddedVariables) {
-                eC eC = jC.a(sc_id);
                 eC.c(activityJavaName, pair.first, pair.second);
+                project.variables.put(pair.second, pair.first);
             }
             for (Pair<Integer, String> pair : toBeAddedLists) {
-                eC eC = jC.a(sc_id);
                 eC.b(activityJavaName, pair.first, pair.second);
+                project.lists.put(pair.second, pair.first);
             }
             for (ProjectResourceBean bean : toBeAddedImages) {
                 copyImageFromCollectionsToProject(bean.resName);
@@ -182,10 +260,73 @@ public class MoreblockImporter {
             createEvent(moreBlock);
             v.dismiss();
         });
-        aBVar.setNegativeButton(R.string.common_word_cancel, null);
+        aBVar.setNegativeButton(R.string.common_word_cancel, (v, which) -> callback.onImportSkipped());
+        aBVar.setOnCancelListener(v -> callback.onImportSkipped());
         aBVar.show();
     }
 
+    /**
+     * Offers to rename the more block's variables and lists whose names the activity uses for a
+     * variable or list of another type, so that they get added as new ones instead of clashing.
+     */
+    private void showRenameConflictingVariablesDialog(MoreBlockCollectionBean moreBlock) {
+        Set<String> takenNames = new HashSet<>(project.variables.keySet());
+        takenNames.addAll(project.lists.keySet());
+        for (Pair<Integer, String> variable : checkedVariables) {
+            takenNames.add(variable.second);
+        }
+        for (Pair<Integer, String> list : checkedLists) {
+            takenNames.add(list.second);
+        }
+
+        StringBuilder renames = new StringBuilder();
+        Map<Pair<Integer, String>, String> newVariableNames = new HashMap<>();
+        for (Pair<Integer, String> variable : conflictingVariables) {
+            String newName = getFreeName(variable.second, takenNames);
+            newVariableNames.put(variable, newName);
+            renames.append(variable.second).append(" \u2192 ").append(newName).append('\n');
+        }
+        Map<Pair<Integer, String>, String> newListNames = new HashMap<>();
+        for (Pair<Integer, String> list : conflictingLists) {
+            String newName = getFreeName(list.second, takenNames);
+            newListNames.put(list, newName);
+            renames.append(list.second).append(" \u2192 ").append(newName).append('\n');
+        }
+
+        MaterialAlertDialogBuilder dialog = new MaterialAlertDialogBuilder(activity);
+        dialog.setTitle(R.string.logic_more_block_title_rename_conflicting_variables);
+        dialog.setIcon(R.drawable.break_warning_96_red);
+        dialog.setMessage(activity.getString(R.string.logic_more_block_desc_rename_conflicting_variables, renames.toString().trim()));
+        dialog.setPositiveButton(R.string.common_word_continue, (v, which) -> {
+            visitReferences(moreBlock, (kind, type, name) -> {
+                String newName = null;
+                if (kind == REFERENCE_VARIABLE) {
+                    newName = newVariableNames.get(new Pair<>(type, name));
+                } else if (kind == REFERENCE_LIST) {
+                    newName = newListNames.get(new Pair<>(type, name));
+                }
+                return newName != null ? newName : name;
+            });
+            v.dismiss();
+            handleVariables(moreBlock);
+        });
+        dialog.setNegativeButton(R.string.common_word_cancel, (v, which) -> callback.onImportSkipped());
+        dialog.setOnCancelListener(v -> callback.onImportSkipped());
+        dialog.show();
+    }
+
+    /**
+     * @return The name with the lowest number appended that isn't taken yet, which then is
+     */
+    private static String getFreeName(String name, Set<String> takenNames) {
+        for (int i = 2; ; i++) {
+            String candidate = name + i;
+            if (takenNames.add(candidate)) {
+                return candidate;
+            }
+        }
+    }
+
     private void showEditMoreBlockNameDialog(MoreBlockCollectionBean moreBlock) {
         MaterialAlertDialogBuilder dialog = new MaterialAlertDialogBuilder(activity);
         dialog.setTitle(R.string.logic_more_block_title_change_block_name);
@@ -199,28 +340,31 @@ public class MoreblockImporter {
         newName.setInputType(InputType.TYPE_CLASS_TEXT | InputType.TYPE_TEXT_FLAG_NO_SUGGESTIONS);
         newName.setImeOptions(EditorInfo.IME_ACTION_DONE);
 
-        List<String> moreBlockNamesWithoutReturnTypes = new LinkedList<>();
-        for (String moreBlockName : jC.a(sc_id).a(projectActivity)) {
-            moreBlockNamesWithoutReturnTypes.add(ReturnMoreblockManager.getMbName(moreBlockName));
-        }
-
-        ZB validator = new ZB(activity, customView.findViewById(R.id.ti_input), uq.b, uq.a(), new ArrayList<>(moreBlockNamesWithoutReturnTypes));
+        ZB validator = new ZB(activity, customView.findViewById(R.id.ti_input), uq.b, uq.a(), new ArrayList<>(project.moreBlockNames));
         dialog.setView(customView);
-        dialog.setPositiveButton(R.string.common_word_save, (v, which) -> {
+        dialog.setPositiveButton(R.string.common_word_save, null);
+        dialog.setNegativeButton(R.string.common_word_cancel, (v, which) -> {
+            mB.a(activity, newName);
+            v.dismiss();
+            callback.onImportSkipped();
+        });
+        dialog.setOnCancelListener(v -> {
+            mB.a(activity, newName);
+            callback.onImportSkipped();
+        });
+        var shownDialog = dialog.show();
+
+        // Set after showing, so that the dialog stays open while the name is invalid
+        shownDialog.getButton(DialogInterface.BUTTON_POSITIVE).setOnClickListener(v -> {
             if (validator.b()) {
                 String moreBlockName = ReturnMoreblockManager.getMbName(ReturnMoreblockManager.getMbNameWithTypeFromSpec(moreBlock.spec));
                 moreBlock.spec = Helper.getText(newName) + moreBlock.spec.substring(moreBlockName.length());
 
                 handleVariables(moreBlock);
                 mB.a(activity, newName);
-                v.dismiss();
+                shownDialog.dismiss();
             }
         });
-        dialog.setNegativeButton(R.string.common_word_cancel, (v, which) -> {
-            mB.a(activity, newName);
-            v.dismiss();
-        });
-        dialog.show();
     }
 
     private void copyImageFromCollectionsToProject(String imageName) {
@@ -229,6 +373,7 @@ public class MoreblockImporter {
             try {
                 fileUtil.a(wq.a() + File.separator + "image" + File.separator + "data" + File.separator + image.resFullName, wq.g() + File.separator + sc_id + File.separator + image.resFullName);
                 jC.d(sc_id).b.add(image);
+                project.images.add(image.resName);
             } catch (Exception e) {
                 e.printStackTrace();
             }
@@ -241,6 +386,7 @@ public class MoreblockImporter {
             try {
                 fileUtil.a(wq.a() + File.separator + "sound" + File.separator + "data" + File.separator + a2.resFullName, wq.t() + File.separator + sc_id + File.separator + a2.resFullName);
                 jC.d(sc_id).c.add(a2);
+                project.sounds.add(a2.resName);
             } catch (Exception e) {
                 e.printStackTrace();
             }
@@ -253,6 +399,7 @@ public class MoreblockImporter {
             try {
                 fileUtil.a(wq.a() + File.separator + "font" + File.separator + "data" + File.separator + font.resFullName, wq.d() + File.separator + sc_id + File.separator + font.resFullName);
                 jC.d(sc_id).d.add(font);
+                project.fonts.add(font.resName);
             } catch (Exception e) {
                 e.printStackTrace();
             }
@@ -260,115 +407,51 @@ public class MoreblockImporter {
     }
 
     private void maybeAddVariable(int variableType, String variableName) {
-        if (toBeAddedVariables == null) {
-            toBeAddedVariables = new ArrayList<>();
-        }
-        for (Pair<Integer, String> variable : jC.a(sc_id).k(activityJavaName)) {
-            if (variable.first == variableType && variable.second.equals(variableName)) {
-                return;
-            }
-        }
-        boolean alreadyToBeAdded = false;
-        for (Pair<Integer, String> toBeAddedVariable : toBeAddedVariables) {
-            if (toBeAddedVariable.first == variableType && toBeAddedVariable.second.equals(variableName)) {
-                alreadyToBeAdded = true;
-                break;
-            }
-        }
-        if (!alreadyToBeAdded) {
-            toBeAddedVariables.add(new Pair<>(variableType, variableName));
+        Pair<Integer, String> variable = new Pair<>(variableType, variableName);
+        if (!checkedVariables.add(variable)) return;
+
+        Integer existingType = project.variables.get(variableName);
+        if (existingType == null && !project.lists.containsKey(variableName)) {
+            toBeAddedVariables.add(variable);
+        } else if (existingType == null || existingType != variableType) {
+            conflictingVariables.add(variable);
         }
     }
 
     private void maybeAddList(int listType, String listName) {
-        if (toBeAddedLists == null) {
-            toBeAddedLists = new ArrayList<>();
-        }
-        for (Pair<Integer, String> list : jC.a(sc_id).j(activityJavaName)) {
-            if (list.first == listType && list.second.equals(listName)) {
-                return;
-            }
-        }
+        Pair<Integer, String> list = new Pair<>(listType, listName);
+        if (!checkedLists.add(list)) return;
 
-        boolean alreadyToBeAdded = false;
-        for (Pair<Integer, String> toBeAddedList : toBeAddedLists) {
-            if (toBeAddedList.first == listType && toBeAddedList.second.equals(listName)) {
-                alreadyToBeAdded = true;
-                break;
-            }
-        }
-        if (!alreadyToBeAdded) {
-            toBeAddedLists.add(new Pair<>(listType, listName));
+        Integer existingType = project.lists.get(listName);
+        if (existingType == null && !project.variables.containsKey(listName)) {
+            toBeAddedLists.add(list);
+        } else if (existingType == null || existingType != listType) {
+            conflictingLists.add(list);
         }
     }
 
     private void maybeAddSound(String soundName) {
-        if (toBeAddedSounds == null) {
-            toBeAddedSounds = new ArrayList<>();
-        }
-        for (String soundInProjectName : jC.d(sc_id).p()) {
-            if (soundInProjectName.equals(soundName)) {
-                return;
-            }
-        }
-        ProjectResourceBean sound = Qp.g().a(soundName);
-        if (sound != null) {
-            boolean alreadyToBeAdded = false;
-            for (ProjectResourceBean toBeAddedSound : toBeAddedSounds) {
-                if (toBeAddedSound.resName.equals(soundName)) {
-                    alreadyToBeAdded = true;
-                    break;
-                }
-            }
-            if (!alreadyToBeAdded) {
+        if (checkedSounds.add(soundName) && !project.sounds.contains(soundName)) {
+            ProjectResourceBean sound = Qp.g().a(soundName);
+            if (sound != null) {
                 toBeAddedSounds.add(sound);
             }
         }
     }
 
     private void maybeAddFont(String fontName) {
-        if (toBeAddedFonts == null) {
-            toBeAddedFonts = new ArrayList<>();
-        }
-        for (String fontInProjectName : jC.d(sc_id).k()) {
-            if (fontInProjectName.equals(fontName)) {
-                return;
-            }
-        }
-        ProjectResourceBean font = Np.g().a(fontName);
-        if (font != null) {
-            boolean alreadyToBeAdded = false;
-            for (ProjectResourceBean toBeAddedFont : toBeAddedFonts) {
-                if (toBeAddedFont.resName.equals(fontName)) {
-                    alreadyToBeAdded = true;
-                    break;
-                }
-            }
-            if (!alreadyToBeAdded) {
+        if (checkedFonts.add(fontName) && !project.fonts.contains(fontName)) {
+            ProjectResourceBean font = Np.g().a(fontName);
+            if (font != null) {
                 toBeAddedFonts.add(font);
             }
         }
     }
 
     private void maybeAddImage(String imageName) {
-        if (toBeAddedImages == null) {
-            toBeAddedImages = new ArrayList<>();
-        }
-        for (String imageInProjectName : jC.d(sc_id).m()) {
-            if (imageInProjectName.equals(imageName)) {
-                return;
-            }
-        }
-        ProjectResourceBean image = Op.g().a(imageName);
-        if (image != null) {
-            boolean alreadyToBeAdded = false;
-            for (ProjectResourceBean toBeAddedImage : toBeAddedImages) {
-                if (toBeAddedImage.resName.equals(imageName)) {
-                    alreadyToBeAdded = true;
-                    break;
-                }
-            }
-            if (!alreadyToBeAdded) {
+        if (checkedImages.add(imageName) && !project.images.contains(imageName)) {
+            ProjectResourceBean image = Op.g().a(imageName);
+            if (image != null) {
                 toBeAddedImages.add(image);
             }
         }
@@ -376,5 +459,54 @@ public class MoreblockImporter {
 
     public interface Callback {
         void onImportComplete();
+
+        /**
+         * Called if importing a more block got cancelled.
+         */
+        default void onImportSkipped() {
+        }
+    }
+
+    private interface ReferenceVisitor {
+        /**
+         * @param kind One of the <code>REFERENCE_</code> constants
+         * @param type The variable's or list's type, <code>0</code> for resources
+         * @return The name to reference instead
+         */
+        String visit(int kind, int type, String name);
+    }
+
+    /**
+     * The activity's more block names, variables and lists, and the project's resources, read
+     * once per import and kept up to date with what the import adds.
+     */
+    private class ProjectIndex {
+        private final Set<String> moreBlockNames = new LinkedHashSet<>();
+        /**
+         * Types of variables and lists, by name
+         */
+        private final Map<String, Integer> variables = new HashMap<>();
+        private final Map<String, Integer> lists = new HashMap<>();
+        private final Set<String> images = new HashSet<>();
+        private final Set<String> sounds = new HashSet<>();
+        private final Set<String> fonts = new HashSet<>();
+
+        private ProjectIndex() {
+            for (String moreBlockName : jC.a(sc_id).a(projectActivity)) {
+                moreBlockNames.add(ReturnMoreblockManager.getMbName(moreBlockName));
+            }
+            for (Pair<String, String> moreBlock : jC.a(sc_id).i(activityJavaName)) {
+                moreBlockNames.add(ReturnMoreblockManager.getMbName(moreBlock.first));
+            }
+            for (Pair<Integer, String> variable : jC.a(sc_id).k(activityJavaName)) {
+                variables.put(variable.second, variable.first);
+            }
+            for (Pair<Integer, String> list : jC.a(sc_id).j(activityJavaName)) {
+                lists.put(list.second, list.first);
+            }
+            images.addAll(jC.d(sc_id).m());
+            sounds.addAll(jC.d(sc_id).p());
+            fonts.addAll(jC.d(sc_id).k());
+        }
     }
 }
@@ -55,6 +55,7 @@ import mod.jbk.util.LogUtil;
 import pro.sketchware.R;
 import pro.sketchware.databinding.DialogSelectLibrariesBinding;
 import pro.sketchware.databinding.ManageLibraryExcludeBuiltinLibrariesBinding;
+import pro.sketchware.util.build.BuildConfiguration;
 import pro.sketchware.utility.FileUtil;
 import pro.sketchware.utility.SketchwareUtil;
 
@@ -67,7 +68,7 @@ public class ExcludeBuiltInLibrariesActivity extends BaseAppCompatActivity {
     private List<BuiltInLibraries.BuiltInLibrary> excludedLibraries;
     private Pair<Boolean, List<BuiltInLibraries.BuiltInLibrary>> config;
 
-    private static File getConfigPath(String sc_id) {
+    public static File getConfigPath(String sc_id) {
         return new File(Environment.getExternalStorageDirectory(),
                 ".sketchware" + File.separator + "data" + File.separator + sc_id + File.separator + "excluded_library");
     }
@@ -78,10 +79,14 @@ public class ExcludeBuiltInLibrariesActivity extends BaseAppCompatActivity {
                 .collect(Collectors.toList());
         Pair<Boolean, List<String>> config = new Pair<>(isExcludingEnabled, excludedLibraryNames);
         FileUtil.writeFile(getConfigPath(sc_id).getAbsolutePath(), new Gson().toJson(config));
+        BuildConfiguration.invalidate(sc_id);
     }
 
+    /**
+     * Reads the config file, prefer {@link BuildConfiguration} over calling this directly.
+     */
     @Nullable
-    private static Pair<Boolean, List<BuiltInLibraries.BuiltInLibrary>> readConfig(String sc_id) {
+    public static Pair<Boolean, List<BuiltInLibraries.BuiltInLibrary>> readConfig(String sc_id) {
         File configPath = getConfigPath(sc_id);
         if (configPath.isFile()) {
             String content = FileUtil.readFile(configPath.getAbsolutePath());
@@ -113,22 +118,12 @@ public class ExcludeBuiltInLibrariesActivity extends BaseAppCompatActivity {
     }
 
     public static boolean isExcludingEnabled(String sc_id) {
-        Pair<Boolean, List<BuiltInLibraries.BuiltInLibrary>> config = readConfig(sc_id);
-        if (config != null) {
-            return config.first;
-        } else {
-            return false;
-        }
+        return BuildConfiguration.load(sc_id).isExcludingEnabled();
     }
 
     @NonNull
     public static List<BuiltInLibraries.BuiltInLibrary> getExcludedLibraries(String sc_id) {
-        Pair<Boolean, List<BuiltInLibraries.BuiltInLibrary>> config = readConfig(sc_id);
-        if (config != null) {
-            return config.second;
-        } else {
-            return Collections.emptyList();
-        }
+        return BuildConfiguration.load(sc_id).getExcludedLibraries();
     }
 
     @DrawableRes
@@ -0,0 +1,254 @@
+package mod.jbk.export;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import pro.sketchware.utility.FileUtil;
+
+/**
+ * Writes a project's exported sources straight into a ZIP archive, reading every input file from
+ * where it is, instead of copying everything into one directory and compressing that.
+ * <p>
+ * The first file added for a path wins. To overlay files over others (e.g. a project's custom
+ * Java files over generated ones), add the overlaying files first.
+ * <p>
+ * Files that are compressed already, like images and audio, are stored without deflating them
+ * again, which takes most of the time otherwise, for no benefit.
+ */
+public class SourceExportWriter implements Closeable {
+
+    private static final Set<String> STORED_EXTENSIONS = Set.of(
+            "png", "jpg", "jpeg", "gif", "webp",
+            "mp3", "ogg", "m4a", "aac", "wav", "flac", "mp4", "webm", "3gp",
+            "zip", "jar", "aar", "apk", "gz", "7z");
+    private static final int BUFFER_SIZE = 64 * 1024;
+    /**
+     * Stored files up to this size are read into memory once, to compute their CRC and write them
+     * from there. Larger ones (e.g. videos) are read twice instead, which is slower, but doesn't
+     * need memory for the whole file.
+     */
+    private static final int MAX_BUFFERED_STORED_FILE_SIZE = 4 * 1024 * 1024;
+
+    private final File zipFile;
+    private final File temporaryFile;
+    private final String rootDirectory;
+    private final ZipOutputStream zip;
+    private final Set<String> writtenEntries = new HashSet<>();
+    private final Set<String> excludedFileNames = new HashSet<>();
+    private final List<Rule> rules = new ArrayList<>();
+    private final byte[] buffer = new byte[BUFFER_SIZE];
+    /**
+     * Holds a whole stored file, grown as needed up to {@link #MAX_BUFFERED_STORED_FILE_SIZE}
+     */
+    private byte[] storedFileBuffer = new byte[BUFFER_SIZE];
+    private boolean finished;
+
+    /**
+     * @param rootDirectory Name of the directory in the archive all files are put in
+     */
+    public SourceExportWriter(File zipFile, String rootDirectory) throws IOException {
+        this.zipFile = zipFile;
+        this.rootDirectory = rootDirectory;
+        temporaryFile = new File(zipFile.getPath() + ".tmp");
+        //noinspection ResultOfMethodCallIgnored
+        zipFile.getParentFile().mkdirs();
+        zip = new ZipOutputStream(new BufferedOutputStream(new FileOutputStream(temporaryFile), BUFFER_SIZE));
+    }
+
+    /**
+     * Excludes all files with the given name, wherever they are.
+     */
+    public SourceExportWriter excludeFileName(String fileName) {
+        excludedFileNames.add(fileName);
+        return this;
+    }
+
+    /**
+     * Reads an include/exclude manifest, if it exists. Every line is a rule starting with
+     * <code>-</code> (exclude) or <code>+</code> (include), followed by a path relative to the
+     * project's root, with <code>/</code> as separator. A rule applies to the path and everything
+     * below it. The most specific rule matching a file decides whether it's exported, files
+     * without matching rules are. Empty lines and lines starting with <code>#</code> are ignored.
+     */
+    public SourceExportWriter readManifest(File manifest) {
+        if (!manifest.isFile()) return this;
+
+        for (String line : FileUtil.readFile(manifest.getAbsolutePath()).split("\n")) {
+            line = line.trim();
+            if (line.length() < 2 || line.startsWith("#")) continue;
+            char type = line.charAt(0);
+            if (type != '-' && type != '+') continue;
+
+            String path = line.substring(1).trim();
+            while (path.startsWith("/")) path = path.substring(1);
+            while (path.endsWith("/")) path = path.substring(0, path.length() - 1);
+            rules.add(new Rule(path, type == '+'));
+        }
+        return this;
+    }
+
+    /**
+     * Adds all files in a directory.
+     *
+     * @param targetPath Where to put the directory's contents, relative to the project's root,
+     *                   with <code>/</code> as separator
+     */
+    public void addDirectory(File directory, String targetPath) throws IOException {
+        File[] files = directory.listFiles();
+        if (files == null) return;
+        // Sorted, so that exports of the same project are reproducible
+        Arrays.sort(files);
+        for (File file : files) {
+            String path = targetPath.isEmpty() ? file.getName() : targetPath + "/" + file.getName();
+            if (file.isDirectory()) {
+                addDirectory(file, path);
+            } else {
+                addFile(file, path);
+            }
+        }
+    }
+
+    /**
+     * Adds a single file, unless a file got added for the path already, or the file is excluded.
+     *
+     * @param targetPath The file's path relative to the project's root, with <code>/</code> as
+     *                   separator
+     */
+    public void addFile(File file, String targetPath) throws IOException {
+        if (!file.isFile() || isExcluded(file.getName(), targetPath)) return;
+        String entryName = rootDirectory + "/" + targetPath;
+        if (!writtenEntries.add(entryName)) return;
+
+        ZipEntry entry = new ZipEntry(entryName);
+        entry.setTime(file.lastModified());
+        if (isCompressedAlready(file.getName())) {
+            long length = file.length();
+            entry.setMethod(ZipEntry.STORED);
+            if (length <= MAX_BUFFERED_STORED_FILE_SIZE) {
+                int size = readFully(file, (int) length);
+                CRC32 crc = new CRC32();
+                crc.update(storedFileBuffer, 0, size);
+                entry.setSize(size);
+                entry.setCompressedSize(size);
+                entry.setCrc(crc.getValue());
+
+                zip.putNextEntry(entry);
+                zip.write(storedFileBuffer, 0, size);
+                zip.closeEntry();
+                return;
+            }
+            entry.setSize(length);
+            entry.setCompressedSize(length);
+            entry.setCrc(crc32(file));
+        }
+
+        zip.putNextEntry(entry);
+        try (InputStream input = new FileInputStream(file)) {
+            int read;
+            while ((read = input.read(buffer)) != -1) {
+                zip.write(buffer, 0, read);
+            }
+        }
+        zip.closeEntry();
+    }
+
+    /**
+     * Completes the archive, replacing any previous file at its path.
+     */
+    public void finish() throws IOException {
+        zip.close();
+        finished = true;
+        if (zipFile.exists() && !zipFile.delete()) {
+            throw new IOException("Couldn't delete previous export " + zipFile);
+        }
+        if (!temporaryFile.renameTo(zipFile)) {
+            throw new IOException("Couldn't move " + temporaryFile + " to " + zipFile);
+        }
+    }
+
+    /**
+     * Discards the archive if it didn't get {@link #finish() finished}.
+     */
+    @Override
+    public void close() throws IOException {
+        if (finished) return;
+        try {
+            zip.close();
+        } finally {
+            //noinspection ResultOfMethodCallIgnored
+            temporaryFile.delete();
+        }
+    }
+
+    private boolean isExcluded(String fileName, String path) {
+        if (excludedFileNames.contains(fileName)) return true;
+
+        Rule mostSpecific = null;
+        for (Rule rule : rules) {
+            if (rule.matches(path) && (mostSpecific == null || rule.path.length() >= mostSpecific.path.length())) {
+                mostSpecific = rule;
+            }
+        }
+        return mostSpecific != null && !mostSpecific.include;
+    }
+
+    private static boolean isCompressedAlready(String fileName) {
+        int extensionStart = fileName.lastIndexOf('.');
+        return extensionStart >= 0 && STORED_EXTENSIONS.contains(fileName.substring(extensionStart + 1).toLowerCase(Locale.ROOT));
+    }
+
+    /**
+     * Reads a file into {@link #storedFileBuffer}.
+     *
+     * @return How many bytes got read
+     * @throws IOException If the file is larger than expected, or couldn't be read
+     */
+    private int readFully(File file, int expectedSize) throws IOException {
+        if (storedFileBuffer.length < expectedSize) {
+            storedFileBuffer = new byte[Math.max(expectedSize, Math.min(storedFileBuffer.length * 2, MAX_BUFFERED_STORED_FILE_SIZE))];
+        }
+        int size = 0;
+        try (InputStream input = new FileInputStream(file)) {
+            int read;
+            while (size < expectedSize && (read = input.read(storedFileBuffer, size, expectedSize - size)) != -1) {
+                size += read;
+            }
+            if (size == expectedSize && input.read() != -1) {
+                throw new IOException(file + " changed while exporting it");
+            }
+        }
+        return size;
+    }
+
+    private long crc32(File file) throws IOException {
+        CRC32 crc = new CRC32();
+        try (InputStream input = new FileInputStream(file)) {
+            int read;
+            while ((read = input.read(buffer)) != -1) {
+                crc.update(buffer, 0, read);
+            }
+        }
+        return crc.getValue();
+    }
+
+    private record Rule(String path, boolean include) {
+
+        private boolean matches(String filePath) {
+            return path.isEmpty() || filePath.equals(path) || filePath.startsWith(path + "/");
+        }
+    }
+}
@@ -0,0 +1,214 @@
+package mod.khaled.logcat;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Fixed-capacity store of the lines {@link LogReaderActivity} received. Once full, adding a line
+ * drops the oldest one, so memory use stays bounded no matter how chatty the debugged app is.
+ * <p>
+ * Lines are additionally indexed by package name and log level, so that applying a package or
+ * level filter only touches matching lines. Not thread-safe, only use it on the main thread.
+ */
+public class LogBuffer {
+
+    public static final int DEFAULT_CAPACITY = 10_000;
+
+    private final int capacity;
+    private final Ring<LogEntry> entries = new Ring<>();
+    private final Map<String, Ring<LogEntry>> packageIndex = new HashMap<>();
+    private final Map<String, Ring<LogEntry>> levelIndex = new HashMap<>();
+    private long nextSequence;
+
+    public LogBuffer(int capacity) {
+        this.capacity = capacity;
+    }
+
+    /**
+     * Parses and adds a line, dropping the oldest one if the buffer is full.
+     *
+     * @return The added line
+     */
+    public LogEntry add(String packageName, String raw) {
+        if (entries.size() == capacity) {
+            LogEntry evicted = entries.removeFirst();
+            // The evicted line is the oldest of all, so it's also the oldest in its indexes
+            removeFirstFromIndex(packageIndex, evicted.packageName());
+            removeFirstFromIndex(levelIndex, evicted.level());
+        }
+
+        LogEntry entry = LogEntry.parse(nextSequence++, packageName, raw);
+        entries.addLast(entry);
+        addToIndex(packageIndex, entry.packageName(), entry);
+        addToIndex(levelIndex, entry.level(), entry);
+        return entry;
+    }
+
+    public void clear() {
+        entries.clear();
+        packageIndex.clear();
+        levelIndex.clear();
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    /**
+     * @return Sequence number of the oldest line still stored, or of the next line to be added if empty
+     */
+    public long getOldestSequence() {
+        return entries.size() == 0 ? nextSequence : entries.get(0).sequence();
+    }
+
+    public long getNextSequence() {
+        return nextSequence;
+    }
+
+    /**
+     * @return All stored lines, oldest first
+     */
+    public List<LogEntry> getEntries() {
+        return getEntriesSince(getOldestSequence());
+    }
+
+    /**
+     * @return Stored lines with a sequence number of at least <code>sequence</code>, oldest first
+     */
+    public List<LogEntry> getEntriesSince(long sequence) {
+        int start = (int) Math.max(0, sequence - getOldestSequence());
+        ArrayList<LogEntry> result = new ArrayList<>(Math.max(0, entries.size() - start));
+        for (int i = start; i < entries.size(); i++) {
+            result.add(entries.get(i));
+        }
+        return result;
+    }
+
+    /**
+     * Looks up the lines that pass a filter's package and level restrictions using the indexes.
+     * The filter's search query isn't checked, so that it can be run off the main thread.
+     *
+     * @return Matching lines, oldest first
+     */
+    public List<LogEntry> getCandidates(LogFilter filter) {
+        List<Ring<LogEntry>> byPackage = getIndexed(packageIndex, filter.getPackages());
+        List<Ring<LogEntry>> byLevel = getIndexed(levelIndex, filter.getLevels());
+        List<Ring<LogEntry>> smallest = byPackage;
+        if (smallest == null || (byLevel != null && countEntries(byLevel) < countEntries(byPackage))) {
+            smallest = byLevel;
+        }
+        if (smallest == null) {
+            return getEntries();
+        }
+
+        ArrayList<LogEntry> candidates = new ArrayList<>();
+        for (Ring<LogEntry> ring : smallest) {
+            for (int i = 0; i < ring.size(); i++) {
+                LogEntry entry = ring.get(i);
+                if (filter.matchesIndexed(entry)) {
+                    candidates.add(entry);
+                }
+            }
+        }
+        if (smallest.size() > 1) {
+            candidates.sort(Comparator.comparingLong(LogEntry::sequence));
+        }
+        return candidates;
+    }
+
+    /**
+     * @return Index rings of all keys, or <code>null</code> if there's no restriction on keys
+     */
+    private static List<Ring<LogEntry>> getIndexed(Map<String, Ring<LogEntry>> index, Set<String> keys) {
+        if (keys.isEmpty()) return null;
+        List<Ring<LogEntry>> rings = new ArrayList<>(keys.size());
+        for (String key : keys) {
+            Ring<LogEntry> ring = index.get(key);
+            if (ring != null) {
+                rings.add(ring);
+            }
+        }
+        return rings;
+    }
+
+    private static int countEntries(List<Ring<LogEntry>> rings) {
+        int count = 0;
+        for (Ring<LogEntry> ring : rings) {
+            count += ring.size();
+        }
+        return count;
+    }
+
+    private static void addToIndex(Map<String, Ring<LogEntry>> index, String key, LogEntry entry) {
+        if (key != null) {
+            index.computeIfAbsent(key, k -> new Ring<>()).addLast(entry);
+        }
+    }
+
+    private static void removeFirstFromIndex(Map<String, Ring<LogEntry>> index, String key) {
+        if (key != null) {
+            Ring<LogEntry> ring = index.get(key);
+            ring.removeFirst();
+            if (ring.size() == 0) {
+                index.remove(key);
+            }
+        }
+    }
+
+    /**
+     * A growable circular array, supporting adding at the end and removing from the start in
+     * constant time, and constant time random access.
+     */
+    static final class Ring<T> {
+        private Object[] elements = new Object[16];
+        private int head;
+        private int size;
+
+        int size() {
+            return size;
+        }
+
+        @SuppressWarnings("unchecked")
+        T get(int index) {
+            if (index < 0 || index >= size) {
+                throw new IndexOutOfBoundsException("Index: " + index + ", size: " + size);
+            }
+            return (T) elements[(head + index) % elements.length];
+        }
+
+        void addLast(T element) {
+            if (size == elements.length) {
+                Object[] grown = new Object[elements.length * 2];
+                for (int i = 0; i < size; i++) {
+                    grown[i] = elements[(head + i) % elements.length];
+                }
+                elements = grown;
+                head = 0;
+            }
+            elements[(head + size) % elements.length] = element;
+            size++;
+        }
+
+        @SuppressWarnings("unchecked")
+        T removeFirst() {
+            if (size == 0) {
+                throw new IllegalStateException("Ring is empty");
+            }
+            T element = (T) elements[head];
+            elements[head] = null;
+            head = (head + 1) % elements.length;
+            size--;
+            return element;
+        }
+
+        void clear() {
+            elements = new Object[16];
+            head = 0;
+            size = 0;
+        }
+    }
+}
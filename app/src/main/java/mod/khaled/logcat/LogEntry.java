@@ -0,0 +1,42 @@
+package mod.khaled.logcat;
+
+import androidx.annotation.Nullable;
+
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * A single line received by {@link LogReaderActivity}.
+ *
+ * @param sequence    Position of this line in the stream of all lines received, increasing by one per line
+ * @param packageName Package name of the app that sent the line, if it sent one
+ * @param raw         The line as received
+ * @param date        PID, time and other prefix information, <code>null</code> if the line couldn't be parsed
+ * @param level       Log level, one of <code>V</code>, <code>A</code>, <code>D</code>, <code>E</code>,
+ *                    <code>I</code> or <code>W</code>. <code>null</code> if the line couldn't be parsed.
+ * @param header      Log tag, <code>null</code> if the line couldn't be parsed
+ * @param body        Log message, <code>null</code> if the line couldn't be parsed
+ */
+public record LogEntry(long sequence, @Nullable String packageName, String raw,
+                       @Nullable String date, @Nullable String level,
+                       @Nullable String header, @Nullable String body) {
+
+    private static final Pattern LOG_PATTERN = Pattern.compile("^(.*\\d) ([VADEIW]) (.*): (.*)");
+
+    public static LogEntry parse(long sequence, @Nullable String packageName, String raw) {
+        Matcher matcher = LOG_PATTERN.matcher(raw);
+        if (matcher.matches()) {
+            //group 1 = pid, time stuff & idk
+            //group 2 = log type (a,d,e,i,w)
+            //group 3 = log tag,headers
+            //group 4 = everything else
+            return new LogEntry(sequence, packageName, raw, matcher.group(1).trim(), matcher.group(2).trim(),
+                    matcher.group(3), matcher.group(4));
+        }
+        return new LogEntry(sequence, packageName, raw, null, null, null, null);
+    }
+
+    public boolean isParsed() {
+        return level != null;
+    }
+}
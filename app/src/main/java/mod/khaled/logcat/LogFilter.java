@@ -0,0 +1,83 @@
+package mod.khaled.logcat;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Set;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+/**
+ * Which {@link LogEntry}s {@link LogReaderActivity} shows. Immutable, so that a search can run
+ * on a background thread while new lines keep arriving.
+ * <p>
+ * Package and level restrictions can be answered by {@link LogBuffer}'s indexes, only the search
+ * query needs a scan over the candidates.
+ */
+public final class LogFilter {
+
+    public static final LogFilter NONE = new LogFilter(Collections.emptySet(), Collections.emptySet(), "", null);
+
+    private final Set<String> packages;
+    private final Set<String> levels;
+    private final String query;
+    private final Pattern regex;
+
+    private LogFilter(Set<String> packages, Set<String> levels, String query, Pattern regex) {
+        this.packages = packages;
+        this.levels = levels;
+        this.query = query;
+        this.regex = regex;
+    }
+
+    /**
+     * @param packages Package names to show lines of, or empty for all
+     * @param levels   Log levels to show lines of, or empty for all
+     * @param query    Text every shown line must contain, or empty for no restriction
+     * @param isRegex  Whether <code>query</code> is a regular expression that must be found in shown lines
+     * @throws PatternSyntaxException If <code>isRegex</code> is true and <code>query</code> is invalid
+     */
+    public static LogFilter create(Collection<String> packages, Collection<String> levels, String query, boolean isRegex) {
+        Pattern regex = null;
+        if (isRegex && !query.isEmpty()) {
+            regex = Pattern.compile(query, Pattern.CASE_INSENSITIVE);
+        }
+        return new LogFilter(Collections.unmodifiableSet(new HashSet<>(packages)),
+                Collections.unmodifiableSet(new HashSet<>(levels)),
+                query.toLowerCase(Locale.ROOT), regex);
+    }
+
+    public Set<String> getPackages() {
+        return packages;
+    }
+
+    public Set<String> getLevels() {
+        return levels;
+    }
+
+    public boolean hasQuery() {
+        return !query.isEmpty();
+    }
+
+    public boolean matches(LogEntry entry) {
+        return matchesIndexed(entry) && matchesQuery(entry);
+    }
+
+    /**
+     * @return Whether an entry passes the package and level restrictions
+     */
+    public boolean matchesIndexed(LogEntry entry) {
+        return (packages.isEmpty() || packages.contains(entry.packageName()))
+                && (levels.isEmpty() || levels.contains(entry.level()));
+    }
+
+    /**
+     * @return Whether an entry passes the search query. Safe to call from any thread.
+     */
+    public boolean matchesQuery(LogEntry entry) {
+        if (query.isEmpty()) return true;
+        if (regex != null) return regex.matcher(entry.raw()).find();
+        return entry.raw().toLowerCase(Locale.ROOT).contains(query);
+    }
+}
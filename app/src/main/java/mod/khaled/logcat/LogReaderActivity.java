@@ -23,14 +23,15 @@ import com.google.android.material.dialog.MaterialAlertDialogBuilder;
 
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.Calendar;
 import java.util.Date;
-import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Locale;
-import java.util.Objects;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.regex.PatternSyntaxException;
 
 import mod.hey.studios.util.Helper;
 import pro.sketchware.R;
@@ -41,15 +42,27 @@ import pro.sketchware.lib.base.BaseTextWatcher;
 import pro.sketchware.utility.FileUtil;
 import pro.sketchware.utility.SketchwareUtil;
 
+
 public class LogReaderActivity extends BaseAppCompatActivity {
 
+    private static final String[] LEVELS = {"V", "D", "I", "W", "E", "A"};
+    private static final String[] LEVEL_NAMES = {"Verbose", "Debug", "Info", "Warning", "Error", "Assert"};
+
     private final BroadcastReceiver logger = new Logger();
-    private final Pattern logPattern = Pattern.compile("^(.*\\d) ([VADEIW]) (.*): (.*)");
-    private final ArrayList<HashMap<String, Object>> mainList = new ArrayList<>();
+    private final LogBuffer logBuffer = new LogBuffer(LogBuffer.DEFAULT_CAPACITY);
+    private final ExecutorService searchExecutor = Executors.newSingleThreadExecutor();
+    private final Adapter adapter = new Adapter();
+    private LogFilter filter = LogFilter.NONE;
+    /**
+     * Incremented on every filter change, so that results of outdated searches get discarded
+     */
+    private int filterGeneration;
     private String pkgFilter = "";
     private String packageName = "pro.sketchware";
     private boolean autoScroll = true;
+    private boolean regexSearch;
     private ArrayList<String> pkgFilterList = new ArrayList<>();
+    private final Set<String> levelFilter = new HashSet<>();
 
     private ActivityLogcatreaderBinding binding;
 
@@ -65,7 +78,7 @@ public class LogReaderActivity extends BaseAppCompatActivity {
     }
 
     private void initialize() {
-        binding.logsRecyclerView.setAdapter(new Adapter(new ArrayList<>()));
+        binding.logsRecyclerView.setAdapter(adapter);
 
         IntentFilter intentFilter = new IntentFilter();
         intentFilter.addAction("pro.sketchware.ACTION_NEW_DEBUG_LOG");
@@ -79,18 +92,25 @@ public class LogReaderActivity extends BaseAppCompatActivity {
         binding.topAppBar.setOnMenuItemClickListener(item -> {
             int id = item.getItemId();
             if (id == R.id.action_clear) {
-                mainList.clear();
-                ((Adapter) binding.logsRecyclerView.getAdapter()).deleteAll();
+                logBuffer.clear();
+                filterGeneration++;
+                adapter.deleteAll();
             } else if (id == R.id.action_auto_scroll) {
                 autoScroll = !item.isChecked();
                 item.setChecked(autoScroll);
                 if (autoScroll) {
-                    binding.logsRecyclerView.getLayoutManager().scrollToPosition(binding.logsRecyclerView.getAdapter().getItemCount() - 1);
+                    binding.logsRecyclerView.getLayoutManager().scrollToPosition(adapter.getItemCount() - 1);
                 }
             } else if (id == R.id.action_filter) {
                 showFilterDialog();
+            } else if (id == R.id.action_filter_level) {
+                showLevelFilterDialog();
+            } else if (id == R.id.action_regex_search) {
+                regexSearch = !item.isChecked();
+                item.setChecked(regexSearch);
+                applyFilter();
             } else if (id == R.id.action_export) {
-                exportLogcat(mainList);
+                exportLogcat(logBuffer.getEntries());
             }
             return true;
         });
@@ -98,33 +118,77 @@ public class LogReaderActivity extends BaseAppCompatActivity {
         binding.searchInput.addTextChangedListener(new BaseTextWatcher() {
             @Override
             public void onTextChanged(CharSequence s, int start, int before, int count) {
-                String _charSeq = s.toString();
-                if (_charSeq.isEmpty() && pkgFilterList.isEmpty()) {
-                    binding.logsRecyclerView.setAdapter(new Adapter(mainList));
-                } else {
-                    ArrayList<HashMap<String, Object>> filteredList = new ArrayList<>();
-                    for (HashMap<String, Object> m : mainList) {
-                        if (!pkgFilterList.isEmpty()) {
-                            if (m.containsKey("pkgName") && pkgFilterList.contains(m.get("pkgName").toString())) {
-                                if (m.get("logRaw").toString().toLowerCase().contains(_charSeq.toLowerCase())) {
-                                    filteredList.add(m);
-                                }
-                            }
-                        } else if (m.get("logRaw").toString().toLowerCase().contains(_charSeq.toLowerCase())) {
-                            filteredList.add(m);
-                        }
-                    }
-                    binding.logsRecyclerView.setAdapter(new Adapter(filteredList));
+                applyFilter();
+            }
+        });
+    }
+
+    /**
+     * Rebuilds the shown list for the current package filter, level filter and search query.
+     * Candidates get looked up through {@link LogBuffer}'s indexes, the search query is matched
+     * against them on a background thread.
+     */
+    private void applyFilter() {
+        LogFilter newFilter;
+        try {
+            newFilter = LogFilter.create(pkgFilterList, levelFilter, Helper.getText(binding.searchInput), regexSearch);
+            binding.searchInputLayout.setError(null);
+        } catch (PatternSyntaxException e) {
+            binding.searchInputLayout.setError("Invalid regular expression");
+            return;
+        }
+
+        filter = newFilter;
+        int generation = ++filterGeneration;
+        List<LogEntry> candidates = logBuffer.getCandidates(newFilter);
+        long searchedUntil = logBuffer.getNextSequence();
+        if (!newFilter.hasQuery()) {
+            showFilteredEntries(candidates, searchedUntil);
+            return;
+        }
+
+        searchExecutor.execute(() -> {
+            ArrayList<LogEntry> matches = new ArrayList<>();
+            for (LogEntry entry : candidates) {
+                if (newFilter.matchesQuery(entry)) {
+                    matches.add(entry);
                 }
             }
+            runOnUiThread(() -> {
+                if (generation == filterGeneration && !isDestroyed()) {
+                    showFilteredEntries(matches, searchedUntil);
+                }
+            });
         });
     }
 
+    /**
+     * @param matches       Lines that match the current filter
+     * @param searchedUntil Sequence number of the first line that wasn't searched for
+     *                      <code>matches</code>, later lines get filtered here
+     */
+    private void showFilteredEntries(List<LogEntry> matches, long searchedUntil) {
+        long oldestSequence = logBuffer.getOldestSequence();
+        LogBuffer.Ring<LogEntry> entries = new LogBuffer.Ring<>();
+        for (LogEntry entry : matches) {
+            if (entry.sequence() >= oldestSequence) {
+                entries.addLast(entry);
+            }
+        }
+        for (LogEntry entry : logBuffer.getEntriesSince(searchedUntil)) {
+            if (filter.matches(entry)) {
+                entries.addLast(entry);
+            }
+        }
+        adapter.setData(entries);
+    }
+
     void showFilterDialog() {
         var dialogBinding = EasyDeleteEdittextBinding.inflate(getLayoutInflater());
         View view = dialogBinding.getRoot();
 
         dialogBinding.imgDelete.setVisibility(View.GONE);
+        dialogBinding.easyEdInput.setText(pkgFilter);
 
         var builder = new MaterialAlertDialogBuilder(this)
                 .setTitle("Filter by package name")
@@ -133,13 +197,19 @@ public class LogReaderActivity extends BaseAppCompatActivity {
                 .setView(view)
                 .setPositiveButton("Apply", (dialog, which) -> {
                     pkgFilter = Helper.getText(dialogBinding.easyEdInput);
-                    pkgFilterList = new ArrayList<>(Arrays.asList(pkgFilter.split(",")));
-                    binding.searchInput.setText(Helper.getText(binding.searchInput));
+                    pkgFilterList = new ArrayList<>();
+                    for (String pkg : pkgFilter.split(",")) {
+                        if (!pkg.trim().isEmpty()) {
+                            pkgFilterList.add(pkg.trim());
+                        }
+                    }
+                    applyFilter();
                 })
                 .setNeutralButton("Reset", (dialog, which) -> {
                     pkgFilter = "";
                     pkgFilterList.clear();
                     dialogBinding.easyEdInput.setText("");
+                    applyFilter();
                 })
                 .setNegativeButton("Cancel", null)
                 .create();
@@ -147,12 +217,38 @@ public class LogReaderActivity extends BaseAppCompatActivity {
         builder.show();
     }
 
-    private String safeGet(HashMap<String, Object> log, String key) {
-        Object value = log.get(key);
-        return value != null ? value.toString() : "";
+    private void showLevelFilterDialog() {
+        boolean[] checked = new boolean[LEVELS.length];
+        for (int i = 0; i < LEVELS.length; i++) {
+            checked[i] = levelFilter.contains(LEVELS[i]);
+        }
+
+        new MaterialAlertDialogBuilder(this)
+                .setTitle("Filter by log level")
+                .setIcon(R.drawable.ic_mtrl_filter)
+                .setMultiChoiceItems(LEVEL_NAMES, checked, (dialog, which, isChecked) -> checked[which] = isChecked)
+                .setPositiveButton("Apply", (dialog, which) -> {
+                    levelFilter.clear();
+                    for (int i = 0; i < LEVELS.length; i++) {
+                        if (checked[i]) {
+                            levelFilter.add(LEVELS[i]);
+                        }
+                    }
+                    applyFilter();
+                })
+                .setNeutralButton("Reset", (dialog, which) -> {
+                    levelFilter.clear();
+                    applyFilter();
+                })
+                .setNegativeButton("Cancel", null)
+                .show();
+    }
+
+    private static String safeGet(String value) {
+        return value != null ? value : "";
     }
 
-    private void exportLogcat(ArrayList<HashMap<String, Object>> logs) {
+    private void exportLogcat(List<LogEntry> logs) {
         if (logs.isEmpty()) {
             SketchwareUtil.toastError("Nothing to Export");
             return;
@@ -174,11 +270,11 @@ public class LogReaderActivity extends BaseAppCompatActivity {
             contentBuilder.append(stars).append("\n");
             contentBuilder.append(stars).append("\n");
 
-            for (HashMap<String, Object> log : logs) {
-                String date = safeGet(log, "date");
-                String type = safeGet(log, "type");
-                String tag = safeGet(log, "header");
-                String body = safeGet(log, "body");
+            for (LogEntry log : logs) {
+                String date = safeGet(log.date());
+                String type = safeGet(log.level());
+                String tag = safeGet(log.header());
+                String body = safeGet(log.body());
 
                 if (!type.isEmpty()) {
                     contentBuilder.append("\n\n|-- Log Type: ").append(type).append("\n");
@@ -206,78 +302,78 @@ public class LogReaderActivity extends BaseAppCompatActivity {
     public void onDestroy() {
         super.onDestroy();
         unregisterReceiver(logger);
+        searchExecutor.shutdownNow();
     }
 
     private class Logger extends BroadcastReceiver {
 
         @Override
         public void onReceive(Context context, Intent intent) {
-            HashMap<String, Object> map = new HashMap<>();
-            if (intent.hasExtra("log") && intent.getStringExtra("log") != null) {
-                if (intent.hasExtra("packageName")) {
-                    map.put("pkgName", intent.getStringExtra("packageName"));
-                    packageName = intent.getStringExtra("packageName");
-                }
-                map.put("logRaw", intent.getStringExtra("log"));
-                if (intent.getStringExtra("log") == null) return;
-
-                Matcher matcher = logPattern.matcher(intent.getStringExtra("log"));
-                if (matcher.matches()) {
-                    //group 1 = pid, time stuff & idk
-                    //group 2 = log type (a,d,e,i,w)
-                    //group 3 = log tag,headers
-                    //group 4 = everything else
-                    map.put("date", matcher.group(1).trim());
-                    map.put("type", matcher.group(2).trim());
-                    map.put("header", matcher.group(3));
-                    map.put("body", matcher.group(4));
-                    map.put("culturedLog", "true");
-                }
+            String log = intent.getStringExtra("log");
+            if (log == null) return;
 
-                mainList.add(map);
-                if (pkgFilterList.isEmpty()) {
-                    if (!Helper.getText(binding.searchInput).isEmpty()) {
-                        if (map.get("logRaw").toString().toLowerCase().contains(Helper.getText(binding.searchInput).toLowerCase())) {
-                            ((Adapter) binding.logsRecyclerView.getAdapter()).updateList(map);
-                        }
-                    } else {
-                        ((Adapter) binding.logsRecyclerView.getAdapter()).updateList(map);
-                    }
-                } else if (map.containsKey("pkgName") && pkgFilterList.contains(map.get("pkgName").toString())) {
-                    if (!Helper.getText(binding.searchInput).isEmpty()) {
-                        if (map.get("logRaw").toString().toLowerCase().contains(Helper.getText(binding.searchInput).toLowerCase())) {
-                            ((Adapter) binding.logsRecyclerView.getAdapter()).updateList(map);
-                        }
-                    } else {
-                        ((Adapter) binding.logsRecyclerView.getAdapter()).updateList(map);
-                    }
-                }
+            String pkgName = intent.getStringExtra("packageName");
+            if (pkgName != null) {
+                packageName = pkgName;
+            }
+
+            LogEntry entry = logBuffer.add(pkgName, log);
+            adapter.removeOlderThan(logBuffer.getOldestSequence());
+            if (filter.matches(entry)) {
+                adapter.append(entry);
             }
         }
     }
 
     private class Adapter extends RecyclerView.Adapter<Adapter.ViewHolder> {
-        private final ArrayList<HashMap<String, Object>> data;
+        private LogBuffer.Ring<LogEntry> data = new LogBuffer.Ring<>();
 
-        public Adapter(ArrayList<HashMap<String, Object>> data) {
+        public void setData(LogBuffer.Ring<LogEntry> data) {
             this.data = data;
+            notifyDataSetChanged();
+            if (autoScroll && data.size() > 0) {
+                binding.logsRecyclerView.getLayoutManager().scrollToPosition(data.size() - 1);
+            }
+            binding.noContentLayout.setVisibility(data.size() == 0 ? View.VISIBLE : View.GONE);
         }
 
-        public void updateList(HashMap<String, Object> _map) {
-            data.add(_map);
-            binding.logsRecyclerView.getAdapter().notifyItemInserted(data.size() + 1);
+        public void append(LogEntry entry) {
+            data.addLast(entry);
+            notifyItemInserted(data.size() - 1);
+            if (data.size() > 1) {
+                // The previous line hides its header depending on the line after it
+                notifyItemChanged(data.size() - 2);
+            }
 
             if (autoScroll) {
                 binding.logsRecyclerView.getLayoutManager().scrollToPosition(data.size() - 1);
                 binding.appBarLayout.setExpanded(false);
             }
 
-            binding.noContentLayout.setVisibility(data.isEmpty() ? View.VISIBLE : View.GONE);
+            binding.noContentLayout.setVisibility(View.GONE);
+        }
+
+        /**
+         * Removes lines that got dropped from {@link LogBuffer}.
+         */
+        public void removeOlderThan(long sequence) {
+            int removed = 0;
+            while (data.size() > 0 && data.get(0).sequence() < sequence) {
+                data.removeFirst();
+                removed++;
+            }
+            if (removed > 0) {
+                notifyItemRangeRemoved(0, removed);
+                if (data.size() == 0) {
+                    binding.noContentLayout.setVisibility(View.VISIBLE);
+                }
+            }
         }
 
         public void deleteAll() {
+            int size = data.size();
             data.clear();
-            binding.logsRecyclerView.getAdapter().notifyDataSetChanged();
+            notifyItemRangeRemoved(0, size);
             binding.noContentLayout.setVisibility(View.VISIBLE);
         }
 
@@ -293,18 +389,20 @@ public class LogReaderActivity extends BaseAppCompatActivity {
         @Override
         public void onBindViewHolder(@NonNull ViewHolder holder, int position) {
             var binding = holder.listBinding;
+            LogEntry entry = data.get(position);
+            LogEntry next = position + 1 < data.size() ? data.get(position + 1) : null;
 
-            if (data.get(position).containsKey("pkgName")) {
-                binding.pkgName.setText(data.get(position).get("pkgName").toString());
+            if (entry.packageName() != null) {
+                binding.pkgName.setText(entry.packageName());
                 binding.pkgName.setVisibility(View.VISIBLE);
             } else {
                 binding.pkgName.setVisibility(View.GONE);
             }
-            if (data.get(position).containsKey("culturedLog")) {
+            if (entry.isParsed()) {
                 binding.dateHeader.setVisibility(View.VISIBLE);
-                binding.type.setText(data.get(position).get("type").toString());
-                binding.dateHeader.setText(data.get(position).get("date").toString() + " | " + data.get(position).get("header").toString());
-                switch (Objects.requireNonNull(data.get(position).get("type")).toString()) {
+                binding.type.setText(entry.level());
+                binding.dateHeader.setText(entry.date() + " | " + entry.header());
+                switch (entry.level()) {
                     case "A" -> binding.type.setBackgroundColor(0xFF9C27B0);
                     case "D" -> binding.type.setBackgroundColor(0xFF2196F3);
                     case "E" -> binding.type.setBackgroundColor(0xFFF44336);
@@ -316,40 +414,24 @@ public class LogReaderActivity extends BaseAppCompatActivity {
                         binding.type.setText("U");
                     }
                 }
-                binding.log.setText(data.get(position).get("body").toString());
-                try {
-                    if (data.get(position).get("date").toString().equals(data.get(position + 1).get("date").toString())) {
-//                        binding.divider.setVisibility(View.GONE);
-                        try {
-                            if (data.get(position).get("pkgName").toString().equals(data.get(position + 1).get("pkgName").toString())) {
-                                binding.pkgName.setVisibility(View.GONE);
-                            } else {
-                                binding.pkgName.setVisibility(View.VISIBLE);
-                            }
-                        } catch (Exception ignored) {
-                            binding.pkgName.setVisibility(View.VISIBLE);
-                        }
-                        try {
-                            if (data.get(position).get("header").toString().equals(data.get(position + 1).get("header").toString())) {
-                                binding.dateHeader.setVisibility(View.GONE);
-                            } else {
-                                binding.dateHeader.setVisibility(View.VISIBLE);
-                            }
-                        } catch (Exception ignored) {
-                            binding.dateHeader.setVisibility(View.VISIBLE);
-                        }
+                binding.log.setText(entry.body());
+                if (next != null && entry.date().equals(next.date())) {
+                    if (entry.packageName() != null && entry.packageName().equals(next.packageName())) {
+                        binding.pkgName.setVisibility(View.GONE);
+                    }
+                    if (entry.header().equals(next.header())) {
+                        binding.dateHeader.setVisibility(View.GONE);
                     }
-                } catch (Exception ignored) {
                 }
             } else {
-                binding.log.setText(data.get(position).get("logRaw").toString());
+                binding.log.setText(entry.raw());
                 binding.type.setBackgroundColor(0xFF000000);
                 binding.type.setText("U");
                 binding.dateHeader.setVisibility(View.GONE);
             }
             binding.getRoot().setOnLongClickListener(v -> {
                 SketchwareUtil.toast("Copied to clipboard");
-                ((ClipboardManager) getSystemService(Context.CLIPBOARD_SERVICE)).setPrimaryClip(ClipData.newPlainText("clipboard", data.get(position).get("logRaw").toString()));
+                ((ClipboardManager) getSystemService(Context.CLIPBOARD_SERVICE)).setPrimaryClip(ClipData.newPlainText("clipboard", entry.raw()));
                 return true;
             });
         }
@@ -6,7 +6,13 @@ import com.android.tools.r8.D8
 import com.android.tools.r8.D8Command
 import com.android.tools.r8.OutputMode
 import com.google.gson.Gson
+import dev.aldi.sayuti.editor.manage.LocalLibraryStore
+import kotlinx.coroutines.Dispatchers
+import kotlinx.coroutines.async
+import kotlinx.coroutines.awaitAll
 import kotlinx.coroutines.runBlocking
+import kotlinx.coroutines.sync.Semaphore
+import kotlinx.coroutines.sync.withPermit
 import mod.hey.studios.build.BuildSettings
 import mod.hey.studios.util.Helper
 import mod.jbk.build.BuiltInLibraries
@@ -16,8 +22,10 @@ import org.cosmic.ide.dependency.resolver.api.Repository
 import org.cosmic.ide.dependency.resolver.eventReciever
 import org.cosmic.ide.dependency.resolver.getArtifact
 import org.cosmic.ide.dependency.resolver.repositories
+import pro.sketchware.util.build.BuildCache
 import pro.sketchware.utility.FileUtil
 import java.io.File
+import java.io.IOException
 import java.nio.file.Files
 import java.nio.file.Path
 import java.nio.file.Paths
@@ -26,13 +34,23 @@ import java.util.zip.ZipFile
 import kotlin.io.path.readText
 import kotlin.io.path.writeText
 
-class DependencyResolver(
+class DependencyResolver internal constructor(
     private val groupId: String,
     private val artifactId: String,
     private val version: String,
     private val skipDependencies: Boolean,
-    private val buildSettings: BuildSettings
+    private val buildSettings: BuildSettings,
+    /** Jars to dex against as library, i.e. android.jar and lambda stubs */
+    private val libraryJars: List<Path>
 ) {
+    constructor(
+        groupId: String,
+        artifactId: String,
+        version: String,
+        skipDependencies: Boolean,
+        buildSettings: BuildSettings
+    ) : this(groupId, artifactId, version, skipDependencies, buildSettings, getLibraryJars(buildSettings))
+
     companion object {
         private val DEFAULT_REPOS = """
           |[
@@ -45,6 +63,20 @@ class DependencyResolver(
           |    {"url": "https://repo.maven.apache.org/maven2", "name": "Apache Maven"}
           |]
         """.trimMargin()
+
+        internal const val MAX_PARALLEL_DOWNLOADS = 4
+
+        private fun getLibraryJars(buildSettings: BuildSettings): List<Path> {
+            return listOf(
+                BuiltInLibraries.EXTRACTED_COMPILE_ASSETS_PATH.toPath().resolve("core-lambda-stubs.jar"),
+                Paths.get(
+                    buildSettings.getValue(
+                        BuildSettings.SETTING_ANDROID_JAR_PATH,
+                        BuiltInLibraries.EXTRACTED_COMPILE_ASSETS_PATH.resolve("android.jar").absolutePath
+                    )
+                )
+            )
+        }
     }
 
     private val downloadPath: String =
@@ -104,6 +136,15 @@ class DependencyResolver(
         open fun invalidPackaging(artifact: Artifact) {}
     }
 
+    /**
+     * Resolves the dependency and, unless [skipDependencies] is set, its whole dependency tree.
+     *
+     * Artifacts get downloaded and unzipped concurrently, at most [MAX_PARALLEL_DOWNLOADS] at a
+     * time. Once all of them are available, they get dexed on a pool of worker threads, each jar
+     * with all other resolved jars as classpath, and then put into the [LocalLibraryStore].
+     * Artifacts already in the store aren't downloaded again, and ones identical to a stored
+     * artifact reference its files instead of being extracted and dexed again.
+     */
     fun resolveDependency(callback: DependencyResolverCallback) = runBlocking {
         eventReciever = callback
         val dependency = getArtifact(groupId, artifactId, version) ?: return@runBlocking
@@ -113,15 +154,6 @@ class DependencyResolver(
             return@runBlocking
         }
 
-        val libraryJars = listOf(
-            BuiltInLibraries.EXTRACTED_COMPILE_ASSETS_PATH.toPath()
-                .resolve("core-lambda-stubs.jar"), Paths.get(
-                buildSettings.getValue(
-                    BuildSettings.SETTING_ANDROID_JAR_PATH,
-                    BuiltInLibraries.EXTRACTED_COMPILE_ASSETS_PATH.resolve("android.jar").absolutePath
-                )
-            )
-        )
         val dependencyClasspath = mutableListOf<Path>()
 
         val classpath = buildSettings.getValue(BuildSettings.SETTING_CLASSPATH, "")
@@ -131,120 +163,132 @@ class DependencyResolver(
             dependencyClasspath.add(Paths.get(it))
         }
 
-        dependency.downloadTo(
-            File(downloadPath + "/${dependency.artifactId}-v${dependency.version}/classes.${dependency.extension}")
-                .apply {
-                    parentFile?.mkdirs()
+        val artifacts = if (skipDependencies) {
+            callback.onSkippingResolution(dependency)
+            listOf(dependency)
+        } else {
+            dependency.resolveDependencyTree()
+            (listOf(dependency) + dependency.getAllDependencies().filter { dep ->
+                println("Resolving dependency: ${dep.artifactId} v${dep.version}")
+                if (dep.extension != "jar" && dep.extension != "aar") {
+                    callback.invalidPackaging(dep)
+                    false
+                } else if (dep.version.isEmpty()) {
+                    callback.onVersionNotFound(dep)
+                    false
+                } else {
+                    true
                 }
-        )
-
-        if (dependency.extension == "aar") {
-            callback.unzipping(dependency)
-            unzip(
-                Paths.get(
-                    downloadPath,
-                    "${dependency.artifactId}-v${dependency.version}",
-                    "classes.aar"
-                )
-            )
-            Files.delete(
-                Paths.get(
-                    downloadPath,
-                    "${dependency.artifactId}-v${dependency.version}",
-                    "classes.aar"
-                )
-            )
-            val packageName = findPackageName(
-                Paths.get(downloadPath, "${dependency.artifactId}-v${dependency.version}")
-                    .toAbsolutePath().toString(),
-                dependency.groupId
-            )
-            Paths.get(downloadPath, "${dependency.artifactId}-v${dependency.version}", "config")
-                .writeText(packageName)
-        }
-
-        val jar = Paths.get(
-            downloadPath,
-            "${dependency.artifactId}-v${dependency.version}",
-            "classes.jar"
-        )
-
-        callback.dexing(dependency)
-        try {
-            compileJar(jar, dependencyClasspath, libraryJars)
-            callback.onResolutionComplete(dependency)
-        } catch (e: Exception) {
-            callback.dexingFailed(dependency, e)
+            }).distinctBy { getLibraryName(it) }
         }
 
-        if (skipDependencies) {
-            callback.onSkippingResolution(dependency)
-            callback.onTaskCompleted(listOf("${dependency.artifactId}-v${dependency.version}"))
-            return@runBlocking
-        }
-        dependency.resolveDependencyTree()
+        val downloads = Semaphore(MAX_PARALLEL_DOWNLOADS)
+        val downloaded = artifacts.map { artifact ->
+            async(Dispatchers.IO) {
+                downloads.withPermit { download(artifact, callback) }
+            }
+        }.awaitAll().filterNotNull()
+        dependencyClasspath.addAll(downloaded.map { it.jar })
+
+        val dexWorkers = Semaphore(Runtime.getRuntime().availableProcessors())
+        val dexed = downloaded.map { library ->
+            async(Dispatchers.Default) {
+                if (library.sha256 == null) {
+                    callback.onResolutionComplete(library.artifact)
+                    return@async null
+                }
+                dexWorkers.withPermit {
+                    callback.dexing(library.artifact)
+                    try {
+                        compileJar(library.jar, dependencyClasspath.filter { it != library.jar }, libraryJars)
+                        library
+                    } catch (e: Exception) {
+                        callback.dexingFailed(library.artifact, e)
+                        null
+                    }
+                }
+            }
+        }.awaitAll().filterNotNull()
 
-        dependency.getAllDependencies().forEach { dep ->
-            println("Resolving dependency: ${dep.artifactId} v${dep.version}")
-            if (dep.extension != "jar" && dep.extension != "aar") {
-                callback.invalidPackaging(dep)
-                return@forEach
+        // Storing moves libraries' files, so only once no other library gets dexed against them
+        for (library in dexed) {
+            try {
+                LocalLibraryStore.put(getLibraryName(library.artifact), getCoordinates(library.artifact), library.sha256!!)
+                callback.onResolutionComplete(library.artifact)
+            } catch (e: IOException) {
+                callback.dexingFailed(library.artifact, e)
             }
+        }
 
-            if (dep.version.isEmpty()) {
-                callback.onVersionNotFound(dep)
-                return@forEach
+        callback.onTaskCompleted(
+            if (skipDependencies) {
+                listOf(getLibraryName(dependency))
+            } else {
+                dependency.getAllDependencies().map { getLibraryName(it) }
             }
+        )
+    }
 
-            val path = Paths.get(
-                downloadPath,
-                "${dep.artifactId}-v${dep.version}",
-                "classes.${dep.extension}"
-            )
+    private fun getLibraryName(artifact: Artifact): String {
+        return "${artifact.artifactId}-v${artifact.version}"
+    }
 
-            Files.createDirectories(path.parent)
+    private fun getCoordinates(artifact: Artifact): String {
+        return "${artifact.groupId}:${artifact.artifactId}:${artifact.version}"
+    }
 
-            dep.downloadTo(File(path.toString()))
+    /**
+     * Downloads an artifact to its library directory, unzipping it if it's an AAR. Nothing gets
+     * downloaded if the library is in the [LocalLibraryStore] already.
+     *
+     * @return The artifact's library, or `null` if it has no classes.jar
+     */
+    private suspend fun download(artifact: Artifact, callback: DependencyResolverCallback): DownloadedLibrary? {
+        val name = getLibraryName(artifact)
+        val path = Paths.get(downloadPath, name, "classes.${artifact.extension}")
+        val jar = path.parent.resolve("classes.jar")
+
+        if (LocalLibraryStore.isStored(name, getCoordinates(artifact))) {
+            callback.onSkippingResolution(artifact)
+            return DownloadedLibrary(artifact, getStoredJar(name), null)
+        }
 
-            if (dep.extension == "aar") {
-                callback.unzipping(dep)
-                unzip(path)
-                Files.delete(path)
-                val packageName =
-                    findPackageName(path.parent.toAbsolutePath().toString(), dep.groupId)
-                path.parent.resolve("config").writeText(packageName)
-            }
+        Files.createDirectories(path.parent)
 
-            val jar = if (dep.extension == "jar") path else Paths.get(
-                downloadPath, "${dep.artifactId}-v${dep.version}", "classes.jar"
-            )
-            if (Files.notExists(jar)) {
-                callback.onDependenciesNotFound(dep)
-                return@forEach
-            }
+        artifact.downloadTo(File(path.toString()))
 
-            dependencyClasspath.add(jar)
+        val sha256 = BuildCache.sha256(path.toFile())
+        if (LocalLibraryStore.hasBlob(sha256)) {
+            Files.delete(path)
+            LocalLibraryStore.put(name, getCoordinates(artifact), sha256)
+            return DownloadedLibrary(artifact, getStoredJar(name), null)
         }
 
-        dependency.getAllDependencies().forEach { dep ->
-            val jar = Paths.get(downloadPath, "${dep.artifactId}-v${dep.version}", "classes.jar")
+        if (artifact.extension == "aar") {
+            callback.unzipping(artifact)
+            unzip(path)
+            Files.delete(path)
+            val packageName =
+                findPackageName(path.parent.toAbsolutePath().toString(), artifact.groupId)
+            path.parent.resolve("config").writeText(packageName)
+        }
 
-            callback.dexing(dep)
-            try {
-                compileJar(
-                    jar, dependencyClasspath.toMutableList().apply { remove(jar) }, libraryJars
-                )
-                callback.onResolutionComplete(dep)
-            } catch (e: Exception) {
-                callback.dexingFailed(dep, e)
-                return@forEach
-            }
+        if (Files.notExists(jar)) {
+            callback.onDependenciesNotFound(artifact)
+            return null
         }
+        return DownloadedLibrary(artifact, jar, sha256)
+    }
 
-        callback.onTaskCompleted(
-            dependency.getAllDependencies().map { "${it.artifactId}-v${it.version}" })
+    private fun getStoredJar(name: String): Path {
+        return LocalLibraryStore.getContentDirectory(name).toPath().resolve("classes.jar")
     }
 
+    /**
+     * @param sha256 Hash of the downloaded artifact, `null` if the library is dexed already
+     */
+    private data class DownloadedLibrary(val artifact: Artifact, val jar: Path, val sha256: String?)
+
     private fun findPackageName(path: String, defaultValue: String): String {
         val manifest =
             File(path).walk().filter { it.isFile && it.name == "AndroidManifest.xml" }.firstOrNull()
@@ -0,0 +1,251 @@
+package pro.sketchware.activities.importicon;
+
+import android.util.Pair;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+
+import mod.jbk.util.LogUtil;
+import pro.sketchware.utility.FileUtil;
+
+/**
+ * Search index of the extracted icon pack, used by {@link ImportIconActivity}.
+ * <p>
+ * Listing the icon pack (one directory per icon, one SVG per style) is done only once per
+ * icon pack version, and the result persisted next to the icon pack. Searches then get answered
+ * by prefix lookup on name tokens for short queries, and by trigram lookup for longer ones.
+ * <p>
+ * The icon pack doesn't contain category metadata, so icons are indexed by name and styles only.
+ */
+public class IconIndex {
+
+    private static final String TAG = "IconIndex";
+    private static final String INDEX_FILE_NAME = "index.json";
+    private static final int TRIGRAM_LENGTH = 3;
+
+    private final File svgDirectory;
+    private final List<Icon> icons;
+    /**
+     * All distinct name tokens, sorted
+     */
+    private final String[] tokens;
+    /**
+     * Indices of icons containing each token of {@link #tokens}
+     */
+    private final int[][] tokenIcons;
+    /**
+     * Indices of icons whose name contains a trigram, ascending
+     */
+    private final Map<String, int[]> trigramIcons;
+
+    private IconIndex(File svgDirectory, List<Icon> icons) {
+        this.svgDirectory = svgDirectory;
+        this.icons = icons;
+
+        TreeMap<String, List<Integer>> iconsByToken = new TreeMap<>();
+        Map<String, List<Integer>> iconsByTrigram = new HashMap<>();
+        for (int i = 0; i < icons.size(); i++) {
+            Icon icon = icons.get(i);
+            for (String token : icon.tokens()) {
+                iconsByToken.computeIfAbsent(token, k -> new ArrayList<>()).add(i);
+            }
+            String name = icon.name().toLowerCase(Locale.ROOT);
+            for (int j = 0; j + TRIGRAM_LENGTH <= name.length(); j++) {
+                List<Integer> postings = iconsByTrigram.computeIfAbsent(name.substring(j, j + TRIGRAM_LENGTH), k -> new ArrayList<>());
+                if (postings.isEmpty() || postings.get(postings.size() - 1) != i) {
+                    postings.add(i);
+                }
+            }
+        }
+
+        tokens = iconsByToken.keySet().toArray(new String[0]);
+        tokenIcons = new int[tokens.length][];
+        for (int i = 0; i < tokens.length; i++) {
+            tokenIcons[i] = toArray(iconsByToken.get(tokens[i]));
+        }
+        trigramIcons = new HashMap<>(iconsByTrigram.size());
+        for (Map.Entry<String, List<Integer>> entry : iconsByTrigram.entrySet()) {
+            trigramIcons.put(entry.getKey(), toArray(entry.getValue()));
+        }
+    }
+
+    /**
+     * Loads the index of an extracted icon pack, building and persisting it first if the icon
+     * pack changed since it was last indexed.
+     *
+     * @param iconPackDirectory   Directory the icon pack got extracted to
+     * @param thumbnailsDirectory Directory of thumbnails rendered from the icon pack, gets deleted
+     *                            if the icon pack changed
+     */
+    public static IconIndex load(File iconPackDirectory, File thumbnailsDirectory) {
+        File svgDirectory = new File(iconPackDirectory, "svg");
+        File indexFile = new File(iconPackDirectory, INDEX_FILE_NAME);
+        // The directory's modification time changes whenever icons get added or removed
+        long version = svgDirectory.lastModified();
+
+        if (indexFile.isFile()) {
+            try {
+                PersistedIndex persisted = new Gson().fromJson(FileUtil.readFile(indexFile.getAbsolutePath()), PersistedIndex.class);
+                if (persisted != null && persisted.version == version && persisted.icons != null) {
+                    return new IconIndex(svgDirectory, persisted.icons);
+                }
+            } catch (JsonParseException e) {
+                LogUtil.w(TAG, "Failed to read icon index, rebuilding it", e);
+            }
+        }
+
+        List<Icon> icons = new ArrayList<>();
+        String[] iconNames = svgDirectory.list();
+        if (iconNames != null) {
+            Arrays.sort(iconNames);
+            for (String iconName : iconNames) {
+                String[] styleFiles = new File(svgDirectory, iconName).list();
+                if (styleFiles == null) continue;
+
+                List<String> styles = new ArrayList<>(styleFiles.length);
+                for (String styleFile : styleFiles) {
+                    if (styleFile.endsWith(".svg")) {
+                        styles.add(styleFile.substring(0, styleFile.length() - ".svg".length()));
+                    }
+                }
+                icons.add(new Icon(iconName, Arrays.asList(iconName.toLowerCase(Locale.ROOT).split("_")), styles));
+            }
+        }
+
+        FileUtil.deleteFile(thumbnailsDirectory.getAbsolutePath());
+        FileUtil.writeFile(indexFile.getAbsolutePath(), new Gson().toJson(new PersistedIndex(version, icons)));
+        return new IconIndex(svgDirectory, icons);
+    }
+
+    /**
+     * @return All icons available in <code>style</code>, as pairs of icon name and icon directory
+     */
+    public List<Pair<String, String>> getIcons(String style) {
+        List<Pair<String, String>> result = new ArrayList<>(icons.size());
+        for (Icon icon : icons) {
+            if (icon.styles().contains(style)) {
+                result.add(toPair(icon));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Searches icons available in <code>style</code> by name. Queries shorter than three characters
+     * match icons with a name token starting with the query, longer ones match icons whose name
+     * contains the query. Icons with a name token starting with the query are listed first.
+     *
+     * @return Matching icons, as pairs of icon name and icon directory
+     */
+    public List<Pair<String, String>> search(String query, String style) {
+        String normalizedQuery = query.trim().toLowerCase(Locale.ROOT).replace(' ', '_');
+        if (normalizedQuery.isEmpty()) {
+            return getIcons(style);
+        }
+
+        boolean[] prefixMatches = findTokenPrefixMatches(normalizedQuery);
+        List<Pair<String, String>> result = new ArrayList<>();
+        for (int i = 0; i < icons.size(); i++) {
+            if (prefixMatches[i] && icons.get(i).styles().contains(style)) {
+                result.add(toPair(icons.get(i)));
+            }
+        }
+
+        if (normalizedQuery.length() >= TRIGRAM_LENGTH) {
+            for (int i : findTrigramCandidates(normalizedQuery)) {
+                Icon icon = icons.get(i);
+                if (!prefixMatches[i] && icon.styles().contains(style) && icon.name().toLowerCase(Locale.ROOT).contains(normalizedQuery)) {
+                    result.add(toPair(icon));
+                }
+            }
+        }
+        return result;
+    }
+
+    private boolean[] findTokenPrefixMatches(String prefix) {
+        boolean[] matches = new boolean[icons.size()];
+        int index = Arrays.binarySearch(tokens, prefix);
+        for (int i = index >= 0 ? index : -index - 1; i < tokens.length && tokens[i].startsWith(prefix); i++) {
+            for (int icon : tokenIcons[i]) {
+                matches[icon] = true;
+            }
+        }
+        return matches;
+    }
+
+    /**
+     * @return Indices of icons whose name contains every trigram of <code>query</code>, ascending
+     */
+    private int[] findTrigramCandidates(String query) {
+        int[] candidates = null;
+        for (int i = 0; i + TRIGRAM_LENGTH <= query.length(); i++) {
+            int[] postings = trigramIcons.get(query.substring(i, i + TRIGRAM_LENGTH));
+            if (postings == null) {
+                return new int[0];
+            }
+            candidates = candidates == null ? postings : intersect(candidates, postings);
+            if (candidates.length == 0) break;
+        }
+        return candidates;
+    }
+
+    private static int[] intersect(int[] a, int[] b) {
+        int[] result = new int[Math.min(a.length, b.length)];
+        int count = 0;
+        for (int i = 0, j = 0; i < a.length && j < b.length; ) {
+            if (a[i] < b[j]) {
+                i++;
+            } else if (a[i] > b[j]) {
+                j++;
+            } else {
+                result[count++] = a[i];
+                i++;
+                j++;
+            }
+        }
+        return Arrays.copyOf(result, count);
+    }
+
+    private Pair<String, String> toPair(Icon icon) {
+        return new Pair<>(icon.name(), new File(svgDirectory, icon.name()).getAbsolutePath());
+    }
+
+    private static int[] toArray(List<Integer> list) {
+        int[] array = new int[list.size()];
+        for (int i = 0; i < array.length; i++) {
+            array[i] = list.get(i);
+        }
+        return array;
+    }
+
+    /**
+     * @param tokens Lowercase parts of the icon's name, split at underscores
+     * @param styles Styles the icon is available in, e.g. <code>round</code>
+     */
+    private record Icon(String name, List<String> tokens, List<String> styles) {
+        private Icon {
+            tokens = tokens != null ? tokens : Collections.emptyList();
+            styles = styles != null ? styles : Collections.emptyList();
+        }
+    }
+
+    private static class PersistedIndex {
+        private final long version;
+        private final List<Icon> icons;
+
+        private PersistedIndex(long version, List<Icon> icons) {
+            this.version = version;
+            this.icons = icons;
+        }
+    }
+}
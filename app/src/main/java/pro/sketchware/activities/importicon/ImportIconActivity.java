@@ -10,7 +10,6 @@ import android.graphics.PorterDuff;
 import android.net.Uri;
 import android.os.Bundle;
 import android.os.Handler;
-import android.util.Log;
 import android.util.Pair;
 import android.view.Gravity;
 import android.view.Menu;
@@ -31,15 +30,10 @@ import com.besome.sketch.lib.ui.ColorPickerDialog;
 import com.google.android.material.dialog.MaterialAlertDialogBuilder;
 
 import java.io.File;
-import java.io.IOException;
 import java.lang.ref.WeakReference;
-import java.nio.file.Files;
-import java.nio.file.Path;
-import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Objects;
-import java.util.stream.Stream;
 
 import a.a.a.KB;
 import a.a.a.MA;
@@ -92,6 +86,8 @@ public class ImportIconActivity extends BaseAppCompatActivity implements IconAda
     private int selected_color = Color.parseColor("#9E9E9E");
     private String selected_color_hex = "#9E9E9E";
     private int selectedIconPosition = -1;
+    private IconIndex iconIndex;
+    private String query = "";
     private List<Pair<String, String>> allIconPaths;
     private List<Pair<String, String>> icons;
     private int currentPage = 0;
@@ -144,7 +140,7 @@ public class ImportIconActivity extends BaseAppCompatActivity implements IconAda
         alreadyAddedImageNames = getIntent().getStringArrayListExtra("imageNames");
 
         binding.imageList.setLayoutManager(new GridLayoutManager(getBaseContext(), getGridLayoutColumnCount()));
-        adapter = new IconAdapter(this, selected_icon_type, selected_color, this);
+        adapter = new IconAdapter(this, getThumbnailsDirectory(), selected_icon_type, selected_color, this);
         binding.imageList.setAdapter(adapter);
         k();
 
@@ -216,24 +212,19 @@ public class ImportIconActivity extends BaseAppCompatActivity implements IconAda
         new IconColorChangedIconLoader(this).execute();
     }
 
+    private File getThumbnailsDirectory() {
+        return new File(getCacheDir(), "icon_thumbnails");
+    }
+
     private void listIcons() {
-        allIconPaths = new ArrayList<>();
-
-        String iconPackStoreLocation = wq.getExtractedIconPackStoreLocation() + File.separator + "svg/";
-        try (Stream<Path> iconFiles = Files.list(Paths.get(iconPackStoreLocation))) {
-            iconFiles.map(Path::getFileName)
-                    .map(Path::toString)
-                    .forEach(folderName -> allIconPaths.add(new Pair<>(
-                            folderName,
-                            Paths.get(iconPackStoreLocation, folderName).toString()
-                    )));
-        } catch (IOException e) {
-            e.printStackTrace();
+        if (iconIndex == null) {
+            iconIndex = IconIndex.load(new File(wq.getExtractedIconPackStoreLocation()), getThumbnailsDirectory());
         }
+        allIconPaths = iconIndex.getIcons(selected_icon_type);
 
         icons = new ArrayList<>();
         currentPage = 0; // Reset currentPage to zero
-        Log.d("icons", allIconPaths.toString());
+        isLastPage = false;
         runOnUiThread(this::loadMoreItems);
     }
 
@@ -256,21 +247,20 @@ public class ImportIconActivity extends BaseAppCompatActivity implements IconAda
 
 
     private void filterIcons(String query) {
+        this.query = query;
+        if (iconIndex == null) return;
+
         if (query.isEmpty()) {
             icons.clear();
             currentPage = 0;
+            isLastPage = false;
             loadMoreItems();
             return;
         }
 
-        var filteredIcons = new ArrayList<Pair<String, String>>(allIconPaths.size());
-        for (Pair<String, String> icon : allIconPaths) {
-            if (icon.first.toLowerCase().contains(query.toLowerCase())) {
-                filteredIcons.add(icon);
-            }
-        }
         icons.clear();
-        icons.addAll(filteredIcons);
+        icons.addAll(iconIndex.search(query, selected_icon_type));
+        isLastPage = true;
         adapter.submitList(new ArrayList<>(icons));
     }
 
@@ -390,6 +380,11 @@ public class ImportIconActivity extends BaseAppCompatActivity implements IconAda
         selected_icon_type = type;
         adapter.setSelectedIconType(selected_icon_type);
         adapter.notifyDataSetChanged();
+        if (iconIndex != null) {
+            // Not every icon is available in every style
+            allIconPaths = iconIndex.getIcons(selected_icon_type);
+            filterIcons(query);
+        }
     }
 
     private void showSaveDialog(int iconPosition) {
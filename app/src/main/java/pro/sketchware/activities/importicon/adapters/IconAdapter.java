@@ -31,13 +31,18 @@ public class IconAdapter extends ListAdapter<Pair<String, String>, IconAdapter.V
     };
 
     private final SvgUtils svgUtils;
+    private final File thumbnailsDirectory;
     private final OnIconSelectedListener listener;
     private String selected_icon_type;
     private int selected_color;
 
-    public IconAdapter(Context context, String selected_icon_type, int selected_color, OnIconSelectedListener listener) {
+    /**
+     * @param thumbnailsDirectory Directory to cache rendered icons in
+     */
+    public IconAdapter(Context context, File thumbnailsDirectory, String selected_icon_type, int selected_color, OnIconSelectedListener listener) {
         super(DIFF_CALLBACK);
         svgUtils = new SvgUtils(context);
+        this.thumbnailsDirectory = thumbnailsDirectory;
         this.selected_icon_type = selected_icon_type;
         this.selected_color = selected_color;
         this.listener = listener;
@@ -54,7 +59,8 @@ public class IconAdapter extends ListAdapter<Pair<String, String>, IconAdapter.V
     @Override
     public void onBindViewHolder(@NonNull ViewHolder holder, int position) {
         String filePath = getItem(position).second + File.separator + selected_icon_type + ".svg";
-        svgUtils.loadImage(holder.itemBinding.img, filePath);
+        File thumbnail = new File(thumbnailsDirectory, selected_icon_type + File.separator + getItem(position).first + ".png");
+        svgUtils.loadThumbnail(holder.itemBinding.img, filePath, thumbnail);
         holder.itemBinding.img.setColorFilter(selected_color, PorterDuff.Mode.SRC_IN);
         holder.itemBinding.title.setText(getItem(position).first);
     }
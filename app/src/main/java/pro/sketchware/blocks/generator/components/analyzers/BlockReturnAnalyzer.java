@@ -1,28 +1,65 @@
 package pro.sketchware.blocks.generator.components.analyzers;
 
-import com.github.javaparser.StaticJavaParser;
+import com.github.javaparser.JavaParser;
+import com.github.javaparser.ParseResult;
+import com.github.javaparser.ParserConfiguration;
 import com.github.javaparser.ast.stmt.*;
 
-import java.util.Arrays;
-import java.util.List;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
 
 public class BlockReturnAnalyzer { // Taken from JavaCode2Blocks PR #1641
 
-    private static final List<Class<?>> SUPPORTED_STATEMENTS = Arrays.asList(
+    private static final Set<Class<?>> SUPPORTED_STATEMENTS = Set.of(
             ReturnStmt.class,
             BreakStmt.class,
             IfStmt.class,
             SwitchStmt.class,
             BlockStmt.class
     );
+    private static final int MAX_CACHED_RESULTS = 256;
+
+    /**
+     * Parsers are reused, but aren't safe to share between threads
+     */
+    private static final ThreadLocal<JavaParser> PARSER = ThreadLocal.withInitial(() ->
+            new JavaParser(new ParserConfiguration()));
+    /**
+     * Results by event code, as generating and previewing sources analyzes the same, mostly
+     * unchanged event code over and over again
+     */
+    private static final Map<String, Boolean> CACHED_RESULTS = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Boolean> eldest) {
+            return size() > MAX_CACHED_RESULTS;
+        }
+    };
 
     private boolean hasAnyMissingReturn(Statement stmt) {
         return !alwaysReturns(stmt);
     }
 
     public boolean hasAnyMissingReturn(String eventCode) {
+        synchronized (CACHED_RESULTS) {
+            Boolean cached = CACHED_RESULTS.get(eventCode);
+            if (cached != null) return cached;
+        }
+
+        boolean missingReturn = analyze(eventCode);
+        synchronized (CACHED_RESULTS) {
+            CACHED_RESULTS.put(eventCode, missingReturn);
+        }
+        return missingReturn;
+    }
+
+    private boolean analyze(String eventCode) {
         try {
-            BlockStmt body = StaticJavaParser.parseBlock("{" + eventCode + "}");
+            ParseResult<BlockStmt> result = PARSER.get().parseBlock("{" + eventCode + "}");
+            if (!result.isSuccessful() || result.getResult().isEmpty()) {
+                return false;
+            }
+            BlockStmt body = result.getResult().get();
             for (Statement statement : body.getStatements()) {
                 if (!SUPPORTED_STATEMENTS.contains(statement.getClass())) {
                     return false;
@@ -29,6 +29,7 @@ import dev.pranav.filepicker.FilePickerCallback;
 import dev.pranav.filepicker.FilePickerDialogFragment;
 import dev.pranav.filepicker.FilePickerOptions;
 import mod.hey.studios.util.Helper;
+import mod.hilal.saif.events.EventsHandler;
 import pro.sketchware.R;
 import pro.sketchware.databinding.DialogAddNewListenerBinding;
 import pro.sketchware.databinding.FragmentEventsManagerBinding;
@@ -221,8 +222,10 @@ public class EventsManagerFragment extends qA {
         }
         events.addAll(data2);
         FileUtil.writeFile(EventsManagerConstants.EVENTS_FILE.getAbsolutePath(), new Gson().toJson(events));
+        EventsHandler.refreshCachedCustomEvents();
         listMap.addAll(data);
         FileUtil.writeFile(EventsManagerConstants.LISTENERS_FILE.getAbsolutePath(), new Gson().toJson(listMap));
+        EventsHandler.refreshCachedCustomListeners();
         refreshList();
         SketchwareUtil.toast("Successfully imported events");
     }
@@ -259,12 +262,14 @@ public class EventsManagerFragment extends qA {
 
     private void addListenerItem() {
         FileUtil.writeFile(EventsManagerConstants.LISTENERS_FILE.getAbsolutePath(), new Gson().toJson(listMap));
+        EventsHandler.refreshCachedCustomListeners();
         refreshList();
     }
 
     private void deleteItem(int position) {
         listMap.remove(position);
         FileUtil.writeFile(EventsManagerConstants.LISTENERS_FILE.getAbsolutePath(), new Gson().toJson(listMap));
+        EventsHandler.refreshCachedCustomListeners();
         refreshList();
     }
 
@@ -280,6 +285,7 @@ public class EventsManagerFragment extends qA {
             }
         }
         FileUtil.writeFile(EventsManagerConstants.EVENTS_FILE.getAbsolutePath(), new Gson().toJson(events));
+        EventsHandler.refreshCachedCustomEvents();
     }
 
     public class ListenersAdapter extends RecyclerView.Adapter<ListenersAdapter.ViewHolder> {
@@ -19,6 +19,7 @@ import java.util.HashMap;
 import a.a.a.qA;
 import mod.hey.studios.util.Helper;
 import mod.hilal.saif.activities.tools.IconSelectorDialog;
+import mod.hilal.saif.events.EventsHandler;
 import mod.jbk.util.OldResourceIdMapper;
 import pro.sketchware.R;
 import pro.sketchware.databinding.FragmentEventsManagerCreatorBinding;
@@ -189,6 +190,7 @@ public class EventsManagerCreatorFragment extends qA {
             arrayList.add(hashMap);
         }
         FileUtil.writeFile(concat, getGson().toJson(arrayList));
+        EventsHandler.refreshCachedCustomEvents();
         SketchwareUtil.toast("Saved");
         getParentFragmentManager().popBackStack();
     }
@@ -21,6 +21,7 @@ import java.util.HashMap;
 
 import a.a.a.qA;
 import mod.hey.studios.util.Helper;
+import mod.hilal.saif.events.EventsHandler;
 import mod.jbk.util.OldResourceIdMapper;
 import pro.sketchware.R;
 import pro.sketchware.databinding.FragmentEventsManagerDetailsBinding;
@@ -150,6 +151,7 @@ public class EventsManagerDetailsFragment extends qA {
             }
             events.addAll(listMap);
             FileUtil.writeFile(EventsManagerConstants.EVENTS_FILE.getAbsolutePath(), getGson().toJson(events));
+            EventsHandler.refreshCachedCustomEvents();
             refreshList();
         }
     }
@@ -0,0 +1,223 @@
+package pro.sketchware.lib.highlighter;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * A line-based lexer for Java source code, used by {@link SimpleHighlighter}.
+ * <p>
+ * Lines get lexed one at a time, starting in the state the previous line ended in. The only
+ * state that can carry over from one line to the next is being inside a block comment, so after
+ * an edit, re-lexing can stop at the first unchanged line that starts in the same state as before.
+ * <p>
+ * Doesn't depend on Android classes, so it can be run and benchmarked on a plain JVM.
+ */
+public class JavaLexer {
+
+    public static final int STATE_DEFAULT = 0;
+    public static final int STATE_BLOCK_COMMENT = 1;
+
+    /**
+     * Method calls and common method names, e.g. <code>println</code>
+     */
+    public static final int TOKEN_METHOD = 0;
+    public static final int TOKEN_KEYWORD = 1;
+    public static final int TOKEN_NUMBER = 2;
+    /**
+     * Operators, brackets and other punctuation
+     */
+    public static final int TOKEN_OPERATOR = 3;
+    /**
+     * Identifiers starting with an uppercase letter, usually types
+     */
+    public static final int TOKEN_TYPE = 4;
+    public static final int TOKEN_ANNOTATION = 5;
+    public static final int TOKEN_STRING = 6;
+    public static final int TOKEN_COMMENT = 7;
+    public static final int TOKEN_TYPE_COUNT = 8;
+
+    private static final Set<String> KEYWORDS = new HashSet<>(Arrays.asList(
+            "abstract", "assert", "boolean", "break", "byte", "case", "catch", "char", "class",
+            "const", "continue", "default", "do", "double", "else", "enum", "extends", "final",
+            "finally", "float", "for", "goto", "if", "implements", "import", "instanceof", "int",
+            "interface", "long", "native", "new", "onCreate", "package", "private", "protected",
+            "public", "return", "short", "static", "strictfp", "super", "switch", "synchronized",
+            "this", "throw", "throws", "transient", "try", "void", "volatile", "while", "true",
+            "false", "null"));
+
+    private static final Set<String> METHOD_NAMES = new HashSet<>(Arrays.asList(
+            "out", "print", "println", "printf", "valueOf", "toString", "concat", "equals",
+            "getText", "parseInt", "round", "sqrt", "charAt", "compareTo",
+            "compareToIgnoreCase", "contains", "contentEquals", "length", "toLowerCase", "trim",
+            "toUpperCase", "substring", "startsWith", "split", "replace", "replaceAll",
+            "lastIndexOf", "size"));
+
+    /**
+     * Lexes one line.
+     *
+     * @param text     The text the line is part of
+     * @param start    The line's start offset in <code>text</code>
+     * @param end      The line's end offset, exclusive and without the line break
+     * @param state    The state the previous line ended in
+     * @param consumer Receives every token that should get highlighted
+     * @return The state the line ends in
+     */
+    public static int lexLine(CharSequence text, int start, int end, int state, TokenConsumer consumer) {
+        int i = start;
+        if (state == STATE_BLOCK_COMMENT) {
+            int commentEnd = findBlockCommentEnd(text, i, end);
+            if (commentEnd == -1) {
+                if (end > i) consumer.onToken(TOKEN_COMMENT, i, end);
+                return STATE_BLOCK_COMMENT;
+            }
+            consumer.onToken(TOKEN_COMMENT, i, commentEnd);
+            i = commentEnd;
+        }
+
+        while (i < end) {
+            char c = text.charAt(i);
+            if (Character.isWhitespace(c)) {
+                i++;
+            } else if (c == '/' && i + 1 < end && text.charAt(i + 1) == '/') {
+                consumer.onToken(TOKEN_COMMENT, i, end);
+                return STATE_DEFAULT;
+            } else if (c == '/' && i + 1 < end && text.charAt(i + 1) == '*') {
+                int commentEnd = findBlockCommentEnd(text, i + 2, end);
+                if (commentEnd == -1) {
+                    consumer.onToken(TOKEN_COMMENT, i, end);
+                    return STATE_BLOCK_COMMENT;
+                }
+                consumer.onToken(TOKEN_COMMENT, i, commentEnd);
+                i = commentEnd;
+            } else if (c == '"' || c == '\'') {
+                int literalEnd = findQuoteEnd(text, i + 1, end, c);
+                consumer.onToken(TOKEN_STRING, i, literalEnd);
+                i = literalEnd;
+            } else if (c == '@' && i + 1 < end && isWordChar(text.charAt(i + 1))) {
+                int wordEnd = findWordEnd(text, i + 1, end);
+                consumer.onToken(TOKEN_ANNOTATION, i, wordEnd);
+                i = wordEnd;
+            } else if (isWordChar(c)) {
+                int wordEnd = findWordEnd(text, i, end);
+                boolean followedByParenthesis = wordEnd < end && text.charAt(wordEnd) == '(';
+                int type = getWordType(text, i, wordEnd, followedByParenthesis);
+                if (type != -1) consumer.onToken(type, i, wordEnd);
+                i = wordEnd;
+                if (followedByParenthesis) {
+                    // Opening parentheses of calls are part of the call, not operators
+                    int parenthesesEnd = i;
+                    while (parenthesesEnd < end && text.charAt(parenthesesEnd) == '(') {
+                        parenthesesEnd++;
+                    }
+                    consumer.onToken(TOKEN_METHOD, i, parenthesesEnd);
+                    i = parenthesesEnd;
+                }
+            } else {
+                int operatorEnd = i + 1;
+                while (operatorEnd < end && isOperatorChar(text, operatorEnd, end)) {
+                    operatorEnd++;
+                }
+                consumer.onToken(TOKEN_OPERATOR, i, operatorEnd);
+                i = operatorEnd;
+            }
+        }
+        return STATE_DEFAULT;
+    }
+
+    private static int getWordType(CharSequence text, int start, int end, boolean followedByParenthesis) {
+        char first = text.charAt(start);
+        if (first >= 'A' && first <= 'Z' && end - start > 1 && isAlphanumeric(text, start + 1, end)) {
+            return TOKEN_TYPE;
+        }
+        if (followedByParenthesis) {
+            return TOKEN_METHOD;
+        }
+        if (first >= '0' && first <= '9') {
+            return isNumber(text, start, end) ? TOKEN_NUMBER : -1;
+        }
+
+        String word = text.subSequence(start, end).toString();
+        if (KEYWORDS.contains(word)) {
+            return TOKEN_KEYWORD;
+        }
+        return METHOD_NAMES.contains(word) ? TOKEN_METHOD : -1;
+    }
+
+    private static boolean isNumber(CharSequence text, int start, int end) {
+        if (end - start >= 8 && end - start <= 10 && text.charAt(start) == '0' && text.charAt(start + 1) == 'x') {
+            for (int i = start + 2; i < end; i++) {
+                char c = text.charAt(i);
+                if (!(c >= '0' && c <= '9') && !(c >= 'a' && c <= 'f')) return false;
+            }
+            return true;
+        }
+        for (int i = start; i < end; i++) {
+            char c = text.charAt(i);
+            if (c < '0' || c > '9') return false;
+        }
+        return true;
+    }
+
+    private static boolean isAlphanumeric(CharSequence text, int start, int end) {
+        for (int i = start; i < end; i++) {
+            char c = text.charAt(i);
+            if (c == '_' || !Character.isLetterOrDigit(c)) return false;
+        }
+        return true;
+    }
+
+    private static boolean isWordChar(char c) {
+        return c == '_' || Character.isLetterOrDigit(c);
+    }
+
+    private static boolean isOperatorChar(CharSequence text, int index, int end) {
+        char c = text.charAt(index);
+        if (isWordChar(c) || Character.isWhitespace(c) || c == '"' || c == '\'' || c == '@') return false;
+        // Comments start new tokens
+        return c != '/' || index + 1 >= end || (text.charAt(index + 1) != '/' && text.charAt(index + 1) != '*');
+    }
+
+    private static int findWordEnd(CharSequence text, int start, int end) {
+        int i = start;
+        while (i < end && isWordChar(text.charAt(i))) {
+            i++;
+        }
+        return i;
+    }
+
+    /**
+     * @return The offset after the closing quote, or <code>end</code> if the literal is unterminated
+     */
+    private static int findQuoteEnd(CharSequence text, int start, int end, char quote) {
+        int i = start;
+        while (i < end) {
+            char c = text.charAt(i);
+            if (c == '\\') {
+                i += 2;
+            } else if (c == quote) {
+                return i + 1;
+            } else {
+                i++;
+            }
+        }
+        return end;
+    }
+
+    /**
+     * @return The offset after the closing <code>*&#47;</code>, or -1 if the comment doesn't end
+     * on this line
+     */
+    private static int findBlockCommentEnd(CharSequence text, int start, int end) {
+        for (int i = start; i + 1 < end; i++) {
+            if (text.charAt(i) == '*' && text.charAt(i + 1) == '/') {
+                return i + 2;
+            }
+        }
+        return -1;
+    }
+
+    public interface TokenConsumer {
+        void onToken(int type, int start, int end);
+    }
+}
@@ -1,69 +1,190 @@
 package pro.sketchware.lib.highlighter;
 
+import android.graphics.Color;
 import android.text.Editable;
 import android.text.Spanned;
 import android.text.TextWatcher;
-import android.text.style.CharacterStyle;
 import android.text.style.ForegroundColorSpan;
 import android.widget.EditText;
 
 import com.besome.sketch.editor.LogicEditorActivity;
 
-import java.util.List;
-import java.util.regex.Matcher;
+import java.util.Arrays;
+
+import pro.sketchware.SketchApplication;
+import pro.sketchware.utility.ThemeUtils;
 
 /**
  * A Helper class used in {@link LogicEditorActivity}
  * to (currently) highlight add source directly blocks.
+ * <p>
+ * Text gets lexed line by line with {@link JavaLexer}, remembering the lexer state every line
+ * starts in. After an edit, only lines from the first edited one on get re-lexed, up to the first
+ * line after the edit that starts in the same state as before, and only their spans get replaced.
  */
 public class SimpleHighlighter {
 
     private final EditText mEditor;
-    private final List<SyntaxScheme> syntaxList;
+    private final int[] colors = new int[JavaLexer.TOKEN_TYPE_COUNT];
+
+    /**
+     * Start offset of every line
+     */
+    private int[] lineStarts = new int[64];
+    /**
+     * Lexer state every line starts in
+     */
+    private int[] lineStates = new int[64];
+    private int lineCount;
+
+    private int removedLength;
+    private int removedLineBreaks;
+    private int editStart;
+    private int editEnd;
+    private int addedLineBreaks;
 
     public SimpleHighlighter(EditText editor) {
         mEditor = editor;
-        syntaxList = SyntaxScheme.JAVA();
+        initializeColors();
         init();
     }
 
+    private void initializeColors() {
+        boolean isDarkMode = ThemeUtils.isDarkThemeEnabled(SketchApplication.getContext());
+        colors[JavaLexer.TOKEN_METHOD] = getColor(SyntaxScheme.PRIMARY_COLOR_LIGHT, SyntaxScheme.PRIMARY_COLOR_DARK, isDarkMode);
+        colors[JavaLexer.TOKEN_KEYWORD] = getColor(SyntaxScheme.SECONDARY_COLOR_LIGHT, SyntaxScheme.SECONDARY_COLOR_DARK, isDarkMode);
+        colors[JavaLexer.TOKEN_NUMBER] = getColor(SyntaxScheme.NUMBERS_COLOR_LIGHT, SyntaxScheme.NUMBERS_COLOR_DARK, isDarkMode);
+        colors[JavaLexer.TOKEN_OPERATOR] = getColor(SyntaxScheme.NOT_WORD_COLOR_LIGHT, SyntaxScheme.NOT_WORD_COLOR_DARK, isDarkMode);
+        colors[JavaLexer.TOKEN_TYPE] = getColor(SyntaxScheme.VARIABLE_COLOR_LIGHT, SyntaxScheme.VARIABLE_COLOR_DARK, isDarkMode);
+        colors[JavaLexer.TOKEN_ANNOTATION] = getColor(SyntaxScheme.ANNOTATION_COLOR_LIGHT, SyntaxScheme.ANNOTATION_COLOR_DARK, isDarkMode);
+        colors[JavaLexer.TOKEN_STRING] = getColor(SyntaxScheme.QUOTES_COLOR_LIGHT, SyntaxScheme.QUOTES_COLOR_DARK, isDarkMode);
+        colors[JavaLexer.TOKEN_COMMENT] = getColor(SyntaxScheme.COMMENTS_COLOR_LIGHT, SyntaxScheme.COMMENTS_COLOR_DARK, isDarkMode);
+    }
+
+    private static int getColor(String lightColor, String darkColor, boolean isDarkMode) {
+        return Color.parseColor(isDarkMode ? darkColor : lightColor);
+    }
+
     private void init() {
-        removeSpans(mEditor.getText(), ForegroundColorSpan.class);
-        createHighlightSpans(syntaxList, mEditor.getText());
+        highlightAll(mEditor.getText());
 
         mEditor.addTextChangedListener(new TextWatcher() {
             @Override
             public void beforeTextChanged(CharSequence s, int start, int count, int after) {
+                removedLength = count;
+                removedLineBreaks = countLineBreaks(s, start, start + count);
             }
 
             @Override
             public void onTextChanged(CharSequence s, int start, int before, int count) {
+                editStart = start;
+                editEnd = start + count;
+                addedLineBreaks = countLineBreaks(s, start, editEnd);
             }
 
             @Override
             public void afterTextChanged(Editable s) {
-                removeSpans(s, ForegroundColorSpan.class);
-                createHighlightSpans(syntaxList, s);
+                highlightEdit(s);
             }
         });
     }
 
-    private void createHighlightSpans(List<SyntaxScheme> syntaxList, Editable editable) {
-        for (SyntaxScheme scheme : syntaxList) {
-            for (Matcher m = scheme.pattern.matcher(editable); m.find(); ) {
-                if (scheme == scheme.getPrimarySyntax()) {
-                    editable.setSpan(new ForegroundColorSpan(scheme.color), m.start(), m.end() - 1, Spanned.SPAN_EXCLUSIVE_EXCLUSIVE);
-                } else {
-                    editable.setSpan(new ForegroundColorSpan(scheme.color), m.start(), m.end(), Spanned.SPAN_EXCLUSIVE_EXCLUSIVE);
-                }
+    private void highlightAll(Editable editable) {
+        for (ForegroundColorSpan span : editable.getSpans(0, editable.length(), ForegroundColorSpan.class)) {
+            editable.removeSpan(span);
+        }
+
+        lineCount = 1;
+        lineStarts[0] = 0;
+        lineStates[0] = JavaLexer.STATE_DEFAULT;
+        for (int i = 0; i < editable.length(); i++) {
+            if (editable.charAt(i) == '\n') {
+                ensureLineCapacity(lineCount + 1);
+                lineStarts[lineCount++] = i + 1;
+            }
+        }
+        relex(editable, 0, lineCount - 1);
+    }
+
+    private void highlightEdit(Editable editable) {
+        int firstLine = findLine(editStart);
+
+        // Update line table: drop removed lines, make room for added ones, shift the rest
+        int delta = addedLineBreaks - removedLineBreaks;
+        int followingLine = firstLine + 1 + removedLineBreaks;
+        int followingLines = lineCount - followingLine;
+        ensureLineCapacity(lineCount + delta);
+        System.arraycopy(lineStarts, followingLine, lineStarts, followingLine + delta, followingLines);
+        System.arraycopy(lineStates, followingLine, lineStates, followingLine + delta, followingLines);
+        lineCount += delta;
+
+        int line = firstLine;
+        for (int i = editStart; i < editEnd; i++) {
+            if (editable.charAt(i) == '\n') {
+                lineStarts[++line] = i + 1;
+            }
+        }
+        int lengthDelta = editEnd - editStart - removedLength;
+        for (int i = firstLine + 1 + addedLineBreaks; i < lineCount; i++) {
+            lineStarts[i] += lengthDelta;
+        }
+
+        relex(editable, firstLine, firstLine + addedLineBreaks);
+    }
+
+    /**
+     * Re-lexes lines from <code>firstLine</code> on, until a line after <code>lastDamagedLine</code>
+     * starts in the same state it did before.
+     */
+    private void relex(Editable editable, int firstLine, int lastDamagedLine) {
+        JavaLexer.TokenConsumer consumer = (type, start, end) ->
+                editable.setSpan(new ForegroundColorSpan(colors[type]), start, end, Spanned.SPAN_EXCLUSIVE_EXCLUSIVE);
+
+        int state = lineStates[firstLine];
+        for (int line = firstLine; line < lineCount; ) {
+            int start = lineStarts[line];
+            int end = line + 1 < lineCount ? lineStarts[line + 1] - 1 : editable.length();
+            removeSpans(editable, start, end);
+            state = JavaLexer.lexLine(editable, start, end, state, consumer);
+
+            if (++line < lineCount) {
+                if (line > lastDamagedLine && lineStates[line] == state) break;
+                lineStates[line] = state;
             }
         }
     }
 
-    private void removeSpans(Editable editable, Class<? extends CharacterStyle> type) {
-        CharacterStyle[] spans = editable.getSpans(0, editable.length(), type);
-        for (CharacterStyle span : spans) {
+    private static void removeSpans(Editable editable, int start, int end) {
+        for (ForegroundColorSpan span : editable.getSpans(start, end, ForegroundColorSpan.class)) {
+            int spanStart = editable.getSpanStart(span);
+            int spanEnd = editable.getSpanEnd(span);
+            // Keep spans of the previous line that merely touch this one
+            if (spanEnd == start && spanStart < start) continue;
             editable.removeSpan(span);
         }
     }
+
+    /**
+     * @return The line containing an offset, going by line starts from before the current edit
+     */
+    private int findLine(int offset) {
+        int index = Arrays.binarySearch(lineStarts, 0, lineCount, offset);
+        return index >= 0 ? index : -index - 2;
+    }
+
+    private void ensureLineCapacity(int capacity) {
+        if (capacity > lineStarts.length) {
+            int newCapacity = Math.max(capacity, lineStarts.length * 2);
+            lineStarts = Arrays.copyOf(lineStarts, newCapacity);
+            lineStates = Arrays.copyOf(lineStates, newCapacity);
+        }
+    }
+
+    private static int countLineBreaks(CharSequence text, int start, int end) {
+        int count = 0;
+        for (int i = start; i < end; i++) {
+            if (text.charAt(i) == '\n') count++;
+        }
+        return count;
+    }
 }
@@ -1,11 +1,8 @@
 package pro.sketchware.tools;
 
-import static pro.sketchware.SketchApplication.getContext;
 import static pro.sketchware.utility.PropertiesUtil.parseReferName;
 
 import android.util.Pair;
-import android.view.View;
-import android.view.ViewGroup;
 
 import androidx.annotation.NonNull;
 
@@ -31,11 +28,13 @@ import java.util.Set;
 import java.util.Stack;
 
 import a.a.a.wq;
-import pro.sketchware.utility.InvokeUtil;
 
 public class ViewBeanParser {
 
-    private static final int[] viewsCount = new int[49];
+    /**
+     * Last number used in generated IDs, per ID prefix. Reset for every {@link #parse()}.
+     */
+    private final Map<String, Integer> idCounters = new HashMap<>();
     private final XmlPullParser parser;
     private boolean skipRoot;
     private Pair<String, Map<String, String>> rootAttributes;
@@ -55,7 +54,7 @@ public class ViewBeanParser {
         parser.setInput(reader);
     }
 
-    public static String generateUniqueId(Set<String> ids, int type, String className) {
+    private String generateUniqueId(Set<String> ids, int type, String className) {
         String prefix = wq.b(type);
         var name = ViewBean.getViewTypeName(type);
         // Skip these types as they're the only ones with a different view type name: VScrollView
@@ -71,13 +70,12 @@ public class ViewBeanParser {
                 prefix = getSnakeCaseId(className);
             }
         }
-        int count = ++viewsCount[type];
-        String id = prefix + count;
-
-        while (ids.contains(id)) {
-            count = ++viewsCount[type];
-            id = prefix + count;
-        }
+        int count = idCounters.getOrDefault(prefix, 0);
+        String id;
+        do {
+            id = prefix + ++count;
+        } while (ids.contains(id));
+        idCounters.put(prefix, count);
 
         return id;
     }
@@ -124,18 +122,13 @@ public class ViewBeanParser {
         // Special case for other views that can be considered built-in views by type
         var type = ViewBeanFactory.getConsideredTypeViewByName(getNameFromTag(tag), defaultType);
         if (type == ViewBean.VIEW_TYPE_LAYOUT_LINEAR) {
-            var view = InvokeUtil.createView(getContext(), tag);
-            if (view != null) {
-                Class<?> clazz = view.getClass();
-                Class<?> viewClazz = View.class.getSuperclass();
-                while (clazz != viewClazz) {
-                    var className = clazz.getSimpleName();
-                    if ("View".equals(className) || "LinearLayout".equals(className)) {
-                        break;
-                    }
-                    type = ViewBean.getViewTypeByTypeName(className);
-                    clazz = clazz.getSuperclass();
+            // Walk up the class hierarchy, the built-in type is the one of the class right below
+            // View or LinearLayout
+            for (String className = getNameFromTag(tag); className != null; className = ViewClassHierarchy.getSuperclass(className)) {
+                if ("View".equals(className) || "LinearLayout".equals(className)) {
+                    break;
                 }
+                type = ViewBean.getViewTypeByTypeName(className);
             }
         }
         return type;
@@ -159,14 +152,15 @@ public class ViewBeanParser {
         Stack<ViewBean> viewStack = new Stack<>();
         int index = 0;
         boolean isRootSkipped = !skipRoot;
+        int rootType = ViewBean.VIEW_TYPE_LAYOUT_LINEAR;
+        idCounters.clear();
 
         while (parser.getEventType() != XmlPullParser.END_DOCUMENT) {
             switch (parser.getEventType()) {
                 case XmlPullParser.START_TAG -> {
                     var name = parser.getName();
                     if (!isRootSkipped) {
-                        var view = InvokeUtil.createView(getContext(), name);
-                        if (!(view instanceof ViewGroup)) {
+                        if (!ViewClassHierarchy.isViewGroup(name)) {
                             throw new IOException("Root view must be a ViewGroup");
                         }
                         Map<String, String> attributes = new LinkedHashMap<>();
@@ -177,6 +171,7 @@ public class ViewBeanParser {
                             }
                         }
                         rootAttributes = Pair.create(name, attributes);
+                        rootType = getViewTypeByClassName(name);
                         isRootSkipped = true;
                         break;
                     }
@@ -205,11 +200,10 @@ public class ViewBeanParser {
 
                     ViewBean parent = viewStack.isEmpty() ? null : viewStack.peek();
                     // Set parent ID (or root if no parent)
-                    int parentType = rootAttributes != null ? getViewTypeByClassName(rootAttributes.first) : ViewBean.VIEW_TYPE_LAYOUT_LINEAR;
                     bean.parent = parent != null ? parent.id : "root";
                     bean.parentType =
                             bean.parent.equals("root")
-                                    ? parentType
+                                    ? rootType
                                     : parent.type;
                     bean.index = index;
                     Map<String, String> attributes = new LinkedHashMap<>();
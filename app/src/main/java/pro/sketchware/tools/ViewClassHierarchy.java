@@ -0,0 +1,236 @@
+package pro.sketchware.tools;
+
+import android.view.View;
+
+import androidx.annotation.Nullable;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import pro.sketchware.utility.InvokeUtil;
+
+/**
+ * Superclasses of View classes that can appear in layout XML, by simple class name, so that
+ * {@link ViewBeanParser} can find out what a tag extends without instantiating it.
+ * <p>
+ * Classes missing from the table get looked up once with {@link Class#forName(String)}
+ * (without creating an instance) and remembered.
+ */
+public class ViewClassHierarchy {
+
+    private static final Map<String, String> SUPERCLASSES = new HashMap<>();
+    /**
+     * Superclasses of classes that weren't in {@link #SUPERCLASSES}, {@link #UNKNOWN} if the class
+     * couldn't be found
+     */
+    private static final Map<String, String> resolvedSuperclasses = new ConcurrentHashMap<>();
+    private static final String UNKNOWN = "";
+
+    static {
+        // android.view, android.widget, android.webkit
+        add("ViewGroup", "View");
+        add("SurfaceView", "View");
+        add("TextureView", "View");
+        add("Space", "View");
+        add("ViewStub", "View");
+        add("TextView", "View");
+        add("Button", "TextView");
+        add("EditText", "TextView");
+        add("AutoCompleteTextView", "EditText");
+        add("MultiAutoCompleteTextView", "AutoCompleteTextView");
+        add("CheckedTextView", "TextView");
+        add("Chronometer", "TextView");
+        add("DigitalClock", "TextView");
+        add("TextClock", "TextView");
+        add("CompoundButton", "Button");
+        add("CheckBox", "CompoundButton");
+        add("RadioButton", "CompoundButton");
+        add("Switch", "CompoundButton");
+        add("ToggleButton", "CompoundButton");
+        add("ImageView", "View");
+        add("ImageButton", "ImageView");
+        add("QuickContactBadge", "ImageView");
+        add("ProgressBar", "View");
+        add("AbsSeekBar", "ProgressBar");
+        add("SeekBar", "AbsSeekBar");
+        add("RatingBar", "AbsSeekBar");
+        add("AnalogClock", "View");
+        add("VideoView", "SurfaceView");
+        add("FrameLayout", "ViewGroup");
+        add("ScrollView", "FrameLayout");
+        add("HorizontalScrollView", "FrameLayout");
+        add("CalendarView", "FrameLayout");
+        add("DatePicker", "FrameLayout");
+        add("TimePicker", "FrameLayout");
+        add("ViewAnimator", "FrameLayout");
+        add("ViewFlipper", "ViewAnimator");
+        add("ViewSwitcher", "ViewAnimator");
+        add("LinearLayout", "ViewGroup");
+        add("RadioGroup", "LinearLayout");
+        add("TableLayout", "LinearLayout");
+        add("TableRow", "LinearLayout");
+        add("NumberPicker", "LinearLayout");
+        add("SearchView", "LinearLayout");
+        add("RelativeLayout", "ViewGroup");
+        add("GridLayout", "ViewGroup");
+        add("AbsoluteLayout", "ViewGroup");
+        add("WebView", "AbsoluteLayout");
+        add("Toolbar", "ViewGroup");
+        add("AdapterView", "ViewGroup");
+        add("AbsListView", "AdapterView");
+        add("ListView", "AbsListView");
+        add("ExpandableListView", "ListView");
+        add("GridView", "AbsListView");
+        add("AbsSpinner", "AdapterView");
+        add("Spinner", "AbsSpinner");
+
+        // androidx
+        add("AppCompatTextView", "TextView");
+        add("AppCompatButton", "Button");
+        add("AppCompatEditText", "EditText");
+        add("AppCompatAutoCompleteTextView", "AutoCompleteTextView");
+        add("AppCompatMultiAutoCompleteTextView", "MultiAutoCompleteTextView");
+        add("AppCompatCheckedTextView", "CheckedTextView");
+        add("AppCompatCheckBox", "CheckBox");
+        add("AppCompatRadioButton", "RadioButton");
+        add("AppCompatToggleButton", "ToggleButton");
+        add("AppCompatImageView", "ImageView");
+        add("AppCompatImageButton", "ImageButton");
+        add("AppCompatSeekBar", "SeekBar");
+        add("AppCompatRatingBar", "RatingBar");
+        add("AppCompatSpinner", "Spinner");
+        add("SwitchCompat", "CompoundButton");
+        add("LinearLayoutCompat", "ViewGroup");
+        add("NestedScrollView", "FrameLayout");
+        add("CardView", "FrameLayout");
+        add("FragmentContainerView", "FrameLayout");
+        add("ConstraintLayout", "ViewGroup");
+        add("CoordinatorLayout", "ViewGroup");
+        add("DrawerLayout", "ViewGroup");
+        add("SwipeRefreshLayout", "ViewGroup");
+        add("RecyclerView", "ViewGroup");
+        add("ViewPager", "ViewGroup");
+        add("ViewPager2", "ViewGroup");
+
+        // Material Components
+        add("MaterialTextView", "AppCompatTextView");
+        add("MaterialButton", "AppCompatButton");
+        add("ExtendedFloatingActionButton", "MaterialButton");
+        add("MaterialAutoCompleteTextView", "AppCompatAutoCompleteTextView");
+        add("TextInputEditText", "AppCompatEditText");
+        add("MaterialCheckBox", "AppCompatCheckBox");
+        add("MaterialRadioButton", "AppCompatRadioButton");
+        add("Chip", "AppCompatCheckBox");
+        add("SwitchMaterial", "SwitchCompat");
+        add("MaterialSwitch", "SwitchCompat");
+        add("ShapeableImageView", "AppCompatImageView");
+        add("VisibilityAwareImageButton", "ImageButton");
+        add("FloatingActionButton", "VisibilityAwareImageButton");
+        add("BaseProgressIndicator", "ProgressBar");
+        add("CircularProgressIndicator", "BaseProgressIndicator");
+        add("LinearProgressIndicator", "BaseProgressIndicator");
+        add("BaseSlider", "View");
+        add("Slider", "BaseSlider");
+        add("RangeSlider", "BaseSlider");
+        add("MaterialDivider", "View");
+        add("MaterialCardView", "CardView");
+        add("TextInputLayout", "LinearLayout");
+        add("AppBarLayout", "LinearLayout");
+        add("MaterialButtonToggleGroup", "LinearLayout");
+        add("CollapsingToolbarLayout", "FrameLayout");
+        add("ScrimInsetsFrameLayout", "FrameLayout");
+        add("NavigationView", "ScrimInsetsFrameLayout");
+        add("NavigationBarView", "FrameLayout");
+        add("BottomNavigationView", "NavigationBarView");
+        add("NavigationRailView", "NavigationBarView");
+        add("TabLayout", "HorizontalScrollView");
+        add("FlowLayout", "ViewGroup");
+        add("ChipGroup", "FlowLayout");
+        add("MaterialToolbar", "Toolbar");
+        add("BottomAppBar", "Toolbar");
+
+        // Other libraries bundled for built-in widgets
+        add("CircleImageView", "ImageView");
+        add("LottieAnimationView", "AppCompatImageView");
+        add("SignInButton", "FrameLayout");
+        add("YouTubePlayerView", "FrameLayout");
+        add("AdView", "ViewGroup");
+        add("MapView", "FrameLayout");
+    }
+
+    private static void add(String className, String superclassName) {
+        SUPERCLASSES.put(className, superclassName);
+    }
+
+    /**
+     * @param className Simple or fully qualified class name, as used as tag in layout XML
+     * @return The simple name of the class's superclass, or <code>null</code> if it's
+     * <code>View</code> or unknown
+     */
+    @Nullable
+    public static String getSuperclass(String className) {
+        String simpleName = ViewBeanParser.getNameFromTag(className);
+        String superclass = SUPERCLASSES.get(simpleName);
+        if (superclass != null) {
+            return superclass;
+        }
+        superclass = resolvedSuperclasses.get(simpleName);
+        if (superclass == null) {
+            superclass = resolve(className);
+            resolvedSuperclasses.put(simpleName, superclass);
+        }
+        return superclass.equals(UNKNOWN) ? null : superclass;
+    }
+
+    /**
+     * @return Whether the class is known to extend <code>ViewGroup</code>
+     */
+    public static boolean isViewGroup(String className) {
+        for (String name = ViewBeanParser.getNameFromTag(className); name != null; name = getSuperclass(name)) {
+            if (name.equals("ViewGroup")) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static String resolve(String className) {
+        Class<?> clazz = loadClass(className);
+        if (clazz == null || !View.class.isAssignableFrom(clazz) || clazz == View.class) {
+            return UNKNOWN;
+        }
+        // Remember the whole chain, so that superclasses don't need to be loaded again
+        for (Class<?> current = clazz; current != View.class; current = current.getSuperclass()) {
+            String superclassName = current.getSuperclass().getSimpleName();
+            if (!SUPERCLASSES.containsKey(current.getSimpleName())) {
+                resolvedSuperclasses.putIfAbsent(current.getSimpleName(), superclassName);
+            }
+        }
+        return clazz.getSuperclass().getSimpleName();
+    }
+
+    @Nullable
+    private static Class<?> loadClass(String className) {
+        if (className.contains(".")) {
+            return forName(className);
+        }
+        for (String prefix : InvokeUtil.ANDROID_CLASS_PREFIX) {
+            Class<?> clazz = forName(prefix + className);
+            if (clazz != null) {
+                return clazz;
+            }
+        }
+        return null;
+    }
+
+    @Nullable
+    private static Class<?> forName(String className) {
+        try {
+            // Don't initialize, nothing of the class is going to be used
+            return Class.forName(className, false, ViewClassHierarchy.class.getClassLoader());
+        } catch (ClassNotFoundException | LinkageError e) {
+            return null;
+        }
+    }
+}
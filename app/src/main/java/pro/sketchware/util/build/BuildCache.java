@@ -0,0 +1,176 @@
+package pro.sketchware.util.build;
+
+import android.content.Context;
+
+import androidx.annotation.NonNull;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Persistent storage for build outputs that later builds of the same project can reuse.
+ * <p>
+ * Everything below /Internal storage/.sketchware/mysc/&lt;sc_id&gt;/ gets deleted before every build,
+ * so reusable outputs are kept in the app's cache directory instead. Android may clear that at any
+ * time, which only ever results in a full (non-incremental) build.
+ */
+public class BuildCache {
+
+    private static final String CACHE_DIRECTORY_NAME = "build_cache";
+
+    /**
+     * SHA-256 hashes of files, keyed by absolute path. An entry is only reused as long as the
+     * file's length and last modification time match, which saves re-hashing large, rarely
+     * changing files like android.jar on every build.
+     */
+    private static final Map<String, HashedFile> fileHashes = new ConcurrentHashMap<>();
+
+    /**
+     * @param name The build stage's cache name, e.g. <code>ecj</code>
+     * @return The cache directory of a build stage for a project. The directory gets created if
+     * it doesn't exist yet.
+     */
+    @NonNull
+    public static File getDirectory(Context context, String sc_id, String name) {
+        File directory = new File(context.getCacheDir(), CACHE_DIRECTORY_NAME + File.separator + sc_id + File.separator + name);
+        //noinspection ResultOfMethodCallIgnored
+        directory.mkdirs();
+        return directory;
+    }
+
+    /**
+     * @return The SHA-256 hash of a file's contents, as lowercase hex string.
+     */
+    @NonNull
+    public static String sha256(File file) throws IOException {
+        String path = file.getAbsolutePath();
+        long length = file.length();
+        long lastModified = file.lastModified();
+
+        HashedFile cached = fileHashes.get(path);
+        if (cached != null && cached.length == length && cached.lastModified == lastModified) {
+            return cached.hash;
+        }
+
+        MessageDigest digest = newDigest();
+        try (InputStream inputStream = new FileInputStream(file)) {
+            byte[] buffer = new byte[8192];
+            int read;
+            while ((read = inputStream.read(buffer)) != -1) {
+                digest.update(buffer, 0, read);
+            }
+        }
+        String hash = toHex(digest.digest());
+        fileHashes.put(path, new HashedFile(length, lastModified, hash));
+        return hash;
+    }
+
+    @NonNull
+    public static String sha256(byte[] data) {
+        return toHex(newDigest().digest(data));
+    }
+
+    @NonNull
+    public static String sha256(String value) {
+        return sha256(value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    @NonNull
+    private static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 isn't available", e);
+        }
+    }
+
+    @NonNull
+    private static String toHex(byte[] bytes) {
+        char[] digits = "0123456789abcdef".toCharArray();
+        char[] hex = new char[bytes.length * 2];
+        for (int i = 0; i < bytes.length; i++) {
+            hex[i * 2] = digits[(bytes[i] >> 4) & 0xf];
+            hex[i * 2 + 1] = digits[bytes[i] & 0xf];
+        }
+        return new String(hex);
+    }
+
+    /**
+     * Builds a hash over all inputs of a build stage. Two fingerprints are equal if and only if
+     * the same values and file contents were added to them, in the same order.
+     */
+    public static class Fingerprint {
+        private final MessageDigest digest = newDigest();
+
+        public Fingerprint put(String value) {
+            byte[] bytes = String.valueOf(value).getBytes(StandardCharsets.UTF_8);
+            digest.update(Integer.toString(bytes.length).getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) ':');
+            digest.update(bytes);
+            return this;
+        }
+
+        public Fingerprint put(boolean value) {
+            return put(Boolean.toString(value));
+        }
+
+        public Fingerprint put(int value) {
+            return put(Integer.toString(value));
+        }
+
+        /**
+         * Adds a file's contents. Directories get added recursively, with their files sorted by
+         * name, and files that don't exist are recorded as missing.
+         */
+        public Fingerprint putFile(File file) throws IOException {
+            if (file.isDirectory()) {
+                put("dir");
+                String[] children = file.list();
+                if (children != null) {
+                    Arrays.sort(children);
+                    for (String child : children) {
+                        put(child);
+                        putFile(new File(file, child));
+                    }
+                }
+                put("end");
+            } else if (file.isFile()) {
+                put("file").put(sha256(file));
+            } else {
+                put("missing");
+            }
+            return this;
+        }
+
+        /**
+         * Adds every entry of a colon-separated classpath, ignoring empty entries.
+         */
+        public Fingerprint putClasspath(String classpath) throws IOException {
+            for (String entry : classpath.split(":")) {
+                if (!entry.isEmpty()) {
+                    put(entry).putFile(new File(entry));
+                }
+            }
+            return this;
+        }
+
+        /**
+         * @return The fingerprint's value, as lowercase hex string
+         */
+        @NonNull
+        public String get() {
+            return toHex(digest.digest());
+        }
+    }
+
+    private record HashedFile(long length, long lastModified, String hash) {
+    }
+}
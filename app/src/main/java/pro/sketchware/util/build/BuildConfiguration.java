@@ -0,0 +1,196 @@
+package pro.sketchware.util.build;
+
+import android.util.Pair;
+
+import androidx.annotation.NonNull;
+
+import com.google.gson.Gson;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import mod.hey.studios.project.ProjectSettings;
+import mod.hey.studios.project.proguard.ProguardHandler;
+import mod.hey.studios.project.stringfog.StringfogHandler;
+import mod.hey.studios.util.Helper;
+import mod.jbk.build.BuiltInLibraries;
+import mod.jbk.editor.manage.library.ExcludeBuiltInLibrariesActivity;
+import pro.sketchware.utility.FileUtil;
+
+/**
+ * Immutable snapshot of a project's build configuration: project settings, shrinking, StringFog
+ * and excluded built-in libraries.
+ * <p>
+ * A build should load the configuration once when it starts, and query only that snapshot from
+ * then on, so that editing a config file mid-build can't result in an inconsistent build.
+ * Snapshots are cached, and only get re-read once any of the config files changed size or
+ * modification time, or a setting got changed through this app.
+ */
+public final class BuildConfiguration {
+
+    private static final Map<String, BuildConfiguration> cache = new HashMap<>();
+
+    private final String sc_id;
+    private final List<FileStamp> stamps = new ArrayList<>();
+    private final ProjectSettings projectSettings;
+    private final boolean shrinkingEnabled;
+    private final boolean r8Enabled;
+    private final boolean debugFilesEnabled;
+    private final Set<String> proguardFullModeLibraries;
+    private final String customProguardRulesPath;
+    private final boolean stringfogEnabled;
+    private final boolean excludingEnabled;
+    private final List<BuiltInLibraries.BuiltInLibrary> excludedLibraries;
+
+    private BuildConfiguration(String sc_id) {
+        this.sc_id = sc_id;
+        String dataPath = FileUtil.getExternalStorageDir() + "/.sketchware/data/" + sc_id + "/";
+
+        // Handlers create their default configs if there are none yet
+        ProguardHandler proguardHandler = new ProguardHandler(sc_id);
+        new StringfogHandler(sc_id);
+
+        projectSettings = new ProjectSettings(sc_id);
+        stamp(new File(projectSettings.getPath()));
+
+        Map<String, String> proguardConfig = readStringMap(stamp(new File(dataPath + "proguard")));
+        shrinkingEnabled = "true".equals(proguardConfig.get("enabled"));
+        r8Enabled = "true".equals(proguardConfig.get("r8"));
+        debugFilesEnabled = "true".equals(proguardConfig.get("debug"));
+        customProguardRulesPath = proguardHandler.getCustomProguardRules();
+
+        File fullModeConfig = stamp(new File(dataPath + "proguard_fm"));
+        Set<String> fullModeLibraries = new HashSet<>();
+        if (shrinkingEnabled && fullModeConfig.isFile()) {
+            try {
+                ArrayList<String> libraries = new Gson().fromJson(FileUtil.readFile(fullModeConfig.getAbsolutePath()), Helper.TYPE_STRING);
+                if (libraries != null) {
+                    fullModeLibraries.addAll(libraries);
+                }
+            } catch (Exception ignored) {
+            }
+        }
+        proguardFullModeLibraries = Collections.unmodifiableSet(fullModeLibraries);
+
+        stringfogEnabled = "true".equals(readStringMap(stamp(new File(dataPath + "stringfog"))).get("enabled"));
+
+        stamp(ExcludeBuiltInLibrariesActivity.getConfigPath(sc_id));
+        Pair<Boolean, List<BuiltInLibraries.BuiltInLibrary>> excludeConfig = ExcludeBuiltInLibrariesActivity.readConfig(sc_id);
+        excludingEnabled = excludeConfig != null && excludeConfig.first;
+        excludedLibraries = excludeConfig != null ? Collections.unmodifiableList(excludeConfig.second) : Collections.emptyList();
+    }
+
+    /**
+     * @return The project's current build configuration, re-read only if config files changed
+     * since it was last loaded
+     */
+    @NonNull
+    public static synchronized BuildConfiguration load(String sc_id) {
+        BuildConfiguration configuration = cache.get(sc_id);
+        if (configuration == null || !configuration.isUpToDate()) {
+            configuration = new BuildConfiguration(sc_id);
+            cache.put(sc_id, configuration);
+        }
+        return configuration;
+    }
+
+    /**
+     * Makes the next {@link #load(String)} re-read the project's config files. Call this after
+     * writing to any of them.
+     */
+    public static synchronized void invalidate(String sc_id) {
+        cache.remove(sc_id);
+    }
+
+    public String getScId() {
+        return sc_id;
+    }
+
+    /**
+     * @see ProjectSettings#getValue(String, String)
+     */
+    public String getProjectSetting(String key, String defaultValue) {
+        return projectSettings.getValue(key, defaultValue);
+    }
+
+    /**
+     * @see ProjectSettings#getMinSdkVersion()
+     */
+    public int getMinSdkVersion() {
+        return projectSettings.getMinSdkVersion();
+    }
+
+    public boolean isShrinkingEnabled() {
+        return shrinkingEnabled;
+    }
+
+    public boolean isR8Enabled() {
+        return r8Enabled;
+    }
+
+    public boolean isDebugFilesEnabled() {
+        return debugFilesEnabled;
+    }
+
+    /**
+     * @return Whether ProGuard full mode is enabled for a local library. Always false if shrinking
+     * is disabled.
+     */
+    public boolean isProguardFullModeEnabled(String library) {
+        return proguardFullModeLibraries.contains(library);
+    }
+
+    public String getCustomProguardRulesPath() {
+        return customProguardRulesPath;
+    }
+
+    public boolean isStringfogEnabled() {
+        return stringfogEnabled;
+    }
+
+    public boolean isExcludingEnabled() {
+        return excludingEnabled;
+    }
+
+    @NonNull
+    public List<BuiltInLibraries.BuiltInLibrary> getExcludedLibraries() {
+        return excludedLibraries;
+    }
+
+    private File stamp(File file) {
+        stamps.add(new FileStamp(file, file.length(), file.lastModified()));
+        return file;
+    }
+
+    private boolean isUpToDate() {
+        for (FileStamp stamp : stamps) {
+            if (stamp.file.length() != stamp.length || stamp.file.lastModified() != stamp.lastModified) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @NonNull
+    private static Map<String, String> readStringMap(File file) {
+        if (file.isFile()) {
+            try {
+                HashMap<String, String> map = new Gson().fromJson(FileUtil.readFile(file.getAbsolutePath()), Helper.TYPE_STRING_MAP);
+                if (map != null) {
+                    return map;
+                }
+            } catch (Exception ignored) {
+            }
+        }
+        return Collections.emptyMap();
+    }
+
+    private record FileStamp(File file, long length, long lastModified) {
+    }
+}
@@ -0,0 +1,199 @@
+package pro.sketchware.util.build;
+
+import androidx.annotation.Nullable;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.BooleanSupplier;
+
+import mod.jbk.build.BuildProgressReceiver;
+import mod.jbk.util.LogUtil;
+
+/**
+ * Runs build stages as soon as the stages they depend on finished, so that stages which don't
+ * depend on each other (e.g. extracting AAPT2 and extracting built-in libraries) run concurrently.
+ * <p>
+ * Stages declare what they consume and produce (e.g. <code>compiled_resources</code>), and a stage
+ * depends on the stages producing its inputs. Those need to be added before it, so the graph
+ * can't have cycles, and the order stages got added in is a valid serial order. Inputs from
+ * outside the build, like the project's files, aren't declared.
+ */
+public class BuildStageGraph {
+
+    private static final String TAG = "BuildStageGraph";
+
+    private final Map<String, Stage> stages = new LinkedHashMap<>();
+    /**
+     * The stage producing each output
+     */
+    private final Map<String, Stage> producers = new HashMap<>();
+    private final BuildProgressReceiver progressReceiver;
+    private final BooleanSupplier isCanceled;
+
+    /**
+     * @param isCanceled Checked whenever a stage finished. Once it returns <code>true</code>, no
+     *                   more stages get started.
+     */
+    public BuildStageGraph(BuildProgressReceiver progressReceiver, BooleanSupplier isCanceled) {
+        this.progressReceiver = progressReceiver;
+        this.isCanceled = isCanceled;
+    }
+
+    /**
+     * @param name     The stage's name, for logging
+     * @param progress Progress text to report once the stage starts, or <code>null</code> to not
+     *                 report any (e.g. if the stage reports progress itself)
+     * @param step     The progress step to report along with <code>progress</code>
+     * @param inputs   What the stage consumes, each produced by a stage that was added already
+     * @param outputs  What the stage produces, which no other stage may produce
+     * @throws IllegalArgumentException If the name is taken, an input isn't produced by any stage
+     *                                  added so far, or an output is produced by another stage
+     */
+    public BuildStageGraph addStage(String name, @Nullable String progress, int step, List<String> inputs, List<String> outputs, Action action) {
+        if (stages.containsKey(name)) {
+            throw new IllegalArgumentException("Stage " + name + " was added already");
+        }
+        Set<Stage> dependencies = new LinkedHashSet<>();
+        for (String input : inputs) {
+            Stage producer = producers.get(input);
+            if (producer == null) {
+                throw new IllegalArgumentException("Stage " + name + " consumes " + input + ", which no stage produces");
+            }
+            dependencies.add(producer);
+        }
+        for (String output : outputs) {
+            Stage producer = producers.get(output);
+            if (producer != null) {
+                throw new IllegalArgumentException("Stage " + name + " produces " + output + ", which stage "
+                        + producer.name + " produces already");
+            }
+        }
+
+        Stage stage = new Stage(name, progress, step, action, dependencies.size());
+        for (Stage dependency : dependencies) {
+            dependency.dependents.add(stage);
+        }
+        for (String output : outputs) {
+            producers.put(output, stage);
+        }
+        stages.put(name, stage);
+        return this;
+    }
+
+    /**
+     * Runs all stages, using at most <code>maxThreads</code> threads. Blocks until all stages
+     * finished, one failed, or the build got canceled. Stages that were running already when one
+     * failed or the build got canceled are waited for, but not interrupted.
+     *
+     * @return <code>false</code> if the build got canceled
+     * @throws Throwable What the first failing stage threw
+     */
+    public boolean run(int maxThreads) throws Throwable {
+        if (stages.isEmpty()) return true;
+
+        ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, Math.min(maxThreads, stages.size())));
+        CompletionService<Stage> completionService = new ExecutorCompletionService<>(executor);
+        Map<Stage, Integer> remainingDependencies = new HashMap<>();
+        for (Stage stage : stages.values()) {
+            remainingDependencies.put(stage, stage.dependencyCount);
+        }
+
+        Throwable failure = null;
+        boolean canceled = false;
+        int running = 0;
+        try {
+            for (Stage stage : stages.values()) {
+                if (stage.dependencyCount == 0) {
+                    submit(completionService, stage);
+                    running++;
+                }
+            }
+
+            while (running > 0) {
+                Future<Stage> finished = completionService.take();
+                running--;
+
+                Stage stage = finished.get();
+                if (stage.failure != null) {
+                    if (failure == null) {
+                        failure = stage.failure;
+                    }
+                    continue;
+                }
+                if (failure != null || canceled) continue;
+                if (isCanceled.getAsBoolean()) {
+                    canceled = true;
+                    continue;
+                }
+
+                for (Stage dependent : stage.dependents) {
+                    int remaining = remainingDependencies.get(dependent) - 1;
+                    remainingDependencies.put(dependent, remaining);
+                    if (remaining == 0) {
+                        submit(completionService, dependent);
+                        running++;
+                    }
+                }
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        if (failure != null) {
+            throw failure;
+        }
+        return !canceled;
+    }
+
+    private void submit(CompletionService<Stage> completionService, Stage stage) {
+        completionService.submit(() -> {
+            if (stage.progress != null) {
+                progressReceiver.onProgress(stage.progress, stage.step);
+            }
+            long savedTimeMillis = System.currentTimeMillis();
+            try {
+                stage.action.run();
+                LogUtil.d(TAG, "Stage " + stage.name + " took " + (System.currentTimeMillis() - savedTimeMillis) + " ms");
+            } catch (Throwable tr) {
+                stage.failure = tr;
+            }
+            return stage;
+        });
+    }
+
+    @FunctionalInterface
+    public interface Action {
+        void run() throws Throwable;
+    }
+
+    private static class Stage {
+        private final String name;
+        private final String progress;
+        private final int step;
+        private final Action action;
+        private final int dependencyCount;
+        private final List<Stage> dependents = new ArrayList<>();
+        /**
+         * What the stage's action threw, set before its future completes
+         */
+        private Throwable failure;
+
+        private Stage(String name, String progress, int step, Action action, int dependencyCount) {
+            this.name = name;
+            this.progress = progress;
+            this.step = step;
+            this.action = action;
+            this.dependencyCount = dependencyCount;
+        }
+    }
+}
@@ -0,0 +1,317 @@
+package pro.sketchware.util.build;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * The parts of a compiled class file needed to track dependencies between source files:
+ * its name, the file it was compiled from, the classes it references, whether it declares
+ * compile-time constants other classes could have inlined, and what kind of Kotlin class it is.
+ * <p>
+ * Classes that Kotlin inline functions got inlined into don't necessarily reference the classes
+ * declaring those, so the classes named in the Kotlin compiler's source map (the
+ * <code>SourceDebugExtension</code> attribute) count as referenced classes too.
+ */
+public class ClassFileInfo {
+
+    private static final int CONSTANT_UTF8 = 1;
+    private static final int CONSTANT_INTEGER = 3;
+    private static final int CONSTANT_FLOAT = 4;
+    private static final int CONSTANT_LONG = 5;
+    private static final int CONSTANT_DOUBLE = 6;
+    private static final int CONSTANT_CLASS = 7;
+    private static final int CONSTANT_STRING = 8;
+    private static final int CONSTANT_FIELDREF = 9;
+    private static final int CONSTANT_METHODREF = 10;
+    private static final int CONSTANT_INTERFACE_METHODREF = 11;
+    private static final int CONSTANT_NAME_AND_TYPE = 12;
+    private static final int CONSTANT_METHOD_HANDLE = 15;
+    private static final int CONSTANT_METHOD_TYPE = 16;
+    private static final int CONSTANT_DYNAMIC = 17;
+    private static final int CONSTANT_INVOKE_DYNAMIC = 18;
+    private static final int CONSTANT_MODULE = 19;
+    private static final int CONSTANT_PACKAGE = 20;
+
+    private static final int ACC_PRIVATE = 0x0002;
+    private static final int ACC_STATIC = 0x0008;
+    private static final int ACC_FINAL = 0x0010;
+
+    /**
+     * Value of <code>kotlin.Metadata.k</code> for classes that hold a Kotlin file's top-level
+     * functions and properties, e.g. <code>UtilsKt</code>
+     */
+    public static final int KOTLIN_FILE_FACADE = 2;
+    /**
+     * Value of <code>kotlin.Metadata.k</code> for facades of <code>@file:JvmMultifileClass</code> files
+     */
+    public static final int KOTLIN_MULTIFILE_CLASS_FACADE = 4;
+    /**
+     * Value of <code>kotlin.Metadata.k</code> for parts of <code>@file:JvmMultifileClass</code> files
+     */
+    public static final int KOTLIN_MULTIFILE_CLASS_PART = 5;
+
+    private final String name;
+    private final String sourceFile;
+    private final Set<String> referencedClasses;
+    private final boolean declaresConstants;
+    private final int kotlinMetadataKind;
+
+    private ClassFileInfo(String name, String sourceFile, Set<String> referencedClasses, boolean declaresConstants, int kotlinMetadataKind) {
+        this.name = name;
+        this.sourceFile = sourceFile;
+        this.referencedClasses = referencedClasses;
+        this.declaresConstants = declaresConstants;
+        this.kotlinMetadataKind = kotlinMetadataKind;
+    }
+
+    /**
+     * Parses a class file.
+     *
+     * @throws IOException Thrown if the data isn't a valid class file
+     */
+    public static ClassFileInfo read(byte[] classFile) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(classFile));
+        if (in.readInt() != 0xCAFEBABE) {
+            throw new IOException("Not a class file");
+        }
+        in.readUnsignedShort(); // minor version
+        in.readUnsignedShort(); // major version
+
+        int constantPoolCount = in.readUnsignedShort();
+        String[] utf8s = new String[constantPoolCount];
+        // Name indexes of class constants, by their constant pool index
+        int[] classNameIndexes = new int[constantPoolCount];
+        int[] integers = new int[constantPoolCount];
+        for (int i = 1; i < constantPoolCount; i++) {
+            int tag = in.readUnsignedByte();
+            switch (tag) {
+                case CONSTANT_UTF8 -> utf8s[i] = in.readUTF();
+                case CONSTANT_CLASS -> classNameIndexes[i] = in.readUnsignedShort();
+                case CONSTANT_STRING, CONSTANT_METHOD_TYPE, CONSTANT_MODULE, CONSTANT_PACKAGE ->
+                        in.skipBytes(2);
+                case CONSTANT_METHOD_HANDLE -> in.skipBytes(3);
+                case CONSTANT_INTEGER -> integers[i] = in.readInt();
+                case CONSTANT_FLOAT, CONSTANT_FIELDREF, CONSTANT_METHODREF,
+                     CONSTANT_INTERFACE_METHODREF, CONSTANT_NAME_AND_TYPE, CONSTANT_DYNAMIC,
+                     CONSTANT_INVOKE_DYNAMIC -> in.skipBytes(4);
+                case CONSTANT_LONG, CONSTANT_DOUBLE -> {
+                    in.skipBytes(8);
+                    // 8-byte constants take up two entries
+                    i++;
+                }
+                default -> throw new IOException("Unknown constant pool tag " + tag + " at index " + i);
+            }
+        }
+
+        in.readUnsignedShort(); // access flags
+        String name = utf8s[classNameIndexes[in.readUnsignedShort()]];
+        in.readUnsignedShort(); // super class
+        in.skipBytes(2 * in.readUnsignedShort()); // interfaces
+
+        boolean declaresConstants = false;
+        int fieldsCount = in.readUnsignedShort();
+        for (int i = 0; i < fieldsCount; i++) {
+            int accessFlags = in.readUnsignedShort();
+            in.skipBytes(4); // name and descriptor
+            int attributesCount = in.readUnsignedShort();
+            for (int j = 0; j < attributesCount; j++) {
+                String attributeName = utf8s[in.readUnsignedShort()];
+                in.skipBytes(in.readInt());
+                // Only non-private constants can get inlined into other classes
+                if ("ConstantValue".equals(attributeName)
+                        && (accessFlags & (ACC_STATIC | ACC_FINAL)) == (ACC_STATIC | ACC_FINAL)
+                        && (accessFlags & ACC_PRIVATE) == 0) {
+                    declaresConstants = true;
+                }
+            }
+        }
+
+        int methodsCount = in.readUnsignedShort();
+        for (int i = 0; i < methodsCount; i++) {
+            in.skipBytes(6); // access flags, name and descriptor
+            int attributesCount = in.readUnsignedShort();
+            for (int j = 0; j < attributesCount; j++) {
+                in.skipBytes(2);
+                in.skipBytes(in.readInt());
+            }
+        }
+
+        String sourceFile = null;
+        String sourceDebugExtension = null;
+        int kotlinMetadataKind = 0;
+        int attributesCount = in.readUnsignedShort();
+        for (int i = 0; i < attributesCount; i++) {
+            String attributeName = utf8s[in.readUnsignedShort()];
+            int length = in.readInt();
+            if ("SourceFile".equals(attributeName)) {
+                sourceFile = utf8s[in.readUnsignedShort()];
+                in.skipBytes(length - 2);
+            } else if ("SourceDebugExtension".equals(attributeName)) {
+                byte[] debugExtension = new byte[length];
+                in.readFully(debugExtension);
+                sourceDebugExtension = new String(debugExtension, StandardCharsets.UTF_8);
+            } else if ("RuntimeVisibleAnnotations".equals(attributeName)) {
+                int annotationsCount = in.readUnsignedShort();
+                for (int j = 0; j < annotationsCount; j++) {
+                    boolean isKotlinMetadata = "Lkotlin/Metadata;".equals(utf8s[in.readUnsignedShort()]);
+                    int pairsCount = in.readUnsignedShort();
+                    for (int k = 0; k < pairsCount; k++) {
+                        String elementName = utf8s[in.readUnsignedShort()];
+                        if (isKotlinMetadata && "k".equals(elementName)) {
+                            in.readUnsignedByte(); // tag, always 'I'
+                            kotlinMetadataKind = integers[in.readUnsignedShort()];
+                        } else {
+                            skipElementValue(in);
+                        }
+                    }
+                }
+            } else {
+                in.skipBytes(length);
+            }
+        }
+
+        Set<String> referencedClasses = new HashSet<>();
+        for (int classNameIndex : classNameIndexes) {
+            if (classNameIndex == 0) continue;
+            String className = utf8s[classNameIndex];
+            if (className.startsWith("[")) {
+                addDescriptorClasses(className, referencedClasses);
+            } else {
+                referencedClasses.add(className);
+            }
+        }
+        // Descriptors and generic signatures of fields, methods and annotations
+        for (String utf8 : utf8s) {
+            if (utf8 != null && utf8.indexOf(';') != -1) {
+                addDescriptorClasses(utf8, referencedClasses);
+            }
+        }
+        if (sourceDebugExtension != null) {
+            addSourceMapClasses(sourceDebugExtension, referencedClasses);
+        }
+        referencedClasses.remove(name);
+
+        return new ClassFileInfo(name, sourceFile, referencedClasses, declaresConstants, kotlinMetadataKind);
+    }
+
+    private static void skipElementValue(DataInputStream in) throws IOException {
+        int tag = in.readUnsignedByte();
+        switch (tag) {
+            case 'e' -> in.skipBytes(4);
+            case '@' -> {
+                in.skipBytes(2);
+                int pairsCount = in.readUnsignedShort();
+                for (int i = 0; i < pairsCount; i++) {
+                    in.skipBytes(2);
+                    skipElementValue(in);
+                }
+            }
+            case '[' -> {
+                int valuesCount = in.readUnsignedShort();
+                for (int i = 0; i < valuesCount; i++) {
+                    skipElementValue(in);
+                }
+            }
+            // Constants and classes
+            default -> in.skipBytes(2);
+        }
+    }
+
+    /**
+     * Adds the classes of all files in an SMAP's file sections (JSR-45). Kotlin lists every file
+     * whose inline functions got inlined as <code>+ id File.kt</code>, followed by a line with
+     * the internal name of the class declaring them, e.g. <code>com/my/project/UtilsKt</code>.
+     */
+    private static void addSourceMapClasses(String smap, Set<String> classes) {
+        String[] lines = smap.split("\r?\n");
+        boolean inFileSection = false;
+        for (int i = 0; i < lines.length; i++) {
+            String line = lines[i];
+            if (line.startsWith("*")) {
+                inFileSection = line.equals("*F");
+            } else if (inFileSection && line.startsWith("+ ") && i + 1 < lines.length) {
+                classes.add(lines[++i]);
+            }
+        }
+    }
+
+    /**
+     * Adds all class names of the form <code>Lsome/Type;</code> in a descriptor or signature.
+     * Generic type arguments like in <code>Ljava/util/List&lt;Lfoo/Bar;&gt;;</code> are added too.
+     */
+    private static void addDescriptorClasses(String descriptor, Set<String> classes) {
+        int length = descriptor.length();
+        for (int i = 0; i < length; i++) {
+            if (descriptor.charAt(i) != 'L') continue;
+            if (i > 0) {
+                char previous = descriptor.charAt(i - 1);
+                if (previous != '(' && previous != ')' && previous != '[' && previous != ';'
+                        && previous != '<' && previous != '+' && previous != '-' && previous != '^'
+                        && previous != ':' && previous != '>') {
+                    continue;
+                }
+            }
+            int end = i + 1;
+            while (end < length) {
+                char c = descriptor.charAt(end);
+                if (c == ';' || c == '<' || c == '.') break;
+                end++;
+            }
+            if (end < length && end > i + 1) {
+                classes.add(descriptor.substring(i + 1, end));
+            }
+            i = end - 1;
+        }
+    }
+
+    /**
+     * @return The class's internal name, e.g. <code>com/my/project/MainActivity$1</code>
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * @return The simple name of the source file the class was compiled from, or <code>null</code>
+     * if the class file doesn't say.
+     */
+    public String getSourceFile() {
+        return sourceFile;
+    }
+
+    /**
+     * @return Internal names of all classes this class references, excluding itself
+     */
+    public Set<String> getReferencedClasses() {
+        return referencedClasses;
+    }
+
+    /**
+     * @return Whether the class declares non-private compile-time constants, which compilers
+     * inline into other classes without leaving a reference behind
+     */
+    public boolean declaresConstants() {
+        return declaresConstants;
+    }
+
+    /**
+     * @return The class's <code>kotlin.Metadata.k</code> value, or 0 if it isn't a Kotlin class
+     */
+    public int getKotlinMetadataKind() {
+        return kotlinMetadataKind;
+    }
+
+    /**
+     * @return Whether the class holds top-level functions or properties of a Kotlin file. The
+     * Kotlin compiler only finds those through module metadata, not by class name.
+     */
+    public boolean isKotlinFacade() {
+        return kotlinMetadataKind == KOTLIN_FILE_FACADE
+                || kotlinMetadataKind == KOTLIN_MULTIFILE_CLASS_FACADE
+                || kotlinMetadataKind == KOTLIN_MULTIFILE_CLASS_PART;
+    }
+}
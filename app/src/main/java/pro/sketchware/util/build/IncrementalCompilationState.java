@@ -0,0 +1,349 @@
+package pro.sketchware.util.build;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import mod.jbk.util.LogUtil;
+import pro.sketchware.utility.FileUtil;
+
+/**
+ * Keeps track of which classes a compiler produced from which source files, and which classes
+ * those reference, so that later builds can recompile only changed source files and their
+ * dependents. The classes themselves get kept too, to restore the output of source files that
+ * didn't need recompiling.
+ * <p>
+ * State is only valid for the inputs fingerprint (compiler options, classpath, ...) and set of
+ * source files it was recorded with; anything else requires a full build.
+ */
+public class IncrementalCompilationState {
+
+    private static final String TAG = "IncrementalCompilation";
+    private static final String STATE_FILE_NAME = "state.json";
+    private static final String CLASSES_DIRECTORY_NAME = "classes";
+
+    private final File stateFile;
+    private final File classesDirectory;
+    private final Gson gson = new Gson();
+    private State state;
+    private boolean incremental;
+
+    /**
+     * @param cacheDirectory The directory to keep state and classes in, usually from
+     *                       {@link BuildCache#getDirectory}
+     */
+    public IncrementalCompilationState(File cacheDirectory) {
+        stateFile = new File(cacheDirectory, STATE_FILE_NAME);
+        classesDirectory = new File(cacheDirectory, CLASSES_DIRECTORY_NAME);
+    }
+
+    /**
+     * Loads state of the previous build.
+     *
+     * @param inputsFingerprint Fingerprint of everything except source files that affects output
+     * @param sources           Absolute paths of all source files to compile
+     * @return Whether the previous build's state can be used for an incremental build. If not,
+     * all sources must be compiled.
+     */
+    public boolean load(String inputsFingerprint, Set<String> sources) {
+        State previous = readState();
+        incremental = previous != null && inputsFingerprint.equals(previous.inputsFingerprint)
+                && previous.sources.keySet().equals(sources)
+                && classesDirectory.isDirectory();
+        if (incremental) {
+            state = previous;
+        } else {
+            state = new State();
+            state.inputsFingerprint = inputsFingerprint;
+        }
+        return incremental;
+    }
+
+    /**
+     * Loads state of the previous build only to look up what it recorded about source files,
+     * regardless of the inputs it was recorded with. Used by compilers that depend on another
+     * compiler's output, like kotlinc on classes compiled from <code>.java</code> files.
+     *
+     * @return Whether there was any state to load
+     */
+    public boolean loadForLookup() {
+        state = readState();
+        incremental = false;
+        if (state == null) {
+            state = new State();
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * @return Whether the loaded state has output recorded for a source file
+     */
+    public boolean isKnownSource(String source) {
+        return state.sources.containsKey(source);
+    }
+
+    /**
+     * Discards the previous build's state, e.g. because all sources need compiling anyway.
+     */
+    public void reset() {
+        String inputsFingerprint = state.inputsFingerprint;
+        state = new State();
+        state.inputsFingerprint = inputsFingerprint;
+        incremental = false;
+    }
+
+    /**
+     * @return Paths of sources whose hash differs from the one of the previous build
+     */
+    @NonNull
+    public Set<String> getChangedSources(Map<String, String> sourceHashes) {
+        Set<String> changed = new HashSet<>();
+        for (Map.Entry<String, String> source : sourceHashes.entrySet()) {
+            SourceEntry entry = state.sources.get(source.getKey());
+            if (entry == null || !source.getValue().equals(entry.hash)) {
+                changed.add(source.getKey());
+            }
+        }
+        return changed;
+    }
+
+    /**
+     * @return Whether dependents could have inlined parts of a source file's previous output
+     * without referencing it, like non-private compile-time constants or Kotlin inline functions.
+     * Changing such a source file requires a full build.
+     */
+    public boolean isInlinedIntoDependents(String source) {
+        SourceEntry entry = state.sources.get(source);
+        return entry != null && entry.inlinedIntoDependents;
+    }
+
+    /**
+     * @return Whether the previous output of a source file contained a Kotlin file facade
+     * (see {@link ClassFileInfo#isKotlinFacade()})
+     */
+    public boolean declaresKotlinFacades(String source) {
+        SourceEntry entry = state.sources.get(source);
+        return entry != null && entry.declaresKotlinFacades;
+    }
+
+    /**
+     * Adds all sources that transitively depend on {@code sources}, or on any class in
+     * {@code changedClasses}, to {@code sources}. Dependencies are tracked per top-level class,
+     * so a change to a nested class counts as change to its outermost class.
+     */
+    public void addDependents(Set<String> sources, Collection<String> changedClasses) {
+        Map<String, Set<String>> dependentsByClass = new HashMap<>();
+        for (Map.Entry<String, SourceEntry> entry : state.sources.entrySet()) {
+            for (String referencedClass : entry.getValue().references) {
+                dependentsByClass.computeIfAbsent(getTopLevelClass(referencedClass), k -> new HashSet<>()).add(entry.getKey());
+            }
+        }
+
+        Deque<String> classes = new ArrayDeque<>(changedClasses);
+        for (String source : sources) {
+            classes.addAll(state.sources.get(source).classes);
+        }
+        while (!classes.isEmpty()) {
+            Set<String> dependents = dependentsByClass.get(getTopLevelClass(classes.poll()));
+            if (dependents == null) continue;
+
+            for (String dependent : dependents) {
+                if (sources.add(dependent)) {
+                    classes.addAll(state.sources.get(dependent).classes);
+                }
+            }
+        }
+    }
+
+    /**
+     * @return The directory holding classes of all source files that compiled in the last build
+     */
+    @NonNull
+    public File getClassesDirectory() {
+        return classesDirectory;
+    }
+
+    /**
+     * Removes kept classes of source files that are about to be recompiled, so they can't
+     * shadow their new versions when the classes directory is used as classpath.
+     */
+    public void removeClasses(Collection<String> sources) {
+        for (String source : sources) {
+            for (String className : state.sources.get(source).classes) {
+                //noinspection ResultOfMethodCallIgnored
+                new File(classesDirectory, className + ".class").delete();
+            }
+        }
+    }
+
+    /**
+     * Copies kept classes of all source files except {@code excludedSources} to a directory.
+     *
+     * @return Paths of the copied class files, relative to {@code outputDirectory}
+     */
+    @NonNull
+    public Set<String> restoreClasses(File outputDirectory, Collection<String> excludedSources) throws IOException {
+        Set<String> restored = new HashSet<>();
+        for (Map.Entry<String, SourceEntry> entry : state.sources.entrySet()) {
+            if (excludedSources.contains(entry.getKey())) continue;
+
+            for (String className : entry.getValue().classes) {
+                copyClassFile(className, classesDirectory, outputDirectory);
+                restored.add(className + ".class");
+            }
+        }
+        return restored;
+    }
+
+    /**
+     * Records the output of a successful compilation and saves state for the next build.
+     *
+     * @param compiledSources       Source files that got compiled
+     * @param sourceHashes          Hashes of all source files
+     * @param sourcesByRelativePath Absolute paths of source files, by their path relative to the
+     *                              source root they're in
+     * @param ignoredClassFiles     Class files in {@code outputDirectory} that weren't output of
+     *                              this compilation, relative to it
+     * @param inlinedSources        Source files known to get inlined into dependents, in addition
+     *                              to those declaring compile-time constants
+     */
+    public void update(Collection<String> compiledSources, Map<String, String> sourceHashes,
+                       Map<String, String> sourcesByRelativePath, Set<String> ignoredClassFiles,
+                       Set<String> inlinedSources, File outputDirectory) throws IOException {
+        Map<String, SourceEntry> newEntries = new HashMap<>();
+        for (String source : compiledSources) {
+            SourceEntry entry = new SourceEntry();
+            entry.hash = sourceHashes.get(source);
+            entry.inlinedIntoDependents = inlinedSources.contains(source);
+            newEntries.put(source, entry);
+        }
+
+        for (String classFile : listClassFiles(outputDirectory)) {
+            if (ignoredClassFiles.contains(classFile)) continue;
+
+            ClassFileInfo info = ClassFileInfo.read(Files.readAllBytes(new File(outputDirectory, classFile).toPath()));
+            String source = findSourceFile(info, sourcesByRelativePath);
+            SourceEntry entry = source != null ? newEntries.get(source) : null;
+            if (entry == null) {
+                throw new IOException("Couldn't tell which source file " + classFile + " was compiled from");
+            }
+            entry.classes.add(info.getName());
+            entry.references.addAll(info.getReferencedClasses());
+            entry.inlinedIntoDependents |= info.declaresConstants();
+            entry.declaresKotlinFacades |= info.isKotlinFacade();
+        }
+
+        if (!incremental) {
+            FileUtil.deleteFile(classesDirectory.getAbsolutePath());
+        } else {
+            removeClasses(newEntries.keySet());
+        }
+        for (SourceEntry entry : newEntries.values()) {
+            for (String className : entry.classes) {
+                copyClassFile(className, outputDirectory, classesDirectory);
+            }
+        }
+
+        state.sources.putAll(newEntries);
+        FileUtil.writeFile(stateFile.getAbsolutePath(), gson.toJson(state));
+    }
+
+    /**
+     * Deletes saved state, so that the next build will be a full one.
+     */
+    public void invalidate() {
+        //noinspection ResultOfMethodCallIgnored
+        stateFile.delete();
+    }
+
+    @NonNull
+    private static String getTopLevelClass(String className) {
+        int dollar = className.indexOf('$', className.lastIndexOf('/') + 1);
+        return dollar == -1 ? className : className.substring(0, dollar);
+    }
+
+    @Nullable
+    private static String findSourceFile(ClassFileInfo info, Map<String, String> sourcesByRelativePath) {
+        String sourceFile = info.getSourceFile();
+        if (sourceFile == null) return null;
+
+        String className = info.getName();
+        int lastSlash = className.lastIndexOf('/');
+        String relativePath = lastSlash == -1 ? sourceFile : className.substring(0, lastSlash + 1) + sourceFile;
+        String source = sourcesByRelativePath.get(relativePath.replace('/', File.separatorChar));
+        if (source != null) return source;
+
+        // Source files don't have to be in a directory matching their package
+        for (Map.Entry<String, String> entry : sourcesByRelativePath.entrySet()) {
+            if (new File(entry.getKey()).getName().equals(sourceFile)) {
+                if (source != null) return null;
+                source = entry.getValue();
+            }
+        }
+        return source;
+    }
+
+    private static void copyClassFile(String className, File fromDirectory, File toDirectory) throws IOException {
+        FileUtil.copyDirectory(new File(fromDirectory, className + ".class"), new File(toDirectory, className + ".class"));
+    }
+
+    /**
+     * @return Paths of all class files in a directory, relative to it and with forward slashes
+     */
+    @NonNull
+    public static Set<String> listClassFiles(File directory) {
+        Set<String> classFiles = new HashSet<>();
+        for (File file : FileUtil.listFilesRecursively(directory, ".class")) {
+            classFiles.add(directory.toPath().relativize(file.toPath()).toString().replace(File.separatorChar, '/'));
+        }
+        return classFiles;
+    }
+
+    @Nullable
+    private State readState() {
+        if (!stateFile.isFile()) return null;
+
+        try {
+            State state = gson.fromJson(FileUtil.readFile(stateFile.getAbsolutePath()), State.class);
+            return state != null && state.inputsFingerprint != null && state.sources != null ? state : null;
+        } catch (JsonParseException e) {
+            LogUtil.w(TAG, "Ignoring invalid state in " + stateFile, e);
+            return null;
+        }
+    }
+
+    private static class State {
+        private String inputsFingerprint;
+        private Map<String, SourceEntry> sources = new HashMap<>();
+    }
+
+    private static class SourceEntry {
+        private String hash;
+        /**
+         * Internal names of all classes compiled from the source file
+         */
+        private List<String> classes = new ArrayList<>();
+        /**
+         * Internal names of all classes referenced by {@link #classes}
+         */
+        private Set<String> references = new HashSet<>();
+        private boolean inlinedIntoDependents;
+        private boolean declaresKotlinFacades;
+    }
+}
@@ -0,0 +1,101 @@
+package pro.sketchware.util.build;
+
+import androidx.annotation.NonNull;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import mod.jbk.util.LogUtil;
+import pro.sketchware.utility.FileUtil;
+
+/**
+ * Keeps the outputs of a build stage's last run, together with the fingerprint of its inputs, so
+ * that the stage can be skipped if it'd run with the same inputs again.
+ * <p>
+ * Outputs are files or directories. Outputs that didn't exist after the stage ran (e.g. optional
+ * debug files) get deleted on restoring, so that the result is the same as if the stage had run.
+ */
+public class StageOutputCache {
+
+    private static final String TAG = "StageOutputCache";
+    private static final String FINGERPRINT_FILE_NAME = "fingerprint";
+    private static final String OUTPUTS_DIRECTORY_NAME = "outputs";
+
+    private final File fingerprintFile;
+    private final File outputsDirectory;
+    private final Map<String, File> outputs = new LinkedHashMap<>();
+
+    /**
+     * @param cacheDirectory The stage's cache directory, see {@link BuildCache#getDirectory}
+     */
+    public StageOutputCache(File cacheDirectory) {
+        fingerprintFile = new File(cacheDirectory, FINGERPRINT_FILE_NAME);
+        outputsDirectory = new File(cacheDirectory, OUTPUTS_DIRECTORY_NAME);
+    }
+
+    /**
+     * @param name Name to keep the output as, unique within this cache
+     */
+    public StageOutputCache addOutput(String name, File output) {
+        outputs.put(name, output);
+        return this;
+    }
+
+    /**
+     * Restores the outputs of the last run, if it had the same fingerprint.
+     *
+     * @return Whether outputs got restored. If not, the stage needs to be run.
+     */
+    public boolean restore(@NonNull String fingerprint) {
+        if (!fingerprint.equals(readFingerprint())) {
+            return false;
+        }
+
+        try {
+            for (Map.Entry<String, File> output : outputs.entrySet()) {
+                File target = output.getValue();
+                FileUtil.deleteFile(target.getAbsolutePath());
+                File cached = new File(outputsDirectory, output.getKey());
+                if (cached.exists()) {
+                    FileUtil.copyDirectory(cached, target);
+                }
+            }
+            return true;
+        } catch (IOException e) {
+            LogUtil.w(TAG, "Failed to restore cached outputs, running stage again", e);
+            invalidate();
+            return false;
+        }
+    }
+
+    /**
+     * Remembers the outputs of a run with the given fingerprint. Failing to do so only gets
+     * logged, as it just means that the next build can't skip the stage.
+     */
+    public void store(@NonNull String fingerprint) {
+        invalidate();
+        try {
+            for (Map.Entry<String, File> output : outputs.entrySet()) {
+                if (output.getValue().exists()) {
+                    FileUtil.copyDirectory(output.getValue(), new File(outputsDirectory, output.getKey()));
+                }
+            }
+            // Written last, so that the outputs are only ever used if they got stored completely
+            FileUtil.writeFile(fingerprintFile.getAbsolutePath(), fingerprint);
+        } catch (IOException e) {
+            LogUtil.w(TAG, "Failed to store outputs", e);
+            invalidate();
+        }
+    }
+
+    private void invalidate() {
+        FileUtil.deleteFile(fingerprintFile.getAbsolutePath());
+        FileUtil.deleteFile(outputsDirectory.getAbsolutePath());
+    }
+
+    private String readFingerprint() {
+        return fingerprintFile.isFile() ? FileUtil.readFile(fingerprintFile.getAbsolutePath()) : null;
+    }
+}
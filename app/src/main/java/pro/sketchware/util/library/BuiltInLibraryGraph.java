@@ -0,0 +1,164 @@
+package pro.sketchware.util.library;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import mod.jbk.build.BuiltInLibraries;
+import mod.jbk.build.BuiltInLibraries.BuiltInLibrary;
+
+/**
+ * The dependency graph of {@link BuiltInLibraries#KNOWN_BUILT_IN_LIBRARIES}, built once and
+ * validated on first use. Libraries are identified by their index in that array, which allows
+ * sets of libraries to be {@link BitSet}s.
+ */
+public final class BuiltInLibraryGraph {
+
+    private static volatile BuiltInLibraryGraph instance;
+
+    private final BuiltInLibrary[] libraries;
+    private final Map<String, Integer> indexByName;
+    private final String[][] dependencyNames;
+    /**
+     * Every library along with its dependencies, including sub-dependencies
+     */
+    private final BitSet[] closures;
+    /**
+     * Every library and its transitive dependencies, in the order recursively adding the
+     * library's dependencies visits them
+     */
+    private final int[][] expansions;
+
+    private BuiltInLibraryGraph(BuiltInLibrary[] libraries) {
+        this.libraries = libraries;
+        int count = libraries.length;
+        indexByName = new HashMap<>(count * 2);
+        for (int i = 0; i < count; i++) {
+            if (indexByName.put(libraries[i].getName(), i) != null) {
+                throw new IllegalStateException("Built-in library '" + libraries[i].getName() + "' is known twice");
+            }
+        }
+
+        int[][] dependencies = new int[count][];
+        dependencyNames = new String[count][];
+        for (int i = 0; i < count; i++) {
+            List<String> names = libraries[i].getDependencyNames();
+            dependencyNames[i] = names.toArray(new String[0]);
+            dependencies[i] = new int[names.size()];
+            for (int j = 0; j < names.size(); j++) {
+                Integer dependency = indexByName.get(names.get(j));
+                if (dependency == null) {
+                    throw new IllegalStateException("Built-in library '" + libraries[i].getName()
+                            + "' depends on unknown built-in library '" + names.get(j) + "'");
+                }
+                dependencies[i][j] = dependency;
+            }
+        }
+
+        closures = new BitSet[count];
+        expansions = new int[count][];
+        for (int i = 0; i < count; i++) {
+            BitSet visited = new BitSet(count);
+            List<Integer> order = new ArrayList<>();
+            expand(i, dependencies, visited, new BitSet(count), order);
+            closures[i] = visited;
+            expansions[i] = order.stream().mapToInt(Integer::intValue).toArray();
+        }
+    }
+
+    public static BuiltInLibraryGraph get() {
+        BuiltInLibraryGraph graph = instance;
+        if (graph == null) {
+            synchronized (BuiltInLibraryGraph.class) {
+                graph = instance;
+                if (graph == null) {
+                    graph = new BuiltInLibraryGraph(BuiltInLibraries.KNOWN_BUILT_IN_LIBRARIES);
+                    instance = graph;
+                }
+            }
+        }
+        return graph;
+    }
+
+    private void expand(int library, int[][] dependencies, BitSet visited, BitSet path, List<Integer> order) {
+        if (path.get(library)) {
+            throw new IllegalStateException("Built-in library '" + libraries[library].getName()
+                    + "' depends on itself");
+        }
+        if (visited.get(library)) return;
+
+        visited.set(library);
+        order.add(library);
+        path.set(library);
+        for (int dependency : dependencies[library]) {
+            expand(dependency, dependencies, visited, path, order);
+        }
+        path.clear(library);
+    }
+
+    /**
+     * @return The library's index, or <code>-1</code> if it isn't a known built-in library
+     */
+    public int indexOf(String libraryName) {
+        Integer index = indexByName.get(libraryName);
+        return index != null ? index : -1;
+    }
+
+    /**
+     * @throws IllegalArgumentException If the library isn't a known built-in library
+     */
+    public int requireIndexOf(String libraryName) {
+        int index = indexOf(libraryName);
+        if (index < 0) {
+            throw new IllegalArgumentException("Unknown built-in library '" + libraryName + "'!");
+        }
+        return index;
+    }
+
+    public BuiltInLibrary getLibrary(int index) {
+        return libraries[index];
+    }
+
+    public int size() {
+        return libraries.length;
+    }
+
+    /**
+     * @return The library's direct dependencies' names. Don't modify the array.
+     */
+    String[] getDependencyNames(int index) {
+        return dependencyNames[index];
+    }
+
+    /**
+     * @return The library and all its transitive dependencies, as a set. Don't modify the set.
+     */
+    BitSet getClosure(int index) {
+        return closures[index];
+    }
+
+    /**
+     * @return The library and all its transitive dependencies, in the order recursively adding
+     * the library's dependencies visits them. Don't modify the array.
+     */
+    int[] getExpansion(int index) {
+        return expansions[index];
+    }
+
+    /**
+     * @return The indexes of the given libraries, as a set
+     */
+    public BitSet toSet(Collection<BuiltInLibrary> libraries) {
+        BitSet set = new BitSet(this.libraries.length);
+        for (BuiltInLibrary library : libraries) {
+            int index = indexOf(library.getName());
+            if (index >= 0) {
+                set.set(index);
+            }
+        }
+        return set;
+    }
+}
@@ -3,13 +3,12 @@ package pro.sketchware.util.library;
 import android.util.Log;
 
 import java.util.ArrayList;
-import java.util.List;
-import java.util.Optional;
+import java.util.BitSet;
 
 import a.a.a.Jp;
 import a.a.a.ProjectBuilder;
-import mod.jbk.build.BuiltInLibraries;
 import mod.jbk.editor.manage.library.ExcludeBuiltInLibrariesActivity;
+import pro.sketchware.util.build.BuildConfiguration;
 
 /**
  * A class to keep track of a project's built-in libraries.
@@ -17,53 +16,47 @@ import mod.jbk.editor.manage.library.ExcludeBuiltInLibrariesActivity;
 
 public class BuiltInLibraryManager {
 
-    private final ArrayList<String> libraryNames = new ArrayList<>();
+    private final BuiltInLibraryGraph graph = BuiltInLibraryGraph.get();
+    private final BitSet addedLibraries = new BitSet(graph.size());
     private final ArrayList<Jp> libraries = new ArrayList<>();
-    private final List<BuiltInLibraries.BuiltInLibrary> excludedLibraries;
+    private final BitSet excludedLibraries;
 
-    public BuiltInLibraryManager(String projectId) {
-        excludedLibraries = ExcludeBuiltInLibrariesActivity.getExcludedLibraries(projectId);
+    public BuiltInLibraryManager(BuildConfiguration configuration) {
+        excludedLibraries = graph.toSet(configuration.getExcludedLibraries());
     }
 
     /**
-     * Add a built-in library to the project libraries list.
+     * Add a built-in library and its dependencies to the project libraries list.
      * Won't add a library if it's in the list already,
      * or it got excluded with {@link ExcludeBuiltInLibrariesActivity}.
+     * Dependencies of excluded libraries get added though.
      *
      * @param libraryName The built-in library's name, e.g. material-1.0.0
+     * @throws IllegalArgumentException If the library isn't a known built-in library
      */
     public void addLibrary(String libraryName) {
-        Optional<BuiltInLibraries.BuiltInLibrary> library = BuiltInLibraries.BuiltInLibrary.ofName(libraryName);
-        //noinspection SimplifyOptionalCallChains because #isEmpty() isn't available on Android.
-        if (!library.isPresent() || !excludedLibraries.contains(library.get())) {
-            if (!libraryNames.contains(libraryName)) {
-                Log.d(ProjectBuilder.TAG, "Added built-in library \"" + libraryName + "\" to project's dependencies");
-                libraryNames.add(libraryName);
-                libraries.add(new Jp(libraryName));
-                addDependencies(libraryName);
+        int index = graph.requireIndexOf(libraryName);
+        BitSet missingLibraries = (BitSet) graph.getClosure(index).clone();
+        missingLibraries.andNot(addedLibraries);
+        if (missingLibraries.isEmpty()) return;
+
+        for (int library : graph.getExpansion(index)) {
+            if (!missingLibraries.get(library)) continue;
+
+            String name = graph.getLibrary(library).getName();
+            if (excludedLibraries.get(library)) {
+                Log.v(ProjectBuilder.TAG, "Didn't add built-in library \"" + name + "\" to project's dependencies as it's excluded");
             } else {
-                Log.v(ProjectBuilder.TAG, "Didn't add built-in library \"" + libraryName + "\" to project's dependencies again");
+                Log.d(ProjectBuilder.TAG, "Added built-in library \"" + name + "\" to project's dependencies");
+                addedLibraries.set(library);
+                libraries.add(new Jp(name));
             }
-        } else {
-            Log.v(ProjectBuilder.TAG, "Didn't add built-in library \"" + libraryName + "\" to project's dependencies as it's excluded");
-            Log.v(ProjectBuilder.TAG, "Adding its dependencies though");
-            addDependencies(libraryName);
-        }
-    }
-
-    private void addDependencies(String libraryName) {
-        for (String libraryDependency : BuiltInLibraryUtils.getKnownDependencies(libraryName)) {
-            addLibrary(libraryDependency);
         }
     }
 
     public boolean containsLibrary(String libraryName) {
-        Optional<BuiltInLibraries.BuiltInLibrary> library = BuiltInLibraries.BuiltInLibrary.ofName(libraryName);
-        //noinspection SimplifyOptionalCallChains because #isEmpty() isn't available on Android.
-        if (!library.isPresent()) {
-            return false;
-        }
-        return libraries.contains(new Jp(library.get().getName()));
+        int library = graph.indexOf(libraryName);
+        return library >= 0 && addedLibraries.get(library);
     }
 
     /**
@@ -1,6 +1,5 @@
 package pro.sketchware.util.library;
 
-import mod.jbk.build.BuiltInLibraries;
 import mod.jbk.build.BuiltInLibraries.BuiltInLibrary;
 
 public class BuiltInLibraryUtils {
@@ -11,26 +10,15 @@ public class BuiltInLibraryUtils {
      * @apiNote This method won't return the dependencies' sub-dependencies!
      */
     public static String[] getKnownDependencies(String libraryName) {
-        for (BuiltInLibrary library : BuiltInLibraries.KNOWN_BUILT_IN_LIBRARIES) {
-            if (library.getName().equals(libraryName)) {
-                return library.getDependencyNames().toArray(new String[0]);
-            }
-        }
-
-        throw new IllegalArgumentException("Unknown built-in library '" + libraryName + "'!");
+        BuiltInLibraryGraph graph = BuiltInLibraryGraph.get();
+        return graph.getDependencyNames(graph.requireIndexOf(libraryName)).clone();
     }
 
     /**
      * Returns the package name of a given built-in library.
      */
     public static String getPackageName(String libraryName) {
-        for (BuiltInLibrary library : BuiltInLibraries.KNOWN_BUILT_IN_LIBRARIES) {
-            if (library.getName().equals(libraryName)) {
-                return library.getPackageName().orElseThrow(IllegalStateException::new);
-            }
-        }
-
-        throw new IllegalArgumentException("Unknown built-in library '" + libraryName + "'!");
+        return getLibrary(libraryName).getPackageName().orElseThrow(IllegalStateException::new);
     }
 
     /**
@@ -38,12 +26,11 @@ public class BuiltInLibraryUtils {
      * by a resource processor.
      */
     public static boolean hasResources(String libraryName) {
-        for (BuiltInLibrary library : BuiltInLibraries.KNOWN_BUILT_IN_LIBRARIES) {
-            if (library.getName().equals(libraryName)) {
-                return library.hasResources();
-            }
-        }
+        return getLibrary(libraryName).hasResources();
+    }
 
-        throw new IllegalArgumentException("Unknown built-in library '" + libraryName + "'!");
+    private static BuiltInLibrary getLibrary(String libraryName) {
+        BuiltInLibraryGraph graph = BuiltInLibraryGraph.get();
+        return graph.getLibrary(graph.requireIndexOf(libraryName));
     }
 }
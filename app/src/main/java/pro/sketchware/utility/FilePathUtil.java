@@ -57,6 +57,10 @@ public class FilePathUtil {
         return new File(SKETCHWARE_DATA, sc_id + "/proguard-rules.pro").getAbsolutePath();
     }
 
+    public String getPathExportManifest(String sc_id) {
+        return new File(SKETCHWARE_DATA, sc_id + "/export_manifest").getAbsolutePath();
+    }
+
     public String getPathLocalLibrary(String sc_id) {
         return new File(SKETCHWARE_DATA, sc_id + "/local_library").getAbsolutePath();
     }
@@ -0,0 +1,146 @@
+package pro.sketchware.utility;
+
+import androidx.annotation.Nullable;
+
+import org.xmlpull.v1.XmlPullParser;
+import org.xmlpull.v1.XmlPullParserException;
+import org.xmlpull.v1.XmlPullParserFactory;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import mod.jbk.util.LogUtil;
+
+/**
+ * Parsed attributes of a ViewBean's <code>inject</code> property.
+ * <p>
+ * Immutable, get one through {@link com.besome.sketch.beans.ViewBean#getInjectAttributes()},
+ * which only re-parses once <code>inject</code> changed.
+ */
+public final class InjectAttributes {
+
+    public static final String NAMESPACE_ANDROID = "http://schemas.android.com/apk/res/android";
+    public static final String NAMESPACE_APP = "http://schemas.android.com/apk/res-auto";
+    public static final String NAMESPACE_TOOLS = "http://schemas.android.com/tools";
+
+    private static XmlPullParserFactory parserFactory;
+
+    private final String source;
+    private final List<Attribute> attributes;
+    /**
+     * First value of every attribute name, ignoring namespaces
+     */
+    private final Map<String, String> valuesByName;
+    /**
+     * First value of every attribute, keyed by namespace and name
+     */
+    private final Map<String, String> valuesByQualifiedName;
+
+    private InjectAttributes(String source, List<Attribute> attributes) {
+        this.source = source;
+        this.attributes = Collections.unmodifiableList(attributes);
+        valuesByName = new HashMap<>(attributes.size() * 2);
+        valuesByQualifiedName = new HashMap<>(attributes.size() * 2);
+        for (Attribute attribute : attributes) {
+            valuesByName.putIfAbsent(attribute.name(), attribute.value());
+            valuesByQualifiedName.putIfAbsent(qualify(attribute.namespace(), attribute.name()), attribute.value());
+        }
+    }
+
+    /**
+     * Parses an <code>inject</code> property. Unparseable input results in the attributes parsed
+     * before the error, like an empty property if nothing could be parsed.
+     *
+     * @param inject The <code>inject</code> property
+     * @param viewId ID of the View the property belongs to, for logging
+     */
+    public static InjectAttributes parse(String inject, String viewId) {
+        List<Attribute> attributes = new ArrayList<>();
+        if (inject == null || inject.trim().isEmpty()) {
+            return new InjectAttributes(inject, attributes);
+        }
+
+        try {
+            XmlPullParser parser = getParserFactory().newPullParser();
+            parser.setInput(new StringReader(
+                    "<tag xmlns:android=\"" + NAMESPACE_ANDROID + "\" " +
+                            "xmlns:app=\"" + NAMESPACE_APP + "\" " +
+                            "xmlns:tools=\"" + NAMESPACE_TOOLS + "\"" +
+                            inject + "></tag>"));
+
+            int eventType = parser.getEventType();
+            while (eventType != XmlPullParser.END_DOCUMENT) {
+                if (eventType == XmlPullParser.START_TAG) {
+                    for (int i = 0; i < parser.getAttributeCount(); i++) {
+                        attributes.add(new Attribute(parser.getAttributeNamespace(i),
+                                parser.getAttributeName(i), parser.getAttributeValue(i)));
+                    }
+                }
+
+                eventType = parser.next();
+            }
+        } catch (XmlPullParserException | IOException | RuntimeException e) {
+            LogUtil.e("InjectAttributeHandler", "Failed to parse inject property of View " + viewId, e);
+        }
+
+        return new InjectAttributes(inject, attributes);
+    }
+
+    private static synchronized XmlPullParserFactory getParserFactory() throws XmlPullParserException {
+        if (parserFactory == null) {
+            parserFactory = XmlPullParserFactory.newInstance();
+            parserFactory.setNamespaceAware(true);
+        }
+        return parserFactory;
+    }
+
+    private static String qualify(String namespace, String name) {
+        return namespace == null || namespace.isEmpty() ? name : "{" + namespace + "}" + name;
+    }
+
+    /**
+     * @return The <code>inject</code> property these attributes got parsed from
+     */
+    public String getSource() {
+        return source;
+    }
+
+    /**
+     * @return All attributes, in the order they appear in the property
+     */
+    public List<Attribute> getAll() {
+        return attributes;
+    }
+
+    /**
+     * @return The value of the first attribute named <code>name</code> in any namespace
+     */
+    @Nullable
+    public String get(String name) {
+        return valuesByName.get(name);
+    }
+
+    /**
+     * @return The value of the first attribute named <code>name</code> in <code>namespace</code>
+     */
+    @Nullable
+    public String get(String namespace, String name) {
+        return valuesByQualifiedName.get(qualify(namespace, name));
+    }
+
+    public boolean contains(String name) {
+        return valuesByName.containsKey(name);
+    }
+
+    /**
+     * @param namespace Namespace URI, or an empty string for attributes without a namespace
+     * @param name      Attribute name without prefix
+     */
+    public record Attribute(String namespace, String name, String value) {
+    }
+}
@@ -2,6 +2,7 @@ package pro.sketchware.utility
 
 import android.content.Context
 import android.graphics.Bitmap
+import android.graphics.drawable.BitmapDrawable
 import android.util.Log
 import android.widget.ImageView
 import androidx.core.graphics.drawable.toBitmap
@@ -13,15 +14,20 @@ import org.xmlpull.v1.XmlPullParser
 import org.xmlpull.v1.XmlPullParserFactory
 import org.xmlpull.v1.XmlSerializer
 import java.io.File
+import java.io.FileOutputStream
+import java.io.IOException
 import java.io.StringReader
 import java.io.StringWriter
 import java.nio.file.Files
 import java.nio.file.Paths
+import java.util.concurrent.Executors
 import kotlin.math.roundToInt
 
 
 const val SIZE_MULTIPLIER = 2
 
+private val thumbnailWriter = Executors.newSingleThreadExecutor()
+
 class SvgUtils(private val context: Context) {
     private var imageLoader: ImageLoader? = null
 
@@ -63,6 +69,42 @@ class SvgUtils(private val context: Context) {
         }
     }
 
+    /**
+     * Loads an SVG like [loadImage], but keeps the rendered bitmap as PNG at [thumbnailFile], so
+     * that later loads only need to decode the PNG instead of parsing and rendering the SVG again.
+     */
+    fun loadThumbnail(imageView: ImageView, svgPath: String, thumbnailFile: File) {
+        val request = ImageRequest.Builder(context).target(imageView)
+        if (thumbnailFile.exists()) {
+            request.data(thumbnailFile)
+        } else {
+            val svgFile = File(svgPath)
+            if (!svgFile.exists()) return
+            request.data(svgFile)
+                .allowHardware(false)
+                .listener(onSuccess = { _, result ->
+                    val bitmap = (result.drawable as? BitmapDrawable)?.bitmap
+                    if (bitmap != null) {
+                        thumbnailWriter.execute { writeThumbnail(bitmap, thumbnailFile) }
+                    }
+                })
+        }
+        imageLoader!!.enqueue(request.build())
+    }
+
+    private fun writeThumbnail(bitmap: Bitmap, thumbnailFile: File) {
+        if (thumbnailFile.exists()) return
+        try {
+            thumbnailFile.parentFile?.mkdirs()
+            // Write to a temporary file first, so that a half-written thumbnail is never loaded
+            val tempFile = File(thumbnailFile.path + ".tmp")
+            FileOutputStream(tempFile).use { bitmap.compress(Bitmap.CompressFormat.PNG, 100, it) }
+            tempFile.renameTo(thumbnailFile)
+        } catch (e: IOException) {
+            Log.w("SvgUtils", "Failed to save thumbnail $thumbnailFile", e)
+        }
+    }
+
     fun loadScaledSvgIntoImageView(
         imageView: ImageView,
         svgPath: String,
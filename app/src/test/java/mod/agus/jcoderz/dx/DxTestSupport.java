@@ -0,0 +1,174 @@
+package mod.agus.jcoderz.dx;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.Method;
+import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.Random;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+import javax.tools.JavaCompiler;
+import javax.tools.ToolProvider;
+
+import mod.agus.jcoderz.dx.command.dexer.Main;
+
+/**
+ * Inputs for tests of dx, and running it the way {@link a.a.a.ProjectBuilder} does.
+ */
+public final class DxTestSupport {
+
+    private DxTestSupport() {
+    }
+
+    /**
+     * Generates a class with a static method <code>run(int, int, String)</code> made of
+     * <code>statements</code> statements, each declaring a local variable from earlier ones with
+     * branches, loops, switches and try-catch blocks in between. Many of the variables stay live
+     * until the method returns.
+     *
+     * @return The source of the class
+     */
+    public static String generateClass(String name, int statements, long seed) {
+        Random random = new Random(seed);
+        StringBuilder source = new StringBuilder()
+                .append("public class ").append(name).append(" {\n")
+                .append("    static int field;\n\n")
+                .append("    public static int run(int a, int b, String s) {\n")
+                .append("        int v0 = a + b;\n");
+        for (int i = 1; i < statements; i++) {
+            String v = "v" + i;
+            String x = "v" + random.nextInt(i);
+            String y = "v" + random.nextInt(i);
+            String z = "v" + random.nextInt(i);
+            int constant = random.nextInt(100);
+            switch (random.nextInt(7)) {
+                case 0:
+                    source.append("        int ").append(v).append(" = ").append(x).append(" + ").append(y)
+                            .append(" * ").append(constant).append(";\n");
+                    break;
+                case 1:
+                    source.append("        int ").append(v).append(" = ").append(x).append(";\n")
+                            .append("        if (").append(v).append(" > ").append(y).append(") {\n")
+                            .append("            ").append(v).append(" -= ").append(constant).append(";\n")
+                            .append("            ").append(z).append("++;\n")
+                            .append("        } else {\n")
+                            .append("            ").append(v).append(" += ").append(z).append(";\n")
+                            .append("        }\n");
+                    break;
+                case 2:
+                    source.append("        int ").append(v).append(" = 0;\n")
+                            .append("        for (int j = 0; j < (").append(x).append(" & 7); j++) {\n")
+                            .append("            ").append(v).append(" += j * ").append(y).append(";\n")
+                            .append("        }\n");
+                    break;
+                case 3:
+                    source.append("        int ").append(v).append(";\n")
+                            .append("        try {\n")
+                            .append("            ").append(v).append(" = s.charAt(").append(x).append(" & 3) + ")
+                            .append(y).append(";\n")
+                            .append("        } catch (RuntimeException e) {\n")
+                            .append("            ").append(v).append(" = ").append(z).append(";\n")
+                            .append("        }\n");
+                    break;
+                case 4:
+                    source.append("        int ").append(v).append(" = ").append(x).append(";\n")
+                            .append("        switch (").append(y).append(" & 3) {\n")
+                            .append("            case 0: ").append(v).append("++; break;\n")
+                            .append("            case 1: ").append(v).append(" = ").append(z).append("; break;\n")
+                            .append("            default: ").append(v).append("--;\n")
+                            .append("        }\n");
+                    break;
+                case 5:
+                    source.append("        int ").append(v).append(" = ").append(x).append(";\n")
+                            .append("        while (").append(v).append(" > ").append(constant).append(") {\n")
+                            .append("            ").append(v).append(" = ").append(v).append(" / 2 - (")
+                            .append(y).append(" & 1);\n")
+                            .append("        }\n");
+                    break;
+                default:
+                    source.append("        int ").append(v).append(" = (").append(x).append(" > 0 ? ").append(y)
+                            .append(" : ").append(z).append(") ^ field;\n")
+                            .append("        field = ").append(v).append(";\n");
+                    break;
+            }
+        }
+        source.append("        return v0");
+        for (int i = 7; i < statements; i += 7) {
+            source.append(" ^ v").append(i);
+        }
+        return source.append(";\n    }\n}\n").toString();
+    }
+
+    /**
+     * Compiles classes of the default package into a directory, for Java 8 like Sketchware
+     * projects are.
+     *
+     * @param sources Pairs of class names and sources
+     */
+    public static void compile(File classesDirectory, String... sources) throws IOException {
+        File sourcesDirectory = Files.createTempDirectory("dx-test-sources").toFile();
+        List<String> arguments = new ArrayList<>(Arrays.asList("--release", "8", "-d", classesDirectory.getPath(), "-g"));
+        for (int i = 0; i < sources.length; i += 2) {
+            File file = new File(sourcesDirectory, sources[i] + ".java");
+            Files.write(file.toPath(), sources[i + 1].getBytes(StandardCharsets.UTF_8));
+            arguments.add(file.getPath());
+        }
+
+        JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        classesDirectory.mkdirs();
+        assertEquals("javac failed", 0, compiler.run(null, null, null, arguments.toArray(new String[0])));
+    }
+
+    /**
+     * @return The JUnit jar tests run with, as real-world input with all kinds of code, compiled
+     * for a class file version dx reads
+     */
+    public static File getJUnitJar() throws URISyntaxException {
+        return new File(Test.class.getProtectionDomain().getCodeSource().getLocation().toURI());
+    }
+
+    /**
+     * @return Class files of {@link #getJUnitJar()}
+     */
+    public static List<byte[]> readJUnitClasses() throws IOException, URISyntaxException {
+        List<byte[]> classes = new ArrayList<>();
+        try (ZipFile jar = new ZipFile(getJUnitJar())) {
+            for (Enumeration<? extends ZipEntry> entries = jar.entries(); entries.hasMoreElements(); ) {
+                ZipEntry entry = entries.nextElement();
+                if (!entry.getName().endsWith(".class")) continue;
+
+                try (InputStream in = jar.getInputStream(entry)) {
+                    classes.add(in.readAllBytes());
+                }
+            }
+        }
+        return classes;
+    }
+
+    /**
+     * Runs dx in-process with the same argument parsing as {@link a.a.a.ProjectBuilder}.
+     *
+     * @return The arguments dx ran with
+     */
+    public static Main.Arguments runDx(List<String> args) throws Exception {
+        Main.Arguments arguments = new Main.Arguments();
+        Method parseMethod = Main.Arguments.class.getDeclaredMethod("parse", String[].class);
+        parseMethod.setAccessible(true);
+        parseMethod.invoke(arguments, (Object) args.toArray(new String[0]));
+
+        assertEquals("dx failed", 0, Main.run(arguments));
+        return arguments;
+    }
+}
@@ -0,0 +1,81 @@
+package mod.agus.jcoderz.dx.command.dexer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.List;
+
+import mod.agus.jcoderz.dx.DxTestSupport;
+
+public class MainInternTablesTest {
+
+    private static final int RUNS = 50;
+
+    /**
+     * Runs after which the heap is expected to have settled, once classes got loaded and caches
+     * filled.
+     */
+    private static final int WARM_UP_RUNS = 5;
+
+    /**
+     * Growth of the retained heap between the end of warm-up and the last run that is still
+     * considered flat, to allow for measurement noise.
+     */
+    private static final long MAX_RETAINED_HEAP_GROWTH = 8L * 1024 * 1024;
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void repeatedRunsDontKeepInternedInstances() throws Exception {
+        File classesDirectory = temporaryFolder.newFolder("classes");
+        DxTestSupport.compile(classesDirectory,
+                "Small", DxTestSupport.generateClass("Small", 50, 1),
+                "Medium", DxTestSupport.generateClass("Medium", 300, 2));
+        List<String> args = Arrays.asList(
+                "--debug",
+                "--output=" + new File(temporaryFolder.getRoot(), "classes.dex").getPath(),
+                classesDirectory.getPath(),
+                DxTestSupport.getJUnitJar().getPath()
+        );
+
+        String initialSizes = Main.getInternTableSizes().toString();
+        long warmedUpHeap = 0;
+        long retainedHeap = 0;
+        for (int i = 1; i <= RUNS; i++) {
+            DxTestSupport.runDx(args);
+
+            assertEquals("Intern table sizes after run " + i, initialSizes, Main.getInternTableSizes().toString());
+            retainedHeap = retainedHeap();
+            if (i == WARM_UP_RUNS) warmedUpHeap = retainedHeap;
+        }
+
+        System.out.println("Retained heap after " + WARM_UP_RUNS + " runs: " + warmedUpHeap / 1024 + " KiB, after "
+                + RUNS + " runs: " + retainedHeap / 1024 + " KiB");
+        assertTrue("Retained heap grew from " + warmedUpHeap / 1024 + " KiB to " + retainedHeap / 1024 + " KiB",
+                retainedHeap - warmedUpHeap < MAX_RETAINED_HEAP_GROWTH);
+    }
+
+    /**
+     * @return Bytes of heap in use after garbage collection, which has settled if it stays the
+     * same over a few collections
+     */
+    private static long retainedHeap() throws InterruptedException {
+        Runtime runtime = Runtime.getRuntime();
+        long used = Long.MAX_VALUE;
+        for (int i = 0; i < 10; i++) {
+            System.gc();
+            Thread.sleep(20);
+            long nowUsed = runtime.totalMemory() - runtime.freeMemory();
+            if (nowUsed >= used) break;
+            used = nowUsed;
+        }
+        return used;
+    }
+}
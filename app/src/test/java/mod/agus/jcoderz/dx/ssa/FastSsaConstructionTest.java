@@ -0,0 +1,72 @@
+package mod.agus.jcoderz.dx.ssa;
+
+import static org.junit.Assert.assertArrayEquals;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import mod.agus.jcoderz.dx.DxTestSupport;
+
+public class FastSsaConstructionTest {
+
+    private static final int RUNS = 3;
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void dexFilesAreSameAsWithoutFastConstruction() throws Exception {
+        File classesDirectory = temporaryFolder.newFolder("classes");
+        DxTestSupport.compile(classesDirectory,
+                "Small", DxTestSupport.generateClass("Small", 50, 1),
+                "Medium", DxTestSupport.generateClass("Medium", 300, 2),
+                "Large", DxTestSupport.generateClass("Large", 1000, 3));
+        String[] inputs = {classesDirectory.getPath(), DxTestSupport.getJUnitJar().getPath()};
+
+        // Both the profile release builds use and the one of debug builds, which also pass --fast-ssa-construction
+        for (String profile : new String[]{"release", "debug-fast"}) {
+            long[] times = new long[RUNS];
+            long[] fastTimes = new long[RUNS];
+            byte[] dex = null;
+            byte[] fastDex = null;
+            for (int i = 0; i < RUNS; i++) {
+                long startTime = System.nanoTime();
+                dex = runDx(profile, false, inputs);
+                times[i] = System.nanoTime() - startTime;
+
+                startTime = System.nanoTime();
+                fastDex = runDx(profile, true, inputs);
+                fastTimes[i] = System.nanoTime() - startTime;
+            }
+            Arrays.sort(times);
+            Arrays.sort(fastTimes);
+            System.out.println("Dx with profile " + profile + " took " + times[RUNS / 2] / 1_000_000 + " ms, "
+                    + fastTimes[RUNS / 2] / 1_000_000 + " ms with fast SSA construction");
+
+            assertArrayEquals("DEX file of profile " + profile, dex, fastDex);
+        }
+    }
+
+    private byte[] runDx(String profile, boolean fastSsaConstruction, String[] inputs) throws Exception {
+        File output = new File(temporaryFolder.getRoot(), "classes.dex");
+        List<String> args = new ArrayList<>(Arrays.asList(
+                "--debug",
+                "--output=" + output.getPath(),
+                "--optimization-profile=" + profile
+        ));
+        if (fastSsaConstruction) {
+            args.add("--fast-ssa-construction");
+        }
+        args.addAll(Arrays.asList(inputs));
+
+        DxTestSupport.runDx(args);
+        return Files.readAllBytes(output.toPath());
+    }
+}
@@ -0,0 +1,199 @@
+package mod.agus.jcoderz.dx.ssa.back;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import mod.agus.jcoderz.dx.DxTestSupport;
+import mod.agus.jcoderz.dx.cf.code.ConcreteMethod;
+import mod.agus.jcoderz.dx.cf.code.Ropper;
+import mod.agus.jcoderz.dx.cf.direct.DirectClassFile;
+import mod.agus.jcoderz.dx.cf.direct.StdAttributeFactory;
+import mod.agus.jcoderz.dx.cf.iface.Method;
+import mod.agus.jcoderz.dx.cf.iface.MethodList;
+import mod.agus.jcoderz.dx.dex.DexOptions;
+import mod.agus.jcoderz.dx.rop.code.AccessFlags;
+import mod.agus.jcoderz.dx.rop.code.DexTranslationAdvice;
+import mod.agus.jcoderz.dx.rop.code.RopMethod;
+import mod.agus.jcoderz.dx.rop.cst.CstMethodRef;
+import mod.agus.jcoderz.dx.ssa.SsaBasicBlock;
+import mod.agus.jcoderz.dx.ssa.SsaConverter;
+import mod.agus.jcoderz.dx.ssa.SsaMethod;
+import mod.agus.jcoderz.dx.util.BitIntSet;
+import mod.agus.jcoderz.dx.util.IntIterator;
+import mod.agus.jcoderz.dx.util.IntSet;
+
+public class BlockLivenessAnalyzerTest {
+
+    /**
+     * Statement counts of generated methods, the largest ones being analyzed per block by
+     * {@link LivenessAnalyzer#constructInterferenceGraph}.
+     */
+    private static final int[] GENERATED_METHOD_SIZES = {5, 50, 300, 1000};
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void findsSameLivenessAndInterferenceAsPerRegisterAnalysis() throws Exception {
+        List<byte[]> classes = DxTestSupport.readJUnitClasses();
+        classes.addAll(compileGeneratedClasses(GENERATED_METHOD_SIZES));
+
+        int methods = 0;
+        int largeMethods = 0;
+        for (byte[] classBytes : classes) {
+            for (ConvertedMethod method : convertMethods(classBytes)) {
+                SsaMethod perRegister = method.toSsa();
+                InterferenceGraph perRegisterInterference = new InterferenceGraph(perRegister.getRegCount());
+                LivenessAnalyzer.runPerRegister(perRegister, perRegisterInterference);
+
+                SsaMethod perBlock = method.toSsa();
+                InterferenceGraph perBlockInterference = new InterferenceGraph(perBlock.getRegCount());
+                BlockLivenessAnalyzer.run(perBlock, perBlockInterference);
+
+                assertSameLiveness(method.name, perRegister, perRegisterInterference, perBlock, perBlockInterference);
+                methods++;
+                if (BlockLivenessAnalyzer.shouldAnalyze(perBlock)) largeMethods++;
+            }
+        }
+        System.out.println("Compared liveness of " + methods + " methods, " + largeMethods + " of them large");
+        assertTrue("No method was large enough to be analyzed per block", largeMethods > 0);
+    }
+
+    @Test
+    public void analyzesLargeMethodFasterThanPerRegister() throws Exception {
+        ConvertedMethod method = null;
+        for (ConvertedMethod converted : convertMethods(compileGeneratedClasses(new int[]{1000}).get(0))) {
+            if (converted.name.startsWith("Generated1000.run:")) method = converted;
+        }
+        assertTrue(BlockLivenessAnalyzer.shouldAnalyze(method.toSsa()));
+
+        long[] perRegisterTimes = new long[5];
+        long[] perBlockTimes = new long[5];
+        for (int i = 0; i < perRegisterTimes.length; i++) {
+            SsaMethod perRegister = method.toSsa();
+            long startTime = System.nanoTime();
+            LivenessAnalyzer.runPerRegister(perRegister, new InterferenceGraph(perRegister.getRegCount()));
+            perRegisterTimes[i] = System.nanoTime() - startTime;
+
+            SsaMethod perBlock = method.toSsa();
+            startTime = System.nanoTime();
+            BlockLivenessAnalyzer.run(perBlock, new InterferenceGraph(perBlock.getRegCount()));
+            perBlockTimes[i] = System.nanoTime() - startTime;
+        }
+        Arrays.sort(perRegisterTimes);
+        Arrays.sort(perBlockTimes);
+
+        long perRegisterMedian = perRegisterTimes[perRegisterTimes.length / 2];
+        long perBlockMedian = perBlockTimes[perBlockTimes.length / 2];
+        System.out.println("Liveness of " + method.name + " with " + method.toSsa().getRegCount() + " registers took "
+                + perRegisterMedian / 1_000_000 + " ms per register, " + perBlockMedian / 1_000_000 + " ms per block");
+        assertTrue("Analyzing per block took " + perBlockMedian / 1_000_000 + " ms, per register only "
+                + perRegisterMedian / 1_000_000 + " ms", perBlockMedian < perRegisterMedian);
+    }
+
+    private List<byte[]> compileGeneratedClasses(int[] sizes) throws Exception {
+        String[] sources = new String[sizes.length * 2];
+        for (int i = 0; i < sizes.length; i++) {
+            sources[i * 2] = "Generated" + sizes[i];
+            sources[i * 2 + 1] = DxTestSupport.generateClass(sources[i * 2], sizes[i], sizes[i]);
+        }
+        File classesDirectory = temporaryFolder.newFolder();
+        DxTestSupport.compile(classesDirectory, sources);
+
+        List<byte[]> classes = new ArrayList<>();
+        for (int i = 0; i < sizes.length; i++) {
+            classes.add(Files.readAllBytes(new File(classesDirectory, sources[i * 2] + ".class").toPath()));
+        }
+        return classes;
+    }
+
+    /**
+     * @return Methods with code of a class, converted the way {@link mod.agus.jcoderz.dx.dex.cf.CfTranslator} does
+     */
+    private static List<ConvertedMethod> convertMethods(byte[] classBytes) {
+        DirectClassFile cf = new DirectClassFile(classBytes, "Test.class", false);
+        cf.setAttributeFactory(StdAttributeFactory.THE_ONE);
+
+        List<ConvertedMethod> converted = new ArrayList<>();
+        MethodList methods = cf.getMethods();
+        for (int i = 0; i < methods.size(); i++) {
+            Method method = methods.get(i);
+            int accessFlags = method.getAccessFlags();
+            if (AccessFlags.isNative(accessFlags) || AccessFlags.isAbstract(accessFlags)) continue;
+
+            boolean isStatic = AccessFlags.isStatic(accessFlags);
+            ConcreteMethod concrete = new ConcreteMethod(method, cf, true, true);
+            RopMethod ropMethod = Ropper.convert(concrete, DexTranslationAdvice.THE_ONE, methods, new DexOptions());
+            int paramWidth = new CstMethodRef(cf.getThisClass(), method.getNat()).getParameterWordCount(isStatic);
+            converted.add(new ConvertedMethod(cf.getThisClass().toHuman() + "." + method.getNat().toHuman(),
+                    ropMethod, paramWidth, isStatic));
+        }
+        return converted;
+    }
+
+    private static void assertSameLiveness(String name, SsaMethod expected, InterferenceGraph expectedInterference,
+                                           SsaMethod actual, InterferenceGraph actualInterference) {
+        assertEquals(name, expected.getRegCount(), actual.getRegCount());
+        for (int reg = 0; reg < expected.getRegCount(); reg++) {
+            assertEquals(name + ", interference of register " + reg,
+                    interferenceOf(expectedInterference, reg, expected.getRegCount()),
+                    interferenceOf(actualInterference, reg, actual.getRegCount()));
+        }
+
+        List<SsaBasicBlock> expectedBlocks = expected.getBlocks();
+        List<SsaBasicBlock> actualBlocks = actual.getBlocks();
+        assertEquals(name, expectedBlocks.size(), actualBlocks.size());
+        for (int i = 0; i < expectedBlocks.size(); i++) {
+            assertEquals(name + ", registers live-in at block " + i,
+                    toList(expectedBlocks.get(i).getLiveInRegs()), toList(actualBlocks.get(i).getLiveInRegs()));
+            assertEquals(name + ", registers live-out at block " + i,
+                    toList(expectedBlocks.get(i).getLiveOutRegs()), toList(actualBlocks.get(i).getLiveOutRegs()));
+        }
+    }
+
+    private static List<Integer> interferenceOf(InterferenceGraph interference, int reg, int regCount) {
+        BitIntSet set = new BitIntSet(regCount);
+        interference.mergeInterferenceSet(reg, set);
+        return toList(set);
+    }
+
+    private static List<Integer> toList(IntSet set) {
+        List<Integer> list = new ArrayList<>();
+        for (IntIterator iterator = set.iterator(); iterator.hasNext(); ) {
+            list.add(iterator.next());
+        }
+        list.sort(null);
+        return list;
+    }
+
+    private static class ConvertedMethod {
+        final String name;
+        final RopMethod ropMethod;
+        final int paramWidth;
+        final boolean isStatic;
+
+        ConvertedMethod(String name, RopMethod ropMethod, int paramWidth, boolean isStatic) {
+            this.name = name;
+            this.ropMethod = ropMethod;
+            this.paramWidth = paramWidth;
+            this.isStatic = isStatic;
+        }
+
+        /**
+         * @return A new SSA form of the method, with no liveness information yet
+         */
+        SsaMethod toSsa() {
+            return SsaConverter.convertToSsaMethod(ropMethod, paramWidth, isStatic);
+        }
+    }
+}
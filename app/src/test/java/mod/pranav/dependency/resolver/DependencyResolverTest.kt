@@ -0,0 +1,119 @@
+package mod.pranav.dependency.resolver
+
+import dev.aldi.sayuti.editor.manage.LocalLibraryStore
+import mod.hey.studios.build.BuildSettings
+import org.cosmic.ide.dependency.resolver.api.Artifact
+import org.cosmic.ide.dependency.resolver.repositories
+import org.junit.After
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertTrue
+import org.junit.Before
+import org.junit.Rule
+import org.junit.Test
+import org.junit.rules.TemporaryFolder
+import org.junit.runner.RunWith
+import org.robolectric.RobolectricTestRunner
+import org.robolectric.annotation.Config
+import pro.sketchware.utility.FileUtil
+import java.io.File
+import java.nio.file.Paths
+import java.util.Collections
+
+@RunWith(RobolectricTestRunner::class)
+@Config(sdk = [28])
+class DependencyResolverTest {
+
+    @get:Rule
+    val temporaryFolder = TemporaryFolder()
+
+    private lateinit var repository: LocalMavenRepository
+
+    @Before
+    fun setUp() {
+        repository = LocalMavenRepository(temporaryFolder.newFolder("repository"))
+
+        // Repositories are global, don't let ones of other tests get queried
+        repositories.clear()
+        File(FileUtil.getExternalStorageDir(), ".sketchware/libs/repositories.json").apply {
+            parentFile!!.mkdirs()
+            writeText("""[{"url": "${repository.url}", "name": "Local"}]""")
+        }
+    }
+
+    @After
+    fun tearDown() {
+        repository.close()
+    }
+
+    @Test
+    fun resolvesTreeConcurrentlyAndReusesStoredLibraries() {
+        val dependencies = ('a'..'f').map { "test:lib-$it:1.0" }
+        dependencies.forEach { repository.publishJar(it) }
+        repository.publishJar("test:app:1.0", dependencies)
+        val libraryNames = listOf("app-v1.0") + ('a'..'f').map { "lib-$it-v1.0" }
+
+        val callback = RecordingCallback()
+        createResolver().resolveDependency(callback)
+
+        assertEquals(emptyList<String>(), callback.failures)
+        assertEquals(libraryNames.toSet(), callback.dexed.toSet())
+        for (name in libraryNames) {
+            assertTrue("$name wasn't dexed", File(LocalLibraryStore.getContentDirectory(name), "classes.dex").isFile)
+        }
+        assertEquals(libraryNames.size, repository.downloads.get())
+        val maxConcurrentDownloads = repository.maxConcurrentDownloads.get()
+        assertTrue("Downloads didn't overlap", maxConcurrentDownloads > 1)
+        assertTrue(
+            "$maxConcurrentDownloads downloads ran at once",
+            maxConcurrentDownloads <= DependencyResolver.MAX_PARALLEL_DOWNLOADS
+        )
+
+        // Everything is in the local library store now
+        val secondCallback = RecordingCallback()
+        createResolver().resolveDependency(secondCallback)
+
+        assertEquals(emptyList<String>(), secondCallback.failures)
+        assertEquals(emptyList<String>(), secondCallback.dexed)
+        assertEquals(libraryNames.size, repository.downloads.get())
+        assertTrue(secondCallback.completed.containsAll(libraryNames.drop(1)))
+    }
+
+    private fun createResolver(): DependencyResolver {
+        // The JDK's classes, instead of android.jar, which isn't extracted in tests
+        val libraryJars = listOf(Paths.get(System.getProperty("java.home")!!))
+        return DependencyResolver("test", "app", "1.0", false, BuildSettings("test"), libraryJars)
+    }
+
+    /**
+     * Records events, which can come from any thread
+     */
+    private class RecordingCallback : DependencyResolver.DependencyResolverCallback() {
+        val dexed: MutableList<String> = Collections.synchronizedList(mutableListOf())
+        val failures: MutableList<String> = Collections.synchronizedList(mutableListOf())
+        var completed: List<String> = emptyList()
+
+        override fun dexing(artifact: Artifact) {
+            dexed += "${artifact.artifactId}-v${artifact.version}"
+        }
+
+        override fun dexingFailed(artifact: Artifact, e: Exception) {
+            failures += "Dexing ${artifact.artifactId} failed: $e"
+        }
+
+        override fun onDownloadError(artifact: Artifact, error: Throwable) {
+            failures += "Downloading ${artifact.artifactId} failed: $error"
+        }
+
+        override fun onDependenciesNotFound(artifact: Artifact) {
+            failures += "No classes found in ${artifact.artifactId}"
+        }
+
+        override fun onArtifactNotFound(artifact: Artifact) {
+            failures += "${artifact.artifactId} not found"
+        }
+
+        override fun onTaskCompleted(artifacts: List<String>) {
+            completed = artifacts
+        }
+    }
+}
@@ -0,0 +1,162 @@
+package mod.pranav.dependency.resolver
+
+import com.sun.net.httpserver.HttpExchange
+import com.sun.net.httpserver.HttpServer
+import java.io.Closeable
+import java.io.File
+import java.net.InetAddress
+import java.net.InetSocketAddress
+import java.util.concurrent.ExecutorService
+import java.util.concurrent.Executors
+import java.util.concurrent.atomic.AtomicInteger
+import java.util.jar.JarEntry
+import java.util.jar.JarOutputStream
+import javax.tools.ToolProvider
+
+/**
+ * A Maven repository in a local directory, served over loopback HTTP to stand in for a remote
+ * one. Artifact downloads get slowed down a bit so that concurrent ones overlap, and the most
+ * downloads that ran at once is recorded.
+ */
+class LocalMavenRepository(private val root: File) : Closeable {
+    private val executor: ExecutorService = Executors.newCachedThreadPool()
+    private val server = HttpServer.create(InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0)
+    private val activeDownloads = AtomicInteger()
+
+    /** How many artifacts got downloaded in total */
+    val downloads = AtomicInteger()
+
+    /** The most artifact downloads that ran at the same time */
+    val maxConcurrentDownloads = AtomicInteger()
+
+    val url: String
+        get() = "http://${server.address.hostString}:${server.address.port}"
+
+    init {
+        server.executor = executor
+        server.createContext("/") { serve(it) }
+        server.start()
+    }
+
+    /**
+     * Publishes a jar with a single class, along with its POM and metadata.
+     *
+     * @param coordinates  `groupId:artifactId:version`
+     * @param dependencies Coordinates of the artifact's compile dependencies
+     */
+    fun publishJar(coordinates: String, dependencies: List<String> = emptyList()) {
+        val (groupId, artifactId, version) = coordinates.split(":")
+        val directory = File(root, "${groupId.replace('.', '/')}/$artifactId/$version").apply { mkdirs() }
+
+        File(directory, "$artifactId-$version.jar").writeBytes(compileJar(groupId, artifactId))
+        File(directory, "$artifactId-$version.pom").writeText(
+            """
+            |<?xml version="1.0" encoding="UTF-8"?>
+            |<project>
+            |    <modelVersion>4.0.0</modelVersion>
+            |    <groupId>$groupId</groupId>
+            |    <artifactId>$artifactId</artifactId>
+            |    <version>$version</version>
+            |    <packaging>jar</packaging>
+            |    <dependencies>
+            |${dependencies.joinToString("\n") { dependencyXml(it) }}
+            |    </dependencies>
+            |</project>
+            """.trimMargin()
+        )
+        File(directory.parentFile, "maven-metadata.xml").writeText(
+            """
+            |<?xml version="1.0" encoding="UTF-8"?>
+            |<metadata>
+            |    <groupId>$groupId</groupId>
+            |    <artifactId>$artifactId</artifactId>
+            |    <versioning>
+            |        <latest>$version</latest>
+            |        <release>$version</release>
+            |        <versions>
+            |            <version>$version</version>
+            |        </versions>
+            |    </versioning>
+            |</metadata>
+            """.trimMargin()
+        )
+    }
+
+    override fun close() {
+        server.stop(0)
+        executor.shutdownNow()
+    }
+
+    private fun dependencyXml(coordinates: String): String {
+        val (groupId, artifactId, version) = coordinates.split(":")
+        return """
+            |        <dependency>
+            |            <groupId>$groupId</groupId>
+            |            <artifactId>$artifactId</artifactId>
+            |            <version>$version</version>
+            |            <scope>compile</scope>
+            |        </dependency>
+        """.trimMargin()
+    }
+
+    /**
+     * @return A jar with a class named after the artifact, compiled with the JDK's compiler
+     */
+    private fun compileJar(groupId: String, artifactId: String): ByteArray {
+        val packageName = "$groupId.${artifactId.replace('-', '_')}"
+        val sources = File(root, ".sources/$packageName").apply { mkdirs() }
+        val source = File(sources, "Library.java").apply {
+            writeText("package $packageName;\n\npublic class Library {\n    public static String name() {\n        return \"$artifactId\";\n    }\n}\n")
+        }
+        val classes = File(sources, "classes").apply { mkdirs() }
+        val exitCode = ToolProvider.getSystemJavaCompiler()
+            .run(null, null, null, "--release", "8", "-d", classes.absolutePath, source.absolutePath)
+        check(exitCode == 0) { "Failed to compile $source" }
+
+        val jar = File(sources, "library.jar")
+        JarOutputStream(jar.outputStream()).use { out ->
+            classes.walk().filter { it.isFile }.forEach {
+                out.putNextEntry(JarEntry(it.relativeTo(classes).invariantSeparatorsPath))
+                it.inputStream().use { input -> input.copyTo(out) }
+                out.closeEntry()
+            }
+        }
+        return jar.readBytes()
+    }
+
+    private fun serve(exchange: HttpExchange) {
+        try {
+            val file = File(root, exchange.requestURI.path.removePrefix("/"))
+            if (!file.isFile || file.path.contains("/.sources/")) {
+                exchange.sendResponseHeaders(404, -1)
+                return
+            }
+
+            val isArtifact = file.name.endsWith(".jar") || file.name.endsWith(".aar")
+            if (isArtifact && exchange.requestMethod == "GET") {
+                downloads.incrementAndGet()
+                maxConcurrentDownloads.accumulateAndGet(activeDownloads.incrementAndGet(), ::maxOf)
+                try {
+                    Thread.sleep(200)
+                    send(exchange, file)
+                } finally {
+                    activeDownloads.decrementAndGet()
+                }
+            } else {
+                send(exchange, file)
+            }
+        } finally {
+            exchange.close()
+        }
+    }
+
+    private fun send(exchange: HttpExchange, file: File) {
+        if (exchange.requestMethod == "HEAD") {
+            exchange.responseHeaders.add("Content-Length", file.length().toString())
+            exchange.sendResponseHeaders(200, -1)
+        } else {
+            exchange.sendResponseHeaders(200, file.length())
+            file.inputStream().use { it.copyTo(exchange.responseBody) }
+        }
+    }
+}
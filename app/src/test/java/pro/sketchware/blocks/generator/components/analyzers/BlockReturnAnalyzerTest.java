@@ -0,0 +1,98 @@
+package pro.sketchware.blocks.generator.components.analyzers;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+public class BlockReturnAnalyzerTest {
+
+    private static final String CORPUS = "event-bodies.txt";
+    private static final String SEPARATOR = "//----\n";
+
+    @Test
+    public void agreesWithLegacyAnalyzerOnCorpus() throws IOException {
+        LegacyBlockReturnAnalyzer legacy = new LegacyBlockReturnAnalyzer();
+        BlockReturnAnalyzer analyzer = new BlockReturnAnalyzer();
+
+        for (String eventCode : readCorpus()) {
+            boolean expected = legacy.hasAnyMissingReturn(eventCode);
+            assertEquals(eventCode, expected, analyzer.hasAnyMissingReturn(eventCode));
+            // Now from the cache
+            assertEquals(eventCode, expected, analyzer.hasAnyMissingReturn(eventCode));
+        }
+    }
+
+    @Test
+    public void agreesWithLegacyAnalyzerOnManyThreads() throws Exception {
+        List<String> corpus = readCorpus();
+        LegacyBlockReturnAnalyzer legacy = new LegacyBlockReturnAnalyzer();
+        List<Boolean> expected = new ArrayList<>();
+        for (String eventCode : corpus) {
+            expected.add(legacy.hasAnyMissingReturn(eventCode));
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<List<Boolean>>> results = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                int offset = i;
+                results.add(executor.submit(() -> {
+                    // Distinct code per thread, so that each one parses instead of hitting the cache
+                    BlockReturnAnalyzer analyzer = new BlockReturnAnalyzer();
+                    List<Boolean> actual = new ArrayList<>();
+                    for (String eventCode : corpus) {
+                        actual.add(analyzer.hasAnyMissingReturn("// Thread " + offset + "\n" + eventCode));
+                    }
+                    return actual;
+                }));
+            }
+            for (Future<List<Boolean>> result : results) {
+                assertEquals(expected, result.get());
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void detectsMissingReturns() {
+        BlockReturnAnalyzer analyzer = new BlockReturnAnalyzer();
+
+        assertFalse(analyzer.hasAnyMissingReturn("return \"\";"));
+        assertFalse(analyzer.hasAnyMissingReturn("if (a) {\nreturn 1;\n} else {\nreturn 2;\n}"));
+        assertTrue(analyzer.hasAnyMissingReturn("if (a) {\nreturn 1;\n}"));
+        assertTrue(analyzer.hasAnyMissingReturn("switch (a) {\ncase 0:\nreturn 1;\n}"));
+        // Unsupported statements and unparseable code are left alone
+        assertFalse(analyzer.hasAnyMissingReturn("showMessage(\"Hello\");"));
+        assertFalse(analyzer.hasAnyMissingReturn("if (a {"));
+    }
+
+    private static List<String> readCorpus() throws IOException {
+        try (InputStream in = BlockReturnAnalyzerTest.class.getResourceAsStream(CORPUS)) {
+            if (in == null) throw new IOException(CORPUS + " is missing");
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buffer = new byte[8192];
+            for (int read; (read = in.read(buffer)) != -1; ) {
+                out.write(buffer, 0, read);
+            }
+
+            List<String> eventBodies = new ArrayList<>();
+            for (String eventCode : out.toString(StandardCharsets.UTF_8.name()).split(SEPARATOR)) {
+                eventBodies.add(eventCode.trim());
+            }
+            return eventBodies;
+        }
+    }
+}
@@ -0,0 +1,176 @@
+package pro.sketchware.lib.highlighter;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+public class JavaLexerTest {
+
+    private static final String CORPUS = "AddSourceCorpus.java.txt";
+
+    @Test
+    public void colorsCorpusLikeLegacyHighlighter() throws IOException {
+        String text = readCorpus();
+        String[] expected = describeLines(text, LegacyJavaHighlighter.highlight(text));
+        String[] actual = describeLines(text, lex(text));
+
+        assertEquals(expected.length, actual.length);
+        for (int i = 0; i < expected.length; i++) {
+            assertEquals("Line " + (i + 1), expected[i], actual[i]);
+        }
+    }
+
+    /**
+     * The legacy pattern for strings was greedy, and colored everything between the first and the
+     * last quote of a line.
+     */
+    @Test
+    public void stringsEndAtClosingQuote() {
+        String line = "show(\"a\", \"b\");";
+        int[] types = lex(line);
+
+        assertEquals(JavaLexer.TOKEN_STRING, types[line.indexOf("\"a\"") + 2]);
+        assertEquals(JavaLexer.TOKEN_OPERATOR, types[line.indexOf(',')]);
+        assertEquals(JavaLexer.TOKEN_STRING, types[line.indexOf("\"b\"")]);
+    }
+
+    /**
+     * The legacy pattern for line comments also matched in strings, e.g. in URLs.
+     */
+    @Test
+    public void commentMarkersInStringsAreNotComments() {
+        String line = "String url = \"https://sketchware.pro\";";
+        int[] types = lex(line);
+
+        int url = line.indexOf('"');
+        int[] expected = new int[line.lastIndexOf('"') + 1 - url];
+        Arrays.fill(expected, JavaLexer.TOKEN_STRING);
+        assertArrayEquals(expected, Arrays.copyOfRange(types, url, url + expected.length));
+        assertEquals(JavaLexer.TOKEN_OPERATOR, types[line.length() - 1]);
+    }
+
+    /**
+     * The legacy pattern didn't color unterminated strings at all.
+     */
+    @Test
+    public void unterminatedStringsLastUntilEndOfLine() {
+        String text = "String s = \"unterminated + 1;\nint i = 0;";
+        int[] types = lex(text);
+
+        for (int i = text.indexOf('"'); i < text.indexOf('\n'); i++) {
+            assertEquals(JavaLexer.TOKEN_STRING, types[i]);
+        }
+        assertEquals(JavaLexer.TOKEN_KEYWORD, types[text.indexOf("int")]);
+    }
+
+    @Test
+    public void blockCommentsCarryOverLines() {
+        String text = "int a; /* start\nstill comment\nend */ int b;";
+        int[] types = lex(text);
+
+        assertEquals(JavaLexer.TOKEN_COMMENT, types[text.indexOf("still")]);
+        assertEquals(JavaLexer.TOKEN_COMMENT, types[text.indexOf("*/") + 1]);
+        assertEquals(JavaLexer.TOKEN_KEYWORD, types[text.lastIndexOf("int")]);
+    }
+
+    /**
+     * Lexing a line only depends on the state it starts in, which is what lets
+     * {@link SimpleHighlighter} re-lex from an edited line on and stop once states match again.
+     */
+    @Test
+    public void lexingFromRecordedLineStatesMatchesFullLexing() throws IOException {
+        StringBuilder builder = new StringBuilder();
+        String corpus = readCorpus();
+        while (builder.length() < 200_000) {
+            builder.append(corpus).append('\n');
+        }
+        String text = builder.toString();
+
+        int lines = 0;
+        int[] lineStarts = new int[text.length() + 1];
+        int[] lineStates = new int[text.length() + 1];
+        int[] types = new int[text.length()];
+        Arrays.fill(types, -1);
+        long startTime = System.nanoTime();
+        int state = JavaLexer.STATE_DEFAULT;
+        for (int start = 0, end; start <= text.length(); start = end + 1) {
+            end = lineEnd(text, start);
+            lineStarts[lines] = start;
+            lineStates[lines++] = state;
+            state = JavaLexer.lexLine(text, start, end, state, (type, tokenStart, tokenEnd) ->
+                    Arrays.fill(types, tokenStart, tokenEnd, type));
+        }
+        System.out.println("Lexed " + lines + " lines in " + (System.nanoTime() - startTime) / 1_000_000 + " ms");
+
+        for (int line = 0; line < lines; line += 97) {
+            int start = lineStarts[line];
+            int end = lineEnd(text, start);
+            int[] lineTypes = new int[end - start];
+            Arrays.fill(lineTypes, -1);
+            int nextState = JavaLexer.lexLine(text, start, end, lineStates[line], (type, tokenStart, tokenEnd) ->
+                    Arrays.fill(lineTypes, tokenStart - start, tokenEnd - start, type));
+
+            assertArrayEquals("Line " + (line + 1), Arrays.copyOfRange(types, start, end), lineTypes);
+            if (line + 1 < lines) {
+                assertEquals("State after line " + (line + 1), lineStates[line + 1], nextState);
+            }
+        }
+    }
+
+    static int[] lex(String text) {
+        int[] types = new int[text.length()];
+        Arrays.fill(types, -1);
+        int state = JavaLexer.STATE_DEFAULT;
+        for (int start = 0, end; start <= text.length(); start = end + 1) {
+            end = lineEnd(text, start);
+            state = JavaLexer.lexLine(text, start, end, state, (type, tokenStart, tokenEnd) ->
+                    Arrays.fill(types, tokenStart, tokenEnd, type));
+        }
+        return types;
+    }
+
+    static String readCorpus() throws IOException {
+        try (InputStream in = JavaLexerTest.class.getResourceAsStream(CORPUS)) {
+            if (in == null) throw new IOException(CORPUS + " is missing");
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buffer = new byte[8192];
+            for (int read; (read = in.read(buffer)) != -1; ) {
+                out.write(buffer, 0, read);
+            }
+            return out.toString(StandardCharsets.UTF_8.name());
+        }
+    }
+
+    private static int lineEnd(String text, int start) {
+        int end = text.indexOf('\n', start);
+        return end == -1 ? text.length() : end;
+    }
+
+    /**
+     * @return Every line with each character replaced by the token type it got colored as, or
+     * <code>.</code> for uncolored ones. Whitespace doesn't show, so it's always <code>.</code>.
+     */
+    private static String[] describeLines(String text, int[] types) {
+        String[] lines = text.split("\n", -1);
+        String[] descriptions = new String[lines.length];
+        int offset = 0;
+        for (int i = 0; i < lines.length; i++) {
+            StringBuilder description = new StringBuilder(lines[i]).append('\n');
+            for (int j = 0; j < lines[i].length(); j++) {
+                int type = types[offset + j];
+                boolean colored = type != -1 && !Character.isWhitespace(lines[i].charAt(j));
+                description.append(colored ? (char) ('0' + type) : '.');
+            }
+            descriptions[i] = description.toString();
+            offset += lines[i].length() + 1;
+        }
+        return descriptions;
+    }
+}
@@ -0,0 +1,54 @@
+package pro.sketchware.lib.highlighter;
+
+import java.util.Arrays;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * The regex-based highlighting {@link SimpleHighlighter} did before it used {@link JavaLexer}: the
+ * patterns of the former <code>SyntaxScheme.JAVA()</code>, applied in order over the whole text,
+ * later matches overriding earlier ones. Colors are expressed as {@link JavaLexer} token types.
+ */
+class LegacyJavaHighlighter {
+
+    private static final Pattern[] PATTERNS = {
+            Pattern.compile("\\b(out|print|println|valueOf|toString|concat|equals|for|while|switch|getText\\b"
+                    + "|println|printf|print|out|parseInt|round|sqrt|charAt|compareTo|compareToIgnoreCase|concat|contains|contentEquals|equals|length|toLowerCase|trim|toUpperCase|toString|valueOf|substring|startsWith|split|replace|replaceAll|lastIndexOf|size)\\b"),
+            Pattern.compile("\\b(public|private|protected|void|switch|case|class|import|package|extends|Activity|TextView|EditText|LinearLayout|CharSequence|String|int|onCreate|ArrayList|float|if|else|for|static|Intent|Button|SharedPreferences\\b"
+                    + "|abstract|assert|boolean|break|byte|case|catch|char|class|const|continue|default|do|double|else|enum|extends|final|finally|float|for|goto|if|implements|import|instanceof|interface|long|native|new|package|private|protected|"
+                    + "public|return|short|static|strictfp|super|switch|synchronized|this|throw|throws|transient|try|void|volatile|while|true|false|null)\\b"),
+            Pattern.compile("\\b0x[0-9a-f]{6,8}|\\b([0-9]+)\\b"),
+            Pattern.compile("(?!\\s)\\W"),
+            Pattern.compile("(\\w+)(\\()+"),
+            Pattern.compile("\\b(?:[A-Z])[a-zA-Z0-9]+\\b"),
+            Pattern.compile("(?:@)\\w+\\b"),
+            Pattern.compile("\"(.*)\"|'(.*)'"),
+            Pattern.compile("/\\*(?:.|[\\n\\r])*?\\*/|//.*"),
+    };
+
+    private static final int[] TOKEN_TYPES = {
+            JavaLexer.TOKEN_METHOD,
+            JavaLexer.TOKEN_KEYWORD,
+            JavaLexer.TOKEN_NUMBER,
+            JavaLexer.TOKEN_OPERATOR,
+            JavaLexer.TOKEN_METHOD,
+            JavaLexer.TOKEN_TYPE,
+            JavaLexer.TOKEN_ANNOTATION,
+            JavaLexer.TOKEN_STRING,
+            JavaLexer.TOKEN_COMMENT,
+    };
+
+    /**
+     * @return The token type every character got colored as, or -1 for uncolored ones
+     */
+    static int[] highlight(CharSequence text) {
+        int[] types = new int[text.length()];
+        Arrays.fill(types, -1);
+        for (int i = 0; i < PATTERNS.length; i++) {
+            for (Matcher m = PATTERNS[i].matcher(text); m.find(); ) {
+                Arrays.fill(types, m.start(), m.end(), TOKEN_TYPES[i]);
+            }
+        }
+        return types;
+    }
+}
@@ -0,0 +1,74 @@
+package pro.sketchware.lib.highlighter;
+
+import static org.junit.Assert.assertEquals;
+
+import android.text.Editable;
+import android.text.style.ForegroundColorSpan;
+import android.widget.EditText;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+import java.io.IOException;
+import java.util.Random;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 28)
+public class SimpleHighlighterTest {
+
+    /**
+     * Edits that change line counts or lexer states of following lines, e.g. by opening a block
+     * comment.
+     */
+    private static final String[] INSERTIONS = {
+            "", "a", "(", "\"", "'", "//", "/*", "*/", "\n", "\n\n", "0x1f", "@Override",
+            "return", "String", " ", "foo(\"bar\");\n", "/* multi\nline */",
+    };
+
+    @Test
+    public void editsColorTextLikeHighlightingItFromScratch() throws IOException {
+        EditText editor = new EditText(RuntimeEnvironment.getApplication());
+        editor.setText(JavaLexerTest.readCorpus());
+        new SimpleHighlighter(editor);
+
+        Random random = new Random(42);
+        for (int i = 0; i < 300; i++) {
+            Editable text = editor.getText();
+            int start = random.nextInt(text.length() + 1);
+            int end = Math.min(text.length(), start + random.nextInt(8));
+            String insertion = INSERTIONS[random.nextInt(INSERTIONS.length)];
+            text.replace(start, end, insertion);
+
+            EditText expected = new EditText(RuntimeEnvironment.getApplication());
+            expected.setText(text.toString());
+            new SimpleHighlighter(expected);
+            assertEquals("After edit " + (i + 1) + ", replacing " + start + ".." + end + " with \"" + insertion + "\"",
+                    describeColors(expected.getText()), describeColors(text));
+        }
+    }
+
+    /**
+     * @return Colors of all spans covering each character, one line per character, so that stale
+     * and overlapping spans show up too
+     */
+    private static String describeColors(Editable text) {
+        StringBuilder[] colors = new StringBuilder[text.length()];
+        for (ForegroundColorSpan span : text.getSpans(0, text.length(), ForegroundColorSpan.class)) {
+            for (int i = text.getSpanStart(span); i < text.getSpanEnd(span); i++) {
+                if (colors[i] == null) colors[i] = new StringBuilder();
+                colors[i].append(' ').append(Integer.toHexString(span.getForegroundColor()));
+            }
+        }
+
+        StringBuilder description = new StringBuilder();
+        for (int i = 0; i < text.length(); i++) {
+            description.append(i).append(" '").append(text.charAt(i)).append("':");
+            if (colors[i] != null) description.append(colors[i]);
+            description.append('\n');
+        }
+        return description.toString();
+    }
+}